@@ -85,6 +85,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.vistatec.ocelot.di.OcelotModule;
 import com.vistatec.ocelot.events.ConfigTmRequestEvent;
+import com.vistatec.ocelot.events.LeverageAnalysisRequestEvent;
 import com.vistatec.ocelot.events.OcelotEditingEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
@@ -121,6 +122,7 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 	private JCheckBoxMenuItem menuTgtDiff;
 	private JMenuItem menuColumns;
 	private JMenuItem menuConfigTm;
+	private JMenuItem menuLeverage;
 	private JMenuItem menuSaveAsTmx;
 	private JMenuItem menuLqiGrid;
 
@@ -279,6 +281,8 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 			        "Configure Columns");
 		} else if (e.getSource() == this.menuConfigTm) {
 			eventQueue.post(new ConfigTmRequestEvent(mainframe));
+		} else if (e.getSource() == this.menuLeverage) {
+			eventQueue.post(new LeverageAnalysisRequestEvent(mainframe));
 		} else if (e.getSource() == this.menuLqiGrid) {
 			lqiGridController.displayLQIGrid();
 		} else if (e.getSource() == this.menuFindReplace) {
@@ -455,6 +459,10 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		menuConfigTm.addActionListener(this);
 		menuView.add(menuConfigTm);
 
+		menuLeverage = new JMenuItem("Leverage Analysis");
+		menuLeverage.addActionListener(this);
+		menuView.add(menuLeverage);
+
 		menuLqiGrid = new JMenuItem("LQI Grid");
 		menuLqiGrid.addActionListener(this);
 		menuView.add(menuLqiGrid);
@@ -556,6 +564,7 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 
 	private void quitOcelot() {
 		LQIKeyEventManager.destroy();
+		ocelotApp.shutdownPlugins();
 		mainframe.dispose();
 		mainframe.setVisible(false);
 		System.exit(0);
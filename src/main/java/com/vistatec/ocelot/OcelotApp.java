@@ -48,6 +48,7 @@ import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.vistatec.ocelot.events.OpenFileEvent;
 import com.vistatec.ocelot.events.ProvenanceAddEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteEditEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -172,6 +173,11 @@ public class OcelotApp implements OcelotEventQueueListener {
         this.fileDirty = true;
     }
 
+    @Subscribe
+    public void segmentBatchEdit(SegmentBatchEditEvent e) {
+        this.fileDirty = true;
+    }
+
     @Subscribe
     public void provenanceAdded(ProvenanceAddEvent e) {
         this.fileDirty = true;
@@ -196,6 +202,13 @@ public class OcelotApp implements OcelotEventQueueListener {
         return pluginManager.getPluginMenuList(mainframe);
     }
 
+    /**
+     * Stops the threads of the plugins before quitting.
+     */
+    public void shutdownPlugins() {
+        pluginManager.shutdown();
+    }
+
 public List<JMenuItem> getSegmentContexPluginMenues(OcelotSegment segment,
 			BaseSegmentVariant variant, boolean target) {
 
@@ -19,6 +19,7 @@ import com.vistatec.ocelot.config.ConfigTransferService.TransferException;
 import com.vistatec.ocelot.config.LqiConfigService;
 import com.vistatec.ocelot.events.LQIDeselectionEvent;
 import com.vistatec.ocelot.events.LQISelectionEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentSelectionEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
@@ -106,12 +107,23 @@ public class SegmentMenu implements OcelotEventQueueListener {
     public void segmentEdited(SegmentEditEvent e) {
         OcelotSegment seg = e.getSegment();
         if (seg.equals(selectedSegment)) {
-            menuRestoreTarget.setEnabled(seg.hasOriginalTarget() &&
-                    seg.getTarget().getDisplayText().equals(
-                            seg.getOriginalTarget().getDisplayText()));
+            updateRestoreTarget(seg);
         }
     }
 
+    @Subscribe
+    public void segmentsEdited(SegmentBatchEditEvent e) {
+        if (selectedSegment != null && e.getSegments().contains(selectedSegment)) {
+            updateRestoreTarget(selectedSegment);
+        }
+    }
+
+    private void updateRestoreTarget(OcelotSegment seg) {
+        menuRestoreTarget.setEnabled(seg.hasOriginalTarget() &&
+                seg.getTarget().getDisplayText().equals(
+                        seg.getOriginalTarget().getDisplayText()));
+    }
+
     @Subscribe
     public void selectedLQI(LQISelectionEvent e) {
         menuRemoveIssue.setEnabled(e.getLQI() != null);
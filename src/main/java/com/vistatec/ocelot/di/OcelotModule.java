@@ -2,8 +2,11 @@ package com.vistatec.ocelot.di;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.xml.bind.JAXBException;
 
 import org.slf4j.Logger;
@@ -31,6 +34,7 @@ import com.vistatec.ocelot.config.OcelotXmlConfigTransferService;
 import com.vistatec.ocelot.events.api.EventBusWrapper;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.findrep.FindAndReplaceController;
+import com.vistatec.ocelot.findrep.SegmentTextIndex;
 import com.vistatec.ocelot.its.stats.model.ITSDocStats;
 import com.vistatec.ocelot.lqi.LQIGridController;
 import com.vistatec.ocelot.lqi.constants.LQIConstants;
@@ -44,12 +48,14 @@ import com.vistatec.ocelot.services.SegmentService;
 import com.vistatec.ocelot.services.SegmentServiceImpl;
 import com.vistatec.ocelot.services.XliffService;
 import com.vistatec.ocelot.tm.TmManager;
+import com.vistatec.ocelot.tm.TmMetrics;
 import com.vistatec.ocelot.tm.TmPenalizer;
 import com.vistatec.ocelot.tm.TmService;
 import com.vistatec.ocelot.tm.gui.TmGuiManager;
 import com.vistatec.ocelot.tm.okapi.OkapiTmManager;
 import com.vistatec.ocelot.tm.okapi.OkapiTmService;
 import com.vistatec.ocelot.tm.okapi.OkapiTmxWriter;
+import com.vistatec.ocelot.tm.okapi.ProjectTm;
 import com.vistatec.ocelot.tm.penalty.SimpleTmPenalizer;
 
 /**
@@ -98,12 +104,17 @@ public class OcelotModule extends AbstractModule {
             SegmentService segmentService = new SegmentServiceImpl(eventQueue);
             bind(SegmentService.class).toInstance(segmentService);
             eventQueue.registerListener(segmentService);
+            pluginManager.setSegmentService(segmentService);
 
             File tm = new File(ocelotDir, "tm");
             tm.mkdirs();
             OkapiTmxWriter tmxWriter = new OkapiTmxWriter(segmentService);
             eventQueue.registerListener(tmxWriter);
             tmManager = new OkapiTmManager(tm, cfgService, tmxWriter);
+            ProjectTm projectTm = new ProjectTm(new File(ocelotDir, "project-tm"));
+            eventQueue.registerListener(projectTm);
+            ((OkapiTmManager) tmManager).setProjectTm(projectTm);
+            registerMBean(tmManager.getMetrics(), TmMetrics.OBJECT_NAME);
             
             bind(OkapiTmManager.class).toInstance((OkapiTmManager) tmManager);
             penalizer = new SimpleTmPenalizer(tmManager);
@@ -115,7 +126,10 @@ public class OcelotModule extends AbstractModule {
             eventQueue.registerListener(lqiGridController);
             bind(LQIGridController.class).toInstance(lqiGridController);
             
-            frController = new FindAndReplaceController(eventQueue);
+            SegmentTextIndex textIndex = new SegmentTextIndex();
+            eventQueue.registerListener(textIndex);
+            bind(SegmentTextIndex.class).toInstance(textIndex);
+            frController = new FindAndReplaceController(eventQueue, textIndex);
             eventQueue.registerListener(frController);
         } catch (IOException | JAXBException | ConfigTransferService.TransferException ex) {
             LOG.error("Failed to initialize configuration", ex);
@@ -133,6 +147,19 @@ public class OcelotModule extends AbstractModule {
 		bindServices(eventQueue, cfgService, lqiCfgService, docStats);
     }
     
+    /**
+     * Expose an MXBean through the platform MBean server. Failing to do so
+     * only disables the monitoring.
+     */
+    private void registerMBean(Object mbean, String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean,
+                    new ObjectName(name));
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean " + name, e);
+        }
+    }
+
     public static PlatformSupport getPlatformSupport() {
         String os = System.getProperty("os.name");
         if (os.startsWith("Mac")) {
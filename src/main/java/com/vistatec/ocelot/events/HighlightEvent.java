@@ -11,12 +11,49 @@ public class HighlightEvent implements OcelotEvent {
 	private List<FindResult> highlightDataList;
 	
 	private int currResultIndex;
+
+	private boolean append;
 	
 	public HighlightEvent(List<FindResult> highlightDataList, int currResultIndex) {
 		
 		this.highlightDataList	= highlightDataList;
 		this.currResultIndex = currResultIndex;
 	}
+
+	/**
+	 * Constructor for a batch of results streamed by a running search.
+	 * 
+	 * @param highlightDataList
+	 *            the results found since the previous batch.
+	 * @param append
+	 *            if <code>true</code> the results are added to the ones
+	 *            already highlighted, otherwise they replace them.
+	 */
+	public HighlightEvent(List<FindResult> highlightDataList, boolean append) {
+
+		this(highlightDataList, -1, append);
+	}
+
+	/**
+	 * Constructor for a batch of results, one of them being the current
+	 * result. An appended result already highlighted just becomes the
+	 * current one.
+	 * 
+	 * @param highlightDataList
+	 *            the results.
+	 * @param currResultIndex
+	 *            the index of the current result in the batch; -1 if none.
+	 * @param append
+	 *            if <code>true</code> the results are added to the ones
+	 *            already highlighted, otherwise they replace them.
+	 */
+	public HighlightEvent(List<FindResult> highlightDataList,
+			int currResultIndex, boolean append) {
+
+		this.highlightDataList = highlightDataList;
+		this.currResultIndex = currResultIndex;
+		this.append = append;
+	}
 	
 	public HighlightEvent(FindResult highlightData) {
 		
@@ -33,5 +70,10 @@ public class HighlightEvent implements OcelotEvent {
 		
 		return currResultIndex; 
 	}
+
+	public boolean isAppend() {
+
+		return append;
+	}
 	
 }
@@ -0,0 +1,23 @@
+package com.vistatec.ocelot.events;
+
+import java.awt.Window;
+
+import com.vistatec.ocelot.events.api.OcelotEvent;
+
+/**
+ * Requests a leverage analysis of the open document against the configured
+ * TMs.
+ */
+public class LeverageAnalysisRequestEvent implements OcelotEvent {
+
+	private Window currentWindow;
+
+	public LeverageAnalysisRequestEvent(final Window currentWindow) {
+
+		this.currentWindow = currentWindow;
+	}
+
+	public Window getCurrentWindow() {
+		return currentWindow;
+	}
+}
@@ -1,18 +1,48 @@
 package com.vistatec.ocelot.events;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 import com.vistatec.ocelot.events.api.OcelotEvent;
 
 public class RefreshSegmentView implements OcelotEvent {
-	
-	private int segmentNumber;
+
+	private List<Integer> segmentNumbers;
 
 	public RefreshSegmentView(final int segmentNumber) {
 
-		this.segmentNumber = segmentNumber;
+		this.segmentNumbers = Collections.singletonList(segmentNumber);
 	}
 
+	/**
+	 * Refreshes several segments at once.
+	 *
+	 * @param segmentNumbers
+	 *            the numbers of the segments to refresh, at least one.
+	 */
+	public RefreshSegmentView(final Collection<Integer> segmentNumbers) {
+
+		if (segmentNumbers.isEmpty()) {
+			throw new IllegalArgumentException("No segment to refresh.");
+		}
+		this.segmentNumbers = Collections
+		        .unmodifiableList(new ArrayList<Integer>(segmentNumbers));
+	}
+
+	/**
+	 * Gets the number of the refreshed segment, the first one when several
+	 * segments are refreshed.
+	 *
+	 * @return the segment number.
+	 */
 	public int getSegmentNumber() {
-		return segmentNumber;
+		return segmentNumbers.get(0);
+	}
+
+	public List<Integer> getSegmentNumbers() {
+		return segmentNumbers;
 	}
 
 }
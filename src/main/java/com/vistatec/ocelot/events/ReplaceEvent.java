@@ -1,6 +1,9 @@
 package com.vistatec.ocelot.events;
 
+import java.util.List;
+
 import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.findrep.FindResult;
 
 public class ReplaceEvent implements OcelotEvent {
 
@@ -14,9 +17,14 @@ public class ReplaceEvent implements OcelotEvent {
 	
 	private int segmentIndex;
 
-	public ReplaceEvent(String newString, int action) {
-		this.newString = newString;
-		this.action = action;
+	private List<FindResult> results;
+
+	private List<String> replacements;
+
+	public ReplaceEvent(List<FindResult> results, List<String> replacements) {
+		this.results = results;
+		this.replacements = replacements;
+		this.action = REPLACE_ALL;
 	}
 	
 	public ReplaceEvent(String newString, int segmentIndex, int action) {
@@ -38,4 +46,22 @@ public class ReplaceEvent implements OcelotEvent {
 	public int getAction(){
 		return action;
 	}
+
+	/**
+	 * Gets the results to be replaced by a replace all action.
+	 * 
+	 * @return the results.
+	 */
+	public List<FindResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * Gets the strings replacing the results, in the same order.
+	 * 
+	 * @return the replacement strings.
+	 */
+	public List<String> getReplacements() {
+		return replacements;
+	}
 }
@@ -0,0 +1,29 @@
+package com.vistatec.ocelot.events;
+
+import java.util.List;
+
+import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * Signals that the targets of many segments have been edited at once. It is
+ * posted once per batch in place of one {@link SegmentEditEvent} per segment.
+ */
+public class SegmentBatchEditEvent implements OcelotEvent {
+    private final XLIFFDocument xliff;
+    private final List<OcelotSegment> segments;
+
+    public SegmentBatchEditEvent(XLIFFDocument xliff, List<OcelotSegment> segments) {
+        this.xliff = xliff;
+        this.segments = segments;
+    }
+
+    public XLIFFDocument getDocument() {
+        return xliff;
+    }
+
+    public List<OcelotSegment> getSegments() {
+        return segments;
+    }
+}
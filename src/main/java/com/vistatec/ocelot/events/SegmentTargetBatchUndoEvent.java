@@ -0,0 +1,9 @@
+package com.vistatec.ocelot.events;
+
+import com.vistatec.ocelot.events.api.OcelotEvent;
+
+/**
+ * Requests to undo the last batch of segment target updates.
+ */
+public class SegmentTargetBatchUndoEvent implements OcelotEvent {
+}
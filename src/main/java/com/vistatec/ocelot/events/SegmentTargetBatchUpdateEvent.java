@@ -0,0 +1,32 @@
+package com.vistatec.ocelot.events;
+
+import java.util.Map;
+
+import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * Requests to update the targets of many segments at once, e.g. by a replace
+ * all. The updates are applied as a single batch that can be undone in one
+ * step.
+ */
+public class SegmentTargetBatchUpdateEvent implements OcelotEvent {
+    private final XLIFFDocument xliff;
+    private final Map<OcelotSegment, SegmentVariant> updatedTargets;
+
+    public SegmentTargetBatchUpdateEvent(XLIFFDocument xliff,
+            Map<OcelotSegment, SegmentVariant> updatedTargets) {
+        this.xliff = xliff;
+        this.updatedTargets = updatedTargets;
+    }
+
+    public XLIFFDocument getDocument() {
+        return xliff;
+    }
+
+    public Map<OcelotSegment, SegmentVariant> getUpdatedTargets() {
+        return updatedTargets;
+    }
+}
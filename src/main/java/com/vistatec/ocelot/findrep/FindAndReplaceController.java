@@ -2,16 +2,24 @@ package com.vistatec.ocelot.findrep;
 
 import java.awt.Window;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.Subscribe;
 import com.vistatec.ocelot.events.HighlightEvent;
 import com.vistatec.ocelot.events.OpenFileEvent;
 import com.vistatec.ocelot.events.ReplaceDoneEvent;
 import com.vistatec.ocelot.events.ReplaceEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUndoEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
@@ -22,6 +30,10 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
  */
 public class FindAndReplaceController implements OcelotEventQueueListener {
 
+	/** The logger for this class. */
+	private static final Logger LOG = LoggerFactory
+			.getLogger(FindAndReplaceController.class);
+
 	/** Result found constant. */
 	public static final int RESULT_FOUND = 0;
 
@@ -31,6 +43,9 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	/** Result end of document reached constant. */
 	public static final int RESULT_END_OF_DOC_REACHED = 2;
 
+	/** Result invalid regular expression constant. */
+	public static final int RESULT_INVALID_PATTERN = 3;
+
 	/** The Ocelot event queue. */
 	private OcelotEventQueue eventQueue;
 
@@ -38,7 +53,7 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	private WordFinder wordFinder;
 
 	/** The find and replace dialog. */
-	private FindReplaceDialog frDialog;
+	private FindReplaceView frDialog;
 
 	/** The source locale in the opened XLIFF document. */
 	private Locale sourceLocale;
@@ -55,16 +70,26 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	/** List of replaced results. */
 	private List<Integer> replacedResIdxList;
 
+	/** The worker running the current find all search. */
+	private FindAllWorker findAllWorker;
+
+	/** Whether a find next waits for the running search to find a result. */
+	private boolean findNextPending;
+
 	/**
 	 * Constructor.
 	 * 
 	 * @param eventQueue
 	 *            the event queue
+	 * @param textIndex
+	 *            the index of the opened document text
 	 */
-	public FindAndReplaceController(OcelotEventQueue eventQueue) {
+	public FindAndReplaceController(OcelotEventQueue eventQueue,
+			SegmentTextIndex textIndex) {
 
 		this.eventQueue = eventQueue;
 		wordFinder = new WordFinder();
+		wordFinder.setTextIndex(textIndex);
 		replacedResIdxList = new ArrayList<Integer>();
 	}
 
@@ -98,6 +123,8 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	 * Clears the controller.
 	 */
 	private void clear() {
+		cancelFindAll();
+		findNextPending = false;
 		lastSearchedText = null;
 		replacedResIdxList.clear();
 	}
@@ -116,15 +143,12 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 			if (lastSearchedText == null || !text.equals(lastSearchedText)) {
 				lastSearchedText = text;
 				replacedResIdxList.clear();
-				wordFinder.goToStartOfDocument();
-				wordFinder.clearAllResults();
-				List<FindResult> results = wordFinder.findWord(text, segments);
-				if (results != null && !results.isEmpty()) {
-					frDialog.displayOccurrenceNum(results.size());
-					sendHighlightEvent(results);
-				} else {
-					frDialog.setResult(RESULT_NOT_FOUND);
-					eventQueue.post(new HighlightEvent(null, -1));
+				startFindAll(text);
+				// if the search is still running, then go to the next result
+				// found so far, or to the next one found
+			} else if (findAllWorker != null) {
+				if (!goToNextStreamedResult()) {
+					findNextPending = true;
 				}
 				// if a list of results already exists, then go to the next
 				// result
@@ -146,6 +170,123 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 		}
 	}
 
+	/**
+	 * Starts searching all the occurrences of a text on a worker thread. The
+	 * search running for a previous text, if any, is cancelled. Results are
+	 * highlighted in batches as they are found.
+	 * 
+	 * @param text
+	 *            the text to be searched.
+	 */
+	private void startFindAll(String text) {
+
+		cancelFindAll();
+		findNextPending = false;
+		wordFinder.goToStartOfDocument();
+		wordFinder.setAllResults(new ArrayList<FindResult>());
+		eventQueue.post(new HighlightEvent(null, -1));
+		findAllWorker = new FindAllWorker(text, new WordFinder(wordFinder));
+		frDialog.setSearching(true);
+		findAllWorker.execute();
+	}
+
+	/**
+	 * Goes to the next result found so far by the running search, when
+	 * searching down.
+	 * 
+	 * @return <code>true</code> if the current result has moved;
+	 *         <code>false</code> if the next result has not been found yet.
+	 */
+	private boolean goToNextStreamedResult() {
+
+		if (wordFinder.getDirection() != WordFinder.DIRECTION_DOWN) {
+			return false;
+		}
+		List<FindResult> results = wordFinder.getAllResults();
+		do {
+			if (wordFinder.getCurrentResIndex() + 1 >= results.size()) {
+				return false;
+			}
+			wordFinder.goToNextResult();
+		} while (replacedResIdxList.contains(wordFinder.getCurrentResIndex()));
+		sendCurrentResult();
+		return true;
+	}
+
+	/**
+	 * Makes the current result the highlighted one, without highlighting the
+	 * other results again.
+	 */
+	private void sendCurrentResult() {
+
+		eventQueue.post(new HighlightEvent(Collections.singletonList(wordFinder
+				.getAllResults().get(wordFinder.getCurrentResIndex())), 0, true));
+		frDialog.setResult(RESULT_FOUND);
+	}
+
+	/**
+	 * Cancels the running find all search, if any.
+	 */
+	private void cancelFindAll() {
+
+		if (findAllWorker != null) {
+			findAllWorker.cancel(true);
+			findAllWorker = null;
+			if (frDialog != null) {
+				frDialog.setSearching(false);
+			}
+		}
+	}
+
+	/**
+	 * Handles the end of a find all search. The results have already been
+	 * highlighted as they were streamed: only the current result is set, if
+	 * it could not be while searching.
+	 * 
+	 * @param results
+	 *            the results found.
+	 */
+	private void findAllDone(List<FindResult> results) {
+
+		frDialog.setSearching(false);
+		if (results.isEmpty()) {
+			findNextPending = false;
+			frDialog.setResult(RESULT_NOT_FOUND);
+			eventQueue.post(new HighlightEvent(null, -1));
+			return;
+		}
+		frDialog.displayOccurrenceNum(results.size());
+		if (wordFinder.getCurrentResIndex() == -1) {
+			// searching up, the first result is the last one found
+			findNextPending = false;
+			wordFinder.setAllResults(wordFinder.getAllResults());
+			sendCurrentResult();
+		} else if (findNextPending) {
+			findNextPending = false;
+			findNext(lastSearchedText);
+		}
+	}
+
+	/**
+	 * Handles the failure of a find all search.
+	 * 
+	 * @param cause
+	 *            the cause of the failure.
+	 */
+	private void findAllFailed(Throwable cause) {
+
+		frDialog.setSearching(false);
+		findNextPending = false;
+		lastSearchedText = null;
+		if (cause instanceof PatternSyntaxException) {
+			frDialog.setResult(RESULT_INVALID_PATTERN);
+		} else {
+			LOG.error("Error while searching the document", cause);
+			frDialog.setResult(RESULT_NOT_FOUND);
+		}
+		eventQueue.post(new HighlightEvent(null, -1));
+	}
+
 	/**
 	 * Sends the highlight event for current results.
 	 * 
@@ -176,17 +317,24 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	/**
 	 * Replaces the string currently highlighted in the grid, with a new string.
 	 * This method simply sends an event and then the segment view will take
-	 * care of the text replacing.
+	 * care of the text replacing. Nothing is replaced while the search is
+	 * still running: the results still to come would not be shifted by the
+	 * replacement.
 	 * 
 	 * @param newString
 	 *            the new string.
 	 */
 	public void replace(String newString) {
+
+		if (findAllWorker != null) {
+			return;
+		}
+
 		boolean replace = true;
 		if (newString.isEmpty()) {
 			int option = JOptionPane
 					.showConfirmDialog(
-							frDialog,
+							frDialog.getComponent(),
 							"Do you want to replace the selected occurrence with an empty string?",
 							"Replace", JOptionPane.YES_NO_OPTION);
 			replace = option == JOptionPane.YES_OPTION;
@@ -196,14 +344,22 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 			if (replacedResIdxList.contains(wordFinder.getCurrentResIndex())) {
 				findNext(lastSearchedText);
 			} else if (wordFinder.getCurrentResIndex() != -1) {
-				eventQueue.post(new ReplaceEvent(newString,
-						wordFinder.getAllResults()
-								.get(wordFinder.getCurrentResIndex())
-								.getSegmentIndex(), ReplaceEvent.REPLACE));
-				wordFinder.replacedString(newString);
+				FindResult currResult = wordFinder.getAllResults().get(
+						wordFinder.getCurrentResIndex());
+				String replacement = null;
+				try {
+					replacement = wordFinder.getReplacement(currResult,
+							newString);
+				} catch (IllegalArgumentException e) {
+					showInvalidReplacementMessage(e);
+					return;
+				}
+				eventQueue.post(new ReplaceEvent(replacement, currResult
+						.getSegmentIndex(), ReplaceEvent.REPLACE));
+				wordFinder.replacedString(replacement);
 				replacedResIdxList.add(wordFinder.getCurrentResIndex());
-				if (replacedResIdxList.size() == wordFinder
-						.getAllResults().size()) {
+				if (replacedResIdxList.size() == wordFinder.getAllResults()
+						.size()) {
 					wordFinder.clearAllResults();
 					clear();
 				}
@@ -211,6 +367,18 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 		}
 	}
 
+	/**
+	 * Displays a message explaining why a replacement string is not valid.
+	 * 
+	 * @param e
+	 *            the exception raised while expanding the replacement.
+	 */
+	private void showInvalidReplacementMessage(IllegalArgumentException e) {
+
+		JOptionPane.showMessageDialog(frDialog.getComponent(), e.getMessage(),
+				"Invalid Replacement", JOptionPane.ERROR_MESSAGE);
+	}
+
 	/**
 	 * Set the scope to the source.
 	 */
@@ -250,6 +418,30 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 		clear();
 	}
 
+	/**
+	 * Sets the "regular expression" option.
+	 * 
+	 * @param regex
+	 *            if <true> the searched text is handled as a regular
+	 *            expression.
+	 */
+	public void setRegex(boolean regex) {
+		wordFinder.enableOption(WordFinder.REGEX_OPTION, regex);
+		clear();
+	}
+
+	/**
+	 * Sets the "multiple terms" option.
+	 * 
+	 * @param multiTerm
+	 *            if <true> the searched text is handled as a list of terms
+	 *            separated by <code>WordFinder.TERM_SEPARATOR</code>.
+	 */
+	public void setMultiTerm(boolean multiTerm) {
+		wordFinder.enableOption(WordFinder.MULTI_TERM_OPTION, multiTerm);
+		clear();
+	}
+
 	/**
 	 * Sets the search direction to "down".
 	 */
@@ -272,13 +464,25 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	 */
 	public void displayDialog(Window owner) {
 		if (frDialog == null) {
-			frDialog = new FindReplaceDialog(owner, this);
-			frDialog.open();
+			FindReplaceDialog dialog = new FindReplaceDialog(owner, this);
+			frDialog = dialog;
+			dialog.open();
 		} else {
-			frDialog.requestFocus();
+			frDialog.getComponent().requestFocus();
 		}
 	}
 
+	/**
+	 * Sets the view displaying the state of the controller in place of the
+	 * dialog, e.g. in tests.
+	 * 
+	 * @param view
+	 *            the view.
+	 */
+	void setView(FindReplaceView view) {
+		frDialog = view;
+	}
+
 	/**
 	 * Closes the find and replace dialog.
 	 */
@@ -312,24 +516,46 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	}
 
 	/**
-	 * Replaces all the highlighted strings with a specific text.
+	 * Replaces all the highlighted strings with a specific text. Nothing is
+	 * replaced while the search is still running.
 	 * 
 	 * @param text
 	 *            the text
 	 */
 	public void replaceAll(String text) {
 
+		if (findAllWorker != null) {
+			return;
+		}
+
 		boolean replace = true;
 		if (text.isEmpty()) {
 			int option = JOptionPane
 					.showConfirmDialog(
-							frDialog,
+							frDialog.getComponent(),
 							"Do you want to replace all occurrences with an empty string?",
 							"Replace", JOptionPane.YES_NO_OPTION);
 			replace = option == JOptionPane.YES_OPTION;
 		}
 		if (replace) {
-			eventQueue.post(new ReplaceEvent(text, ReplaceEvent.REPLACE_ALL));
+			List<FindResult> results = new ArrayList<FindResult>();
+			List<String> replacements = new ArrayList<String>();
+			if (wordFinder.getAllResults() != null) {
+				for (int i = 0; i < wordFinder.getAllResults().size(); i++) {
+					if (!replacedResIdxList.contains(i)) {
+						FindResult result = wordFinder.getAllResults().get(i);
+						try {
+							replacements.add(wordFinder.getReplacement(result,
+									text));
+						} catch (IllegalArgumentException e) {
+							showInvalidReplacementMessage(e);
+							return;
+						}
+						results.add(result);
+					}
+				}
+			}
+			eventQueue.post(new ReplaceEvent(results, replacements));
 			wordFinder.clearAllResults();
 			clear();
 		}
@@ -337,7 +563,8 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 
 	/**
 	 * Once all occurrences have been replaced, it prompt a message to the user
-	 * displaying the number of replaced occurrences.
+	 * displaying the number of replaced occurrences. The user can undo the
+	 * whole replace all from the same message.
 	 * 
 	 * @param e
 	 *            the replace done event.
@@ -346,10 +573,108 @@ public class FindAndReplaceController implements OcelotEventQueueListener {
 	public void handleReplaceAllDone(ReplaceDoneEvent e) {
 
 		if (frDialog != null) {
-			JOptionPane.showMessageDialog(frDialog,
-					"Replaced " + e.getReplacedOccurrencesNum()
-							+ " occurrences.", "Replace All",
-					JOptionPane.INFORMATION_MESSAGE);
+			String message = "Replaced " + e.getReplacedOccurrencesNum()
+					+ " occurrences.";
+			if (e.getReplacedOccurrencesNum() > 0) {
+				Object[] options = { "OK", "Undo" };
+				int option = JOptionPane.showOptionDialog(
+						frDialog.getComponent(), message,
+						"Replace All", JOptionPane.DEFAULT_OPTION,
+						JOptionPane.INFORMATION_MESSAGE, null, options,
+						options[0]);
+				if (option == 1) {
+					eventQueue.post(new SegmentTargetBatchUndoEvent());
+				}
+			} else {
+				JOptionPane.showMessageDialog(frDialog.getComponent(), message,
+						"Replace All", JOptionPane.INFORMATION_MESSAGE);
+			}
+		}
+	}
+
+	/**
+	 * Worker searching all the occurrences of a text with its own copy of the
+	 * word finder. Results are published as they are found, so that the
+	 * running count, the highlights and the results of the controller word
+	 * finder are updated while the search goes on. The first result found
+	 * becomes the current one when searching down. The worker stops as soon
+	 * as it is cancelled.
+	 */
+	private class FindAllWorker extends SwingWorker<List<FindResult>, FindResult>
+			implements FindResultListener {
+
+		/** The searched text. */
+		private final String text;
+
+		/** The word finder used by this worker. */
+		private final WordFinder finder;
+
+		/** The segments to be searched. */
+		private final List<OcelotSegment> searchedSegments;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param text
+		 *            the text to be searched.
+		 * @param finder
+		 *            the word finder.
+		 */
+		public FindAllWorker(String text, WordFinder finder) {
+
+			this.text = text;
+			this.finder = finder;
+			this.searchedSegments = segments;
+		}
+
+		@Override
+		protected List<FindResult> doInBackground() throws Exception {
+
+			return finder.findWord(text, searchedSegments, this);
+		}
+
+		@Override
+		public void resultFound(FindResult result) {
+
+			publish(result);
+		}
+
+		@Override
+		protected void process(List<FindResult> chunks) {
+
+			if (isCancelled() || findAllWorker != this) {
+				return;
+			}
+			List<FindResult> results = wordFinder.getAllResults();
+			int firstChunkIdx = results.size();
+			results.addAll(chunks);
+			frDialog.displayOccurrenceNum(results.size());
+			// the chunk holds the first result or the one a find next waits for
+			int currChunkIdx = -1;
+			if (wordFinder.getDirection() == WordFinder.DIRECTION_DOWN
+					&& (wordFinder.getCurrentResIndex() == -1 || findNextPending)) {
+				findNextPending = false;
+				wordFinder.goToNextResult();
+				currChunkIdx = wordFinder.getCurrentResIndex() - firstChunkIdx;
+			}
+			eventQueue.post(new HighlightEvent(new ArrayList<FindResult>(
+					chunks), currChunkIdx, true));
+		}
+
+		@Override
+		protected void done() {
+
+			if (isCancelled() || findAllWorker != this) {
+				return;
+			}
+			findAllWorker = null;
+			try {
+				findAllDone(get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				findAllFailed(e.getCause());
+			}
 		}
 	}
 }
@@ -30,7 +30,7 @@ import javax.swing.SwingConstants;
  * functionality.
  */
 public class FindReplaceDialog extends JDialog implements ActionListener,
-		ItemListener {
+		ItemListener, FindReplaceView {
 
 	/** The serial version UID. */
 	private static final long serialVersionUID = 1L;
@@ -39,7 +39,7 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	private static final int WIDTH = 450;
 
 	/** The dialog height. */
-	private static final int HEIGHT = 300;
+	private static final int HEIGHT = 350;
 
 	/** The buttons width. */
 	private static final int BTN_WIDTH = 100;
@@ -63,7 +63,7 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	private static final int SETTING_PANELS_WIDTH = 135;
 
 	/** The settings panel height. */
-	private static final int SETTING_PANELS_HEIGHT = 100;
+	private static final int SETTING_PANELS_HEIGHT = 145;
 
 	/** The text displaying the number of found occurrences. */
 	private static final String OCCUR_NUM_LBL_TEXT = "Found $$$ occurrences. ";
@@ -86,6 +86,9 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	/** The close button. */
 	private JButton btnClose;
 
+	/** Whether a search is running. */
+	private boolean searching;
+
 	/** The find text field. */
 	private JTextField txtFind;
 
@@ -101,6 +104,12 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	/** The wrap search check box. */
 	private JCheckBox ckWrapSearch;
 
+	/** The regular expression check box. */
+	private JCheckBox ckRegex;
+
+	/** The multiple terms check box. */
+	private JCheckBox ckMultiTerm;
+
 	/** The source radio button. */
 	private JRadioButton rbtnSource;
 
@@ -116,6 +125,9 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	/** The string not found label. */
 	private JLabel lblStrNotFound;
 
+	/** The invalid regular expression label. */
+	private JLabel lblInvalidPattern;
+
 	/** The end of document reached label. */
 	private JLabel lblEndOfDoc;
 
@@ -189,6 +201,8 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 		configButton(btnClose);
 		lblStrNotFound = new JLabel("String not found.");
 		lblStrNotFound.setForeground(Color.red);
+		lblInvalidPattern = new JLabel("Invalid regular expression.");
+		lblInvalidPattern.setForeground(Color.red);
 		Color darkgreen = new Color(0, 153, 0);
 		lblEndOfDoc = new JLabel("End of document reached.");
 		lblEndOfDoc.setForeground(darkgreen);
@@ -217,6 +231,7 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 		bottomPanel.setLayout(new BoxLayout(bottomPanel, BoxLayout.X_AXIS));
 		bottomPanel.add(Box.createHorizontalStrut(5));
 		bottomPanel.add(lblStrNotFound);
+		bottomPanel.add(lblInvalidPattern);
 		bottomPanel.add(lblOccNum);
 		bottomPanel.add(lblBeginOfDoc);
 		bottomPanel.add(lblEndOfDoc);
@@ -224,6 +239,7 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 		bottomPanel.add(btnClose);
 		bottomPanel.add(Box.createHorizontalStrut(16));
 		lblStrNotFound.setVisible(false);
+		lblInvalidPattern.setVisible(false);
 		lblEndOfDoc.setVisible(false);
 		lblBeginOfDoc.setVisible(false);
 
@@ -307,9 +323,19 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 		ckWholeWord.addItemListener(this);
 		ckWrapSearch = new JCheckBox("Wrap Search");
 		ckWrapSearch.addItemListener(this);
+		ckRegex = new JCheckBox("Regular Expr.");
+		ckRegex.setToolTipText("Search with a regular expression. Use $1, $2... "
+				+ "in the replacement to insert captured groups.");
+		ckRegex.addItemListener(this);
+		ckMultiTerm = new JCheckBox("Multiple Terms");
+		ckMultiTerm.setToolTipText("Search all the terms separated by \""
+				+ WordFinder.TERM_SEPARATOR + "\" at once.");
+		ckMultiTerm.addItemListener(this);
 		optionsPanel.add(ckCaseSensitive);
 		optionsPanel.add(ckWholeWord);
 		optionsPanel.add(ckWrapSearch);
+		optionsPanel.add(ckRegex);
+		optionsPanel.add(ckMultiTerm);
 		return optionsPanel;
 	}
 
@@ -422,8 +448,10 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	 * @param result
 	 *            the result.
 	 */
+	@Override
 	public void setResult(int result) {
 
+		lblInvalidPattern.setVisible(false);
 		if (result == FindAndReplaceController.RESULT_FOUND) {
 			lblBeginOfDoc.setVisible(false);
 			lblEndOfDoc.setVisible(false);
@@ -433,6 +461,12 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 			lblEndOfDoc.setVisible(false);
 			lblStrNotFound.setVisible(true);
 			lblOccNum.setVisible(false);
+		} else if (result == FindAndReplaceController.RESULT_INVALID_PATTERN) {
+			lblBeginOfDoc.setVisible(false);
+			lblEndOfDoc.setVisible(false);
+			lblStrNotFound.setVisible(false);
+			lblOccNum.setVisible(false);
+			lblInvalidPattern.setVisible(true);
 		} else if (result == FindAndReplaceController.RESULT_END_OF_DOC_REACHED) {
 			if (rbtnDown.isSelected()) {
 				lblBeginOfDoc.setVisible(false);
@@ -451,6 +485,7 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	 * @param occurNum
 	 *            the number of occurrences.
 	 */
+	@Override
 	public void displayOccurrenceNum(int occurNum) {
 
 		lblOccNum.setText(OCCUR_NUM_LBL_TEXT.replace(OCCUR_NUM_REPLACE_STRING,
@@ -462,6 +497,7 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	/**
 	 * Hides the number of occurrences.
 	 */
+	@Override
 	public void hideOccNumber() {
 
 		lblOccNum.setVisible(false);
@@ -532,6 +568,17 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 			controller.setWholeWord(ckWholeWord.isSelected());
 		} else if (e.getSource().equals(ckWrapSearch)) {
 			controller.setWrapSearch(ckWrapSearch.isSelected());
+		} else if (e.getSource().equals(ckRegex)) {
+			// regular expression and multiple terms modes are exclusive
+			if (ckRegex.isSelected()) {
+				ckMultiTerm.setSelected(false);
+			}
+			controller.setRegex(ckRegex.isSelected());
+		} else if (e.getSource().equals(ckMultiTerm)) {
+			if (ckMultiTerm.isSelected()) {
+				ckRegex.setSelected(false);
+			}
+			controller.setMultiTerm(ckMultiTerm.isSelected());
 		}
 	}
 
@@ -544,16 +591,33 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 	private void enableReplaceFunctionality(boolean enable) {
 
 		txtReplace.setEnabled(enable);
-		btnReplace.setEnabled(enable);
-		btnReplaceAll.setEnabled(enable);
+		btnReplace.setEnabled(enable && !searching);
+		btnReplaceAll.setEnabled(enable && !searching);
 		lblReplace.setEnabled(enable);
 	}
 
+	/**
+	 * Disables the replace buttons while a search is running, since not all
+	 * the occurrences are known yet and the search reads the segments a
+	 * replacement would change.
+	 * 
+	 * @param searching
+	 *            boolean stating if a search is running.
+	 */
+	@Override
+	public void setSearching(boolean searching) {
+
+		this.searching = searching;
+		btnReplace.setEnabled(rbtnTarget.isSelected() && !searching);
+		btnReplaceAll.setEnabled(rbtnTarget.isSelected() && !searching);
+	}
+
 	/**
 	 * Gets the selected scope.
 	 * 
 	 * @return the selected scope.
 	 */
+	@Override
 	public int getSelectedScope() {
 
 		if (rbtnSource.isSelected()) {
@@ -562,4 +626,9 @@ public class FindReplaceDialog extends JDialog implements ActionListener,
 			return WordFinder.SCOPE_TARGET;
 		}
 	}
+
+	@Override
+	public Component getComponent() {
+		return this;
+	}
 }
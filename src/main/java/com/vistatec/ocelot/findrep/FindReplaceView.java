@@ -0,0 +1,52 @@
+package com.vistatec.ocelot.findrep;
+
+import java.awt.Component;
+
+/**
+ * View displaying the state of the find and replace controller.
+ */
+interface FindReplaceView {
+
+	/**
+	 * Sets the search result.
+	 * 
+	 * @param result
+	 *            the result.
+	 */
+	void setResult(int result);
+
+	/**
+	 * Displays the number of found occurrences.
+	 * 
+	 * @param occurNum
+	 *            the number of occurrences.
+	 */
+	void displayOccurrenceNum(int occurNum);
+
+	/**
+	 * Hides the number of occurrences.
+	 */
+	void hideOccNumber();
+
+	/**
+	 * Disables the replace functionality while a search is running.
+	 * 
+	 * @param searching
+	 *            boolean stating if a search is running.
+	 */
+	void setSearching(boolean searching);
+
+	/**
+	 * Gets the selected scope.
+	 * 
+	 * @return the selected scope.
+	 */
+	int getSelectedScope();
+
+	/**
+	 * Gets the component owning the messages shown to the user.
+	 * 
+	 * @return the component.
+	 */
+	Component getComponent();
+}
@@ -20,6 +20,9 @@ public class FindResult {
 	/** States if the scope is the target. */
 	private boolean targetScope;
 
+	/** The groups captured by a regular expression search. */
+	private String[] groups;
+
 	/**
 	 * Constructor.
 	 * 
@@ -140,6 +143,27 @@ public class FindResult {
 		return targetScope;
 	}
 
+	/**
+	 * Sets the groups captured by a regular expression search.
+	 * 
+	 * @param groups
+	 *            the captured groups; the element at index 0 is the whole
+	 *            match.
+	 */
+	public void setGroups(String[] groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * Gets the groups captured by a regular expression search.
+	 * 
+	 * @return the captured groups; <code>null</code> if the result was not
+	 *         found by a regular expression search.
+	 */
+	public String[] getGroups() {
+		return groups;
+	}
+
 	@Override
 	public String toString() {
 
@@ -0,0 +1,25 @@
+package com.vistatec.ocelot.findrep;
+
+/**
+ * Listener notified by the {@link WordFinder} each time a result is found
+ * during a find all search.
+ */
+public interface FindResultListener {
+
+	/**
+	 * Invoked when a new result has been found.
+	 *
+	 * @param result
+	 *            the result.
+	 */
+	void resultFound(FindResult result);
+
+	/**
+	 * Checks if the search has been cancelled. The finder stops the search as
+	 * soon as this method returns <code>true</code>.
+	 *
+	 * @return <code>true</code> if the search has been cancelled;
+	 *         <code>false</code> otherwise.
+	 */
+	boolean isCancelled();
+}
@@ -0,0 +1,186 @@
+package com.vistatec.ocelot.findrep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton matching a whole list of terms in a single pass over
+ * a text. The matcher is built once per search and then reused for every text
+ * atom in the document.
+ */
+public class MultiTermMatcher {
+
+	/** The root node of the automaton. */
+	private final Node root;
+
+	/** States if the matching is case sensitive. */
+	private final boolean caseSensitive;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param terms
+	 *            the list of terms to be matched. Empty terms are ignored.
+	 * @param caseSensitive
+	 *            a boolean stating if the matching is case sensitive.
+	 */
+	public MultiTermMatcher(List<String> terms, boolean caseSensitive) {
+
+		this.caseSensitive = caseSensitive;
+		root = new Node();
+		for (String term : terms) {
+			if (term != null && !term.isEmpty()) {
+				addTerm(term);
+			}
+		}
+		buildFailureLinks();
+	}
+
+	/**
+	 * Adds a term to the trie.
+	 *
+	 * @param term
+	 *            the term.
+	 */
+	private void addTerm(String term) {
+
+		Node node = root;
+		for (int i = 0; i < term.length(); i++) {
+			char c = normalize(term.charAt(i));
+			Node child = node.children.get(c);
+			if (child == null) {
+				child = new Node();
+				node.children.put(c, child);
+			}
+			node = child;
+		}
+		node.termLength = term.length();
+	}
+
+	/**
+	 * Computes the failure and output links of every node with a breadth first
+	 * visit of the trie.
+	 */
+	private void buildFailureLinks() {
+
+		Queue<Node> queue = new LinkedList<Node>();
+		for (Node child : root.children.values()) {
+			child.failure = root;
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			Node node = queue.remove();
+			for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+				Node child = entry.getValue();
+				Node fallback = node.failure;
+				while (fallback != null
+						&& !fallback.children.containsKey(entry.getKey())) {
+					fallback = fallback.failure;
+				}
+				child.failure = fallback == null ? root : fallback.children
+						.get(entry.getKey());
+				child.output = child.failure.termLength > 0 ? child.failure
+						: child.failure.output;
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Normalizes a character depending on the case sensitive setting. The
+	 * normalization is performed char by char, so that offsets in the original
+	 * text are preserved.
+	 *
+	 * @param c
+	 *            the character
+	 * @return the normalized character.
+	 */
+	private char normalize(char c) {
+
+		return caseSensitive ? c : Character.toLowerCase(c);
+	}
+
+	/**
+	 * Finds all the term occurrences in a text. When several terms overlap,
+	 * the leftmost longest one is kept, so that the returned ranges never
+	 * overlap and can be safely replaced.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the list of start and end indices of the occurrences, ordered by
+	 *         start index.
+	 */
+	public List<int[]> findAll(String text) {
+
+		List<int[]> matches = new ArrayList<int[]>();
+		Node node = root;
+		for (int i = 0; i < text.length(); i++) {
+			char c = normalize(text.charAt(i));
+			while (node != root && !node.children.containsKey(c)) {
+				node = node.failure;
+			}
+			Node next = node.children.get(c);
+			node = next == null ? root : next;
+			Node out = node.termLength > 0 ? node : node.output;
+			while (out != null) {
+				matches.add(new int[] { i + 1 - out.termLength, i + 1 });
+				out = out.output;
+			}
+		}
+		return removeOverlaps(matches);
+	}
+
+	/**
+	 * Removes overlapping matches, keeping the leftmost longest ones.
+	 *
+	 * @param matches
+	 *            all the matches found by the automaton.
+	 * @return the list of non overlapping matches.
+	 */
+	private List<int[]> removeOverlaps(List<int[]> matches) {
+
+		Collections.sort(matches, new Comparator<int[]>() {
+
+			@Override
+			public int compare(int[] o1, int[] o2) {
+				if (o1[0] != o2[0]) {
+					return o1[0] - o2[0];
+				}
+				return o2[1] - o1[1];
+			}
+		});
+		List<int[]> selected = new ArrayList<int[]>();
+		int lastEnd = 0;
+		for (int[] match : matches) {
+			if (match[0] >= lastEnd) {
+				selected.add(match);
+				lastEnd = match[1];
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * A node of the automaton.
+	 */
+	private static class Node {
+
+		/** The child nodes. */
+		private final Map<Character, Node> children = new HashMap<Character, Node>();
+
+		/** The failure link. */
+		private Node failure;
+
+		/** The closest node reachable through failure links ending a term. */
+		private Node output;
+
+		/** The length of the term ending in this node; 0 if none. */
+		private int termLength;
+	}
+}
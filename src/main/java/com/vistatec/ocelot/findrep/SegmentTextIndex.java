@@ -0,0 +1,548 @@
+package com.vistatec.ocelot.findrep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.Subscribe;
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
+import com.vistatec.ocelot.events.SegmentEditEvent;
+import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentAtom;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.segment.model.TextAtom;
+
+/**
+ * In-memory inverted index of the words contained in the source and target
+ * text of the segments in the opened document. The index is built on a
+ * background thread when a file is opened, and it is kept up to date when
+ * segment targets are edited.
+ * <p>
+ * Words are runs of letters and digits, normalized the same way the case
+ * insensitive search compares characters. Any occurrence of a searched text is
+ * then contained in the words of its segment, so that the candidate segments
+ * returned for a text are a superset of the segments actually containing it.
+ */
+public class SegmentTextIndex implements OcelotEventQueueListener {
+
+	/** The logger for this class. */
+	private static final Logger LOG = LoggerFactory
+			.getLogger(SegmentTextIndex.class);
+
+	/** The segments being indexed. */
+	private List<OcelotSegment> segments;
+
+	/** The position of each indexed segment in the segments list. */
+	private Map<OcelotSegment, Integer> segmentPositions;
+
+	/** The source words index. */
+	private Postings sourcePostings;
+
+	/** The target words index. */
+	private Postings targetPostings;
+
+	/** The segments edited while the index was being built. */
+	private final List<OcelotSegment> pendingSegments = new ArrayList<OcelotSegment>();
+
+	/**
+	 * The current index generation. It changes every time a new list of
+	 * segments is indexed, so that outdated builds can be discarded.
+	 */
+	private volatile int generation;
+
+	/**
+	 * Handles the event a new XLIFF file is opened by indexing its segments in
+	 * background.
+	 *
+	 * @param e
+	 *            the open file event.
+	 */
+	@Subscribe
+	public void fileOpened(OpenFileEvent e) {
+
+		startIndexing(e.getDocument().getSegments());
+	}
+
+	/**
+	 * Handles the event a segment target has been edited.
+	 *
+	 * @param e
+	 *            the segment edit event.
+	 */
+	@Subscribe
+	public void segmentEdited(SegmentEditEvent e) {
+
+		updateTarget(e.getSegment());
+	}
+
+	/**
+	 * Handles the event a batch of segment targets has been edited.
+	 *
+	 * @param e
+	 *            the segment batch edit event.
+	 */
+	@Subscribe
+	public void segmentsEdited(SegmentBatchEditEvent e) {
+
+		for (OcelotSegment segment : e.getSegments()) {
+			updateTarget(segment);
+		}
+	}
+
+	/**
+	 * Starts indexing a list of segments on a background thread. Any index
+	 * built for a previous list of segments is discarded.
+	 *
+	 * @param segments
+	 *            the segments to be indexed.
+	 */
+	public void startIndexing(final List<OcelotSegment> segments) {
+
+		final int indexGeneration = reset(segments);
+		Thread indexThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					build(segments, indexGeneration);
+				} catch (RuntimeException e) {
+					LOG.error("Error while indexing the segments", e);
+				}
+			}
+		}, "Segment text index");
+		indexThread.setDaemon(true);
+		indexThread.start();
+	}
+
+	/**
+	 * Indexes a list of segments on the calling thread. Any index built for a
+	 * previous list of segments is discarded.
+	 *
+	 * @param segments
+	 *            the segments to be indexed.
+	 */
+	public void index(List<OcelotSegment> segments) {
+
+		build(segments, reset(segments));
+	}
+
+	/**
+	 * Discards the current index and sets the segments to be indexed.
+	 *
+	 * @param segments
+	 *            the segments to be indexed.
+	 * @return the generation of the new index.
+	 */
+	private synchronized int reset(List<OcelotSegment> segments) {
+
+		this.segments = segments;
+		segmentPositions = null;
+		sourcePostings = null;
+		targetPostings = null;
+		pendingSegments.clear();
+		return ++generation;
+	}
+
+	/**
+	 * Builds the index for a list of segments. The index is installed only if
+	 * no other list of segments has been set in the meantime; segments edited
+	 * while building are indexed again once the index is installed.
+	 *
+	 * @param segments
+	 *            the segments.
+	 * @param indexGeneration
+	 *            the generation of the index being built.
+	 */
+	private void build(List<OcelotSegment> segments, int indexGeneration) {
+
+		Map<OcelotSegment, Integer> positions = new IdentityHashMap<OcelotSegment, Integer>();
+		Postings source = new Postings(segments.size());
+		Postings target = new Postings(segments.size());
+		for (int i = 0; i < segments.size(); i++) {
+			if (indexGeneration != generation) {
+				return;
+			}
+			OcelotSegment segment = segments.get(i);
+			positions.put(segment, i);
+			source.add(i, extractWords(segment.getSource()));
+			target.add(i, extractWords(segment.getTarget()));
+		}
+		synchronized (this) {
+			if (indexGeneration == generation) {
+				segmentPositions = positions;
+				sourcePostings = source;
+				targetPostings = target;
+				for (OcelotSegment segment : pendingSegments) {
+					updateTarget(segment);
+				}
+				pendingSegments.clear();
+			}
+		}
+	}
+
+	/**
+	 * Indexes again the target of an edited segment.
+	 *
+	 * @param segment
+	 *            the segment.
+	 */
+	private synchronized void updateTarget(OcelotSegment segment) {
+
+		if (!isReady()) {
+			if (segments != null) {
+				pendingSegments.add(segment);
+			}
+			return;
+		}
+		Integer position = segmentPositions.get(segment);
+		if (position != null) {
+			targetPostings.remove(position);
+			targetPostings.add(position, extractWords(segment.getTarget()));
+		}
+	}
+
+	/**
+	 * Checks if the index for the current segments has been built.
+	 *
+	 * @return <code>true</code> if the index is ready; <code>false</code>
+	 *         otherwise.
+	 */
+	public synchronized boolean isReady() {
+
+		return segmentPositions != null;
+	}
+
+	/**
+	 * Gets the indexes of the segments containing a word.
+	 *
+	 * @param word
+	 *            the word.
+	 * @param target
+	 *            <code>true</code> for looking up the targets;
+	 *            <code>false</code> for the sources.
+	 * @return the sorted segment indexes; an empty set if the index is not
+	 *         ready.
+	 */
+	public synchronized Set<Integer> getSegmentsContaining(String word,
+			boolean target) {
+
+		Set<Integer> segmentIdxs = new TreeSet<Integer>();
+		if (isReady()) {
+			Set<Integer> wordSegments = getPostings(target).segmentsByWord
+					.get(normalize(word));
+			if (wordSegments != null) {
+				segmentIdxs.addAll(wordSegments);
+			}
+		}
+		return segmentIdxs;
+	}
+
+	/**
+	 * Gets the indexes of the segments containing a word starting with a
+	 * prefix, e.g. while the user is typing the word.
+	 *
+	 * @param prefix
+	 *            the prefix.
+	 * @param target
+	 *            <code>true</code> for looking up the targets;
+	 *            <code>false</code> for the sources.
+	 * @return the sorted segment indexes; an empty set if the index is not
+	 *         ready.
+	 */
+	public synchronized Set<Integer> getSegmentsWithPrefix(String prefix,
+			boolean target) {
+
+		Set<Integer> segmentIdxs = new TreeSet<Integer>();
+		if (isReady()) {
+			getPostings(target).collectPrefix(normalize(prefix), segmentIdxs);
+		}
+		return segmentIdxs;
+	}
+
+	/**
+	 * Gets the number of occurrences of each word in the indexed segments.
+	 *
+	 * @param target
+	 *            <code>true</code> for the target words; <code>false</code>
+	 *            for the source words.
+	 * @return the map of word frequencies, sorted by word; an empty map if the
+	 *         index is not ready.
+	 */
+	public synchronized Map<String, Integer> getWordFrequencies(boolean target) {
+
+		if (!isReady()) {
+			return Collections.emptyMap();
+		}
+		return new TreeMap<String, Integer>(getPostings(target).wordCounts);
+	}
+
+	/**
+	 * Gets the indexes of the segments possibly containing a text. The
+	 * returned segments are a superset of the segments actually containing
+	 * the text, whatever the case sensitive and whole word settings are.
+	 *
+	 * @param segments
+	 *            the segments being searched.
+	 * @param text
+	 *            the searched text.
+	 * @param target
+	 *            <code>true</code> for searching the targets;
+	 *            <code>false</code> for the sources.
+	 * @return the segment indexes; <code>null</code> if the index cannot
+	 *         narrow the search, i.e. if it is not ready, it refers to
+	 *         different segments or the text contains no words.
+	 */
+	public synchronized Set<Integer> findCandidateSegments(
+			List<OcelotSegment> segments, String text, boolean target) {
+
+		if (!isReady() || segments != this.segments) {
+			return null;
+		}
+		List<int[]> wordRanges = findWordRanges(text);
+		if (wordRanges.isEmpty()) {
+			return null;
+		}
+		Postings postings = getPostings(target);
+		Set<Integer> candidates = null;
+		for (int[] range : wordRanges) {
+			String word = normalize(text.substring(range[0], range[1]));
+			// a word followed (preceded) by other characters in the searched
+			// text must be found at the end (start) of an indexed word
+			boolean atWordStart = range[0] > 0;
+			boolean atWordEnd = range[1] < text.length();
+			Set<Integer> wordCandidates = new TreeSet<Integer>();
+			if (atWordStart && atWordEnd) {
+				Set<Integer> wordSegments = postings.segmentsByWord.get(word);
+				if (wordSegments != null) {
+					wordCandidates.addAll(wordSegments);
+				}
+			} else if (atWordStart) {
+				postings.collectPrefix(word, wordCandidates);
+			} else {
+				postings.collectMatching(word, atWordEnd, wordCandidates);
+			}
+			if (candidates == null) {
+				candidates = wordCandidates;
+			} else {
+				candidates.retainAll(wordCandidates);
+			}
+			if (candidates.isEmpty()) {
+				break;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Gets the postings for the source or the target.
+	 *
+	 * @param target
+	 *            <code>true</code> for the target postings.
+	 * @return the postings.
+	 */
+	private Postings getPostings(boolean target) {
+
+		return target ? targetPostings : sourcePostings;
+	}
+
+	/**
+	 * Extracts the normalized words from the text atoms of a variant.
+	 *
+	 * @param variant
+	 *            the variant; it can be <code>null</code>.
+	 * @return the list of words, including duplicates.
+	 */
+	private static List<String> extractWords(SegmentVariant variant) {
+
+		List<String> words = new ArrayList<String>();
+		if (variant != null && variant.getAtoms() != null) {
+			for (SegmentAtom atom : variant.getAtoms()) {
+				if (atom instanceof TextAtom && atom.getData() != null) {
+					String text = atom.getData();
+					for (int[] range : findWordRanges(text)) {
+						words.add(normalize(text.substring(range[0], range[1])));
+					}
+				}
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Finds the ranges of the words in a text, i.e. of the runs of letters
+	 * and digits.
+	 *
+	 * @param text
+	 *            the text.
+	 * @return the list of start and end indices of the words.
+	 */
+	private static List<int[]> findWordRanges(String text) {
+
+		List<int[]> ranges = new ArrayList<int[]>();
+		int start = -1;
+		for (int i = 0; i < text.length(); i++) {
+			if (Character.isLetterOrDigit(text.charAt(i))) {
+				if (start == -1) {
+					start = i;
+				}
+			} else if (start != -1) {
+				ranges.add(new int[] { start, i });
+				start = -1;
+			}
+		}
+		if (start != -1) {
+			ranges.add(new int[] { start, text.length() });
+		}
+		return ranges;
+	}
+
+	/**
+	 * Normalizes a word char by char, so that two words match in a case
+	 * insensitive search if and only if their normalized forms are equal.
+	 *
+	 * @param word
+	 *            the word.
+	 * @return the normalized word.
+	 */
+	private static String normalize(String word) {
+
+		StringBuilder normalized = new StringBuilder(word.length());
+		for (int i = 0; i < word.length(); i++) {
+			normalized.append(Character.toLowerCase(Character.toUpperCase(word
+					.charAt(i))));
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Postings of the words in either the sources or the targets.
+	 */
+	private static class Postings {
+
+		/** The indexes of the segments containing each word. */
+		private final TreeMap<String, Set<Integer>> segmentsByWord = new TreeMap<String, Set<Integer>>();
+
+		/** The number of occurrences of each word. */
+		private final Map<String, Integer> wordCounts = new HashMap<String, Integer>();
+
+		/** The words of each segment, used for removing it. */
+		private final List<List<String>> wordsBySegment;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param segmentCount
+		 *            the number of segments.
+		 */
+		private Postings(int segmentCount) {
+
+			wordsBySegment = new ArrayList<List<String>>(
+					Collections.<List<String>> nCopies(segmentCount, null));
+		}
+
+		/**
+		 * Adds the words of a segment.
+		 *
+		 * @param segmentIdx
+		 *            the segment index.
+		 * @param words
+		 *            the words.
+		 */
+		private void add(int segmentIdx, List<String> words) {
+
+			wordsBySegment.set(segmentIdx, words);
+			for (String word : words) {
+				Set<Integer> wordSegments = segmentsByWord.get(word);
+				if (wordSegments == null) {
+					wordSegments = new TreeSet<Integer>();
+					segmentsByWord.put(word, wordSegments);
+				}
+				wordSegments.add(segmentIdx);
+				Integer count = wordCounts.get(word);
+				wordCounts.put(word, count == null ? 1 : count + 1);
+			}
+		}
+
+		/**
+		 * Removes the words of a segment.
+		 *
+		 * @param segmentIdx
+		 *            the segment index.
+		 */
+		private void remove(int segmentIdx) {
+
+			List<String> words = wordsBySegment.set(segmentIdx, null);
+			if (words == null) {
+				return;
+			}
+			for (String word : words) {
+				Set<Integer> wordSegments = segmentsByWord.get(word);
+				if (wordSegments != null) {
+					wordSegments.remove(segmentIdx);
+					if (wordSegments.isEmpty()) {
+						segmentsByWord.remove(word);
+					}
+				}
+				int count = wordCounts.get(word) - 1;
+				if (count == 0) {
+					wordCounts.remove(word);
+				} else {
+					wordCounts.put(word, count);
+				}
+			}
+		}
+
+		/**
+		 * Collects the segments containing words starting with a prefix.
+		 *
+		 * @param prefix
+		 *            the normalized prefix.
+		 * @param segmentIdxs
+		 *            the set collecting the segment indexes.
+		 */
+		private void collectPrefix(String prefix, Set<Integer> segmentIdxs) {
+
+			for (Map.Entry<String, Set<Integer>> entry : segmentsByWord
+					.tailMap(prefix, true).entrySet()) {
+				if (!entry.getKey().startsWith(prefix)) {
+					break;
+				}
+				segmentIdxs.addAll(entry.getValue());
+			}
+		}
+
+		/**
+		 * Collects the segments containing words that contain, or end with, a
+		 * string.
+		 *
+		 * @param string
+		 *            the normalized string.
+		 * @param atEnd
+		 *            <code>true</code> if words have to end with the string.
+		 * @param segmentIdxs
+		 *            the set collecting the segment indexes.
+		 */
+		private void collectMatching(String string, boolean atEnd,
+				Set<Integer> segmentIdxs) {
+
+			for (Map.Entry<String, Set<Integer>> entry : segmentsByWord
+					.entrySet()) {
+				String word = entry.getKey();
+				if (atEnd ? word.endsWith(string) : word.contains(string)) {
+					segmentIdxs.addAll(entry.getValue());
+				}
+			}
+		}
+	}
+}
@@ -2,8 +2,13 @@ package com.vistatec.ocelot.findrep;
 
 import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 import com.vistatec.ocelot.segment.model.SegmentAtom;
@@ -24,6 +29,15 @@ public class WordFinder {
 	/** The wrap search option constant. */
 	public static final int WRAP_SEARCH_OPTION = 2;
 
+	/** The regular expression option constant. */
+	public static final int REGEX_OPTION = 3;
+
+	/** The multi-term option constant. */
+	public static final int MULTI_TERM_OPTION = 4;
+
+	/** The separator between terms when the multi-term option is set. */
+	public static final String TERM_SEPARATOR = "|";
+
 	/** None scope constant. */
 	public static final int SCOPE_NONE = 0;
 
@@ -40,7 +54,7 @@ public class WordFinder {
 	public static final int DIRECTION_UP = 1;
 
 	/** The number of available options. */
-	private static final int AVAILABLE_OPTIONS_COUNT = 3;
+	private static final int AVAILABLE_OPTIONS_COUNT = 5;
 
 	/** An index is assigned this value when it is reset. */
 	private static final int RESET_VALUE = -2;
@@ -84,6 +98,18 @@ public class WordFinder {
 	/** The index of the current result. */
 	private int currResultIndex = -1;
 
+	/** The listener notified of the results of the running search. */
+	private FindResultListener resultListener;
+
+	/** The index narrowing the segments to be searched, if any. */
+	private SegmentTextIndex textIndex;
+
+	/**
+	 * The indexes of the only segments the running search has to scan;
+	 * <code>null</code> if all the segments have to be scanned.
+	 */
+	private Set<Integer> candidateSegments;
+
 	/**
 	 * Constructor.
 	 */
@@ -92,6 +118,37 @@ public class WordFinder {
 		options = new boolean[AVAILABLE_OPTIONS_COUNT];
 	}
 
+	/**
+	 * Copy constructor. The new finder has the same options, scope and
+	 * direction of the given finder, but its own search state, so that it can
+	 * run a search on a worker thread.
+	 * 
+	 * @param finder
+	 *            the finder to be copied.
+	 */
+	public WordFinder(WordFinder finder) {
+
+		options = finder.options.clone();
+		scope = finder.scope;
+		direction = finder.direction;
+		if (finder.breakIt != null) {
+			breakIt = (BreakIterator) finder.breakIt.clone();
+		}
+		textIndex = finder.textIndex;
+	}
+
+	/**
+	 * Sets the index used for skipping the segments that cannot contain the
+	 * searched text.
+	 * 
+	 * @param textIndex
+	 *            the text index; it can be <code>null</code>.
+	 */
+	public void setTextIndex(SegmentTextIndex textIndex) {
+
+		this.textIndex = textIndex;
+	}
+
 	/**
 	 * Reset all the fields.
 	 */
@@ -149,6 +206,15 @@ public class WordFinder {
 		this.direction = direction;
 	}
 
+	/**
+	 * Gets the search direction.
+	 * 
+	 * @return the search direction.
+	 */
+	public int getDirection() {
+		return direction;
+	}
+
 	/**
 	 * Enables/disables a specific option
 	 * 
@@ -191,29 +257,365 @@ public class WordFinder {
 	}
 
 	/**
-	 * Finds all occurrences of a text in the Ocelot segments.
+	 * Finds all occurrences of a text in the Ocelot segments. If the regular
+	 * expression option is set, the text is handled as a regular expression;
+	 * if the multi-term option is set, the text is handled as a list of terms
+	 * separated by <code>TERM_SEPARATOR</code>.
 	 * 
 	 * @param text
 	 *            the text
 	 * @param segments
 	 *            the Ocelot segments
 	 * @return the list of results.
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             if the regular expression option is set and the text is not
+	 *             a valid regular expression.
 	 */
 	public List<FindResult> findWord(String text, List<OcelotSegment> segments) {
 
+		return findWord(text, segments, null);
+	}
+
+	/**
+	 * Finds all occurrences of a text in the Ocelot segments, notifying a
+	 * listener each time a result is found. The search stops as soon as the
+	 * listener reports it has been cancelled.
+	 * 
+	 * @param text
+	 *            the text
+	 * @param segments
+	 *            the Ocelot segments
+	 * @param listener
+	 *            the listener; it can be <code>null</code>.
+	 * @return the list of results found before the search ended.
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             if the regular expression option is set and the text is not
+	 *             a valid regular expression.
+	 */
+	public List<FindResult> findWord(String text,
+			List<OcelotSegment> segments, FindResultListener listener) {
+
+		resultListener = listener;
 		allResults = new ArrayList<FindResult>();
 		goToStartOfDocument();
-		while (findNextWord(text, segments)) {
-			allResults.add(getCurrentResult());
+		try {
+			candidateSegments = findCandidateSegments(text, segments);
+			if (options[REGEX_OPTION] || options[MULTI_TERM_OPTION]) {
+				allResults = findAllMatches(text, segments);
+			} else {
+				while (!isSearchCancelled() && findNextWord(text, segments)) {
+					FindResult result = getCurrentResult();
+					allResults.add(result);
+					notifyResultFound(result);
+				}
+			}
+		} finally {
+			resultListener = null;
+			candidateSegments = null;
 		}
-		if (!allResults.isEmpty()) {
+		setAllResults(allResults);
+		return allResults;
+	}
+
+	/**
+	 * Sets the list of results, e.g. the ones found by a search run by another
+	 * finder, and moves to the first result depending on the direction.
+	 * 
+	 * @param results
+	 *            the list of results.
+	 */
+	public void setAllResults(List<FindResult> results) {
+
+		allResults = results;
+		currResultIndex = -1;
+		if (results != null && !results.isEmpty()) {
 			if (direction == DIRECTION_DOWN) {
 				currResultIndex = 0;
 			} else {
-				currResultIndex = allResults.size() - 1;
+				currResultIndex = results.size() - 1;
 			}
 		}
-		return allResults;
+	}
+
+	/**
+	 * Gets the segments possibly containing the searched text from the text
+	 * index. Regular expressions cannot be looked up in the index.
+	 * 
+	 * @param text
+	 *            the searched text.
+	 * @param segments
+	 *            the Ocelot segments.
+	 * @return the candidate segment indexes; <code>null</code> if all the
+	 *         segments have to be scanned.
+	 */
+	private Set<Integer> findCandidateSegments(String text,
+			List<OcelotSegment> segments) {
+
+		if (textIndex == null || options[REGEX_OPTION]) {
+			return null;
+		}
+		boolean target = scope != SCOPE_SOURCE;
+		if (!options[MULTI_TERM_OPTION]) {
+			return textIndex.findCandidateSegments(segments, text, target);
+		}
+		Set<Integer> candidates = new HashSet<Integer>();
+		for (String term : splitTerms(text)) {
+			Set<Integer> termCandidates = textIndex.findCandidateSegments(
+					segments, term, target);
+			if (termCandidates == null) {
+				return null;
+			}
+			candidates.addAll(termCandidates);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Checks if the running search has been cancelled by its listener.
+	 * 
+	 * @return <code>true</code> if the search has been cancelled;
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean isSearchCancelled() {
+
+		return resultListener != null && resultListener.isCancelled();
+	}
+
+	/**
+	 * Notifies the listener, if any, that a result has been found.
+	 * 
+	 * @param result
+	 *            the result.
+	 */
+	private void notifyResultFound(FindResult result) {
+
+		if (resultListener != null) {
+			resultListener.resultFound(result);
+		}
+	}
+
+	/**
+	 * Finds all the matches of a regular expression or of a list of terms,
+	 * scanning each text atom of the document once.
+	 * 
+	 * @param text
+	 *            the regular expression or the list of terms.
+	 * @param segments
+	 *            the Ocelot segments.
+	 * @return the list of results, ordered according to the search direction.
+	 */
+	private List<FindResult> findAllMatches(String text,
+			List<OcelotSegment> segments) {
+
+		Pattern pattern = null;
+		MultiTermMatcher termMatcher = null;
+		if (options[REGEX_OPTION]) {
+			int flags = 0;
+			if (!options[CASE_SENSITIVE_OPTION]) {
+				flags = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+			}
+			pattern = Pattern.compile(text, flags);
+		} else {
+			termMatcher = new MultiTermMatcher(splitTerms(text),
+					options[CASE_SENSITIVE_OPTION]);
+		}
+		List<FindResult> results = new ArrayList<FindResult>();
+		List<FindResult> atomResults = new ArrayList<FindResult>();
+		int segCount = segments.size();
+		for (int i = 0; i < segCount && !isSearchCancelled(); i++) {
+			int segIdx = direction == DIRECTION_DOWN ? i : segCount - 1 - i;
+			List<SegmentAtom> atoms = getSearchedAtoms(segments, segIdx);
+			if (atoms != null) {
+				for (int j = 0; j < atoms.size(); j++) {
+					int atomIdx = direction == DIRECTION_DOWN ? j : atoms
+							.size() - 1 - j;
+					SegmentAtom atom = atoms.get(atomIdx);
+					if (atom instanceof TextAtom && atom.getData() != null) {
+						atomResults.clear();
+						if (pattern != null) {
+							addPatternMatches(pattern, atom.getData(), segIdx,
+									atomIdx, atomResults);
+						} else {
+							addTermMatches(termMatcher, atom.getData(),
+									segIdx, atomIdx, atomResults);
+						}
+						if (direction == DIRECTION_UP) {
+							Collections.reverse(atomResults);
+						}
+						for (FindResult result : atomResults) {
+							results.add(result);
+							notifyResultFound(result);
+						}
+					}
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Adds the matches of a regular expression in a text to the list of
+	 * results. Empty matches are skipped as they can be neither highlighted
+	 * nor replaced.
+	 * 
+	 * @param pattern
+	 *            the compiled regular expression
+	 * @param text
+	 *            the atom text
+	 * @param segIdx
+	 *            the segment index
+	 * @param atomIdx
+	 *            the atom index
+	 * @param results
+	 *            the list of results
+	 */
+	private void addPatternMatches(Pattern pattern, String text, int segIdx,
+			int atomIdx, List<FindResult> results) {
+
+		Matcher matcher = pattern.matcher(text);
+		while (matcher.find()) {
+			if (matcher.end() > matcher.start()
+					&& checkWholeWordBoundaries(text, matcher.start(),
+							matcher.end())) {
+				String[] groups = new String[matcher.groupCount() + 1];
+				for (int i = 0; i < groups.length; i++) {
+					groups[i] = matcher.group(i);
+				}
+				FindResult result = new FindResult(segIdx, atomIdx,
+						matcher.start(), matcher.end(), scope == SCOPE_TARGET);
+				result.setGroups(groups);
+				results.add(result);
+			}
+		}
+	}
+
+	/**
+	 * Adds the occurrences of a list of terms in a text to the list of
+	 * results.
+	 * 
+	 * @param termMatcher
+	 *            the multi-term matcher
+	 * @param text
+	 *            the atom text
+	 * @param segIdx
+	 *            the segment index
+	 * @param atomIdx
+	 *            the atom index
+	 * @param results
+	 *            the list of results
+	 */
+	private void addTermMatches(MultiTermMatcher termMatcher, String text,
+			int segIdx, int atomIdx, List<FindResult> results) {
+
+		for (int[] match : termMatcher.findAll(text)) {
+			if (checkWholeWordBoundaries(text, match[0], match[1])) {
+				results.add(new FindResult(segIdx, atomIdx, match[0],
+						match[1], scope == SCOPE_TARGET));
+			}
+		}
+	}
+
+	/**
+	 * Checks that a match starts and ends at word boundaries, when the whole
+	 * word option is set.
+	 * 
+	 * @param text
+	 *            the text
+	 * @param start
+	 *            the match start index
+	 * @param end
+	 *            the match end index
+	 * @return <code>true</code> if the whole word option is not set or the
+	 *         match is delimited by word boundaries; <code>false</code>
+	 *         otherwise.
+	 */
+	private boolean checkWholeWordBoundaries(String text, int start, int end) {
+
+		if (!options[WHOLE_WORD_OPTION] || breakIt == null) {
+			return true;
+		}
+		breakIt.setText(text);
+		return breakIt.isBoundary(start) && breakIt.isBoundary(end);
+	}
+
+	/**
+	 * Splits a list of terms separated by <code>TERM_SEPARATOR</code>.
+	 * Leading and trailing white spaces are removed from each term.
+	 * 
+	 * @param text
+	 *            the list of terms
+	 * @return the terms.
+	 */
+	private List<String> splitTerms(String text) {
+
+		List<String> terms = new ArrayList<String>();
+		for (String term : text.split(Pattern.quote(TERM_SEPARATOR))) {
+			if (!term.trim().isEmpty()) {
+				terms.add(term.trim());
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Gets the string replacing a specific result. If the regular expression
+	 * option is set, references to captured groups (<code>$n</code>) in the
+	 * replacement are expanded with the text captured for the result, and a
+	 * backslash escapes the following character. Otherwise the replacement is
+	 * returned unchanged.
+	 * 
+	 * @param result
+	 *            the result to be replaced
+	 * @param replacement
+	 *            the replacement text
+	 * @return the string replacing the result.
+	 * @throws IllegalArgumentException
+	 *             if the replacement refers to a group that does not exist.
+	 */
+	public String getReplacement(FindResult result, String replacement) {
+
+		String[] groups = result.getGroups();
+		if (!options[REGEX_OPTION] || groups == null) {
+			return replacement;
+		}
+		StringBuilder expanded = new StringBuilder();
+		int i = 0;
+		while (i < replacement.length()) {
+			char c = replacement.charAt(i++);
+			if (c == '\\' && i < replacement.length()) {
+				expanded.append(replacement.charAt(i++));
+			} else if (c == '$') {
+				if (i == replacement.length()
+						|| !Character.isDigit(replacement.charAt(i))) {
+					throw new IllegalArgumentException(
+							"Illegal group reference in replacement: "
+									+ replacement);
+				}
+				int groupNum = Character.digit(replacement.charAt(i++), 10);
+				if (groupNum >= groups.length) {
+					throw new IllegalArgumentException("No group " + groupNum
+							+ " in the searched expression.");
+				}
+				// greedily take the following digits as long as the group
+				// number still exists, as java.util.regex.Matcher does
+				while (i < replacement.length()
+						&& Character.isDigit(replacement.charAt(i))) {
+					int nextGroupNum = groupNum * 10
+							+ Character.digit(replacement.charAt(i), 10);
+					if (nextGroupNum >= groups.length) {
+						break;
+					}
+					groupNum = nextGroupNum;
+					i++;
+				}
+				if (groups[groupNum] != null) {
+					expanded.append(groups[groupNum]);
+				}
+			} else {
+				expanded.append(c);
+			}
+		}
+		return expanded.toString();
 	}
 
 	/**
@@ -252,9 +654,9 @@ public class WordFinder {
 		boolean found = false;
 		adjustSegIndex(segments);
 		while (((direction == DIRECTION_DOWN && currSegIndex < segments.size()) || (direction == DIRECTION_UP && currSegIndex >= 0))
-				&& !found) {
-			List<SegmentAtom> atoms = getAtomsFromSegment(segments
-					.get(currSegIndex));
+				&& !found && !isSearchCancelled()) {
+			List<SegmentAtom> atoms = getSearchedAtoms(segments,
+					currSegIndex);
 			String text = null;
 			if (atoms != null) {
 				adjustAtomIndex(atoms);
@@ -359,9 +761,9 @@ public class WordFinder {
 		boolean found = false;
 		adjustSegIndex(segments);
 		while (((direction == DIRECTION_DOWN && currSegIndex < segments.size()) || (direction == DIRECTION_UP && currSegIndex >= 0))
-				&& !found) {
-			List<SegmentAtom> atoms = getAtomsFromSegment(segments
-					.get(currSegIndex));
+				&& !found && !isSearchCancelled()) {
+			List<SegmentAtom> atoms = getSearchedAtoms(segments,
+					currSegIndex);
 			String text = null;
 			if (atoms != null) {
 				adjustAtomIndex(atoms);
@@ -629,6 +1031,26 @@ public class WordFinder {
 		return atoms;
 	}
 
+	/**
+	 * Gets the atoms to be searched in a segment. Segments that the text index
+	 * excluded from the running search have no atoms to be searched.
+	 * 
+	 * @param segments
+	 *            the list of segments
+	 * @param segIdx
+	 *            the segment index
+	 * @return the list of atoms; <code>null</code> if the segment has not to
+	 *         be searched.
+	 */
+	private List<SegmentAtom> getSearchedAtoms(List<OcelotSegment> segments,
+			int segIdx) {
+
+		if (candidateSegments != null && !candidateSegments.contains(segIdx)) {
+			return null;
+		}
+		return getAtomsFromSegment(segments.get(segIdx));
+	}
+
 	/**
 	 * Gets the found word first index.
 	 * 
@@ -681,6 +1103,7 @@ public class WordFinder {
 	 */
 	public void clearAllResults() {
 		allResults = null;
+		currResultIndex = -1;
 	}
 
 	/**
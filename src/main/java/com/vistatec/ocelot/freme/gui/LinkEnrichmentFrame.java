@@ -8,6 +8,7 @@ import java.awt.Desktop;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
+import java.awt.Image;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -15,6 +16,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
@@ -26,6 +28,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 
 import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
 import com.vistatec.ocelot.segment.model.enrichment.LinkInfoData;
@@ -102,17 +105,50 @@ public class LinkEnrichmentFrame extends JDialog implements Runnable {
 	 */
 	private JScrollPane getImagePanel() {
 
-		JLabel imageLabel = null;
-		if (enrichment.getImage() != null) {
-
-			imageLabel = new JLabel(new ImageIcon(enrichment.getImage()));
+		final JLabel imageLabel = new JLabel();
+		if (enrichment.isImageLoaded()) {
+			setImage(imageLabel, enrichment.getImage());
 		} else {
-			imageLabel = new JLabel("No Image");
+			imageLabel.setText("Loading Image...");
+			new SwingWorker<Image, Void>() {
+
+				@Override
+				protected Image doInBackground() {
+					return enrichment.getImage();
+				}
+
+				@Override
+				protected void done() {
+					try {
+						setImage(imageLabel, get());
+					} catch (InterruptedException | ExecutionException e) {
+						setImage(imageLabel, null);
+					}
+				}
+			}.execute();
 		}
 		JScrollPane pane = new JScrollPane(imageLabel);
 		return pane;
 	}
 
+	/**
+	 * Displays the image in the image label.
+	 * 
+	 * @param imageLabel
+	 *            the image label
+	 * @param image
+	 *            the image, <code>null</code> if there is none
+	 */
+	private void setImage(JLabel imageLabel, Image image) {
+
+		if (image != null) {
+			imageLabel.setText(null);
+			imageLabel.setIcon(new ImageIcon(image));
+		} else {
+			imageLabel.setText("No Image");
+		}
+	}
+
 	/**
 	 * Gets the useful links panel.
 	 * 
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.plugins;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+import java.util.List;
+
+/**
+ * ITS Plugins receiving the ITS metadata of the segments of an open file in
+ * chunks rather than one segment at a time, e.g. to send them to a remote
+ * service in a few requests. Plugins only implementing {@link ITSPlugin} are
+ * sent the chunks through an {@link ITSPluginBatchAdapter}.
+ */
+public interface BatchITSPlugin extends ITSPlugin {
+    /**
+     * Send this plugin the ITS Language Quality Issue and Provenance data for
+     * a chunk of segments from the workbench. The metadata of each segment is
+     * available from {@link OcelotSegment#getLQI()} and
+     * {@link OcelotSegment#getProvenance()}.
+     */
+    public void sendITSData(String sourceLang, String targetLang,
+            List<OcelotSegment> segments);
+}
@@ -0,0 +1,52 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+
+/**
+ * Enrichments retrieved by a worker thread for a variant, handed off to the
+ * thread applying them.
+ */
+class EnrichmentResult {
+
+	/** The enriched variant. */
+	private final VariantWrapper fragment;
+
+	/** The enrichments. */
+	private final List<Enrichment> enrichments;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fragment
+	 *            the enriched variant
+	 * @param enrichments
+	 *            the enrichments
+	 */
+	EnrichmentResult(VariantWrapper fragment, List<Enrichment> enrichments) {
+		this.fragment = fragment;
+		this.enrichments = Collections
+				.unmodifiableList(new ArrayList<Enrichment>(enrichments));
+	}
+
+	/**
+	 * Gets the enriched variant.
+	 * 
+	 * @return the variant.
+	 */
+	VariantWrapper getFragment() {
+		return fragment;
+	}
+
+	/**
+	 * Gets the enrichments.
+	 * 
+	 * @return the enrichments, unmodifiable.
+	 */
+	List<Enrichment> getEnrichments() {
+		return enrichments;
+	}
+}
@@ -0,0 +1,23 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.Comparator;
+
+/**
+ * Comparator for fragments. A fragment is smaller than another one, if its text
+ * is shorter than the other's text.
+ */
+class FragmentsComparator implements Comparator<VariantWrapper> {
+
+	@Override
+	public int compare(VariantWrapper o1, VariantWrapper o2) {
+
+		int retValue = 0;
+		if (o1.getText().length() > o2.getText().length()) {
+			retValue = 1;
+		} else if (o1.getText().length() < o2.getText().length()) {
+			retValue = -1;
+		}
+		return retValue;
+	}
+
+}
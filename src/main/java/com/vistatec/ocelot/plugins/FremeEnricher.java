@@ -0,0 +1,197 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.RateLimiter;
+import com.vistatec.ocelot.events.RefreshSegmentView;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.its.model.EnrichmentMetaData;
+import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.services.SegmentService;
+import com.vistatec.ocelot.xliff.freme.EnrichmentConverter;
+
+/**
+ * Class performing the enrichment of variants. The enrichments are retrieved
+ * by the worker threads and then applied to the variants and their segments
+ * by a single thread, the one rendering them.
+ */
+class FremeEnricher {
+
+	/** The logger for this class. */
+	private final Logger logger = LoggerFactory.getLogger(FremeEnricher.class);
+
+	/** The FREME plugin. */
+	private FremePlugin fremePlugin;
+
+	/** The event queue. */
+	private OcelotEventQueue eventQueue;
+
+	/** The segment service. */
+	private SegmentService segmentService;
+
+	/** The enrichment cache. */
+	private FremeEnrichmentCache cache;
+
+	/** The source language. */
+	private String sourceLanguage;
+
+	/** The target language. */
+	private String targetLanguage;
+
+	/** The FREME services turned on. */
+	private Set<Integer> services;
+
+	/** Runs the application of the enrichments. */
+	private Executor applier;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fremePlugin
+	 *            the FREME plugin
+	 * @param eventQueue
+	 *            the event queue
+	 * @param segmentService
+	 *            the segment service resolving the segments owning the
+	 *            variants
+	 * @param cache
+	 *            the enrichment cache
+	 * @param sourceLanguage
+	 *            the source language
+	 * @param targetLanguage
+	 *            the target language
+	 * @param services
+	 *            the FREME services turned on
+	 * @param applier
+	 *            runs the application of the enrichments on the thread
+	 *            owning the segments
+	 */
+	public FremeEnricher(FremePlugin fremePlugin, OcelotEventQueue eventQueue,
+			SegmentService segmentService, FremeEnrichmentCache cache,
+			String sourceLanguage, String targetLanguage, Set<Integer> services,
+			Executor applier) {
+		this.fremePlugin = fremePlugin;
+		this.eventQueue = eventQueue;
+		this.segmentService = segmentService;
+		this.cache = cache;
+		this.sourceLanguage = sourceLanguage;
+		this.targetLanguage = targetLanguage;
+		this.services = services;
+		this.applier = applier;
+	}
+
+	/**
+	 * Retrieves the enrichments of a variant. The FREME plugin is called only
+	 * if the enrichments of the variant text are neither cached nor being
+	 * retrieved by another worker. The variant is not changed.
+	 * 
+	 * @param frag
+	 *            the variant to be enriched.
+	 * @param rateLimiter
+	 *            limits the rate of the calls to the FREME services; a
+	 *            permit is acquired only when the plugin is called.
+	 * @return the enrichments of the variant; <code>null</code> if they could
+	 *         not be retrieved.
+	 */
+	public EnrichmentResult enrich(final VariantWrapper frag,
+			final RateLimiter rateLimiter) {
+
+		try {
+			String cacheKey = FremeEnrichmentCache.key(frag.getText(),
+					frag.isTarget() ? targetLanguage : sourceLanguage,
+					frag.isTarget(), services);
+			List<Enrichment> enrichments = cache.get(cacheKey,
+					new FremeEnrichmentCache.Loader() {
+
+						@Override
+						public List<Enrichment> load()
+								throws FremeEnrichmentException {
+							rateLimiter.acquire();
+							if (frag.isTarget()) {
+								return fremePlugin.enrichTargetContent(frag
+										.getText());
+							}
+							return fremePlugin.enrichSourceContent(frag
+									.getText());
+						}
+					});
+			return new EnrichmentResult(frag, enrichments);
+
+		} catch (FremeEnrichmentException e) {
+			logger.error("Error while enriching the variant "
+					+ frag.getText(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Applies the enrichments retrieved for some variants, then refreshes the
+	 * view of the variants at once. The application runs on the applier
+	 * thread.
+	 * 
+	 * @param results
+	 *            the enrichments of the variants.
+	 * @return a future completed once the enrichments have been applied.
+	 */
+	public ListenableFuture<Void> apply(final List<EnrichmentResult> results) {
+
+		ListenableFutureTask<Void> task = ListenableFutureTask.create(
+				new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							applyResults(results);
+						} catch (RuntimeException e) {
+							logger.error(
+									"Error while applying the enrichments", e);
+						}
+					}
+				}, null);
+		applier.execute(task);
+		return task;
+	}
+
+	/**
+	 * Sets the enrichments of the variants and converts them into metadata of
+	 * their segments.
+	 * 
+	 * @param results
+	 *            the enrichments of the variants.
+	 */
+	private void applyResults(List<EnrichmentResult> results) {
+
+		Set<Integer> segNumbers = new LinkedHashSet<Integer>();
+		for (EnrichmentResult result : results) {
+			VariantWrapper frag = result.getFragment();
+			frag.getVariant().setEnrichments(
+					new HashSet<Enrichment>(result.getEnrichments()));
+			frag.getVariant().setEnriched(true);
+			frag.getVariant().setSentToFreme(true);
+			OcelotSegment segment = segmentService.getSegmentByNumber(frag
+					.getSegNumber());
+			if (segment != null) {
+				EnrichmentConverter.convertEnrichment2ITSMetaData(segment,
+						frag.getVariant(),
+						frag.isTarget() ? EnrichmentMetaData.TARGET
+								: EnrichmentMetaData.SOURCE);
+			}
+			segNumbers.add(frag.getSegNumber());
+		}
+		if (!segNumbers.isEmpty()) {
+			eventQueue.post(new RefreshSegmentView(segNumbers));
+		}
+	}
+
+}
@@ -0,0 +1,637 @@
+package com.vistatec.ocelot.plugins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Striped;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkInfoData;
+import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.TranslationEnrichment;
+
+/**
+ * Persistent cache of the enrichments returned by the FREME plugin. The
+ * enrichments of a text are stored in a file of the cache directory, named
+ * after a hash of the text, its language, whether it is a target and the
+ * active FREME services. When the files exceed the maximum size, the least
+ * recently used ones are deleted.
+ */
+class FremeEnrichmentCache {
+
+	/** The logger for this class. */
+	private final Logger logger = LoggerFactory
+			.getLogger(FremeEnrichmentCache.class);
+
+	/** Extension of the cache files. */
+	static final String FILE_EXTENSION = ".enr";
+
+	/** Version of the cache file format. */
+	private static final int FORMAT_VERSION = 2;
+
+	/** The format of the serialized triples. */
+	private static final String TRIPLES_FORMAT = "N-TRIPLE";
+
+	/** The cache directory. */
+	private final File directory;
+
+	/** The maximum size in bytes of the cache files. */
+	private final long maxBytes;
+
+	/** The size of the cache files by key, least recently used first. */
+	private Map<String, Long> fileSizes;
+
+	/** The total size of the cache files. */
+	private long totalBytes;
+
+	/**
+	 * Locks of the keys, held while the file of a key is read or replaced.
+	 */
+	private final Striped<Lock> keyLocks = Striped.lock(32);
+
+	/** The loads of the keys in progress. */
+	private final ConcurrentMap<String, SettableFuture<List<Enrichment>>> pendingLoads = new ConcurrentHashMap<String, SettableFuture<List<Enrichment>>>();
+
+	/**
+	 * Loads the enrichments of a key which is not cached.
+	 */
+	interface Loader {
+
+		/**
+		 * Loads the enrichments.
+		 *
+		 * @return the enrichments.
+		 * @throws FremeEnrichmentException
+		 *             if the enrichments cannot be loaded.
+		 */
+		List<Enrichment> load() throws FremeEnrichmentException;
+	}
+
+	/**
+	 * Constructor. The cache directory is read on first use.
+	 *
+	 * @param directory
+	 *            the cache directory
+	 * @param maxBytes
+	 *            the maximum size in bytes of the cache files
+	 */
+	FremeEnrichmentCache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets the cache key of a text.
+	 *
+	 * @param text
+	 *            the text
+	 * @param language
+	 *            the text language
+	 * @param target
+	 *            states if the text is a target
+	 * @param services
+	 *            the active FREME services
+	 * @return the key.
+	 */
+	static String key(String text, String language, boolean target,
+			Collection<Integer> services) {
+
+		Hasher hasher = Hashing.sha1().newHasher();
+		hasher.putString(String.valueOf(language), StandardCharsets.UTF_8)
+				.putBoolean(target);
+		for (Integer service : new TreeSet<Integer>(services)) {
+			hasher.putInt(service);
+		}
+		hasher.putString(text, StandardCharsets.UTF_8);
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Gets the cached enrichments of a key. The file of the key is read while
+	 * holding the key lock, so that it is not replaced meanwhile: if it cannot
+	 * be read, it is the one deleted.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the enrichments, or <code>null</code> if the key is not cached.
+	 */
+	List<Enrichment> get(String key) {
+
+		Lock keyLock = keyLocks.get(key);
+		keyLock.lock();
+		try {
+			synchronized (this) {
+				if (!getFileSizes().containsKey(key)) {
+					return null;
+				}
+				// moves the key to the most recently used position
+				getFileSizes().put(key, getFileSizes().remove(key));
+			}
+			File file = getFile(key);
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file)))) {
+				List<Enrichment> enrichments = readEnrichments(in);
+				file.setLastModified(System.currentTimeMillis());
+				return enrichments;
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Cannot read the cached enrichments " + file, e);
+				remove(key);
+				return null;
+			}
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the enrichments of a key, loading and caching them if they are not
+	 * cached. A key is loaded by one caller at a time: the callers requesting
+	 * it meanwhile wait for that load.
+	 *
+	 * @param key
+	 *            the key
+	 * @param loader
+	 *            loads the enrichments of the key
+	 * @return the enrichments.
+	 * @throws FremeEnrichmentException
+	 *             if the enrichments cannot be loaded.
+	 */
+	List<Enrichment> get(String key, Loader loader)
+			throws FremeEnrichmentException {
+
+		List<Enrichment> enrichments = get(key);
+		if (enrichments != null) {
+			return enrichments;
+		}
+		SettableFuture<List<Enrichment>> load = SettableFuture.create();
+		SettableFuture<List<Enrichment>> pendingLoad = pendingLoads
+				.putIfAbsent(key, load);
+		if (pendingLoad != null) {
+			return waitFor(pendingLoad);
+		}
+		try {
+			// another load may have completed since the key was read
+			enrichments = get(key);
+			if (enrichments == null) {
+				enrichments = loader.load();
+				put(key, enrichments);
+			}
+			load.set(enrichments);
+			return enrichments;
+		} catch (Throwable e) {
+			load.setException(e);
+			throw e;
+		} finally {
+			pendingLoads.remove(key, load);
+		}
+	}
+
+	private static List<Enrichment> waitFor(
+			ListenableFuture<List<Enrichment>> load)
+			throws FremeEnrichmentException {
+
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FremeEnrichmentException(e);
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(),
+					FremeEnrichmentException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * Caches the enrichments of a key, then evicts the least recently used
+	 * keys exceeding the maximum size.
+	 *
+	 * @param key
+	 *            the key
+	 * @param enrichments
+	 *            the enrichments
+	 */
+	void put(String key, List<Enrichment> enrichments) {
+
+		byte[] data;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			writeEnrichments(out, enrichments);
+			out.flush();
+			data = bytes.toByteArray();
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Cannot cache the enrichments", e);
+			return;
+		}
+		if (data.length > maxBytes) {
+			return;
+		}
+		File file = getFile(key);
+		File tmpFile = new File(directory, key + "."
+				+ Thread.currentThread().getId() + ".tmp");
+		directory.mkdirs();
+		try (BufferedOutputStream out = new BufferedOutputStream(
+				new FileOutputStream(tmpFile))) {
+			out.write(data);
+		} catch (IOException e) {
+			logger.warn("Cannot write the cached enrichments " + file, e);
+			tmpFile.delete();
+			return;
+		}
+		Lock keyLock = keyLocks.get(key);
+		keyLock.lock();
+		try {
+			synchronized (this) {
+				file.delete();
+				if (!tmpFile.renameTo(file)) {
+					logger.warn("Cannot write the cached enrichments {}", file);
+					tmpFile.delete();
+					removeEntry(key);
+					return;
+				}
+				removeEntry(key);
+				getFileSizes().put(key, (long) data.length);
+				totalBytes += data.length;
+				evict();
+			}
+		} finally {
+			keyLock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes all the cached enrichments.
+	 */
+	synchronized void clear() {
+
+		for (String key : new ArrayList<String>(getFileSizes().keySet())) {
+			getFile(key).delete();
+		}
+		fileSizes.clear();
+		totalBytes = 0;
+	}
+
+	/**
+	 * Gets the total size of the cache files.
+	 *
+	 * @return the size in bytes.
+	 */
+	synchronized long getTotalBytes() {
+		getFileSizes();
+		return totalBytes;
+	}
+
+	private synchronized void remove(String key) {
+
+		getFile(key).delete();
+		removeEntry(key);
+	}
+
+	private void removeEntry(String key) {
+
+		Long size = getFileSizes().remove(key);
+		if (size != null) {
+			totalBytes -= size;
+		}
+	}
+
+	private void evict() {
+
+		Iterator<Entry<String, Long>> entries = fileSizes.entrySet()
+				.iterator();
+		while (totalBytes > maxBytes && entries.hasNext()) {
+			Entry<String, Long> entry = entries.next();
+			getFile(entry.getKey()).delete();
+			totalBytes -= entry.getValue();
+			entries.remove();
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(directory, key + FILE_EXTENSION);
+	}
+
+	/**
+	 * Gets the file sizes, reading the cache directory the first time: the
+	 * files are ordered by last modification date.
+	 *
+	 * @return the file sizes by key.
+	 */
+	private Map<String, Long> getFileSizes() {
+
+		if (fileSizes == null) {
+			fileSizes = new LinkedHashMap<String, Long>();
+			File[] files = directory.listFiles();
+			if (files != null) {
+				Arrays.sort(files, new Comparator<File>() {
+
+					@Override
+					public int compare(File o1, File o2) {
+						return Long.compare(o1.lastModified(),
+								o2.lastModified());
+					}
+				});
+				for (File file : files) {
+					String name = file.getName();
+					if (name.endsWith(FILE_EXTENSION)) {
+						fileSizes.put(name.substring(0, name.length()
+								- FILE_EXTENSION.length()), file.length());
+						totalBytes += file.length();
+					} else if (name.endsWith(".tmp")) {
+						file.delete();
+					}
+				}
+			}
+			evict();
+		}
+		return fileSizes;
+	}
+
+	private static void writeEnrichments(DataOutputStream out,
+			List<Enrichment> enrichments) throws IOException {
+
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(enrichments.size());
+		for (Enrichment enrichment : enrichments) {
+			writeString(out, enrichment.getType());
+			out.writeInt(enrichment.getOffsetStartIdx());
+			out.writeInt(enrichment.getOffsetEndIdx());
+			if (enrichment instanceof EntityEnrichment) {
+				EntityEnrichment entity = (EntityEnrichment) enrichment;
+				writeString(out, entity.getEntityURL());
+				writeString(out, entity.getAnnotatorRef());
+			} else if (enrichment instanceof TranslationEnrichment) {
+				TranslationEnrichment translation = (TranslationEnrichment) enrichment;
+				writeString(out, translation.getTranslation());
+				writeString(out, translation.getLanguage());
+			} else if (enrichment instanceof TerminologyEnrichment) {
+				writeTerminology(out, (TerminologyEnrichment) enrichment);
+			} else if (enrichment instanceof LinkEnrichment) {
+				writeLink(out, (LinkEnrichment) enrichment);
+			} else {
+				throw new IllegalArgumentException(
+						"Unknown enrichment type: " + enrichment.getType());
+			}
+		}
+	}
+
+	private static List<Enrichment> readEnrichments(DataInputStream in)
+			throws IOException {
+
+		if (in.readInt() != FORMAT_VERSION) {
+			throw new IOException("Unknown cache file format.");
+		}
+		int count = in.readInt();
+		List<Enrichment> enrichments = new ArrayList<Enrichment>(count);
+		for (int i = 0; i < count; i++) {
+			String type = readString(in);
+			int offsetStartIdx = in.readInt();
+			int offsetEndIdx = in.readInt();
+			Enrichment enrichment;
+			if (Enrichment.ENTITY_TYPE.equals(type)) {
+				EntityEnrichment entity = new EntityEnrichment(readString(in));
+				entity.setAnnotatorRef(readString(in));
+				enrichment = entity;
+			} else if (Enrichment.TRANSLATION_TYPE.equals(type)) {
+				enrichment = new TranslationEnrichment("char="
+						+ offsetStartIdx + "," + offsetEndIdx,
+						readString(in), readString(in));
+			} else if (Enrichment.TERMINOLOGY_TYPE.equals(type)) {
+				enrichment = readTerminology(in);
+			} else if (Enrichment.LINK_TYPE.equals(type)) {
+				enrichment = readLink(in, offsetStartIdx, offsetEndIdx);
+			} else {
+				throw new IOException("Unknown enrichment type: " + type);
+			}
+			enrichment.setOffsetStartIdx(offsetStartIdx);
+			enrichment.setOffsetEndIdx(offsetEndIdx);
+			enrichments.add(enrichment);
+		}
+		return enrichments;
+	}
+
+	private static void writeTerminology(DataOutputStream out,
+			TerminologyEnrichment term) throws IOException {
+
+		writeString(out, term.getSourceTerm());
+		writeString(out, term.getTargetTerm());
+		writeString(out, term.getSense());
+		writeString(out, term.getDefinition());
+		writeString(out, term.getAnnotator());
+		writeString(out, term.getTermInfoRef());
+		String triples = null;
+		if (term.getTermTriples() != null) {
+			Model model = ModelFactory.createDefaultModel();
+			model.add(term.getTermTriples());
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			model.write(bytes, TRIPLES_FORMAT);
+			triples = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+		writeString(out, triples);
+	}
+
+	private static TerminologyEnrichment readTerminology(DataInputStream in)
+			throws IOException {
+
+		TerminologyEnrichment term = new TerminologyEnrichment();
+		term.setSourceTerm(readString(in));
+		term.setTargetTerm(readString(in));
+		term.setSense(readString(in));
+		term.setDefinition(readString(in));
+		term.setAnnotator(readString(in));
+		term.setTermInfoRef(readString(in));
+		String triples = readString(in);
+		if (triples != null) {
+			Model model = ModelFactory.createDefaultModel();
+			model.read(
+					new ByteArrayInputStream(triples
+							.getBytes(StandardCharsets.UTF_8)), null,
+					TRIPLES_FORMAT);
+			List<Statement> statements = model.listStatements().toList();
+			term.setTermTriples(statements);
+		}
+		return term;
+	}
+
+	private static void writeLink(DataOutputStream out, LinkEnrichment link)
+			throws IOException {
+
+		writeString(out, link.getLanguage());
+		writeString(out, link.getReferenceEntity());
+		writeInfo(out, link.getEntityName());
+		writeInfo(out, link.getShortDescription());
+		writeInfo(out, link.getLongDescription());
+		writeInfo(out, link.getImageURL());
+		writeInfo(out, link.getHomePage());
+		writeInfo(out, link.getWikiPage());
+		List<LinkInfoData> infoList = link.getInfoList();
+		out.writeInt(infoList != null ? infoList.size() : -1);
+		if (infoList != null) {
+			for (LinkInfoData info : infoList) {
+				writeString(out, info.getPropName());
+				writeString(out, info.getLabel());
+				writeString(out, info.getUnitOfMeasure());
+				writeString(out, info.getValue());
+			}
+		}
+		Map<String, String> context = link.getContext();
+		out.writeInt(context != null ? context.size() : -1);
+		if (context != null) {
+			for (Entry<String, String> entry : context.entrySet()) {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue());
+			}
+		}
+	}
+
+	private static LinkEnrichment readLink(DataInputStream in,
+			int offsetStartIdx, int offsetEndIdx) throws IOException {
+
+		LinkEnrichment link = new LinkEnrichment(offsetStartIdx, offsetEndIdx,
+				readString(in));
+		link.setReferenceEntity(readString(in));
+		LinkInfoData info = readInfo(in);
+		if (info != null) {
+			link.setEntityName(info.getValue(), info.getPropName());
+		}
+		info = readInfo(in);
+		if (info != null) {
+			link.setShortDescription(info.getValue(), info.getPropName());
+		}
+		info = readInfo(in);
+		if (info != null) {
+			link.setLongDescription(info.getValue(), info.getPropName());
+		}
+		info = readInfo(in);
+		if (info != null) {
+			link.setImageURL(info.getValue(), info.getPropName());
+		}
+		info = readInfo(in);
+		if (info != null) {
+			link.setHomePage(info.getValue(), info.getPropName());
+		}
+		info = readInfo(in);
+		if (info != null) {
+			link.setWikiPage(info.getValue(), info.getPropName());
+		}
+		int infoCount = in.readInt();
+		if (infoCount >= 0) {
+			List<LinkInfoData> infoList = new ArrayList<LinkInfoData>(
+					infoCount);
+			for (int i = 0; i < infoCount; i++) {
+				String propName = readString(in);
+				String label = readString(in);
+				String unitOfMeasure = readString(in);
+				// the value is already formatted
+				LinkInfoData data = new LinkInfoData(propName, label,
+						String.class, unitOfMeasure);
+				data.setValue(readString(in));
+				infoList.add(data);
+			}
+			link.setInfoList(infoList);
+		}
+		int contextSize = in.readInt();
+		if (contextSize >= 0) {
+			Map<String, String> context = new HashMap<String, String>();
+			for (int i = 0; i < contextSize; i++) {
+				context.put(readString(in), readString(in));
+			}
+			link.setContext(context);
+		}
+		// the image is downloaded from its URL when displayed
+		return link;
+	}
+
+	private static void writeInfo(DataOutputStream out, LinkInfoData info)
+			throws IOException {
+
+		out.writeBoolean(info != null);
+		if (info != null) {
+			writeString(out, info.getPropName());
+			writeString(out, info.getValue());
+		}
+	}
+
+	private static LinkInfoData readInfo(DataInputStream in)
+			throws IOException {
+
+		if (!in.readBoolean()) {
+			return null;
+		}
+		LinkInfoData info = new LinkInfoData(readString(in), null,
+				String.class);
+		info.setValue(readString(in));
+		return info;
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8)
+				: null);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = readBytes(in);
+		return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] value)
+			throws IOException {
+
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(value.length);
+			out.write(value);
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] value = new byte[length];
+		in.readFully(value);
+		return value;
+	}
+}
@@ -0,0 +1,265 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Schedules the enrichment of fragments by the FREME plugin. The fragments
+ * are grouped in batches, the small ones together, and put into a bounded
+ * work queue consumed by a fixed number of worker threads: any idle worker
+ * takes the next batch. Batches are queued by a dispatcher thread, which
+ * waits while the queue is full. The calls to the FREME services are rate
+ * limited, but cached enrichments are retrieved without waiting. The workers
+ * do not apply the enrichments they retrieve: the enrichments of a batch are
+ * handed off together to the enricher, which applies them on the thread
+ * owning the segments. A job is completed once all its enrichments have been
+ * applied.
+ */
+class FremeEnrichmentScheduler {
+
+	/** The logger for this class. */
+	private final Logger logger = LoggerFactory
+			.getLogger(FremeEnrichmentScheduler.class);
+
+	/** Batches waiting for a worker. */
+	private final BlockingQueue<Batch> workQueue;
+
+	/** Thread putting the batches into the work queue. */
+	private final ExecutorService dispatcher = Executors
+			.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setDaemon(true).setNameFormat("freme-dispatcher-%d")
+					.build());
+
+	/** Limits the rate of the calls to the FREME services. */
+	private final RateLimiter rateLimiter;
+
+	/** Maximum number of fragments in a batch. */
+	private final int maxBatchSize;
+
+	/** Maximum number of characters in a batch of several fragments. */
+	private final int maxBatchChars;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threadNum
+	 *            the number of worker threads
+	 * @param queueCapacity
+	 *            the number of batches the work queue can hold
+	 * @param callsPerSecond
+	 *            the maximum rate of the calls to the FREME services
+	 * @param maxBatchSize
+	 *            the maximum number of fragments in a batch
+	 * @param maxBatchChars
+	 *            the maximum number of characters in a batch of several
+	 *            fragments
+	 */
+	FremeEnrichmentScheduler(int threadNum, int queueCapacity,
+			double callsPerSecond, int maxBatchSize, int maxBatchChars) {
+		this.workQueue = new ArrayBlockingQueue<Batch>(queueCapacity);
+		this.rateLimiter = RateLimiter.create(callsPerSecond);
+		this.maxBatchSize = maxBatchSize;
+		this.maxBatchChars = maxBatchChars;
+		ThreadFactory workerFactory = new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("freme-enricher-%d").build();
+		for (int i = 0; i < threadNum; i++) {
+			workerFactory.newThread(new Worker()).start();
+		}
+	}
+
+	/**
+	 * Schedules the enrichment of fragments.
+	 *
+	 * @param fragments
+	 *            the fragments
+	 * @param enricher
+	 *            the enricher of the fragments
+	 * @return a future completed once all the fragments have been processed,
+	 *         whether their enrichment succeeded or not.
+	 */
+	ListenableFuture<Void> submit(List<VariantWrapper> fragments,
+			FremeEnricher enricher) {
+
+		final EnrichmentJob job = new EnrichmentJob(fragments.size());
+		final List<Batch> batches = makeBatches(fragments, job, enricher);
+		logger.debug("Scheduling {} fragments in {} batches", fragments.size(),
+				batches.size());
+		dispatcher.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				for (Batch batch : batches) {
+					try {
+						workQueue.put(batch);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						job.completion.setException(e);
+						return;
+					}
+				}
+			}
+		});
+		return job.completion;
+	}
+
+	/**
+	 * Groups fragments into batches. The longest fragments are scheduled
+	 * first, alone, while the shortest ones are grouped.
+	 *
+	 * @param fragments
+	 *            the fragments
+	 * @param job
+	 *            the job the fragments belong to
+	 * @param enricher
+	 *            the enricher of the fragments
+	 * @return the batches.
+	 */
+	List<Batch> makeBatches(List<VariantWrapper> fragments,
+			EnrichmentJob job, FremeEnricher enricher) {
+
+		List<VariantWrapper> sortedFragments = new ArrayList<VariantWrapper>(
+				fragments);
+		Collections.sort(sortedFragments,
+				Collections.reverseOrder(new FragmentsComparator()));
+		List<Batch> batches = new ArrayList<Batch>();
+		List<VariantWrapper> batchFragments = new ArrayList<VariantWrapper>();
+		int batchChars = 0;
+		for (VariantWrapper fragment : sortedFragments) {
+			int chars = fragment.getText().length();
+			if (!batchFragments.isEmpty()
+					&& (batchFragments.size() == maxBatchSize || batchChars
+							+ chars > maxBatchChars)) {
+				batches.add(new Batch(batchFragments, job, enricher));
+				batchFragments = new ArrayList<VariantWrapper>();
+				batchChars = 0;
+			}
+			batchFragments.add(fragment);
+			batchChars += chars;
+		}
+		if (!batchFragments.isEmpty()) {
+			batches.add(new Batch(batchFragments, job, enricher));
+		}
+		return batches;
+	}
+
+	/**
+	 * Enrichment of a set of fragments, completed once all of them have been
+	 * processed.
+	 */
+	static class EnrichmentJob {
+
+		/** The number of fragments not processed yet. */
+		private final AtomicInteger remaining;
+
+		/** The completion of the job. */
+		private final SettableFuture<Void> completion = SettableFuture.create();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fragmentNum
+		 *            the number of fragments to enrich.
+		 */
+		EnrichmentJob(int fragmentNum) {
+			remaining = new AtomicInteger(fragmentNum);
+			if (fragmentNum == 0) {
+				completion.set(null);
+			}
+		}
+
+		/**
+		 * Records processed fragments.
+		 *
+		 * @param fragmentNum
+		 *            the number of processed fragments.
+		 */
+		void fragmentsDone(int fragmentNum) {
+			if (remaining.addAndGet(-fragmentNum) == 0) {
+				completion.set(null);
+			}
+		}
+	}
+
+	/**
+	 * Fragments enriched by a worker in a row.
+	 */
+	static class Batch {
+
+		/** The fragments. */
+		final List<VariantWrapper> fragments;
+
+		/** The job the fragments belong to. */
+		final EnrichmentJob job;
+
+		/** The enricher of the fragments. */
+		final FremeEnricher enricher;
+
+		Batch(List<VariantWrapper> fragments, EnrichmentJob job,
+				FremeEnricher enricher) {
+			this.fragments = fragments;
+			this.job = job;
+			this.enricher = enricher;
+		}
+	}
+
+	/**
+	 * Worker enriching the batches of the work queue.
+	 */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			while (true) {
+				final Batch batch;
+				try {
+					batch = workQueue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				List<EnrichmentResult> results = new ArrayList<EnrichmentResult>();
+				for (VariantWrapper fragment : batch.fragments) {
+					try {
+						EnrichmentResult result = batch.enricher.enrich(
+								fragment, rateLimiter);
+						if (result != null) {
+							results.add(result);
+						}
+					} catch (RuntimeException e) {
+						logger.error("Error while enriching the variant "
+								+ fragment.getText(), e);
+					}
+				}
+				Runnable batchDone = new Runnable() {
+
+					@Override
+					public void run() {
+						batch.job.fragmentsDone(batch.fragments.size());
+					}
+				};
+				try {
+					batch.enricher.apply(results).addListener(batchDone,
+							MoreExecutors.sameThreadExecutor());
+				} catch (RuntimeException e) {
+					logger.error("Error while applying the enrichments", e);
+					batchDone.run();
+				}
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.vistatec.ocelot.plugins;
 
 import java.awt.event.ActionListener;
 import java.awt.event.ItemListener;
+import java.util.Collection;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
@@ -50,12 +51,15 @@ public class FremeMenu extends JMenu {
 	 *            the item listener.
 	 * @param actionListener
 	 *            the action listener.
+	 * @param activeServices
+	 *            the services turned on in the FREME plugin.
 	 */
 	public FremeMenu(final ItemListener itemListener,
-	        final ActionListener actionListener) {
+	        final ActionListener actionListener,
+	        final Collection<Integer> activeServices) {
 
 		super("Freme e-Services");
-		init(itemListener, actionListener);
+		init(itemListener, actionListener, activeServices);
 
 	}
 
@@ -66,31 +70,37 @@ public class FremeMenu extends JMenu {
 	 *            the item listener
 	 * @param actionListener
 	 *            the action listener
+	 * @param activeServices
+	 *            the services turned on in the FREME plugin
 	 */
 	private void init(final ItemListener itemListener,
-	        ActionListener actionListener) {
+	        ActionListener actionListener, Collection<Integer> activeServices) {
 
 		mnuEEntityService = new FremeEServiceMenuItem("e-Entity",
 		        FremePlugin.EENTITY_SERVICE);
-		mnuEEntityService.setSelected(true);
+		mnuEEntityService.setSelected(activeServices
+		        .contains(FremePlugin.EENTITY_SERVICE));
 		mnuEEntityService.addItemListener(itemListener);
 		add(mnuEEntityService);
 
 		mnuELinkService = new FremeEServiceMenuItem("e-Link",
 		        FremePlugin.ELINK_SERVICE);
-		mnuELinkService.setSelected(true);
+		mnuELinkService.setSelected(activeServices
+		        .contains(FremePlugin.ELINK_SERVICE));
 		mnuELinkService.addItemListener(itemListener);
 		add(mnuELinkService);
 
 		mnuETerminologyService = new FremeEServiceMenuItem("e-Terminology",
 		        FremePlugin.ETERMINOLOGY);
-		mnuETerminologyService.setSelected(true);
+		mnuETerminologyService.setSelected(activeServices
+		        .contains(FremePlugin.ETERMINOLOGY));
 		mnuETerminologyService.addItemListener(itemListener);
 		add(mnuETerminologyService);
 
 		mnuETranslationService = new FremeEServiceMenuItem("e-Translation",
 		        FremePlugin.ETRANSLATION);
-		mnuETranslationService.setSelected(true);
+		mnuETranslationService.setSelected(activeServices
+		        .contains(FremePlugin.ETRANSLATION));
 		mnuETranslationService.addItemListener(itemListener);
 		add(mnuETranslationService);
 
@@ -5,15 +5,17 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
@@ -23,33 +25,57 @@ import javax.swing.SwingUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import com.vistatec.ocelot.events.DisplayLeftComponentEvent;
 import com.vistatec.ocelot.events.EnrichingStartedStoppedEvent;
 import com.vistatec.ocelot.events.ItsDocStatsRecalculateEvent;
 import com.vistatec.ocelot.events.RefreshSegmentView;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
-import com.vistatec.ocelot.its.model.EnrichmentMetaData;
-import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
 import com.vistatec.ocelot.plugins.exception.UnknownServiceException;
 import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
-import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.services.SegmentService;
 import com.vistatec.ocelot.xliff.freme.EnrichmentConverter;
 
 /**
- * Class managing calls to the FREME Plugin. It provides a pool of threads
- * invoking FREME services for Ocelot fragments.
+ * Class managing calls to the FREME Plugin. The Ocelot fragments are enriched
+ * by a {@link FremeEnrichmentScheduler}, invoking the FREME services with
+ * bounded concurrency. The enrichments are kept in a
+ * {@link FremeEnrichmentCache}, so that the same texts are not sent to the
+ * FREME services again. The worker threads never change the segments: the
+ * enrichments they retrieve are applied on the Swing event dispatch thread.
  */
 public class FremePluginManager {
 
 	/** The logger for this class. */
 	private final Logger logger = LoggerFactory.getLogger(FremePluginManager.class);
 
-	/** Ideal segments number per call. */
+	/** Maximum number of fragments enriched by a worker in a row. */
 	private static final int SEGNUM_PER_CALL = 20;
 
-	/** Maximum number of threads allowed in the pool. */
-	private static final int MAX_THREAD_NUM = 10;
+	/** Maximum number of characters of the fragments grouped in a batch. */
+	private static final int CHARS_PER_CALL = 2000;
+
+	/** Default number of threads calling the FREME services. */
+	private static final int DEFAULT_THREAD_NUM = 8;
+
+	/** Default maximum number of calls per second to the FREME services. */
+	private static final double DEFAULT_CALLS_PER_SECOND = 20;
+
+	/** Maximum size in bytes of the enrichment cache. */
+	private static final long CACHE_MAX_BYTES = 50 * 1024 * 1024;
+
+	/** Runs the application of the enrichments on the event dispatch thread. */
+	private static final Executor EDT_EXECUTOR = new Executor() {
+
+		@Override
+		public void execute(Runnable command) {
+			SwingUtilities.invokeLater(command);
+		}
+	};
 
 	public static final int OVERRIDE_ENRICHMENTS = 0;
 
@@ -58,12 +84,38 @@ public class FremePluginManager {
 	/** The Ocelot event queue. */
 	private OcelotEventQueue eventQueue;
 
-	/** The executor service. */
-	private ExecutorService executor;
+	/** The scheduler of the enrichments. */
+	private final FremeEnrichmentScheduler scheduler;
+
+	/** The enrichment cache. */
+	private final FremeEnrichmentCache cache;
+
+	/** The FREME services, turned on by default. */
+	private static final List<Integer> SERVICES = Arrays.asList(
+			FremePlugin.EENTITY_SERVICE, FremePlugin.ELINK_SERVICE,
+			FremePlugin.ETERMINOLOGY, FremePlugin.ETRANSLATION);
+
+	/**
+	 * The FREME services turned on in the plugin, filled when the services
+	 * are first turned on.
+	 */
+	private final Set<Integer> activeServices = new CopyOnWriteArraySet<Integer>();
+
+	/** States if the default services have been turned on in the plugin. */
+	private boolean servicesInitialized;
+
+	/** The source language. */
+	private String sourceLanguage;
+
+	/** The target language. */
+	private String targetLanguage;
 
 	/** List of segments currently opened in Ocelot. */
 	private List<OcelotSegment> segments;
 
+	/** The segment service, resolving the segments by number. */
+	private SegmentService segmentService;
+
 	/** States if the FREME plugin is enriching. */
 	private boolean enriching;
 
@@ -74,19 +126,57 @@ public class FremePluginManager {
 	private JMenuItem fremeMenuItem;
 
 	/**
-	 * Constructor.
+	 * Constructor. The number of threads calling the FREME services, the
+	 * number of batches waiting for them and the maximum rate of the calls
+	 * are read from the <code>ocelot.freme.threads</code>,
+	 * <code>ocelot.freme.queueCapacity</code> (twice the threads by default)
+	 * and <code>ocelot.freme.callsPerSecond</code> system properties.
 	 * 
 	 * @param eventQueue
 	 *            the event queue.
+	 * @param cacheDir
+	 *            the directory of the enrichment cache.
 	 */
-	public FremePluginManager(final OcelotEventQueue eventQueue) {
+	public FremePluginManager(final OcelotEventQueue eventQueue,
+			final File cacheDir) {
 
 		this.eventQueue = eventQueue;
-		createExecutor();
+		int threadNum = Math.max(1,
+				Integer.getInteger("ocelot.freme.threads", DEFAULT_THREAD_NUM));
+		int queueCapacity = Math.max(1, Integer.getInteger(
+				"ocelot.freme.queueCapacity", 2 * threadNum));
+		double callsPerSecond = Double.parseDouble(System.getProperty(
+				"ocelot.freme.callsPerSecond",
+				String.valueOf(DEFAULT_CALLS_PER_SECOND)));
+		this.scheduler = new FremeEnrichmentScheduler(threadNum,
+				queueCapacity, callsPerSecond, SEGNUM_PER_CALL,
+				CHARS_PER_CALL);
+		this.cache = new FremeEnrichmentCache(cacheDir, CACHE_MAX_BYTES);
 	}
 
-	private void createExecutor() {
-		executor = Executors.newFixedThreadPool(MAX_THREAD_NUM);
+	/**
+	 * Sets the segment service.
+	 * 
+	 * @param segmentService
+	 *            the segment service.
+	 */
+	public void setSegmentService(SegmentService segmentService) {
+		this.segmentService = segmentService;
+	}
+
+	/**
+	 * Sets the source and target languages, used as keys of the enrichment
+	 * cache.
+	 * 
+	 * @param sourceLanguage
+	 *            the source language
+	 * @param targetLanguage
+	 *            the target language
+	 */
+	public void setSourceAndTargetLanguages(String sourceLanguage,
+			String targetLanguage) {
+		this.sourceLanguage = sourceLanguage;
+		this.targetLanguage = targetLanguage;
 	}
 
 	/**
@@ -113,42 +203,44 @@ public class FremePluginManager {
 			}
 			logger.info("Enriching Ocelot segments...");
 			List<VariantWrapper> fragments = getFragments(segments);
-			Collections.sort(fragments, new FragmentsComparator());
-			List<VariantWrapper> fragmentsToDelete = new ArrayList<VariantWrapper>();
-			int threadNum = findThreadNum(fragments.size());
-			VariantWrapper[][] fragmentsArrays = new VariantWrapper[threadNum][(int) Math
-					.ceil((double) fragments.size() / threadNum)];
-			int j = 0;
-			for (int i = 0; i < fragments.size(); i = i + threadNum) {
-
-				for (int arrayIdx = 0; arrayIdx < threadNum; arrayIdx++) {
-
-					if (i + arrayIdx < fragments.size()) {
-						fragmentsArrays[arrayIdx][j] = fragments.get(i
-								+ arrayIdx);
-						fragmentsToDelete.add(fragments.get(i + arrayIdx));
-					}
-				}
-				j++;
-			}
-			System.out.println("Fragments size = " + fragments.size());
-			int count = 0;
-			for (int i = 0; i < fragmentsArrays.length; i++) {
-				count += fragmentsArrays[i].length;
-			}
-			System.out.println("Total fragments for FREME = " + count);
-			fragments.removeAll(fragmentsToDelete);
-			System.out.println(fragments.size());
+			logger.debug("{} fragments to enrich", fragments.size());
 			eventQueue.post(new EnrichingStartedStoppedEvent(
 					EnrichingStartedStoppedEvent.STARTED));
-			addTasksToExecutor(fragmentsArrays, fremePlugin);
-			WaitingThread waitingThread = new WaitingThread(executor, segments,
-					eventQueue);
-			waitingThread.start();
+			onCompletion(scheduler.submit(fragments, createEnricher(fremePlugin)));
 		}
 
 	}
 
+	/**
+	 * Notifies the end of an enrichment once it has completed.
+	 * 
+	 * @param completion
+	 *            the completion of the enrichment.
+	 */
+	private void onCompletion(ListenableFuture<Void> completion) {
+
+		Futures.addCallback(completion, new FutureCallback<Void>() {
+
+			@Override
+			public void onSuccess(Void result) {
+				enrichmentStopped();
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				logger.error("Error while enriching the segments.", t);
+				enrichmentStopped();
+			}
+		});
+	}
+
+	private void enrichmentStopped() {
+
+		eventQueue.post(new ItsDocStatsRecalculateEvent(segments));
+		eventQueue.post(new EnrichingStartedStoppedEvent(
+				EnrichingStartedStoppedEvent.STOPPED));
+	}
+
 	/**
 	 * Resets all segments enrichments.
 	 */
@@ -189,58 +281,123 @@ public class FremePluginManager {
 	public void enrich(FremePlugin fremePlugin, BaseSegmentVariant variant,
 			int segNumber, boolean target, int action) {
 
+		logger.info("Enriching variant for segment {}...", segNumber);
+		VariantWrapper wrapper = prepareVariant(
+				segmentService.getSegmentByNumber(segNumber), variant,
+				segNumber, target, action);
+		eventQueue.post(new RefreshSegmentView(segNumber));
+		if (wrapper != null) {
+			submit(fremePlugin, Collections.singletonList(wrapper));
+		}
+	}
+
+	/**
+	 * Enriches the targets of existing segments as a single job, refreshing
+	 * the view of the segments at once.
+	 * 
+	 * @param fremePlugin
+	 *            the freme plugin
+	 * @param segments
+	 *            the segments whose target is to be enriched
+	 */
+	public void enrichTargets(FremePlugin fremePlugin,
+			List<OcelotSegment> segments, int action) {
+
+		logger.info("Enriching targets of {} segments...", segments.size());
+		Set<Integer> segNumbers = new LinkedHashSet<Integer>();
+		List<VariantWrapper> fragments = new ArrayList<VariantWrapper>();
+		for (OcelotSegment segment : segments) {
+			if (segment.getTarget() instanceof BaseSegmentVariant) {
+				VariantWrapper wrapper = prepareVariant(segment,
+						(BaseSegmentVariant) segment.getTarget(),
+						segment.getSegmentNumber(), true, action);
+				segNumbers.add(segment.getSegmentNumber());
+				if (wrapper != null) {
+					fragments.add(wrapper);
+				}
+			}
+		}
+		if (!segNumbers.isEmpty()) {
+			eventQueue.post(new RefreshSegmentView(segNumbers));
+		}
+		if (!fragments.isEmpty()) {
+			submit(fremePlugin, fragments);
+		}
+	}
+
+	/**
+	 * Resets or invalidates the enrichments of a variant before its
+	 * enrichment.
+	 * 
+	 * @return the fragment to enrich; <code>null</code> if the variant has
+	 *         no text.
+	 */
+	private VariantWrapper prepareVariant(OcelotSegment segment,
+			BaseSegmentVariant variant, int segNumber, boolean target,
+			int action) {
+
 		if (action == OVERRIDE_ENRICHMENTS) {
-			resetVariant(getSegmentBySegNum(segNumber), variant, target);
+			resetVariant(segment, variant, target);
 		} else {
 			variant.setEnriched(false);
 		}
-		eventQueue.post(new RefreshSegmentView(segNumber));
-		logger.info("Enriching variant for segment {}...", segNumber);
 		VariantWrapper wrapper = new VariantWrapper(variant,
 				variant.getDisplayText(), segNumber, target);
-		if (wrapper.getText() != null && !wrapper.getText().isEmpty()) {
-			eventQueue.post(new EnrichingStartedStoppedEvent(
-					EnrichingStartedStoppedEvent.STARTED));
-			addTasksToExecutor(new VariantWrapper[][] { { wrapper } },
-					fremePlugin);
-			WaitingThread waitingThread = new WaitingThread(executor, segments,
-					eventQueue);
-			waitingThread.start();
+		if (wrapper.getText() == null || wrapper.getText().isEmpty()) {
+			return null;
 		}
+		return wrapper;
 	}
 
-	private OcelotSegment getSegmentBySegNum(int segNumber) {
+	/**
+	 * Schedules the enrichment of fragments as a single job.
+	 */
+	private void submit(FremePlugin fremePlugin, List<VariantWrapper> fragments) {
 
-		OcelotSegment segment = null;
-		int i = 0;
-		while (i < segments.size() && segment == null) {
-			if (segments.get(i).getSegmentNumber() == segNumber) {
-				segment = segments.get(i);
-			}
-			i++;
-		}
-		return segment;
+		eventQueue.post(new EnrichingStartedStoppedEvent(
+				EnrichingStartedStoppedEvent.STARTED));
+		onCompletion(scheduler.submit(fragments, createEnricher(fremePlugin)));
 	}
 
 	/**
-	 * Finds the optimal threads number depending on the number of segments to
-	 * be enriched.
+	 * Creates an enricher using the current languages and FREME services as
+	 * keys of the enrichment cache.
 	 * 
-	 * @param segmentsSize
-	 *            the number of segments
-	 * @return the optimal threads number.
+	 * @param fremePlugin
+	 *            the FREME plugin
+	 * @return the enricher.
 	 */
-	private int findThreadNum(int segmentsSize) {
-		int threadNum = 2;
-		boolean found = false;
-		while (!found) {
-			if (segmentsSize / threadNum <= SEGNUM_PER_CALL) {
-				found = true;
-			} else {
-				threadNum++;
+	private FremeEnricher createEnricher(FremePlugin fremePlugin) {
+
+		initServices(fremePlugin);
+		return new FremeEnricher(fremePlugin, eventQueue, segmentService, cache,
+				sourceLanguage, targetLanguage, new HashSet<Integer>(
+						activeServices), EDT_EXECUTOR);
+	}
+
+	/**
+	 * Turns on the default services in the plugin the first time, so that the
+	 * active services are those the plugin actually runs. The services
+	 * unknown to the plugin are not active.
+	 * 
+	 * @param fremePlugin
+	 *            the FREME plugin
+	 */
+	private void initServices(FremePlugin fremePlugin) {
+
+		if (servicesInitialized) {
+			return;
+		}
+		servicesInitialized = true;
+		for (Integer service : SERVICES) {
+			try {
+				fremePlugin.turnOnService(service);
+				activeServices.add(service);
+			} catch (UnknownServiceException e) {
+				logger.warn("The FREME service with type " + service
+						+ " cannot be turned on.", e);
 			}
 		}
-		return threadNum;
 	}
 
 	/**
@@ -284,10 +441,6 @@ public class FremePluginManager {
 		return fragments;
 	}
 
-	ExecutorService getexecutor() {
-		return executor;
-	}
-
 	List<OcelotSegment> getSegments() {
 		return segments;
 	}
@@ -326,17 +479,6 @@ public class FremePluginManager {
 		return enriching;
 	}
 
-	private synchronized void addTasksToExecutor(
-			VariantWrapper[][] fragmentsArrays, FremePlugin fremePlugin) {
-		if (executor.isShutdown()) {
-			createExecutor();
-		}
-		for (int i = 0; i < fragmentsArrays.length; i++) {
-			executor.execute(new FremeEnricher(fragmentsArrays[i], fremePlugin,
-					eventQueue, segments));
-		}
-	}
-
 	public JMenu getFremeMenu(final FremePlugin fremePlugin) {
 
 		if (fremeMenu == null) {
@@ -350,6 +492,8 @@ public class FremePluginManager {
 							Window containerWindow = SwingUtilities
 									.getWindowAncestor(fremeMenu);
 							fremePlugin.configureServiceChain(containerWindow);
+							// the chain settings are not part of the cache keys
+							cache.clear();
 						} else if (menuItem.getMenuType() == FremeMenu.FILTER_MENU) {
 							eventQueue.post(new DisplayLeftComponentEvent(
 									fremePlugin.getCategoryFilterPanel()));
@@ -386,9 +530,12 @@ public class FremePluginManager {
 							if (e.getStateChange() == ItemEvent.SELECTED) {
 								fremePlugin.turnOnService(menuItem
 										.getServiceType());
+								activeServices.add(menuItem.getServiceType());
 							} else {
 								fremePlugin.turnOffService(menuItem
 										.getServiceType());
+								activeServices.remove(menuItem
+										.getServiceType());
 							}
 						} 
 					} catch (UnknownServiceException exc) {
@@ -405,7 +552,10 @@ public class FremePluginManager {
 
 				}
 			};
-			fremeMenu = new FremeMenu(itemListener, listener);
+			if (fremePlugin != null) {
+				initServices(fremePlugin);
+			}
+			fremeMenu = new FremeMenu(itemListener, listener, activeServices);
 		}
 		// boolean enableMenu = false;
 		// for (Entry<FremePlugin, Boolean> fremePlugin : fremePlugins
@@ -474,245 +624,3 @@ public class FremePluginManager {
 	}
 
 }
-
-class WaitingThread extends Thread {
-
-	private ExecutorService executor;
-
-	private List<OcelotSegment> segments;
-
-	private OcelotEventQueue eventQueue;
-
-	public WaitingThread(ExecutorService executor,
-			List<OcelotSegment> segments, OcelotEventQueue eventQueue) {
-		this.eventQueue = eventQueue;
-		this.executor = executor;
-		this.segments = segments;
-	}
-
-	@Override
-	public void run() {
-
-		synchronized (executor) {
-			executor.shutdown();
-		}
-		try {
-			executor.awaitTermination(5, TimeUnit.MINUTES);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		eventQueue.post(new ItsDocStatsRecalculateEvent(segments));
-		eventQueue.post(new EnrichingStartedStoppedEvent(
-				EnrichingStartedStoppedEvent.STOPPED));
-
-		System.out.println("-----------------------------------");
-		System.out.println("---------ENRICHED SEGMENTS---------");
-		System.out.println("-----------------------------------");
-		int count = 0;
-		for (OcelotSegment segment : segments) {
-			if (((BaseSegmentVariant) segment.getSource()).isEnriched()
-					&& ((BaseSegmentVariant) segment.getTarget()).isEnriched()) {
-				System.out.println(segment.getSegmentNumber());
-				count++;
-			}
-		}
-
-		System.out.println("TOTAL: " + count);
-	}
-
-}
-
-/**
- * Comparator for fragments. A fragment is smaller than another one, if its text
- * is shorter than the other's text.
- */
-class FragmentsComparator implements Comparator<VariantWrapper> {
-
-	@Override
-	public int compare(VariantWrapper o1, VariantWrapper o2) {
-
-		int retValue = 0;
-		if (o1.getText().length() > o2.getText().length()) {
-			retValue = 1;
-		} else if (o1.getText().length() < o2.getText().length()) {
-			retValue = -1;
-		}
-		return retValue;
-	}
-
-}
-
-/**
- * Wrapper class for variant objects.
- */
-class VariantWrapper {
-
-	/** The variant. */
-	private BaseSegmentVariant variant;
-
-	/** The text contained into the variant. */
-	private String text;
-
-	/** The owner segment number. */
-	private int segNumber;
-
-	private boolean target;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param variant
-	 *            the variant
-	 * @param text
-	 *            the text
-	 * @param segNumber
-	 *            the segment number
-	 */
-	public VariantWrapper(BaseSegmentVariant variant, String text,
-			int segNumber, boolean target) {
-		this.variant = variant;
-		this.text = text;
-		this.segNumber = segNumber;
-		this.target = target;
-	}
-
-	/**
-	 * Gets the variant.
-	 * 
-	 * @return the variant.
-	 */
-	public BaseSegmentVariant getVariant() {
-		return variant;
-	}
-
-	/**
-	 * Gets the text.
-	 * 
-	 * @return the text.
-	 */
-	public String getText() {
-		return text;
-	}
-
-	/**
-	 * Gets the segment number.
-	 * 
-	 * @return the segment number.
-	 */
-	public int getSegNumber() {
-		return segNumber;
-	}
-
-	public boolean isTarget() {
-		return target;
-	}
-
-}
-
-/**
- * Runnable class performing the enrichment of an array of variants.
- */
-class FremeEnricher implements Runnable {
-
-	/** The logger for this class. */
-	private final Logger logger = LoggerFactory.getLogger(FremeEnricher.class);
-
-	/** The array of variants. */
-	private VariantWrapper[] variants;
-
-	/** The FREME plugin. */
-	private FremePlugin fremePlugin;
-
-	/** The event queue. */
-	private OcelotEventQueue eventQueue;
-
-	private List<OcelotSegment> segments;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param variants
-	 *            the array of variants to be enriched.
-	 * @param fremePlugin
-	 *            the FREME plugin
-	 * @param eventQueue
-	 *            the event queue
-	 */
-	public FremeEnricher(final VariantWrapper[] variants,
-			FremePlugin fremePlugin, OcelotEventQueue eventQueue,
-			List<OcelotSegment> segments) {
-		this.variants = variants;
-		this.fremePlugin = fremePlugin;
-		this.eventQueue = eventQueue;
-		this.segments = segments;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see java.lang.Runnable#run()
-	 */
-	@Override
-	public void run() {
-
-		logger.debug("Enriching {} variants", variants.length);
-		for (VariantWrapper frag : variants) {
-			if (frag != null) {
-				try {
-					List<Enrichment> enrichments = null;
-					String sourceTarget = null;
-					frag.getVariant().setSentToFreme(true);
-					if (frag.isTarget()) {
-						enrichments = fremePlugin.enrichTargetContent(frag
-								.getText());
-						sourceTarget = EnrichmentMetaData.TARGET;
-					} else {
-						enrichments = fremePlugin.enrichSourceContent(frag
-								.getText());
-						sourceTarget = EnrichmentMetaData.SOURCE;
-					}
-					frag.getVariant().setEnrichments(
-							new HashSet<Enrichment>(enrichments));
-					frag.getVariant().setEnriched(true);
-					OcelotSegment segment = findSegmentBySegNumber(frag
-							.getSegNumber());
-					if (segment != null) {
-						EnrichmentConverter.convertEnrichment2ITSMetaData(
-								segment, frag.getVariant(), sourceTarget);
-					}
-
-				} catch (FremeEnrichmentException e) {
-					logger.error("Error while enriching the variant "
-							+ frag.getVariant().getDisplayText(), e);
-				} finally {
-					eventQueue
-					.post(new RefreshSegmentView(frag.getSegNumber()));
-				}
-			}
-		}
-
-	}
-
-	/**
-	 * Finds the segment having the specified segment number.
-	 * 
-	 * @param segNum
-	 *            the segment number.
-	 * @return the Ocelot segment.
-	 */
-	private OcelotSegment findSegmentBySegNumber(int segNum) {
-
-		OcelotSegment segment = null;
-		Iterator<OcelotSegment> segmIt = segments.iterator();
-		OcelotSegment currSegm = null;
-		while (segmIt.hasNext() && segment == null) {
-			currSegm = segmIt.next();
-			if (currSegm.getSegmentNumber() == segNum) {
-				segment = currSegm;
-			}
-		}
-		return segment;
-	}
-
-}
\ No newline at end of file
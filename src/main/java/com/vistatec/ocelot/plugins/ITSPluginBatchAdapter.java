@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.plugins;
+
+import com.vistatec.ocelot.its.model.LanguageQualityIssue;
+import com.vistatec.ocelot.its.model.Provenance;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the chunks of segments to an {@link ITSPlugin} one segment at a time.
+ * A segment the plugin fails on does not prevent the rest of the chunk from
+ * being sent.
+ */
+public class ITSPluginBatchAdapter implements BatchITSPlugin {
+    private static final Logger LOG = LoggerFactory.getLogger(ITSPluginBatchAdapter.class);
+
+    private final ITSPlugin plugin;
+
+    public ITSPluginBatchAdapter(ITSPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets a batch view of a plugin.
+     *
+     * @param plugin the plugin
+     * @return the plugin itself if it already handles chunks, an adapter
+     * otherwise.
+     */
+    public static BatchITSPlugin of(ITSPlugin plugin) {
+        return (plugin instanceof BatchITSPlugin) ? (BatchITSPlugin) plugin
+                : new ITSPluginBatchAdapter(plugin);
+    }
+
+    @Override
+    public String getPluginName() {
+        return plugin.getPluginName();
+    }
+
+    @Override
+    public String getPluginVersion() {
+        return plugin.getPluginVersion();
+    }
+
+    @Override
+    public void sendLQIData(String sourceLang, String targetLang,
+            OcelotSegment seg, List<LanguageQualityIssue> lqi) {
+        plugin.sendLQIData(sourceLang, targetLang, seg, lqi);
+    }
+
+    @Override
+    public void sendProvData(String sourceLang, String targetLang,
+            OcelotSegment seg, List<Provenance> prov) {
+        plugin.sendProvData(sourceLang, targetLang, seg, prov);
+    }
+
+    @Override
+    public void sendITSData(String sourceLang, String targetLang,
+            List<OcelotSegment> segments) {
+        for (OcelotSegment seg : segments) {
+            try {
+                plugin.sendLQIData(sourceLang, targetLang, seg, seg.getLQI());
+                plugin.sendProvData(sourceLang, targetLang, seg,
+                        seg.getProvenance());
+            } catch (Exception e) {
+                LOG.error("ITS Plugin '" + plugin.getPluginName()
+                        + "' threw an exception on ITS metadata export of segment "
+                        + seg.getSegmentNumber(), e);
+            }
+        }
+    }
+}
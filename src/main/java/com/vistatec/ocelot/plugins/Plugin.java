@@ -28,6 +28,16 @@
  */
 package com.vistatec.ocelot.plugins;
 
+/**
+ * Base interface of the plugins.
+ * <p>
+ * Threading: the notifications of the segment, report and quality plugins
+ * are not called on the event dispatch thread but on a thread of their own,
+ * in order. The segments they receive are the live segments of the open
+ * document, which the event dispatch thread keeps editing: a plugin should
+ * only read them during the call, should not keep them for later and must
+ * not modify them. The lists of segments passed are copies.
+ */
 public interface Plugin {
 
     /**
@@ -0,0 +1,401 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the calls to the plugins away from the event thread. Each plugin has
+ * its own thread and queue of calls, so that a slow plugin only delays its own
+ * calls, which are run in order. The calls to each plugin are counted and
+ * their latency recorded.
+ * <p>
+ * The queue of a plugin is bounded: when it is full, a call is dropped
+ * according to the drop policy, and a call running longer than the timeout
+ * is interrupted. Plugins keeping a state built from the sequence of calls
+ * are instead dispatched with {@link #dispatchStateful}: their calls are
+ * never dropped nor interrupted.
+ */
+public class PluginDispatcher {
+
+	/** The logger for this class. */
+	private static final Logger LOG = LoggerFactory
+			.getLogger(PluginDispatcher.class);
+
+	/** Default timeout of a plugin call, in milliseconds. */
+	private static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+	/** Default number of calls waiting for a plugin. */
+	private static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+	/**
+	 * What to do with a call when the queue of its plugin is full.
+	 */
+	public enum DropPolicy {
+
+		/** The new call is dropped. */
+		DROP_NEWEST,
+
+		/** The oldest waiting call is dropped to queue the new one. */
+		DROP_OLDEST
+	}
+
+	/**
+	 * A call to a plugin.
+	 */
+	public interface PluginCall {
+
+		/**
+		 * Calls the plugin.
+		 *
+		 * @throws Exception
+		 *             any exception thrown by the plugin.
+		 */
+		void call() throws Exception;
+	}
+
+	/** The executors by plugin. */
+	private final Map<Plugin, PluginExecutor> executors = new ConcurrentHashMap<Plugin, PluginExecutor>();
+
+	/** Interrupts the calls running longer than the timeout. */
+	private final ScheduledExecutorService watchdog = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+					.setDaemon(true).setNameFormat("plugin-watchdog-%d")
+					.build());
+
+	/** The timeout of a call, in milliseconds. */
+	private volatile long timeoutMillis;
+
+	/** The number of calls waiting for a plugin. */
+	private final int queueCapacity;
+
+	/** The drop policy. */
+	private final DropPolicy dropPolicy;
+
+	/**
+	 * Constructor reading the settings from the
+	 * <code>ocelot.plugins.timeoutMillis</code>,
+	 * <code>ocelot.plugins.queueCapacity</code> and
+	 * <code>ocelot.plugins.dropPolicy</code> system properties.
+	 */
+	public PluginDispatcher() {
+		this(Long.getLong("ocelot.plugins.timeoutMillis",
+				DEFAULT_TIMEOUT_MILLIS), Integer.getInteger(
+				"ocelot.plugins.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+				DropPolicy.valueOf(System.getProperty(
+						"ocelot.plugins.dropPolicy",
+						DropPolicy.DROP_OLDEST.name())));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param timeoutMillis
+	 *            the timeout of a call, in milliseconds
+	 * @param queueCapacity
+	 *            the number of calls waiting for a plugin
+	 * @param dropPolicy
+	 *            what to do with a call when the queue of its plugin is full
+	 */
+	public PluginDispatcher(long timeoutMillis, int queueCapacity,
+			DropPolicy dropPolicy) {
+		this.timeoutMillis = timeoutMillis;
+		this.queueCapacity = queueCapacity;
+		this.dropPolicy = dropPolicy;
+	}
+
+	/**
+	 * Queues a call to a plugin. The method returns right away: the call is
+	 * run on the thread of the plugin, and any exception it throws is logged.
+	 *
+	 * @param plugin
+	 *            the plugin
+	 * @param callName
+	 *            the name of the call, used in the logs
+	 * @param call
+	 *            the call
+	 */
+	public void dispatch(Plugin plugin, String callName, PluginCall call) {
+
+		PluginExecutor executor = getExecutor(plugin, false);
+		executor.execute(new TimedCall(executor, plugin, callName, call));
+	}
+
+	/**
+	 * Queues a call to a plugin whose state depends on all of its calls. The
+	 * method returns right away: the call is run on the thread of the plugin
+	 * after the previous ones, without timeout, and is never dropped. Whether
+	 * the calls to a plugin are stateful is decided by its first call.
+	 *
+	 * @param plugin
+	 *            the plugin
+	 * @param callName
+	 *            the name of the call, used in the logs
+	 * @param call
+	 *            the call
+	 */
+	public void dispatchStateful(Plugin plugin, String callName,
+			PluginCall call) {
+
+		PluginExecutor executor = getExecutor(plugin, true);
+		executor.execute(new TimedCall(executor, plugin, callName, call));
+	}
+
+	/**
+	 * Queues a stateful call to a plugin which has to run on the event
+	 * dispatch thread, e.g. because it shows dialogs. The call is run on the
+	 * event dispatch thread once the calls queued before it have run, and the
+	 * thread of the plugin waits for it, so that the plugin is never used by
+	 * two threads at once.
+	 *
+	 * @param plugin
+	 *            the plugin
+	 * @param callName
+	 *            the name of the call, used in the logs
+	 * @param call
+	 *            the call, run on the event dispatch thread
+	 */
+	public void dispatchStatefulOnEventThread(Plugin plugin, String callName,
+			final Runnable call) {
+
+		dispatchStateful(plugin, callName, new PluginCall() {
+
+			@Override
+			public void call() throws Exception {
+				SwingUtilities.invokeAndWait(call);
+			}
+		});
+	}
+
+	/**
+	 * Gets the statistics of the calls to the plugins.
+	 *
+	 * @return the statistics, one per called plugin.
+	 */
+	public List<PluginStatistics> getStatistics() {
+
+		List<PluginStatistics> statistics = new ArrayList<PluginStatistics>();
+		for (PluginExecutor executor : executors.values()) {
+			statistics.add(executor.snapshot());
+		}
+		return statistics;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Stops the threads of the plugins, e.g. before the plugins are
+	 * discovered again. The waiting calls are dropped and the statistics
+	 * cleared. The next calls start new threads.
+	 */
+	public void stopPlugins() {
+
+		synchronized (executors) {
+			for (PluginExecutor executor : executors.values()) {
+				executor.shutdownNow();
+			}
+			executors.clear();
+		}
+	}
+
+	/**
+	 * Stops the threads of the plugins and of the dispatcher. The waiting
+	 * calls are dropped.
+	 */
+	public void shutdown() {
+
+		stopPlugins();
+		watchdog.shutdownNow();
+	}
+
+	private PluginExecutor getExecutor(Plugin plugin, boolean stateful) {
+
+		synchronized (executors) {
+			PluginExecutor executor = executors.get(plugin);
+			if (executor == null) {
+				executor = new PluginExecutor(plugin, stateful);
+				executors.put(plugin, executor);
+			}
+			return executor;
+		}
+	}
+
+	/**
+	 * Single thread running the calls to a plugin, with its counters. The
+	 * queue of a stateful plugin is unbounded.
+	 */
+	private class PluginExecutor extends ThreadPoolExecutor {
+
+		private final String pluginName;
+		private final boolean stateful;
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong timeouts = new AtomicLong();
+		private final AtomicLong dropped = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		PluginExecutor(Plugin plugin, boolean stateful) {
+			super(1, 1, 0, TimeUnit.MILLISECONDS,
+					stateful ? new LinkedBlockingQueue<Runnable>()
+							: new ArrayBlockingQueue<Runnable>(queueCapacity),
+					new ThreadFactoryBuilder().setDaemon(true)
+							.setNameFormat("plugin-" + plugin.getPluginName()
+									.replace("%", "%%") + "-%d").build());
+			this.pluginName = plugin.getPluginName();
+			this.stateful = stateful;
+			setRejectedExecutionHandler(new DropHandler());
+		}
+
+		void record(long latencyNanos, boolean failed, boolean timedOut) {
+			calls.incrementAndGet();
+			if (failed) {
+				failures.incrementAndGet();
+			}
+			if (timedOut) {
+				timeouts.incrementAndGet();
+			}
+			totalNanos.addAndGet(latencyNanos);
+			long max = maxNanos.get();
+			while (latencyNanos > max
+					&& !maxNanos.compareAndSet(max, latencyNanos)) {
+				max = maxNanos.get();
+			}
+		}
+
+		PluginStatistics snapshot() {
+			long callCount = calls.get();
+			return new PluginStatistics(pluginName, callCount,
+					failures.get(), timeouts.get(), dropped.get(),
+					getQueue().size(), callCount == 0 ? 0 : totalNanos.get()
+							/ 1e6 / callCount, maxNanos.get() / 1e6);
+		}
+
+		/**
+		 * Drops a call when the queue is full, according to the drop policy.
+		 */
+		private class DropHandler implements RejectedExecutionHandler {
+
+			@Override
+			public void rejectedExecution(Runnable r,
+					ThreadPoolExecutor executor) {
+
+				if (executor.isShutdown()) {
+					return;
+				}
+				dropped.incrementAndGet();
+				Runnable droppedCall = r;
+				if (dropPolicy == DropPolicy.DROP_OLDEST) {
+					droppedCall = executor.getQueue().poll();
+					executor.execute(r);
+				}
+				if (droppedCall != null) {
+					LOG.warn("Plugin '{}' is too slow, dropped the call {}",
+							pluginName, droppedCall);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A call to a plugin, interrupted if running longer than the timeout
+	 * unless the plugin is stateful.
+	 */
+	private class TimedCall implements Runnable {
+
+		private final PluginExecutor executor;
+		private final Plugin plugin;
+		private final String callName;
+		private final PluginCall call;
+
+		/** Guards the interruption of the running thread by the watchdog. */
+		private boolean done;
+		private boolean timedOut;
+
+		TimedCall(PluginExecutor executor, Plugin plugin, String callName,
+				PluginCall call) {
+			this.executor = executor;
+			this.plugin = plugin;
+			this.callName = callName;
+			this.call = call;
+		}
+
+		@Override
+		public void run() {
+
+			ScheduledFuture<?> timeout = executor.stateful ? null
+					: scheduleTimeout(Thread.currentThread());
+			long start = System.nanoTime();
+			boolean failed = false;
+			try {
+				call.call();
+			} catch (Exception e) {
+				failed = true;
+				LOG.error("Plugin '" + plugin.getPluginName()
+						+ "' threw an exception on " + callName, e);
+			} finally {
+				if (timeout != null) {
+					timeout.cancel(false);
+				}
+				boolean wasTimedOut;
+				synchronized (this) {
+					done = true;
+					wasTimedOut = timedOut;
+				}
+				// the interruption must not leak to the next call
+				Thread.interrupted();
+				executor.record(System.nanoTime() - start, failed,
+						wasTimedOut);
+			}
+		}
+
+		/**
+		 * Schedules the interruption of the thread running the call.
+		 */
+		private ScheduledFuture<?> scheduleTimeout(final Thread thread) {
+
+			return watchdog.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					synchronized (TimedCall.this) {
+						if (!done) {
+							timedOut = true;
+							LOG.warn("Plugin '{}' timed out on {}, interrupting it",
+									plugin.getPluginName(), callName);
+							thread.interrupt();
+						}
+					}
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public String toString() {
+			return callName;
+		}
+	}
+}
@@ -35,20 +35,16 @@ import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 
 import javax.swing.JFrame;
@@ -59,6 +55,7 @@ import javax.swing.SwingUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ListMultimap;
 import com.google.common.eventbus.Subscribe;
 import com.vistatec.ocelot.config.ConfigService;
 import com.vistatec.ocelot.config.ConfigTransferService;
@@ -67,14 +64,13 @@ import com.vistatec.ocelot.events.EnrichmentViewEvent;
 import com.vistatec.ocelot.events.LQIAdditionEvent;
 import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIRemoveEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentTargetEnterEvent;
 import com.vistatec.ocelot.events.SegmentTargetExitEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
 import com.vistatec.ocelot.freme.gui.EnrichmentFrame;
-import com.vistatec.ocelot.its.model.LanguageQualityIssue;
-import com.vistatec.ocelot.its.model.Provenance;
 import com.vistatec.ocelot.plugins.ReportPlugin.ReportException;
 import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
@@ -89,6 +85,16 @@ import com.vistatec.ocelot.services.SegmentService;
  * singletons.
  */
 public class PluginManager implements OcelotEventQueueListener {
+
+	/** Directory of the FREME enrichment cache, next to the plugin directory. */
+	private static final String FREME_CACHE_DIR = "freme-cache";
+
+	/** Cache of the plugin classes found in the plugin JARs. */
+	private static final String PLUGIN_CACHE_FILE = "plugin-cache.properties";
+
+	/** Default number of segments sent at once to the ITS plugins. */
+	private static final int EXPORT_BATCH_SIZE = 500;
+
 	private static Logger LOG = LoggerFactory.getLogger(PluginManager.class);
 	private List<String> itsPluginClassNames = new ArrayList<String>();
 	private List<String> segPluginClassNames = new ArrayList<String>();
@@ -104,6 +110,8 @@ public class PluginManager implements OcelotEventQueueListener {
 	private File pluginDir;
 	private final ConfigService cfgService;
 	private QualityPluginManager qualityPluginManager;
+	/** Runs the calls to the segment, report and quality plugins. */
+	private final PluginDispatcher dispatcher;
 
 	public PluginManager(ConfigService cfgService, File pluginDir,
 			OcelotEventQueue eventQueue) {
@@ -111,10 +119,23 @@ public class PluginManager implements OcelotEventQueueListener {
 		this.segPlugins = new HashMap<SegmentPlugin, Boolean>();
 		this.reportPlugins = new HashMap<ReportPlugin, Boolean>();
                 this.fremePlugins = new HashMap<FremePlugin, Boolean>();
-		this.fremeManager = new FremePluginManager(eventQueue);
+		this.fremeManager = new FremePluginManager(eventQueue, new File(
+				pluginDir.getAbsoluteFile().getParentFile(), FREME_CACHE_DIR));
 		this.cfgService = cfgService;
 		this.pluginDir = pluginDir;
-		qualityPluginManager = new QualityPluginManager();
+		this.dispatcher = new PluginDispatcher();
+		qualityPluginManager = new QualityPluginManager(dispatcher);
+	}
+
+	/**
+	 * Stops the threads of the plugins, logging the statistics of their
+	 * calls.
+	 */
+	public void shutdown() {
+		for (PluginStatistics stats : dispatcher.getStatistics()) {
+			LOG.info("Plugin calls - {}", stats);
+		}
+		dispatcher.shutdown();
 	}
 
 	public File getPluginDir() {
@@ -125,6 +146,10 @@ public class PluginManager implements OcelotEventQueueListener {
 		this.pluginDir = pluginDir;
 	}
 
+	public void setSegmentService(SegmentService segmentService) {
+		fremeManager.setSegmentService(segmentService);
+	}
+
 	public Set<Plugin> getPlugins() {
 		Set<Plugin> plugins = new HashSet<Plugin>();
 		Set<? extends Plugin> itsPlugins = getITSPlugins();
@@ -235,22 +260,79 @@ public class PluginManager implements OcelotEventQueueListener {
 	 */
 	public void exportData(String sourceLang, String targetLang,
 	        SegmentService segmentService) {
-		for (int row = 0; row < segmentService.getNumSegments(); row++) {
-			OcelotSegment seg = segmentService.getSegment(row);
-			List<LanguageQualityIssue> lqi = seg.getLQI();
-			List<Provenance> prov = seg.getProvenance();
-			for (ITSPlugin plugin : getEnabledITSPlugins()) {
+		exportData(sourceLang, targetLang, segmentService, null);
+	}
+
+	/**
+	 * ITSPlugin handler for exporting LQI/Provenance metadata of segments.
+	 * The segments are sent to the enabled plugins in chunks of
+	 * <code>ocelot.plugins.exportBatchSize</code> segments (500 by default);
+	 * plugins not implementing {@link BatchITSPlugin} are sent the segments of
+	 * each chunk one at a time. The method may be called off the event
+	 * thread.
+	 * 
+	 * @param sourceLang
+	 * @param targetLang
+	 * @param segmentService
+	 * @param progress
+	 *            notified after each chunk, may be <code>null</code>
+	 */
+	public void exportData(String sourceLang, String targetLang,
+	        SegmentService segmentService, ExportProgress progress) {
+		List<BatchITSPlugin> plugins = new ArrayList<BatchITSPlugin>();
+		for (ITSPlugin plugin : getEnabledITSPlugins()) {
+			plugins.add(ITSPluginBatchAdapter.of(plugin));
+		}
+		int batchSize = Math.max(1, Integer.getInteger(
+		        "ocelot.plugins.exportBatchSize", EXPORT_BATCH_SIZE));
+		int numSegments = segmentService.getNumSegments();
+		for (int start = 0; start < numSegments; start += batchSize) {
+			if (progress != null && progress.isCanceled()) {
+				return;
+			}
+			int end = Math.min(start + batchSize, numSegments);
+			List<OcelotSegment> segments = new ArrayList<OcelotSegment>(end
+			        - start);
+			for (int row = start; row < end; row++) {
+				segments.add(segmentService.getSegment(row));
+			}
+			for (BatchITSPlugin plugin : plugins) {
 				try {
-					plugin.sendLQIData(sourceLang, targetLang, seg, lqi);
-					plugin.sendProvData(sourceLang, targetLang, seg, prov);
+					plugin.sendITSData(sourceLang, targetLang, segments);
 				} catch (Exception e) {
 					LOG.error("ITS Plugin '" + plugin.getPluginName()
 					        + "' threw an exception on ITS metadata export", e);
 				}
 			}
+			if (progress != null) {
+				progress.exported(end, numSegments);
+			}
 		}
 	}
 
+	/**
+	 * Progress of the export of the ITS metadata.
+	 */
+	public interface ExportProgress {
+
+		/**
+		 * Called after each chunk of segments is sent to the plugins.
+		 * 
+		 * @param exported
+		 *            the number of segments sent so far
+		 * @param total
+		 *            the number of segments
+		 */
+		void exported(int exported, int total);
+
+		/**
+		 * Tells whether the export should stop before the next chunk.
+		 * 
+		 * @return <code>true</code> if the export is canceled.
+		 */
+		boolean isCanceled();
+	}
+
 	/**
 	 * SegmentPlugin handler for beginning a target segment edit.
 	 * 
@@ -258,15 +340,16 @@ public class PluginManager implements OcelotEventQueueListener {
 	 */
 	@Subscribe
 	public void notifySegmentTargetEnter(SegmentTargetEnterEvent event) {
-		OcelotSegment seg = event.getSegment();
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+		final OcelotSegment seg = event.getSegment();
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onSegmentTargetEnter(seg);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on segment target enter", e);
-				}
+				dispatcher.dispatch(segPlugin, "segment target enter",
+				        new PluginDispatcher.PluginCall() {
+					        @Override
+					        public void call() throws Exception {
+						        segPlugin.onSegmentTargetEnter(seg);
+					        }
+				        });
 			}
 		}
 	}
@@ -278,15 +361,16 @@ public class PluginManager implements OcelotEventQueueListener {
 	 */
 	@Subscribe
 	public void notifySegmentTargetExit(SegmentTargetExitEvent event) {
-		OcelotSegment seg = event.getSegment();
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+		final OcelotSegment seg = event.getSegment();
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onSegmentTargetExit(seg);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on segment target exit", e);
-				}
+				dispatcher.dispatch(segPlugin, "segment target exit",
+				        new PluginDispatcher.PluginCall() {
+					        @Override
+					        public void call() throws Exception {
+						        segPlugin.onSegmentTargetExit(seg);
+					        }
+				        });
 			}
 		}
 	}
@@ -302,33 +386,46 @@ public class PluginManager implements OcelotEventQueueListener {
 		}
 	}
 
-	public void notifyOpenFile(String filename, List<OcelotSegment> segments) {
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+	public void notifyOpenFile(final String filename,
+	        List<OcelotSegment> openedSegments) {
+		// the plugins run on their own threads
+		final List<OcelotSegment> segments = new ArrayList<OcelotSegment>(
+		        openedSegments);
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onFileOpen(filename);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on file open", e);
-				}
+				dispatcher.dispatch(segPlugin, "file open",
+				        new PluginDispatcher.PluginCall() {
+					        @Override
+					        public void call() throws Exception {
+						        segPlugin.onFileOpen(filename);
+					        }
+				        });
 			}
 		}
 		if(isReportPluginEnabled()){
-			ReportPlugin reportPlugin = reportPlugins.keySet().iterator().next();
-			reportPlugin.onOpenFile(filename, segments);
+			final ReportPlugin reportPlugin = reportPlugins.keySet().iterator().next();
+			// the report plugin builds its report from the opened file
+			dispatcher.dispatchStateful(reportPlugin, "file open",
+			        new PluginDispatcher.PluginCall() {
+				        @Override
+				        public void call() throws Exception {
+					        reportPlugin.onOpenFile(filename, segments);
+				        }
+			        });
 		}
 		qualityPluginManager.initOpenedFileSettings(segments);
 	}
 
-	public void notifySaveFile(String filename) {
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+	public void notifySaveFile(final String filename) {
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onFileSave(filename);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on file save", e);
-				}
+				dispatcher.dispatch(segPlugin, "file save",
+				        new PluginDispatcher.PluginCall() {
+					        @Override
+					        public void call() throws Exception {
+						        segPlugin.onFileSave(filename);
+					        }
+				        });
 			}
 		}
 	}
@@ -358,10 +455,15 @@ public class PluginManager implements OcelotEventQueueListener {
 
 		File[] jarFiles = pluginDirectory.listFiles(new JarFilenameFilter());
 
+		// the plugins found are instantiated again
+		dispatcher.stopPlugins();
 		installClassLoader(jarFiles);
 
-		for (File f : jarFiles) {
-			scanJar(f);
+		PluginScanner scanner = new PluginScanner(new File(pluginDirectory
+		        .getAbsoluteFile().getParentFile(), PLUGIN_CACHE_FILE));
+		for (ListMultimap<Class<? extends Plugin>, String> jarPlugins : scanner
+		        .scan(jarFiles, classLoader)) {
+			addPluginClassNames(jarPlugins);
 		}
 
 		for (String s : itsPluginClassNames) {
@@ -470,98 +572,38 @@ public class PluginManager implements OcelotEventQueueListener {
 		        });
 	}
 
-	void scanJar(final File file) {
-		try {
-			Enumeration<JarEntry> e = new JarFile(file).entries();
-			while (e.hasMoreElements()) {
-				JarEntry entry = e.nextElement();
-				String name = entry.getName();
-				if (name.endsWith(".class")) {
-					name = convertFileNameToClass(name);
-					try {
-						Class<?> clazz = Class
-						        .forName(name, false, classLoader);
-						// Skip non-instantiable classes
-						if (clazz.isInterface()
-						        || Modifier.isAbstract(clazz.getModifiers())) {
-							continue;
-						}
-						if (ITSPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (itsPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								itsPluginClassNames.add(name);
-							}
-						} else if (SegmentPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (segPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								segPluginClassNames.add(name);
-							}
-						} else 
-						if (ReportPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (reportPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								reportPluginClassNames.add(name);
-							} }else if (FremePlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (fremePluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-										.println("Warning: found multiple implementations of plugin class "
-												+ name);
-							} else {
-								fremePluginClassNames.add(name);
-							} }
-						else if (QualityPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (qualityPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								qualityPluginClassNames.add(name);
-							}
-						}
-					} catch (ClassNotFoundException ex) {
-						// XXX shouldn't happen?
-						System.out.println("Warning: " + ex.getMessage());
-					}
+	/**
+	 * Adds the plugin classes found in a JAR to the classes to instantiate.
+	 * 
+	 * @param jarPlugins
+	 *            the plugin class names by plugin interface
+	 */
+	private void addPluginClassNames(
+	        ListMultimap<Class<? extends Plugin>, String> jarPlugins) {
+		for (Class<? extends Plugin> type : PluginScanner.PLUGIN_TYPES) {
+			List<String> classNames = getPluginClassNames(type);
+			for (String name : jarPlugins.get(type)) {
+				if (classNames.contains(name)) {
+					LOG.warn("Found multiple implementations of plugin class "
+					        + name);
+				} else {
+					classNames.add(name);
 				}
 			}
-			
-		} catch (IOException e) {
-			// XXX Log this and continue
-			e.printStackTrace();
+		}
+	}
+
+	private List<String> getPluginClassNames(Class<? extends Plugin> type) {
+		if (type == ITSPlugin.class) {
+			return itsPluginClassNames;
+		} else if (type == SegmentPlugin.class) {
+			return segPluginClassNames;
+		} else if (type == ReportPlugin.class) {
+			return reportPluginClassNames;
+		} else if (type == FremePlugin.class) {
+			return fremePluginClassNames;
+		} else {
+			return qualityPluginClassNames;
 		}
 	}
 
@@ -572,12 +614,6 @@ public class PluginManager implements OcelotEventQueueListener {
 		return rv;
 	}
 
-	// Convert file name to a java class name
-	private String convertFileNameToClass(String filename) {
-		String s = filename.substring(0, filename.length() - 6);
-		return s.replace('/', '.');
-	}
-
 	static class JarFilenameFilter implements FilenameFilter {
 		@Override
 		public boolean accept(File dir, String filename) {
@@ -629,6 +665,7 @@ public class PluginManager implements OcelotEventQueueListener {
 			}
 			fremePlugins.keySet().iterator().next()
 					.setSourceAndTargetLanguages(sourceLang, targetLang);
+			fremeManager.setSourceAndTargetLanguages(sourceLang, targetLang);
 		}
 	}
 
@@ -652,6 +689,18 @@ public class PluginManager implements OcelotEventQueueListener {
 		}
 	}
 
+	@Subscribe
+	public void segmentBatchEdit(SegmentBatchEditEvent e) {
+		if (fremePlugins != null && !fremePlugins.isEmpty()) {
+			Entry<FremePlugin, Boolean> fremeEntry = fremePlugins.entrySet()
+					.iterator().next();
+			if (fremeEntry.getValue()) {
+				fremeManager.enrichTargets(fremeEntry.getKey(),
+						e.getSegments(), FremePluginManager.OVERRIDE_ENRICHMENTS);
+			}
+		}
+	}
+
 	public void enrichVariant(BaseSegmentVariant variant, int segmentNumber,
 			boolean target, int action) {
 
@@ -688,13 +737,22 @@ private JMenu getFremeMenu() {
 				
 				@Override
 				public void actionPerformed(ActionEvent e) {
-					try {
-						reportPlugins.keySet().iterator().next()
-						        .generateReport(ocelotFrame);
-                    } catch (ReportException e1) {
-	                    // TODO Auto-generated catch block
-	                    e1.printStackTrace();
-                    }
+					final ReportPlugin reportPlugin = reportPlugins.keySet()
+					        .iterator().next();
+					// generated once the opened file has been passed on
+					dispatcher.dispatchStatefulOnEventThread(reportPlugin,
+					        "generate report", new Runnable() {
+
+						        @Override
+						        public void run() {
+							        try {
+								        reportPlugin.generateReport(ocelotFrame);
+							        } catch (ReportException e1) {
+								        LOG.error("Error while generating the report.",
+								                e1);
+							        }
+						        }
+					        });
 				}
 			});
 			reportMenu.add(generateMenuItem);
@@ -42,13 +42,17 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
 
 import org.slf4j.Logger;
@@ -209,12 +213,61 @@ public class PluginManagerView extends ODialogPanel implements ActionListener, I
         }
     }
 
+    /**
+     * Exports the ITS metadata off the event thread, showing its progress.
+     */
+    private void exportData() {
+        final String sourceLang = ocelotApp.getFileSourceLang();
+        final String targetLang = ocelotApp.getFileTargetLang();
+        final ProgressMonitor monitor = new ProgressMonitor(getDialog(),
+                "Exporting ITS metadata", null, 0,
+                segmentService.getNumSegments());
+        export.setEnabled(false);
+        new SwingWorker<Void, Integer>() {
+            private volatile boolean canceled;
+
+            @Override
+            protected Void doInBackground() throws Exception {
+                pluginManager.exportData(sourceLang, targetLang,
+                        segmentService, new PluginManager.ExportProgress() {
+                            @Override
+                            public void exported(int exported, int total) {
+                                publish(exported);
+                            }
+
+                            @Override
+                            public boolean isCanceled() {
+                                return canceled;
+                            }
+                        });
+                return null;
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                monitor.setProgress(chunks.get(chunks.size() - 1));
+                canceled = monitor.isCanceled();
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                setExportEnabledState();
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    LOG.error("ITS metadata export failed", e);
+                    JOptionPane.showMessageDialog(getDialog(),
+                            "Could not export the ITS metadata.");
+                }
+            }
+        }.execute();
+    }
+
     @Override
     public void actionPerformed(ActionEvent ae) {
         if (ae.getSource() == export) {
-            pluginManager.exportData(ocelotApp.getFileSourceLang(),
-                    ocelotApp.getFileTargetLang(),
-                    segmentService);
+            exportData();
         }
         else if (ae.getSource() == selectPluginDir) {
             JFileChooser fc = new JFileChooser();
@@ -0,0 +1,309 @@
+package com.vistatec.ocelot.plugins;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Finds the plugin classes of the plugin JARs. A JAR listing its plugins in
+ * <code>META-INF/services</code> files, named after the plugin interfaces, is
+ * not scanned. The classes of the other JARs are loaded to find the plugins,
+ * several JARs at a time. The plugins found are cached in a properties file
+ * by hash of the JAR content, so that unchanged JARs are neither read nor
+ * scanned again.
+ */
+class PluginScanner {
+
+	/** The logger for this class. */
+	private static final Logger LOG = LoggerFactory
+			.getLogger(PluginScanner.class);
+
+	/** The plugin interfaces, in the order a class is matched against them. */
+	static final List<Class<? extends Plugin>> PLUGIN_TYPES = Arrays
+			.<Class<? extends Plugin>> asList(ITSPlugin.class,
+					SegmentPlugin.class, ReportPlugin.class,
+					FremePlugin.class, QualityPlugin.class);
+
+	/** Prefix of the service files listing the plugins of a JAR. */
+	static final String SERVICES_DIR = "META-INF/services/";
+
+	/** Key of the cache format version. */
+	private static final String VERSION_KEY = "version";
+
+	/** Version of the cache format. */
+	private static final String FORMAT_VERSION = "1";
+
+	/** Separates the plugin type from the class name in the cache. */
+	private static final char TYPE_SEPARATOR = ':';
+
+	/** The cache file. */
+	private final File cacheFile;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cacheFile
+	 *            the cache file, created if needed
+	 */
+	PluginScanner(File cacheFile) {
+		this.cacheFile = cacheFile;
+	}
+
+	/**
+	 * Finds the plugin classes of JARs.
+	 *
+	 * @param jarFiles
+	 *            the JARs
+	 * @param classLoader
+	 *            the class loader of the JARs
+	 * @return the plugin class names by plugin interface, one map per JAR in
+	 *         the order of the JARs.
+	 */
+	List<ListMultimap<Class<? extends Plugin>, String>> scan(File[] jarFiles,
+			final ClassLoader classLoader) {
+
+		final Properties cache = loadCache();
+		List<Future<JarScan>> futures = new ArrayList<Future<JarScan>>();
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(jarFiles.length, Runtime.getRuntime()
+						.availableProcessors())), new ThreadFactoryBuilder()
+						.setDaemon(true).setNameFormat("plugin-scan-%d")
+						.build());
+		try {
+			for (final File jarFile : jarFiles) {
+				futures.add(executor.submit(new Callable<JarScan>() {
+
+					@Override
+					public JarScan call() throws IOException {
+						return scanJar(jarFile, classLoader, cache);
+					}
+				}));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		List<ListMultimap<Class<? extends Plugin>, String>> plugins = new ArrayList<ListMultimap<Class<? extends Plugin>, String>>();
+		Properties newCache = new Properties();
+		newCache.setProperty(VERSION_KEY, FORMAT_VERSION);
+		for (int i = 0; i < jarFiles.length; i++) {
+			try {
+				JarScan jarScan = futures.get(i).get();
+				plugins.add(jarScan.plugins);
+				if (jarScan.cacheable) {
+					newCache.setProperty(jarScan.hash,
+							toCacheValue(jarScan.plugins));
+				}
+			} catch (ExecutionException e) {
+				LOG.warn("Could not scan plugin JAR " + jarFiles[i],
+						e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOG.warn("Interrupted while scanning plugin JAR " + jarFiles[i]);
+			}
+		}
+		if (!newCache.equals(cache)) {
+			saveCache(newCache);
+		}
+		return plugins;
+	}
+
+	/**
+	 * Finds the plugin classes of a JAR, from the cache, its service files or
+	 * its classes.
+	 */
+	private JarScan scanJar(File jarFile, ClassLoader classLoader,
+			Properties cache) throws IOException {
+
+		String hash = Files.hash(jarFile, Hashing.sha1()).toString();
+		String cached = FORMAT_VERSION.equals(cache.getProperty(VERSION_KEY)) ? cache
+				.getProperty(hash) : null;
+		if (cached != null) {
+			return new JarScan(hash, fromCacheValue(cached), true);
+		}
+		try (JarFile jar = new JarFile(jarFile)) {
+			ListMultimap<Class<? extends Plugin>, String> plugins = readServices(jar);
+			if (plugins != null) {
+				return new JarScan(hash, plugins, true);
+			}
+			return scanClasses(jar, hash, classLoader);
+		}
+	}
+
+	/**
+	 * Reads the plugin classes listed in the service files of a JAR.
+	 *
+	 * @return the plugin class names, or <code>null</code> if the JAR has no
+	 *         service file for any plugin interface.
+	 */
+	private ListMultimap<Class<? extends Plugin>, String> readServices(
+			JarFile jar) throws IOException {
+
+		ListMultimap<Class<? extends Plugin>, String> plugins = null;
+		for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+			JarEntry entry = jar.getJarEntry(SERVICES_DIR + type.getName());
+			if (entry == null) {
+				continue;
+			}
+			if (plugins == null) {
+				plugins = ArrayListMultimap.create();
+			}
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(jar.getInputStream(entry),
+							StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int commentIdx = line.indexOf('#');
+					if (commentIdx != -1) {
+						line = line.substring(0, commentIdx);
+					}
+					line = line.trim();
+					if (!line.isEmpty()) {
+						plugins.put(type, line);
+					}
+				}
+			}
+		}
+		return plugins;
+	}
+
+	/**
+	 * Loads the classes of a JAR to find the plugin classes. The result is
+	 * not cached if a class could not be loaded, since it may depend on a JAR
+	 * added later.
+	 */
+	private JarScan scanClasses(JarFile jar, String hash,
+			ClassLoader classLoader) {
+
+		ListMultimap<Class<? extends Plugin>, String> plugins = ArrayListMultimap
+				.create();
+		boolean cacheable = true;
+		Enumeration<JarEntry> e = jar.entries();
+		while (e.hasMoreElements()) {
+			String name = e.nextElement().getName();
+			if (!name.endsWith(".class")) {
+				continue;
+			}
+			name = name.substring(0, name.length() - 6).replace('/', '.');
+			try {
+				Class<?> clazz = Class.forName(name, false, classLoader);
+				// Skip non-instantiable classes
+				if (clazz.isInterface()
+						|| Modifier.isAbstract(clazz.getModifiers())) {
+					continue;
+				}
+				for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+					if (type.isAssignableFrom(clazz)) {
+						plugins.put(type, name);
+						break;
+					}
+				}
+			} catch (ClassNotFoundException | LinkageError ex) {
+				LOG.warn("Could not load class " + name + " of plugin JAR "
+						+ jar.getName(), ex);
+				cacheable = false;
+			}
+		}
+		return new JarScan(hash, plugins, cacheable);
+	}
+
+	private static String toCacheValue(
+			ListMultimap<Class<? extends Plugin>, String> plugins) {
+
+		List<String> entries = new ArrayList<String>();
+		for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+			for (String className : plugins.get(type)) {
+				entries.add(type.getSimpleName() + TYPE_SEPARATOR + className);
+			}
+		}
+		return Joiner.on(',').join(entries);
+	}
+
+	private static ListMultimap<Class<? extends Plugin>, String> fromCacheValue(
+			String value) {
+
+		ListMultimap<Class<? extends Plugin>, String> plugins = ArrayListMultimap
+				.create();
+		for (String entry : Splitter.on(',').omitEmptyStrings().trimResults()
+				.split(value)) {
+			int sepIdx = entry.indexOf(TYPE_SEPARATOR);
+			String typeName = entry.substring(0, sepIdx);
+			for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+				if (type.getSimpleName().equals(typeName)) {
+					plugins.put(type, entry.substring(sepIdx + 1));
+				}
+			}
+		}
+		return plugins;
+	}
+
+	private Properties loadCache() {
+
+		Properties cache = new Properties();
+		if (cacheFile.isFile()) {
+			try (InputStream in = new FileInputStream(cacheFile)) {
+				cache.load(in);
+			} catch (IOException e) {
+				LOG.warn("Could not read the plugin cache " + cacheFile, e);
+			}
+		}
+		return cache;
+	}
+
+	private void saveCache(Properties cache) {
+
+		try (OutputStream out = new FileOutputStream(cacheFile)) {
+			cache.store(out, "Plugin classes by JAR hash");
+		} catch (IOException e) {
+			LOG.warn("Could not write the plugin cache " + cacheFile, e);
+		}
+	}
+
+	/**
+	 * The plugin classes found in a JAR.
+	 */
+	private static class JarScan {
+
+		private final String hash;
+		private final ListMultimap<Class<? extends Plugin>, String> plugins;
+		private final boolean cacheable;
+
+		JarScan(String hash,
+				ListMultimap<Class<? extends Plugin>, String> plugins,
+				boolean cacheable) {
+			this.hash = hash;
+			this.plugins = plugins;
+			this.cacheable = cacheable;
+		}
+	}
+}
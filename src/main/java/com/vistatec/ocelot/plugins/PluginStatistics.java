@@ -0,0 +1,80 @@
+package com.vistatec.ocelot.plugins;
+
+/**
+ * Snapshot of the counters of the calls to a plugin.
+ */
+public class PluginStatistics {
+
+	private final String pluginName;
+	private final long calls;
+	private final long failures;
+	private final long timeouts;
+	private final long dropped;
+	private final int waiting;
+	private final double averageMillis;
+	private final double maxMillis;
+
+	public PluginStatistics(String pluginName, long calls, long failures,
+			long timeouts, long dropped, int waiting, double averageMillis,
+			double maxMillis) {
+		this.pluginName = pluginName;
+		this.calls = calls;
+		this.failures = failures;
+		this.timeouts = timeouts;
+		this.dropped = dropped;
+		this.waiting = waiting;
+		this.averageMillis = averageMillis;
+		this.maxMillis = maxMillis;
+	}
+
+	public String getPluginName() {
+		return pluginName;
+	}
+
+	/**
+	 * Gets the number of completed calls, including the failed ones.
+	 *
+	 * @return the number of calls.
+	 */
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Gets the number of calls waiting in the queue of the plugin.
+	 *
+	 * @return the number of waiting calls.
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public double getAverageMillis() {
+		return averageMillis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%s: %d calls, %d failures, %d timeouts, %d dropped, "
+						+ "%d waiting, avg %.1f ms, max %.1f ms", pluginName,
+				calls, failures, timeouts, dropped, waiting, averageMillis,
+				maxMillis);
+	}
+}
@@ -3,11 +3,9 @@ package com.vistatec.ocelot.plugins;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
@@ -15,6 +13,7 @@ import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileFilter;
 
 import org.slf4j.Logger;
@@ -26,6 +25,7 @@ import com.vistatec.ocelot.plugins.exception.EvaluationOnTheFlyFailedException;
 import com.vistatec.ocelot.plugins.exception.NoAuditProfileLoadedException;
 import com.vistatec.ocelot.plugins.exception.QualityEvaluationException;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.WordCounter;
 
 public class QualityPluginManager implements ActionListener {
 
@@ -42,9 +42,17 @@ public class QualityPluginManager implements ActionListener {
 
 	private JFrame ocelotMainFrame;
 
-	public QualityPluginManager() {
+	/**
+	 * Runs the notifications of the quality issues, so that the evaluation on
+	 * the fly does not stall editing. The menu actions are queued after them,
+	 * so that the plugin is only used by one thread at a time.
+	 */
+	private final PluginDispatcher dispatcher;
+
+	public QualityPluginManager(PluginDispatcher dispatcher) {
 
 		this.qualityPlugins = new HashMap<QualityPlugin, Boolean>();
+		this.dispatcher = dispatcher;
 	}
 
 	public JMenu getQualityPluginMenu() {
@@ -117,11 +125,24 @@ public class QualityPluginManager implements ActionListener {
 		}
 	}
 
-	private void enableEvaluationOnTheFly(boolean enable) {
+	private void enableEvaluationOnTheFly(final boolean enable) {
+
+		final QualityPlugin plugin = getPlugin();
+		if (plugin != null) {
+			dispatcher.dispatchStatefulOnEventThread(plugin,
+			        "enable evaluation on the fly", new Runnable() {
+				        @Override
+				        public void run() {
+					        enableEvaluationOnTheFly(plugin, enable);
+				        }
+			        });
+		}
+	}
+
+	private void enableEvaluationOnTheFly(QualityPlugin plugin, boolean enable) {
 
 		try {
-			qualityPlugins.keySet().iterator().next()
-			        .enableEvaluationOnTheFly(enable);
+			plugin.enableEvaluationOnTheFly(enable);
 		} catch (NoAuditProfileLoadedException e) {
 			mnuOnTheFly.setSelected(false);
 			logger.warn("Request of enabling evaluation on the fly and no audit profile is loaded.");
@@ -175,17 +196,36 @@ public class QualityPluginManager implements ActionListener {
 		                "The result of the score evaluation is a FAILURE.\nDo you want to view the result?",
 		                "Quality score evaluation failure",
 		                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
-		if (option == JOptionPane.YES_OPTION) {
-			qualityPlugins.keySet().iterator().next()
-			        .displayOnTheFlyResult(ocelotMainFrame);
+		final QualityPlugin plugin = getPlugin();
+		if (option == JOptionPane.YES_OPTION && plugin != null) {
+			dispatcher.dispatchStatefulOnEventThread(plugin,
+			        "display on the fly result", new Runnable() {
+				        @Override
+				        public void run() {
+					        plugin.displayOnTheFlyResult(ocelotMainFrame);
+				        }
+			        });
 		}
 	}
 
 	private void evaluateScore() {
 
+		final QualityPlugin plugin = getPlugin();
+		if (plugin != null) {
+			dispatcher.dispatchStatefulOnEventThread(plugin,
+			        "evaluate score", new Runnable() {
+				        @Override
+				        public void run() {
+					        evaluateScore(plugin);
+				        }
+			        });
+		}
+	}
+
+	private void evaluateScore(QualityPlugin plugin) {
+
 		try {
-			qualityPlugins.keySet().iterator().next()
-			        .evaluateQualityScore(ocelotMainFrame);
+			plugin.evaluateQualityScore(ocelotMainFrame);
 		} catch (NoAuditProfileLoadedException e) {
 			logger.warn(
 			        "Request to eavluate score and no loaded audit profile.", e);
@@ -206,9 +246,22 @@ public class QualityPluginManager implements ActionListener {
 
 	private void viewAuditProfProps() {
 
+		final QualityPlugin plugin = getPlugin();
+		if (plugin != null) {
+			dispatcher.dispatchStatefulOnEventThread(plugin,
+			        "view audit profile", new Runnable() {
+				        @Override
+				        public void run() {
+					        viewAuditProfProps(plugin);
+				        }
+			        });
+		}
+	}
+
+	private void viewAuditProfProps(QualityPlugin plugin) {
+
 		try {
-			qualityPlugins.keySet().iterator().next()
-			        .viewAuditProfileProps(ocelotMainFrame);
+			plugin.viewAuditProfileProps(ocelotMainFrame);
 		} catch (NoAuditProfileLoadedException e) {
 			logger.warn(
 			        "Request to view loaded profile properties and no loaded audit profile.",
@@ -242,36 +295,61 @@ public class QualityPluginManager implements ActionListener {
 
 	private void copyAuditProfile() {
 
+		final QualityPlugin plugin = getPlugin();
+		if (plugin == null) {
+			return;
+		}
 		JFileChooser fileChooser = getAuditProfFileChooser();
 		int option = fileChooser.showOpenDialog(ocelotMainFrame);
 		if (option == JFileChooser.APPROVE_OPTION) {
-			File auditToCopy = fileChooser.getSelectedFile();
+			final File auditToCopy = fileChooser.getSelectedFile();
 			if (auditToCopy != null) {
-				try {
-					File createdAuditFile = qualityPlugins
-					        .keySet()
-					        .iterator()
-					        .next()
-					        .createAuditProfileFromExistingOne(auditToCopy,
-					                ocelotMainFrame);
-					auditProfileCreated(createdAuditFile);
-				} catch (AuditProfileException e) {
-					JOptionPane
-					        .showMessageDialog(
-					                ocelotMainFrame,
-					                "An error occurred while creating the audit profile.",
-					                "Copy Audit Profile",
-					                JOptionPane.ERROR_MESSAGE);
-					logger.error("Error while creating the audit profile", e);
-				}
+				dispatcher.dispatchStatefulOnEventThread(plugin,
+				        "copy audit profile", new Runnable() {
+					        @Override
+					        public void run() {
+						        copyAuditProfile(plugin, auditToCopy);
+					        }
+				        });
 			}
 		}
 	}
 
+	private void copyAuditProfile(QualityPlugin plugin, File auditToCopy) {
+
+		try {
+			File createdAuditFile = plugin.createAuditProfileFromExistingOne(
+			        auditToCopy, ocelotMainFrame);
+			auditProfileCreated(createdAuditFile);
+		} catch (AuditProfileException e) {
+			JOptionPane
+			        .showMessageDialog(
+			                ocelotMainFrame,
+			                "An error occurred while creating the audit profile.",
+			                "Copy Audit Profile",
+			                JOptionPane.ERROR_MESSAGE);
+			logger.error("Error while creating the audit profile", e);
+		}
+	}
+
 	private void createAuditProfile() {
 
+		final QualityPlugin plugin = getPlugin();
+		if (plugin != null) {
+			dispatcher.dispatchStatefulOnEventThread(plugin,
+			        "create audit profile", new Runnable() {
+				        @Override
+				        public void run() {
+					        createAuditProfile(plugin);
+				        }
+			        });
+		}
+	}
+
+	private void createAuditProfile(QualityPlugin plugin) {
+
 		try {
-			File createdAuditFile = qualityPlugins.keySet().iterator().next()
+			File createdAuditFile = plugin
 			        .createNewAuditProfile(ocelotMainFrame);
 			auditProfileCreated(createdAuditFile);
 		} catch (AuditProfileException e) {
@@ -283,9 +361,23 @@ public class QualityPluginManager implements ActionListener {
 		}
 	}
 
-	private void loadAuditProfile(File file) {
+	private void loadAuditProfile(final File file) {
+
+		final QualityPlugin plugin = getPlugin();
+		if (plugin != null) {
+			dispatcher.dispatchStatefulOnEventThread(plugin,
+			        "load audit profile", new Runnable() {
+				        @Override
+				        public void run() {
+					        loadAuditProfile(plugin, file);
+				        }
+			        });
+		}
+	}
+
+	private void loadAuditProfile(QualityPlugin plugin, File file) {
 		try {
-			qualityPlugins.keySet().iterator().next().loadAuditProfile(file);
+			plugin.loadAuditProfile(file);
 			JOptionPane.showMessageDialog(ocelotMainFrame,
 			        "Audit Profile successfully loaded.", "Load Audit Profile",
 			        JOptionPane.INFORMATION_MESSAGE);
@@ -352,19 +444,34 @@ public class QualityPluginManager implements ActionListener {
 		}
 	}
 
-	public void addQualityIssue(LanguageQualityIssue lqi) {
-
-		QualityPlugin plugin = getPlugin();
+	/**
+	 * Notifies the plugin of a new issue, after the calls already queued.
+	 * The plugin keeps the score totals itself: the QualityPlugin API takes
+	 * single issue events only, so no running totals are kept here.
+	 * 
+	 * @param lqi
+	 *            the new issue
+	 */
+	public void addQualityIssue(final LanguageQualityIssue lqi) {
+
+		final QualityPlugin plugin = getPlugin();
 		if (plugin != null) {
-			try {
-				plugin.lqiCreated(lqi);
-			} catch (EvaluationOnTheFlyFailedException e) {
-				logger.warn("Quality issue added - Fail Result");
-				promptFailMessage();
-			} catch (QualityEvaluationException e) {
-				logger.error(
-				        "Error while evaluating on the fly the created lqi", e);
-			}
+			dispatcher.dispatchStateful(plugin, "lqi created",
+			        new PluginDispatcher.PluginCall() {
+				        @Override
+				        public void call() {
+					        try {
+						        plugin.lqiCreated(lqi);
+					        } catch (EvaluationOnTheFlyFailedException e) {
+						        logger.warn("Quality issue added - Fail Result");
+						        promptFailMessageLater();
+					        } catch (QualityEvaluationException e) {
+						        logger.error(
+						                "Error while evaluating on the fly the created lqi",
+						                e);
+					        }
+				        }
+			        });
 		}
 		// if (lqiList == null) {
 		// lqiList = new ArrayList<LanguageQualityIssue>();
@@ -387,41 +494,53 @@ public class QualityPluginManager implements ActionListener {
 		// }
 	}
 
-	public void editedQualityIssue(LanguageQualityIssue oldLqi,
-	        LanguageQualityIssue newLqi) {
+	public void editedQualityIssue(final LanguageQualityIssue oldLqi,
+	        final LanguageQualityIssue newLqi) {
 
-		QualityPlugin plugin = getPlugin();
+		final QualityPlugin plugin = getPlugin();
 		if (plugin != null) {
-			try {
-				plugin.lqiEdited(oldLqi, newLqi);
-			} catch (EvaluationOnTheFlyFailedException e) {
-				logger.warn("Fail result on lqi edited.");
-				promptFailMessage();
-			} catch (QualityEvaluationException e) {
-				logger.error(
-				        "Error while evaluating the quality score on lqi edited.",
-				        e);
-				promptEvaluationOnTheFlyErrorMessage();
-			}
+			dispatcher.dispatchStateful(plugin, "lqi edited",
+			        new PluginDispatcher.PluginCall() {
+				        @Override
+				        public void call() {
+					        try {
+						        plugin.lqiEdited(oldLqi, newLqi);
+					        } catch (EvaluationOnTheFlyFailedException e) {
+						        logger.warn("Fail result on lqi edited.");
+						        promptFailMessageLater();
+					        } catch (QualityEvaluationException e) {
+						        logger.error(
+						                "Error while evaluating the quality score on lqi edited.",
+						                e);
+						        promptEvaluationOnTheFlyErrorMessageLater();
+					        }
+				        }
+			        });
 		}
 
 	}
 	
-	public void removedQualityIssue(LanguageQualityIssue removedLqi){
+	public void removedQualityIssue(final LanguageQualityIssue removedLqi){
 		
-		QualityPlugin plugin = getPlugin();
+		final QualityPlugin plugin = getPlugin();
 		if (plugin != null) {
-			try {
-				plugin.lqiRemoved(removedLqi);
-			} catch (EvaluationOnTheFlyFailedException e) {
-				logger.warn("Fail result on lqi removed.");
-				promptFailMessage();
-			} catch (QualityEvaluationException e) {
-				logger.error(
-				        "Error while evaluating the quality score on lqi removed.",
-				        e);
-				promptEvaluationOnTheFlyErrorMessage();
-			}
+			dispatcher.dispatchStateful(plugin, "lqi removed",
+			        new PluginDispatcher.PluginCall() {
+				        @Override
+				        public void call() {
+					        try {
+						        plugin.lqiRemoved(removedLqi);
+					        } catch (EvaluationOnTheFlyFailedException e) {
+						        logger.warn("Fail result on lqi removed.");
+						        promptFailMessageLater();
+					        } catch (QualityEvaluationException e) {
+						        logger.error(
+						                "Error while evaluating the quality score on lqi removed.",
+						                e);
+						        promptEvaluationOnTheFlyErrorMessageLater();
+					        }
+				        }
+			        });
 		}
 
 	}
@@ -450,33 +569,32 @@ public class QualityPluginManager implements ActionListener {
 		return plugin;
 	}
 
-	public void initOpenedFileSettings(List<OcelotSegment> segments) {
+	public void initOpenedFileSettings(final List<OcelotSegment> segments) {
 
 		if (!qualityPlugins.isEmpty()) {
-			QualityPlugin plugin = qualityPlugins.keySet().iterator().next();
+			final QualityPlugin plugin = qualityPlugins.keySet().iterator().next();
 			if (plugin != null && segments != null) {
-				StringBuilder sourceText = new StringBuilder();
-				List<LanguageQualityIssue> lqiList = new ArrayList<LanguageQualityIssue>();
+				final List<LanguageQualityIssue> lqiList = new ArrayList<LanguageQualityIssue>();
 				for (OcelotSegment seg : segments) {
-					sourceText.append(seg.getSource().getDisplayText());
-					sourceText.append(" ");
 					if (seg.getLQI() != null) {
 						lqiList.addAll(seg.getLQI());
 					}
 				}
-				int sampleSize = countWords(sourceText.toString());
-				try {
-					plugin.documentOpened(sampleSize, lqiList, segments);
-				} catch (QualityEvaluationException e) {
-
-					promptEvaluationOnTheFlyErrorMessage();
-					// JOptionPane
-					// .showMessageDialog(
-					// ocelotMainFrame,
-					// "An error occurred while evaluating the score on the fly for the opened document.\nThe \"Evaluation on the fly\" has been disabled.",
-					// "Evaluation on the fly error",
-					// JOptionPane.ERROR_MESSAGE);
-				}
+				dispatcher.dispatchStateful(plugin, "document opened",
+				        new PluginDispatcher.PluginCall() {
+					        @Override
+					        public void call() {
+						        // counted on the thread of the plugin, before
+						        // the issue notifications queued after it
+						        int sampleSize = WordCounter.countWords(segments);
+						        try {
+							        plugin.documentOpened(sampleSize, lqiList,
+							                segments);
+						        } catch (QualityEvaluationException e) {
+							        promptEvaluationOnTheFlyErrorMessageLater();
+						        }
+					        }
+				        });
 			}
 		}
 		// if(plugin != null)
@@ -489,6 +607,34 @@ public class QualityPluginManager implements ActionListener {
 		// lqiList);
 	}
 
+	/**
+	 * Prompts the failure message on the event dispatch thread, from the
+	 * thread of the plugin.
+	 */
+	private void promptFailMessageLater() {
+		SwingUtilities.invokeLater(new Runnable() {
+
+			@Override
+			public void run() {
+				promptFailMessage();
+			}
+		});
+	}
+
+	/**
+	 * Prompts the evaluation error message on the event dispatch thread, from
+	 * the thread of the plugin.
+	 */
+	private void promptEvaluationOnTheFlyErrorMessageLater() {
+		SwingUtilities.invokeLater(new Runnable() {
+
+			@Override
+			public void run() {
+				promptEvaluationOnTheFlyErrorMessage();
+			}
+		});
+	}
+
 	private void promptEvaluationOnTheFlyErrorMessage() {
 		mnuOnTheFly.setSelected(false);
 		JOptionPane
@@ -499,33 +645,6 @@ public class QualityPluginManager implements ActionListener {
 		                JOptionPane.ERROR_MESSAGE);
 	}
 
-	private int countWords(String text) {
-		int wordCount = 0;
-		BreakIterator iterator = BreakIterator.getWordInstance(Locale.ENGLISH);
-		iterator.setText(text);
-		int lastBoundary = 0;
-		int boundary = iterator.first();
-		while (boundary != BreakIterator.DONE) {
-			for (int i = lastBoundary; i < boundary; i++) {
-				if (Character.isLetter(text.codePointAt(i))) {
-					wordCount++;
-					break;
-				}
-			}
-			lastBoundary = boundary;
-			boundary = iterator.next();
-		}
-		if (lastBoundary < text.length()) {
-			for (int i = lastBoundary; i < text.length(); i++) {
-				if (Character.isLetter(text.codePointAt(i))) {
-					wordCount++;
-					break;
-				}
-			}
-		}
-		return wordCount;
-	}
-
 	// public void setSampleSize(int sampleSize) {
 	// this.sampleSize = sampleSize;
 	// qualityPlugins.keySet().iterator().next().initEvaluationOnTheFly(sampleSize,
@@ -0,0 +1,70 @@
+package com.vistatec.ocelot.plugins;
+
+import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
+
+/**
+ * Wrapper class for variant objects.
+ */
+class VariantWrapper {
+
+	/** The variant. */
+	private final BaseSegmentVariant variant;
+
+	/** The text contained into the variant. */
+	private final String text;
+
+	/** The owner segment number. */
+	private final int segNumber;
+
+	private final boolean target;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param variant
+	 *            the variant
+	 * @param text
+	 *            the text
+	 * @param segNumber
+	 *            the segment number
+	 */
+	public VariantWrapper(BaseSegmentVariant variant, String text,
+			int segNumber, boolean target) {
+		this.variant = variant;
+		this.text = text;
+		this.segNumber = segNumber;
+		this.target = target;
+	}
+
+	/**
+	 * Gets the variant.
+	 * 
+	 * @return the variant.
+	 */
+	public BaseSegmentVariant getVariant() {
+		return variant;
+	}
+
+	/**
+	 * Gets the text.
+	 * 
+	 * @return the text.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Gets the segment number.
+	 * 
+	 * @return the segment number.
+	 */
+	public int getSegNumber() {
+		return segNumber;
+	}
+
+	public boolean isTarget() {
+		return target;
+	}
+
+}
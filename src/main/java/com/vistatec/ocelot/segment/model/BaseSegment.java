@@ -38,6 +38,7 @@ import com.vistatec.ocelot.its.model.Provenance;
 import com.vistatec.ocelot.its.model.TerminologyMetaData;
 import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
 import com.vistatec.ocelot.segment.editdistance.EditDistance;
+import com.vistatec.ocelot.segment.model.enrichment.EnrichmentMetadataConverter;
 import com.vistatec.ocelot.segment.model.okapi.Notes;
 
 /**
@@ -65,6 +66,10 @@ public abstract class BaseSegment implements OcelotSegment {
     private boolean addedOcelotProvenance = false;
     protected final List<OtherITSMetadata> otherITSList = new ArrayList<>();
 
+    /** Converts the enrichments into metadata once they are needed. */
+    private volatile EnrichmentMetadataConverter deferredMetadataConverter;
+    private boolean convertingMetadata = false;
+
     public BaseSegment(int segmentNumber, SegmentVariant source,
             SegmentVariant target, SegmentVariant originalTarget) {
         this.segmentNumber = segmentNumber;
@@ -219,11 +224,13 @@ public abstract class BaseSegment implements OcelotSegment {
 
     @Override
     public List<TextAnalysisMetaData> getTextAnalysis() {
+        hydrateEnrichmentMetadata();
 	    return taList;
     }
 
 	@Override
     public void addTextAnalysis(TextAnalysisMetaData ta) {
+        hydrateEnrichmentMetadata();
 	    taList.add(ta);
 	    
     }
@@ -231,6 +238,7 @@ public abstract class BaseSegment implements OcelotSegment {
 	@Override
     public void addAllTextAnalysis(List<TextAnalysisMetaData> tas) {
 		if(tas != null){
+			hydrateEnrichmentMetadata();
 			taList.addAll(tas);
 		}
     }
@@ -238,6 +246,7 @@ public abstract class BaseSegment implements OcelotSegment {
 	@Override
 	public void removeTextAnalysis(TextAnalysisMetaData ta) {
 	
+		hydrateEnrichmentMetadata();
 		if(taList != null && ta != null){
 			taList.remove(ta);
 		}
@@ -245,11 +254,13 @@ public abstract class BaseSegment implements OcelotSegment {
 	
 	@Override
 	public java.util.List<TerminologyMetaData> getTerms() {
+		hydrateEnrichmentMetadata();
 		return termList;
 	}
 	
 	@Override
 	public void addTerm(TerminologyMetaData term) {
+		hydrateEnrichmentMetadata();
 		termList.add(term);
 	}
 	
@@ -257,6 +268,7 @@ public abstract class BaseSegment implements OcelotSegment {
 	public void addAllTerms(List<TerminologyMetaData> terms) {
 		
 		if(terms != null){
+			hydrateEnrichmentMetadata();
 			termList.addAll(terms);
 		}
 	}
@@ -264,6 +276,7 @@ public abstract class BaseSegment implements OcelotSegment {
 	@Override
 	public void removeTerm(TerminologyMetaData term) {
 		
+		hydrateEnrichmentMetadata();
 		if(termList != null && term != null){
 			termList.remove(term);
 		}
@@ -285,9 +298,73 @@ public abstract class BaseSegment implements OcelotSegment {
         its.addAll(lqiList);
         its.addAll(provList);
         its.addAll(otherITSList);
-        its.addAll(taList);
-        its.addAll(termList);
+        its.addAll(getTextAnalysis());
+        its.addAll(getTerms());
         return its;
     }
 
+    /**
+     * Defers the conversion of the enrichments of this segment into
+     * Text-Analysis and Terminology metadata until the metadata are first
+     * accessed.
+     *
+     * @param converter the converter of the enrichments
+     */
+    public void setDeferredEnrichmentMetadata(EnrichmentMetadataConverter converter) {
+        this.deferredMetadataConverter = converter;
+    }
+
+    /**
+     * Checks if the metadata of the enrichments have not been converted yet.
+     *
+     * @return <code>true</code> if the conversion is deferred;
+     *         <code>false</code> otherwise.
+     */
+    public boolean hasDeferredEnrichmentMetadata() {
+        return deferredMetadataConverter != null;
+    }
+
+    /**
+     * Copies the Text-Analysis and Terminology metadata of this segment into
+     * the given lists. Deferred enrichments are read without being
+     * converted, so they are still converted only when the segment is viewed
+     * or edited.
+     *
+     * @param textAnalysis the list receiving the Text-Analysis metadata
+     * @param terms the list receiving the Terminology metadata
+     */
+    public void readTextAnalysisAndTerms(List<TextAnalysisMetaData> textAnalysis,
+            List<TerminologyMetaData> terms) {
+        synchronized (this) {
+            textAnalysis.addAll(taList);
+            terms.addAll(termList);
+            EnrichmentMetadataConverter converter = deferredMetadataConverter;
+            if (converter != null && !convertingMetadata) {
+                converter.readEnrichmentMetadata(this, textAnalysis, terms);
+            }
+        }
+    }
+
+    /**
+     * Runs the deferred conversion of the enrichments, if any. The converter
+     * accesses the metadata lists itself, so the nested calls from the
+     * converting thread return immediately.
+     */
+    private void hydrateEnrichmentMetadata() {
+        if (deferredMetadataConverter != null) {
+            synchronized (this) {
+                EnrichmentMetadataConverter converter = deferredMetadataConverter;
+                if (converter != null && !convertingMetadata) {
+                    convertingMetadata = true;
+                    try {
+                        converter.convertEnrichments2ITSMetadata(this);
+                    } finally {
+                        convertingMetadata = false;
+                        deferredMetadataConverter = null;
+                    }
+                }
+            }
+        }
+    }
+
 }
@@ -10,6 +10,7 @@ import java.util.Set;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
+import com.vistatec.ocelot.segment.model.enrichment.DeferredEnrichments;
 import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
 import com.vistatec.ocelot.segment.model.enrichment.TranslationEnrichment;
 import com.vistatec.ocelot.segment.view.SegmentVariantSelection;
@@ -24,6 +25,9 @@ public abstract class BaseSegmentVariant implements SegmentVariant {
 	
 	private TranslationEnrichment transEnrichment;
 
+	/** Enrichments read from the file, not built yet. */
+	private volatile DeferredEnrichments deferredEnrichments;
+
     private boolean dirty;
 
 protected List<HighlightData> highlightDataList;
@@ -496,10 +500,76 @@ protected List<HighlightData> highlightDataList;
 		}
     }
 	public Set<Enrichment> getEnirchments() {
+		hydrateEnrichments();
 		return enrichments;
 	}
 
+	/**
+	 * Sets the enrichments read from a file. They are built the first time
+	 * the enrichments of this variant are requested or changed.
+	 * 
+	 * @param deferredEnrichments
+	 *            the deferred enrichments
+	 */
+	public void setDeferredEnrichments(
+	        final DeferredEnrichments deferredEnrichments) {
+		this.deferredEnrichments = deferredEnrichments;
+	}
+
+	/**
+	 * Checks if the enrichments read from the file have not been built yet.
+	 * 
+	 * @return <code>true</code> if the enrichments are deferred;
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean hasDeferredEnrichments() {
+		return deferredEnrichments != null;
+	}
+
+	/**
+	 * Reads the enrichments of this variant. The deferred enrichments are
+	 * built for the caller only: this variant keeps their raw form.
+	 * 
+	 * @return the enrichments; <code>null</code> if there are none.
+	 */
+	public Collection<Enrichment> readEnrichments() {
+		DeferredEnrichments deferred = deferredEnrichments;
+		if (deferred == null) {
+			return enrichments;
+		}
+		List<Enrichment> enrichmentList = new ArrayList<Enrichment>();
+		for (Enrichment enrich : deferred.hydrate()) {
+			if (!enrich.getType().equals(Enrichment.TRANSLATION_TYPE)) {
+				enrichmentList.add(enrich);
+			}
+		}
+		return enrichmentList;
+	}
+
+	/**
+	 * Builds the deferred enrichments, if any. The enrichments are built once,
+	 * by the first thread requesting them: the other ones wait for them.
+	 */
+	private void hydrateEnrichments() {
+		if (deferredEnrichments != null) {
+			synchronized (this) {
+				if (deferredEnrichments != null) {
+					List<Enrichment> enrichmentList = deferredEnrichments
+					        .hydrate();
+					if (enrichments == null) {
+						enrichments = new HashSet<Enrichment>();
+					}
+					checkTranslation(enrichmentList);
+					enrichmentList.remove(transEnrichment);
+					enrichments.addAll(enrichmentList);
+					deferredEnrichments = null;
+				}
+			}
+		}
+	}
+
 	public void setEnrichments(Set<Enrichment> enrichments) {
+		deferredEnrichments = null;
 		checkTranslation(enrichments);
 		enrichments.remove(transEnrichment);
 		this.enrichments = enrichments;
@@ -507,6 +577,7 @@ protected List<HighlightData> highlightDataList;
 
 	public void addEnrichment(final Enrichment enrichment){
         if(enrichment != null){
+            hydrateEnrichments();
             if(enrichments == null){
                 enrichments = new HashSet<Enrichment>();
             }
@@ -520,6 +591,7 @@ protected List<HighlightData> highlightDataList;
     
     public void addEnrichmentList(final List<Enrichment> enrichmentList){
         if(enrichmentList != null){
+            hydrateEnrichments();
             if(enrichments == null){
                 enrichments = new HashSet<Enrichment>();
             }
@@ -546,12 +618,14 @@ protected List<HighlightData> highlightDataList;
     	
     	sentToFreme = false;
     	enriched = false;
+    	deferredEnrichments = null;
     	enrichments = null;
     	transEnrichment = null;
     }
     
     public TranslationEnrichment getTranslationEnrichment(){
     	
+    	hydrateEnrichments();
 //    	TranslationEnrichment transEnrichment = null;
 //    	if(enrichments != null){
 //    		for(Enrichment enrich: enrichments){
@@ -0,0 +1,66 @@
+package com.vistatec.ocelot.segment.model;
+
+import java.text.BreakIterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Counts the words of texts: the parts between word boundaries containing at
+ * least a letter. It provides the word counts of the quality plugin sample
+ * size and of the TM leverage analysis.
+ */
+public final class WordCounter {
+
+	private WordCounter() {
+	}
+
+	/**
+	 * Counts the words of the source of segments.
+	 *
+	 * @param segments
+	 *            the segments
+	 * @return the number of words.
+	 */
+	public static int countWords(List<OcelotSegment> segments) {
+
+		int wordCount = 0;
+		for (OcelotSegment seg : segments) {
+			wordCount += countWords(seg.getSource().getDisplayText());
+		}
+		return wordCount;
+	}
+
+	/**
+	 * Counts the words of a text.
+	 *
+	 * @param text
+	 *            the text
+	 * @return the number of words.
+	 */
+	public static int countWords(String text) {
+		int wordCount = 0;
+		BreakIterator iterator = BreakIterator.getWordInstance(Locale.ENGLISH);
+		iterator.setText(text);
+		int lastBoundary = 0;
+		int boundary = iterator.first();
+		while (boundary != BreakIterator.DONE) {
+			for (int i = lastBoundary; i < boundary; i++) {
+				if (Character.isLetter(text.codePointAt(i))) {
+					wordCount++;
+					break;
+				}
+			}
+			lastBoundary = boundary;
+			boundary = iterator.next();
+		}
+		if (lastBoundary < text.length()) {
+			for (int i = lastBoundary; i < text.length(); i++) {
+				if (Character.isLetter(text.codePointAt(i))) {
+					wordCount++;
+					break;
+				}
+			}
+		}
+		return wordCount;
+	}
+}
@@ -0,0 +1,18 @@
+package com.vistatec.ocelot.segment.model.enrichment;
+
+import java.util.List;
+
+/**
+ * Enrichments of a variant read from a file, kept in their raw form until
+ * they are needed. The enrichments are built only once the variant is
+ * displayed or inspected.
+ */
+public interface DeferredEnrichments {
+
+	/**
+	 * Builds the enrichments.
+	 *
+	 * @return the list of enrichments.
+	 */
+	List<Enrichment> hydrate();
+}
@@ -2,9 +2,11 @@ package com.vistatec.ocelot.segment.model.enrichment;
 
 import java.awt.Image;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -16,10 +18,13 @@ import javax.imageio.ImageIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.NodeIterator;
 import com.hp.hpl.jena.rdf.model.RDFNode;
-import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 
 /**
  * This class provides constants and static methods for managing the link
@@ -28,6 +33,15 @@ import com.hp.hpl.jena.rdf.model.Resource;
 public abstract class ELinkEnrichmentsConstants {
     static final Logger LOG = LoggerFactory.getLogger(ELinkEnrichmentsConstants.class);
 
+	/** Timeout of the connection to an image host, in milliseconds. */
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+	/** Timeout of the download of an image, in milliseconds. */
+	private static final int READ_TIMEOUT_MILLIS = 10000;
+
+	/** Maximum number of redirects followed to download an image. */
+	private static final int MAX_REDIRECTS = 5;
+
 	/** The long description property. */
 	public static final String LONG_DESCR_PROP = "http://dbpedia.org/ontology/abstract";
 
@@ -153,187 +167,132 @@ public abstract class ELinkEnrichmentsConstants {
 	public static void fillLinkEnrichment(LinkEnrichment linkEnrichment,
 	        Model linkModel, String entityURL) {
 
-		Resource entityRes = linkModel.createResource(entityURL);
-		NodeIterator nameNodeIt = linkModel
-		        .listObjectsOfProperty(
-		                entityRes,
-		                linkModel
-		                        .createProperty(ELinkEnrichmentsConstants.ENTITY_NAME_PROP));
-		linkEnrichment.setReferenceEntity(entityURL);
-		RDFNode currNode = null;
-		while(nameNodeIt.hasNext() && linkEnrichment.getEntityName() == null){
-			currNode = nameNodeIt.next();
-			if(checkLanguage(currNode, linkEnrichment.getLanguage())){
-				linkEnrichment.setEntityName(currNode.asLiteral().getString(), ENTITY_NAME_PROP);
-			}
+		ListMultimap<String, Node> properties = ArrayListMultimap.create();
+		StmtIterator stmtIt = linkModel.listStatements(
+		        linkModel.createResource(entityURL), null, (RDFNode) null);
+		while (stmtIt.hasNext()) {
+			Statement stmt = stmtIt.next();
+			properties.put(stmt.getPredicate().getURI(), stmt.getObject()
+			        .asNode());
 		}
-		if(linkEnrichment.getEntityName() == null){
+		fillLinkEnrichment(linkEnrichment, properties, entityURL);
+	}
+
+	/**
+	 * Fills a link enrichment with the properties of the entity.
+	 * 
+	 * @param linkEnrichment
+	 *            the link enrichment to be filled.
+	 * @param properties
+	 *            the values of the entity properties, by property URI.
+	 * @param entityURL
+	 *            the entity URL.
+	 */
+	public static void fillLinkEnrichment(LinkEnrichment linkEnrichment,
+	        ListMultimap<String, Node> properties, String entityURL) {
+
+		String language = linkEnrichment.getLanguage();
+		linkEnrichment.setReferenceEntity(entityURL);
+		String entityName = findLiteral(properties.get(ENTITY_NAME_PROP),
+		        language);
+		if (entityName == null) {
 			int index = entityURL.lastIndexOf("/");
-			linkEnrichment.setEntityName(entityURL.substring(index + 1)
-			        .replaceAll("_", " "),
-			        ELinkEnrichmentsConstants.ENTITY_NAME_PROP);
+			entityName = entityURL.substring(index + 1).replaceAll("_", " ");
 		}
-		
-//		if (nameNodeIt.hasNext()) {
-//			linkEnrichment.setEntityName(nameNodeIt.next().asLiteral()
-//			        .getString(), ELinkEnrichmentsConstants.ENTITY_NAME_PROP);
-//		} else {
-//			// String entityUri = entityStmt.getObject().asResource().getURI();
-//			int index = entityURL.lastIndexOf("/");
-//			linkEnrichment.setEntityName(entityURL.substring(index + 1)
-//			        .replaceAll("_", " "),
-//			        ELinkEnrichmentsConstants.ENTITY_NAME_PROP);
-//		}
-		NodeIterator shortDescrNodeIt = linkModel
-		        .listObjectsOfProperty(
-		                entityRes,
-		                linkModel
-		                        .createProperty(ELinkEnrichmentsConstants.SHORT_DESCR_PROP));
-		while(shortDescrNodeIt.hasNext() && linkEnrichment.getShortDescription() == null){
-		
-			currNode = shortDescrNodeIt.next();
-			if(checkLanguage(currNode, linkEnrichment.getLanguage())){
-				linkEnrichment.setShortDescription(currNode.asLiteral().getString(), SHORT_DESCR_PROP);
-			}
+		linkEnrichment.setEntityName(entityName, ENTITY_NAME_PROP);
+		String shortDescr = findLiteral(properties.get(SHORT_DESCR_PROP),
+		        language);
+		if (shortDescr != null) {
+			linkEnrichment.setShortDescription(shortDescr, SHORT_DESCR_PROP);
 		}
-		
-//		if (shortDescrNodeIt.hasNext()) {
-//			linkEnrichment.setShortDescription(shortDescrNodeIt.next()
-//			        .asLiteral().getString(),
-//			        ELinkEnrichmentsConstants.SHORT_DESCR_PROP);
-//		}
-		NodeIterator longDescrNodeIt = linkModel
-		        .listObjectsOfProperty(
-		                entityRes,
-		                linkModel
-		                        .createProperty(ELinkEnrichmentsConstants.LONG_DESCR_PROP));
-		
-		while(longDescrNodeIt.hasNext() && linkEnrichment.getLongDescription() == null){
-			currNode = longDescrNodeIt.next();
-			if(checkLanguage(currNode, linkEnrichment.getLanguage())){
-				linkEnrichment.setLongDescription(currNode.asLiteral().getString(), LONG_DESCR_PROP);
-			}
+		String longDescr = findLiteral(properties.get(LONG_DESCR_PROP),
+		        language);
+		if (longDescr != null) {
+			linkEnrichment.setLongDescription(longDescr, LONG_DESCR_PROP);
 		}
-//		if (longDescrNodeIt.hasNext()) {
-//			linkEnrichment.setLongDescription(longDescrNodeIt.next()
-//			        .asLiteral().getString(),
-//			        ELinkEnrichmentsConstants.LONG_DESCR_PROP);
-//		}
-
-		NodeIterator imageNodeIt = linkModel
-		        .listObjectsOfProperty(
-		                entityRes,
-		                linkModel
-		                        .createProperty(ELinkEnrichmentsConstants.SMALL_IMAGE_PROP));
-		if (imageNodeIt.hasNext()) {
-			RDFNode imageNode = imageNodeIt.next();
-			String imageURL = null;
-			if (imageNode.isResource()) {
-				imageURL = imageNode.asResource().getURI();
-			} else {
-				imageURL = imageNode.asLiteral().getString();
-			}
-			Image image = downloadImage(imageURL);
-			if (image != null) {
-				linkEnrichment.setImage(image);
-				linkEnrichment.setImageURL(imageURL,
-				        ELinkEnrichmentsConstants.SMALL_IMAGE_PROP);
+		for (String imageProp : new String[] { SMALL_IMAGE_PROP, IMAGE_PROP }) {
+			List<Node> imageNodes = properties.get(imageProp);
+			if (linkEnrichment.getImageURL() == null && !imageNodes.isEmpty()) {
+				// the image is downloaded once displayed
+				linkEnrichment.setImageURL(getValue(imageNodes.get(0)),
+				        imageProp);
 			}
 		}
-		if (linkEnrichment.getImage() == null) {
-			imageNodeIt = linkModel.listObjectsOfProperty(entityRes, linkModel
-			        .createProperty(ELinkEnrichmentsConstants.IMAGE_PROP));
-			if (imageNodeIt.hasNext()) {
-				RDFNode imageNode = imageNodeIt.next();
-				String imageURL = null;
-				if (imageNode.isResource()) {
-					imageURL = imageNode.asResource().getURI();
-				} else {
-					imageURL = imageNode.asLiteral().getString();
-				}
-				Image image = downloadImage(imageURL);
-				if (image != null) {
-					linkEnrichment.setImage(image);
-					linkEnrichment.setImageURL(imageURL,
-					        ELinkEnrichmentsConstants.IMAGE_PROP);
-				}
-			}
+		String wikiPage = findLink(properties.get(WIKI_LINK_PROP), language);
+		if (wikiPage != null) {
+			linkEnrichment.setWikiPage(wikiPage, WIKI_LINK_PROP);
 		}
-		NodeIterator wikiNodeIt = linkModel
-		        .listObjectsOfProperty(
-		                entityRes,
-		                linkModel
-		                        .createProperty(ELinkEnrichmentsConstants.WIKI_LINK_PROP));
-		
-		while(wikiNodeIt.hasNext() && linkEnrichment.getWikiPage() == null){
-			
-			RDFNode wikiNode = wikiNodeIt.next();
-			if(wikiNode.isResource()){
-				linkEnrichment.setWikiPage(wikiNode.asResource().getURI(), WIKI_LINK_PROP);
-			} else if (checkLanguage(wikiNode, linkEnrichment.getLanguage())){
-				linkEnrichment.setWikiPage(wikiNode.asLiteral().getString(), WIKI_LINK_PROP);
-			}
-		}
-//		if (wikiNodeIt.hasNext()) {
-//			RDFNode wikiNode = wikiNodeIt.next();
-//			if (wikiNode.isResource()) {
-//				linkEnrichment.setWikiPage(wikiNode.asResource().getURI(),
-//				        ELinkEnrichmentsConstants.WIKI_LINK_PROP);
-//			} else {
-//				linkEnrichment.setWikiPage(wikiNode.asLiteral().getString(),
-//				        ELinkEnrichmentsConstants.WIKI_LINK_PROP);
-//			}
-//		}
-		NodeIterator homePageNodeIt = linkModel
-		        .listObjectsOfProperty(
-		                entityRes,
-		                linkModel
-		                        .createProperty(ELinkEnrichmentsConstants.HOMEPAGE_LINK_PROP));
-		
-		while(homePageNodeIt.hasNext() && linkEnrichment.getHomePage() == null){
-			RDFNode homePageNode = homePageNodeIt.next();
-			if(homePageNode.isResource()){
-				linkEnrichment.setHomePage(homePageNode.asResource().getURI(), HOMEPAGE_LINK_PROP);
-			} else if(checkLanguage(homePageNode, linkEnrichment.getLanguage())){
-				linkEnrichment.setHomePage(homePageNode.asLiteral().getString(), HOMEPAGE_LINK_PROP);
-			}
+		String homePage = findLink(properties.get(HOMEPAGE_LINK_PROP),
+		        language);
+		if (homePage != null) {
+			linkEnrichment.setHomePage(homePage, HOMEPAGE_LINK_PROP);
 		}
-//		if (homePageNodeIt.hasNext()) {
-//			RDFNode homePageNode = homePageNodeIt.next();
-//			if (homePageNode.isResource()) {
-//				linkEnrichment.setHomePage(homePageNode.asResource().getURI(),
-//				        ELinkEnrichmentsConstants.HOMEPAGE_LINK_PROP);
-//			} else {
-//				linkEnrichment.setHomePage(
-//				        homePageNode.asLiteral().getString(),
-//				        ELinkEnrichmentsConstants.HOMEPAGE_LINK_PROP);
-//			}
-//		}
-		NodeIterator infoNodeIt = null;
 		List<LinkInfoData> enrichmentInfo = new ArrayList<LinkInfoData>();
 		for (LinkInfoData infoProp : ELinkEnrichmentsConstants
 		        .getInfoProperties()) {
-			infoNodeIt = linkModel.listObjectsOfProperty(entityRes,
-			        linkModel.createProperty(infoProp.getPropName()));
-			if (infoNodeIt.hasNext()) {
-				RDFNode node = infoNodeIt.next();
-				System.out.println("Property name: " + infoProp.getPropName());
-				if (node.isLiteral()) {
-					if(checkLanguage(node, linkEnrichment.getLanguage())){
-						infoProp.setValue(node.asLiteral().getString());
-					}
-				} else {
-					infoProp.setValue(node.asResource().getURI());
+			List<Node> infoNodes = properties.get(infoProp.getPropName());
+			if (!infoNodes.isEmpty()) {
+				Node node = infoNodes.get(0);
+				if (!node.isLiteral() || checkLanguage(node, language)) {
+					infoProp.setValue(getValue(node));
 				}
 				enrichmentInfo.add(infoProp);
 			}
 		}
 		linkEnrichment.setInfoList(enrichmentInfo);
 	}
-	
-	private static boolean checkLanguage(RDFNode node, String language ){
-		
-		return node.asLiteral().getLanguage().equals(language) || node.asLiteral().getLanguage().equals("");
+
+	/**
+	 * Finds the first literal in the link language, or without language.
+	 * 
+	 * @param nodes
+	 *            the property values
+	 * @param language
+	 *            the link language
+	 * @return the literal string if it exists; <code>null</code> otherwise
+	 */
+	private static String findLiteral(List<Node> nodes, String language) {
+
+		for (Node node : nodes) {
+			if (node.isLiteral() && checkLanguage(node, language)) {
+				return node.getLiteralLexicalForm();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the first link: either a resource or a literal in the link
+	 * language, or without language.
+	 * 
+	 * @param nodes
+	 *            the property values
+	 * @param language
+	 *            the link language
+	 * @return the link if it exists; <code>null</code> otherwise
+	 */
+	private static String findLink(List<Node> nodes, String language) {
+
+		for (Node node : nodes) {
+			if (node.isURI()) {
+				return node.getURI();
+			} else if (node.isLiteral() && checkLanguage(node, language)) {
+				return node.getLiteralLexicalForm();
+			}
+		}
+		return null;
+	}
+
+	private static String getValue(Node node) {
+
+		return node.isURI() ? node.getURI() : node.isLiteral() ? node
+		        .getLiteralLexicalForm() : null;
+	}
+
+	private static boolean checkLanguage(Node node, String language) {
+
+		String nodeLanguage = node.getLiteralLanguage();
+		return nodeLanguage.equals(language) || nodeLanguage.equals("");
 	}
 
 	/**
@@ -349,18 +308,29 @@ public abstract class ELinkEnrichmentsConstants {
 		Image image = null;
 		try {
 			URL url = new URL(imagUrl);
-			while (image == null && url != null) {
-				image = ImageIO.read(url);
-				if (image == null) {
-					HttpURLConnection conn = (HttpURLConnection) url
-					        .openConnection();
-					HttpURLConnection.setFollowRedirects(false);
-					String urlStr = conn.getHeaderField("Location");
-					if (urlStr != null) {
-						url = new URL(urlStr);
-					} else {
-						url = null;
+			for (int redirects = 0; url != null && redirects <= MAX_REDIRECTS; redirects++) {
+				URLConnection conn = url.openConnection();
+				conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+				conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+				String location = null;
+				if (conn instanceof HttpURLConnection) {
+					HttpURLConnection httpConn = (HttpURLConnection) conn;
+					// redirects across protocols are not followed by the
+					// connection
+					httpConn.setInstanceFollowRedirects(false);
+					int code = httpConn.getResponseCode();
+					if (code >= 300 && code < 400) {
+						location = httpConn.getHeaderField("Location");
+					}
+				}
+				if (location != null) {
+					((HttpURLConnection) conn).disconnect();
+					url = new URL(url, location);
+				} else {
+					try (InputStream in = conn.getInputStream()) {
+						image = ImageIO.read(in);
 					}
+					url = null;
 				}
 			}
 		} catch (MalformedURLException e) {
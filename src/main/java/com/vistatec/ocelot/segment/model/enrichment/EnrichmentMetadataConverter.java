@@ -0,0 +1,41 @@
+package com.vistatec.ocelot.segment.model.enrichment;
+
+import java.util.List;
+
+import com.vistatec.ocelot.its.model.TerminologyMetaData;
+import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Converts the enrichments of a segment into the ITS metadata displayed in
+ * the Text-Analysis and Terminology tables.
+ */
+public interface EnrichmentMetadataConverter {
+
+	/**
+	 * Converts the enrichments assigned to a segment to a list of ITS meta
+	 * data.
+	 * 
+	 * @param segment
+	 *            the Ocelot segment.
+	 */
+	void convertEnrichments2ITSMetadata(OcelotSegment segment);
+
+	/**
+	 * Reads the ITS meta data of the enrichments assigned to a segment
+	 * without converting them: neither the segment nor its variants are
+	 * changed.
+	 * 
+	 * @param segment
+	 *            the Ocelot segment
+	 * @param textAnalysis
+	 *            the Text-Analysis meta data already assigned to the segment,
+	 *            to which those of the enrichments are added
+	 * @param terms
+	 *            the Terminology meta data already assigned to the segment,
+	 *            to which those of the enrichments are added
+	 */
+	void readEnrichmentMetadata(OcelotSegment segment,
+	        List<TextAnalysisMetaData> textAnalysis,
+	        List<TerminologyMetaData> terms);
+}
@@ -44,6 +44,9 @@ public class LinkEnrichment extends Enrichment {
 	/** The image. */
 	private Image image;
 
+	/** A boolean stating if the image has been downloaded. */
+	private boolean imageLoaded;
+
 	/** The homepage link. */
 	private LinkInfoData homePage;
 
@@ -186,22 +189,38 @@ public class LinkEnrichment extends Enrichment {
 	}
 
 	/**
-	 * Gets the image.
+	 * Gets the image. The image is downloaded from the image URL the first
+	 * time it is requested, so the first call must not be made on the event
+	 * dispatch thread.
 	 * 
 	 * @return the image.
 	 */
-	public Image getImage() {
+	public synchronized Image getImage() {
+		if (!imageLoaded && imageURL != null) {
+			image = ELinkEnrichmentsConstants.downloadImage(imageURL.getValue());
+			imageLoaded = true;
+		}
 		return image;
 	}
 
+	/**
+	 * Tells whether the image is available without downloading it.
+	 * 
+	 * @return <code>true</code> if {@link #getImage()} does not block.
+	 */
+	public synchronized boolean isImageLoaded() {
+		return imageLoaded || imageURL == null;
+	}
+
 	/**
 	 * Sets the image.
 	 * 
 	 * @param image
 	 *            the image.
 	 */
-	public void setImage(Image image) {
+	public synchronized void setImage(Image image) {
 		this.image = image;
+		this.imageLoaded = true;
 	}
 
 	/**
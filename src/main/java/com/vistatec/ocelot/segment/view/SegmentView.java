@@ -40,6 +40,7 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.HeadlessException;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ContainerEvent;
@@ -54,8 +55,16 @@ import java.awt.print.PrinterException;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EventObject;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.print.PrintService;
 import javax.print.attribute.PrintRequestAttributeSet;
@@ -112,11 +121,13 @@ import com.vistatec.ocelot.events.OpenFileEvent;
 import com.vistatec.ocelot.events.RefreshSegmentView;
 import com.vistatec.ocelot.events.ReplaceDoneEvent;
 import com.vistatec.ocelot.events.ReplaceEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteUpdatedEvent;
 import com.vistatec.ocelot.events.SegmentSelectionEvent;
 import com.vistatec.ocelot.events.SegmentTargetEnterEvent;
 import com.vistatec.ocelot.events.SegmentTargetExitEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateFromMatchEvent;
@@ -180,9 +191,12 @@ public class SegmentView extends JScrollPane implements RuleListener,
 
 	private int editingRow = -1;
 
-        private List<Integer> highlightedSegments;
+        private Set<Integer> highlightedSegments;
 	private BaseSegmentVariant currHLVariant;
 
+	/** The index of the segment owning the current highlighted variant. */
+	private int currHLSegmentIdx = -1;
+
 	/**
 	 * Table implementation that recalculates row heights when doLayout() is
 	 * called. To try to minimize redraw time, we avoid recalculating the whole
@@ -266,7 +280,7 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		        BorderFactory.createLineBorder(Color.BLUE, 2));
 		initializeTable();
 		eventQueue.registerListener(this);
-		this.highlightedSegments = new ArrayList<Integer>();
+		this.highlightedSegments = new LinkedHashSet<Integer>();
 	}
 
 	@Subscribe
@@ -279,11 +293,14 @@ public class SegmentView extends JScrollPane implements RuleListener,
 	@Subscribe
 	public void highlightStrings(HighlightEvent e) {
 
-		clearHighlightedSegments();
+		if (!e.isAppend()) {
+			clearHighlightedSegments();
+		}
 		List<FindResult> highlightResults = e.getHighlightDataList();
 		if (highlightResults != null) {
 			FindResult hr = null;
 			int currSegmentIdx = -1;
+			Set<Integer> updatedSegments = new LinkedHashSet<Integer>();
 			for (int i = 0; i < highlightResults.size(); i++) {
 				hr = highlightResults.get(i);
 				if (hr.getSegmentIndex() < segmentTableModel.getRowCount()) {
@@ -297,28 +314,61 @@ public class SegmentView extends JScrollPane implements RuleListener,
 						variant = (BaseSegmentVariant) segment.getSource();
 					}
 					if (variant != null) {
-						HighlightData hlData = new HighlightData(
-								hr.getAtomIndex(), new int[] {
-										hr.getStringStartIndex(),
-										hr.getStringEndIndex() });
-						variant.addHighlightData(hlData);
+						HighlightData hlData = e.isAppend() ? findHighlightData(
+								variant, hr) : null;
+						if (hlData == null) {
+							hlData = new HighlightData(hr.getAtomIndex(),
+									new int[] { hr.getStringStartIndex(),
+											hr.getStringEndIndex() });
+							variant.addHighlightData(hlData);
+						}
 						if (i == e.getCurrResultIndex()) {
+							if (currHLVariant != null && currHLVariant != variant) {
+								currHLVariant.setCurrentHighlightedIndex(-1);
+								updatedSegments.add(currHLSegmentIdx);
+							}
 							variant.setCurrentHighlightedIndex(variant
 									.getHighlightDataList().indexOf(hlData));
 							currHLVariant = variant;
+							currHLSegmentIdx = hr.getSegmentIndex();
 							currSegmentIdx = hr.getSegmentIndex();
 						}
 						highlightedSegments.add(hr.getSegmentIndex());
-						updateTableRow(hr.getSegmentIndex());
+						updatedSegments.add(hr.getSegmentIndex());
 					}
 				}
 			}
-			sourceTargetTable.scrollRectToVisible(sourceTargetTable
-					.getCellRect(currSegmentIdx, 0, false));
+			if (currSegmentIdx != -1) {
+				sourceTargetTable.scrollRectToVisible(sourceTargetTable
+						.getCellRect(currSegmentIdx, 0, false));
+			}
+			updateVisibleRows(updatedSegments);
 		}
 
 	}
 
+	/**
+	 * Finds the highlight data of a variant matching a find result.
+	 * 
+	 * @return the highlight data; <code>null</code> if the result is not
+	 *         highlighted yet.
+	 */
+	private HighlightData findHighlightData(BaseSegmentVariant variant,
+			FindResult result) {
+
+		if (variant.getHighlightDataList() != null) {
+			for (HighlightData hlData : variant.getHighlightDataList()) {
+				if (hlData.getAtomIndex() == result.getAtomIndex()
+						&& hlData.getHighlightIndices()[0] == result
+								.getStringStartIndex()
+						&& hlData.getHighlightIndices()[1] == result
+								.getStringEndIndex()) {
+					return hlData;
+				}
+			}
+		}
+		return null;
+	}
 	
 	private void clearHighlightedSegments() {
 
@@ -333,13 +383,43 @@ public class SegmentView extends JScrollPane implements RuleListener,
 						((BaseSegmentVariant) hlSegment.getTarget())
 								.clearHighlightedText();
 					}
-					updateTableRow(segIndex);
 				}
 			}
+			updateVisibleRows(highlightedSegments);
 			highlightedSegments.clear();
 		}
 	}
 
+	/**
+	 * Updates the rows of the given segments that are currently in view. Rows
+	 * out of view pick up their highlights when they are scrolled into view
+	 * and rendered, so there is no need to update them.
+	 * 
+	 * @param segIndexes
+	 *            the segment indexes.
+	 */
+	private void updateVisibleRows(Set<Integer> segIndexes) {
+
+		Rectangle viewRect = getViewport().getViewRect();
+		int firstRow = sourceTargetTable.rowAtPoint(viewRect.getLocation());
+		if (firstRow == -1) {
+			return;
+		}
+		int lastRow = sourceTargetTable.rowAtPoint(new Point(viewRect.x,
+				viewRect.y + viewRect.height - 1));
+		if (lastRow == -1) {
+			lastRow = sourceTargetTable.getRowCount() - 1;
+		}
+		for (int segIndex : segIndexes) {
+			if (segIndex < segmentTableModel.getRowCount()) {
+				int viewRow = sourceTargetTable.convertRowIndexToView(segIndex);
+				if (viewRow >= firstRow && viewRow <= lastRow) {
+					updateTableRow(segIndex);
+				}
+			}
+		}
+	}
+
 	@Subscribe
 	public void replace(ReplaceEvent e) {
 
@@ -347,45 +427,72 @@ public class SegmentView extends JScrollPane implements RuleListener,
 			replaceTarget(e.getNewString(), e.getSegmentIndex());
 		} else if (e.getAction() == ReplaceEvent.REPLACE_ALL) {
 
-			OcelotSegment segment = null;
+			Map<Integer, List<Integer>> resultIdxBySegment = new TreeMap<Integer, List<Integer>>();
+			for (int i = 0; i < e.getResults().size(); i++) {
+				int segIdx = e.getResults().get(i).getSegmentIndex();
+				if (!resultIdxBySegment.containsKey(segIdx)) {
+					resultIdxBySegment.put(segIdx, new ArrayList<Integer>());
+				}
+				resultIdxBySegment.get(segIdx).add(i);
+			}
 			int replacedOccNum = 0;
-			for (int segIdx = 0; segIdx < segmentTableModel.getRowCount(); segIdx++) {
-
-				segment = segmentTableModel.getSegment(segIdx);
-				replacedOccNum += replaceAllTarget(
-						(BaseSegmentVariant) segment.getTarget(),
-						e.getNewString(), segIdx);
+			Map<OcelotSegment, SegmentVariant> updatedTargets = new LinkedHashMap<OcelotSegment, SegmentVariant>();
+			for (Entry<Integer, List<Integer>> segResults : resultIdxBySegment
+					.entrySet()) {
+				if (segResults.getKey() < segmentTableModel.getRowCount()) {
+					replacedOccNum += replaceAllTarget(segResults.getKey(),
+							segResults.getValue(), e.getResults(),
+							e.getReplacements(), updatedTargets);
+				}
+			}
+			// All the targets are updated with a single event, so that the
+			// whole replace all is applied, saved and undone as one batch.
+			if (!updatedTargets.isEmpty()) {
+				eventQueue.post(new SegmentTargetBatchUpdateEvent(xliff,
+						updatedTargets));
 			}
 			eventQueue.post(new ReplaceDoneEvent(replacedOccNum));
 		}
 	}
 
-	private int replaceAllTarget(BaseSegmentVariant target, String newString,
-			int segIdx) {
-		
-		SegmentVariant updatedTarget = target.createCopy();
-		int replacedOccNum = 0;
-		if(target.getHighlightDataList() != null){
-			for(HighlightData hd: target.getHighlightDataList()){
-				int startOffset = 0;
-				for (int i = 0; i < hd.getAtomIndex(); i++) {
-					startOffset += target.getAtoms().get(i).getLength();
+	private int replaceAllTarget(int segIdx, List<Integer> resultIdxList,
+			final List<FindResult> results, List<String> replacements,
+			Map<OcelotSegment, SegmentVariant> updatedTargets) {
+
+		OcelotSegment segment = segmentTableModel.getSegment(segIdx);
+		BaseSegmentVariant target = (BaseSegmentVariant) segment.getTarget();
+		if (target == null) {
+			return 0;
+		}
+		// Replace from the end of the segment backwards, so that the offsets
+		// of the occurrences still to be replaced are not shifted by
+		// replacements having a different length.
+		Collections.sort(resultIdxList, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				FindResult r1 = results.get(o1);
+				FindResult r2 = results.get(o2);
+				if (r1.getAtomIndex() != r2.getAtomIndex()) {
+					return r2.getAtomIndex() - r1.getAtomIndex();
 				}
-				startOffset += hd.getHighlightIndices()[0];
-				int oldStringLength = hd.getHighlightIndices()[1]
-						- hd.getHighlightIndices()[0];
-				updatedTarget.modifyChars(startOffset, oldStringLength,
-						newString);
-				replacedOccNum++;
+				return r2.getStringStartIndex() - r1.getStringStartIndex();
 			}
-			target.clearHighlightedText();
-			eventQueue.post(new SegmentTargetUpdateEvent(xliff,
-					segmentTableModel.getSegment(segIdx),
-					updatedTarget));
-			updateTableRow(segIdx);
-			
-		}
-		return replacedOccNum;
+		});
+		SegmentVariant updatedTarget = target.createCopy();
+		for (int resultIdx : resultIdxList) {
+			FindResult result = results.get(resultIdx);
+			int startOffset = 0;
+			for (int i = 0; i < result.getAtomIndex(); i++) {
+				startOffset += target.getAtoms().get(i).getLength();
+			}
+			startOffset += result.getStringStartIndex();
+			updatedTarget.modifyChars(startOffset,
+					result.getStringEndIndex() - result.getStringStartIndex(),
+					replacements.get(resultIdx));
+		}
+		target.clearHighlightedText();
+		updatedTargets.put(segment, updatedTarget);
+		return resultIdxList.size();
 	}
 
 	private void replaceTarget(String newString, int segmentIndex) {
@@ -821,9 +928,10 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		try {
 			synchronized (segmentTableModel) {
 				if (segmentTableModel.getRowCount() > 0) {
+					List<Integer> segmentNumbers = event.getSegmentNumbers();
 					segmentTableModel.fireTableRowsUpdated(
-					        event.getSegmentNumber() - 1,
-					        event.getSegmentNumber() - 1);
+					        Collections.min(segmentNumbers) - 1,
+					        Collections.max(segmentNumbers) - 1);
 				} else {
 					segmentTableModel.fireTableDataChanged();
 				}
@@ -937,6 +1045,19 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		sourceTargetTable.requestFocusInWindow();
 	}
 
+	@Subscribe
+	public void notifySegmentBatchEdit(SegmentBatchEditEvent event) {
+		int selRow = sourceTargetTable.getSelectedRow();
+		if (segmentTableModel.getRowCount() > 0) {
+			segmentTableModel.fireTableRowsUpdated(0,
+					segmentTableModel.getRowCount() - 1);
+		}
+		sourceTargetTable.recalculateAllRowHeights();
+		if (selRow >= 0 && selRow < sourceTargetTable.getRowCount()) {
+			sourceTargetTable.setRowSelectionInterval(selRow, selRow);
+		}
+	}
+
 	@Override
 	public void enabledRule(String ruleLabel, boolean enabled) {
 		reloadTable();
@@ -1,5 +1,8 @@
 package com.vistatec.ocelot.services;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.vistatec.ocelot.events.ItsDocStatsAddedProvEvent;
@@ -17,6 +20,7 @@ import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
 import com.vistatec.ocelot.its.stats.model.ITSDocStats;
 import com.vistatec.ocelot.its.stats.model.ITSStats;
 import com.vistatec.ocelot.its.stats.model.LanguageQualityIssueStats;
+import com.vistatec.ocelot.segment.model.BaseSegment;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 
 public class ITSDocStatsService implements OcelotEventQueueListener {
@@ -49,6 +53,11 @@ public class ITSDocStatsService implements OcelotEventQueueListener {
         eventQueue.post(new ItsDocStatsRecalculateEvent(e.getSegments()));
     }
 
+    /**
+     * Recalculates the stats of some segments. The stats of deferred
+     * enrichments are read from their raw form, without converting them into
+     * the metadata of their segments.
+     */
     @Subscribe
     public void recalculateStats(ItsDocStatsRecalculateEvent e) {
         itsDocStats.clear();
@@ -59,18 +68,26 @@ public class ITSDocStatsService implements OcelotEventQueueListener {
             for (Provenance prov : seg.getProvenance()) {
                 itsDocStats.addProvenanceStats(prov);
             }
-            for(TextAnalysisMetaData ta: seg.getTextAnalysis()){
+            List<TextAnalysisMetaData> textAnalysis;
+            List<TerminologyMetaData> terms;
+            if (seg instanceof BaseSegment) {
+                textAnalysis = new ArrayList<>();
+                terms = new ArrayList<>();
+                ((BaseSegment) seg).readTextAnalysisAndTerms(textAnalysis, terms);
+            } else {
+                textAnalysis = seg.getTextAnalysis();
+                terms = seg.getTerms();
+            }
+            for(TextAnalysisMetaData ta: textAnalysis){
             	itsDocStats.addTextAnalysisStats(ta);
             }
-            for(TerminologyMetaData term: seg.getTerms()){
+            for(TerminologyMetaData term: terms){
             	itsDocStats.addTerminologyStats(term);
             }
         }
         eventQueue.post(new ItsDocStatsChangedEvent());
     }
-    
 
- 
     @Subscribe
     public void addProvenanceStats(ItsDocStatsAddedProvEvent e) {
         Provenance prov = e.getProv();
@@ -44,6 +44,7 @@ import javax.xml.stream.XMLStreamException;
 
 import com.google.common.eventbus.Subscribe;
 import com.vistatec.ocelot.config.ConfigService;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteEditEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -69,6 +70,11 @@ public class OkapiXliffService implements XliffService {
     public void updateSegment(SegmentEditEvent e) {
         getDoc(e.getDocument()).getWriter().updateSegment(e.getSegment());
     }
+
+    @Subscribe
+    public void updateSegments(SegmentBatchEditEvent e) {
+        getDoc(e.getDocument()).getWriter().updateSegments(e.getSegments());
+    }
     
 
     @Subscribe
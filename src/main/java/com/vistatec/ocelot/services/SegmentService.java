@@ -7,6 +7,8 @@ import com.vistatec.ocelot.events.LQIAdditionEvent;
 import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIRemoveEvent;
 import com.vistatec.ocelot.events.SegmentNoteUpdatedEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUndoEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
@@ -20,12 +22,26 @@ public interface SegmentService extends OcelotEventQueueListener {
 
     public int getNumSegments();
 
+    /**
+     * Get a segment by its segment number, without scanning the segments.
+     * @return the segment, or null if no segment has this number
+     */
+    public OcelotSegment getSegmentByNumber(int segmentNumber);
+
     public void setSegments(XLIFFDocument xliff);
 
     public void updateSegmentTarget(SegmentTargetUpdateEvent e);
     public void updateSegmentNote(SegmentNoteUpdatedEvent e);
     public void resetSegmentTarget(SegmentTargetResetEvent e);
 
+    /**
+     * Updates the targets of many segments as a single batch, posting one
+     * aggregated edit event. The batch can be undone in one step until
+     * another segment target is edited.
+     */
+    public void updateSegmentTargets(SegmentTargetBatchUpdateEvent e);
+    public void undoSegmentTargetBatch(SegmentTargetBatchUndoEvent e);
+
     public void addLQI(LQIAdditionEvent e);
     public void editLQI(LQIEditEvent e);
     public void removeLQI(LQIRemoveEvent e);
@@ -28,6 +28,14 @@
  */
 package com.vistatec.ocelot.services;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 
 import com.google.common.eventbus.Subscribe;
@@ -42,9 +50,12 @@ import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIModificationEvent;
 import com.vistatec.ocelot.events.LQIRemoveEvent;
 import com.vistatec.ocelot.events.ProvenanceAddEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteUpdatedEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUndoEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -61,6 +72,11 @@ public class SegmentServiceImpl implements SegmentService {
     // TODO: remove segments (data) from service implementation
     private XLIFFDocument xliff;
     private final OcelotEventQueue eventQueue;
+    // targets replaced by the last batch update, for a one step undo
+    private Map<OcelotSegment, SegmentVariant> lastBatchPreviousTargets;
+    // segments by segment number, replaced as a whole when a file is opened
+    private volatile Map<Integer, OcelotSegment> segmentsByNumber =
+            Collections.emptyMap();
 
     @Inject
     public SegmentServiceImpl(OcelotEventQueue eventQueue) {
@@ -77,9 +93,20 @@ public class SegmentServiceImpl implements SegmentService {
         return (xliff != null) ? xliff.getSegments().size() : 0;
     }
 
+    @Override
+    public OcelotSegment getSegmentByNumber(int segmentNumber) {
+        return segmentsByNumber.get(segmentNumber);
+    }
+
     @Override
     public void setSegments(XLIFFDocument xliff) {
         this.xliff = xliff;
+        this.lastBatchPreviousTargets = null;
+        Map<Integer, OcelotSegment> index = new HashMap<>();
+        for (OcelotSegment seg : xliff.getSegments()) {
+            index.put(seg.getSegmentNumber(), seg);
+        }
+        this.segmentsByNumber = Collections.unmodifiableMap(index);
         eventQueue.post(new ItsDocStatsRecalculateEvent(xliff.getSegments()));
     }
 
@@ -90,9 +117,51 @@ public class SegmentServiceImpl implements SegmentService {
         SegmentVariant updatedTarget = e.getUpdatedTarget();
         boolean updatedSeg = seg.updateTarget(updatedTarget);
         if (updatedSeg) {
+            lastBatchPreviousTargets = null;
             eventQueue.post(new SegmentEditEvent(xliff, seg));
         }
     }
+
+    @Subscribe
+    @Override
+    public void updateSegmentTargets(SegmentTargetBatchUpdateEvent e) {
+        Map<OcelotSegment, SegmentVariant> previousTargets = applyTargets(e.getUpdatedTargets());
+        if (!previousTargets.isEmpty()) {
+            lastBatchPreviousTargets = previousTargets;
+        }
+    }
+
+    @Subscribe
+    @Override
+    public void undoSegmentTargetBatch(SegmentTargetBatchUndoEvent e) {
+        if (lastBatchPreviousTargets != null) {
+            Map<OcelotSegment, SegmentVariant> previousTargets = lastBatchPreviousTargets;
+            lastBatchPreviousTargets = null;
+            applyTargets(previousTargets);
+        }
+    }
+
+    /**
+     * Updates the segment targets and posts a single edit event for all the
+     * segments actually changed.
+     * @return the targets replaced, keyed by segment
+     */
+    private Map<OcelotSegment, SegmentVariant> applyTargets(
+            Map<OcelotSegment, SegmentVariant> updatedTargets) {
+        Map<OcelotSegment, SegmentVariant> previousTargets = new LinkedHashMap<>();
+        for (Entry<OcelotSegment, SegmentVariant> entry : updatedTargets.entrySet()) {
+            OcelotSegment seg = entry.getKey();
+            SegmentVariant previousTarget = seg.getTarget();
+            if (seg.updateTarget(entry.getValue())) {
+                previousTargets.put(seg, previousTarget);
+            }
+        }
+        if (!previousTargets.isEmpty()) {
+            List<OcelotSegment> editedSegs = new ArrayList<>(previousTargets.keySet());
+            eventQueue.post(new SegmentBatchEditEvent(xliff, editedSegs));
+        }
+        return previousTargets;
+    }
     
     @Subscribe
     @Override
@@ -111,6 +180,7 @@ public class SegmentServiceImpl implements SegmentService {
         OcelotSegment seg = e.getSegment();
         if (seg.hasOriginalTarget() && !seg.getTargetDiff().isEmpty()) {
             if (seg.resetTarget()) {
+                lastBatchPreviousTargets = null;
                 eventQueue.post(new SegmentEditEvent(xliff, seg));
             }
         }
@@ -76,8 +76,15 @@ public interface TmManager {
 
     /**
      * Re-index the TM specified, using the current associated TM data directory.
+     * Only the TMX files added, changed or removed since the last indexing are
+     * processed.
      * @param tmName - Name of the TM
      * @throws java.io.IOException
      */
     public void regenerateTm(String tmName) throws IOException;
+
+    /**
+     * Get the performance counters of the TM searches.
+     */
+    public TmMetrics getMetrics();
 }
@@ -0,0 +1,149 @@
+package com.vistatec.ocelot.tm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Performance counters of the TM searches: latency histogram and hit count
+ * by TM, opened and closed seekers and index sizes. The counters are updated
+ * by the searching threads without locking.
+ */
+public class TmMetrics implements TmMetricsMXBean {
+    /** Name under which the metrics are registered to JMX. */
+    public static final String OBJECT_NAME = "com.vistatec.ocelot:type=TmMetrics";
+    /** Upper bounds of the latency buckets, in milliseconds. */
+    private static final long[] LATENCY_BUCKET_BOUNDS = { 1, 5, 10, 50, 100, 500, 1000 };
+    private static final long DEFAULT_SLOW_QUERY_MILLIS = 500;
+
+    private final ConcurrentMap<String, TmCounters> countersByTm = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> indexSizes = new ConcurrentHashMap<>();
+    private final AtomicLong seekersOpened = new AtomicLong();
+    private final AtomicLong seekersClosed = new AtomicLong();
+    private volatile long slowQueryThresholdMillis;
+
+    public TmMetrics() {
+        this(Long.getLong("ocelot.tm.slowQueryMillis", DEFAULT_SLOW_QUERY_MILLIS));
+    }
+
+    public TmMetrics(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    /**
+     * Record a search run on a TM.
+     *
+     * @return whether the search was slower than the slow query threshold
+     */
+    public boolean recordQuery(String tmName, long latencyNanos, int matchCount) {
+        TmCounters counters = countersByTm.get(tmName);
+        if (counters == null) {
+            TmCounters newCounters = new TmCounters();
+            counters = countersByTm.putIfAbsent(tmName, newCounters);
+            if (counters == null) {
+                counters = newCounters;
+            }
+        }
+        counters.record(latencyNanos, matchCount);
+        return TimeUnit.NANOSECONDS.toMillis(latencyNanos) >= slowQueryThresholdMillis;
+    }
+
+    public void recordSeekerOpened(String tmName, long indexSizeBytes) {
+        seekersOpened.incrementAndGet();
+        indexSizes.put(tmName, indexSizeBytes);
+    }
+
+    public void recordSeekerClosed() {
+        seekersClosed.incrementAndGet();
+    }
+
+    @Override
+    public List<TmStatistics> getTmStatistics() {
+        List<TmStatistics> statistics = new ArrayList<>();
+        for (String tmName : countersByTm.keySet()) {
+            TmCounters counters = countersByTm.get(tmName);
+            if (counters != null) {
+                Long indexSize = indexSizes.get(tmName);
+                statistics.add(counters.snapshot(tmName,
+                        indexSize == null ? -1 : indexSize));
+            }
+        }
+        return statistics;
+    }
+
+    @Override
+    public long[] getLatencyBucketBounds() {
+        return LATENCY_BUCKET_BOUNDS.clone();
+    }
+
+    @Override
+    public long getSeekersOpened() {
+        return seekersOpened.get();
+    }
+
+    @Override
+    public long getSeekersClosed() {
+        return seekersClosed.get();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long thresholdMillis) {
+        this.slowQueryThresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public void reset() {
+        countersByTm.clear();
+    }
+
+    /**
+     * Search counters of a single TM.
+     */
+    private static class TmCounters {
+        private final AtomicLong queries = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(
+                LATENCY_BUCKET_BOUNDS.length + 1);
+
+        void record(long latencyNanos, int matchCount) {
+            queries.incrementAndGet();
+            if (matchCount > 0) {
+                hits.incrementAndGet();
+            }
+            totalNanos.addAndGet(latencyNanos);
+            long max = maxNanos.get();
+            while (latencyNanos > max && !maxNanos.compareAndSet(max, latencyNanos)) {
+                max = maxNanos.get();
+            }
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKET_BOUNDS.length
+                    && latencyMillis >= LATENCY_BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            histogram.incrementAndGet(bucket);
+        }
+
+        TmStatistics snapshot(String tmName, long indexSizeBytes) {
+            long queryCount = queries.get();
+            long[] buckets = new long[histogram.length()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = histogram.get(i);
+            }
+            return new TmStatistics(tmName, queryCount, hits.get(),
+                    queryCount == 0 ? 0 : totalNanos.get() / 1e6 / queryCount,
+                    maxNanos.get() / 1e6, buckets, indexSizeBytes);
+        }
+    }
+}
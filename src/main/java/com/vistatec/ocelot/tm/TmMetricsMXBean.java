@@ -0,0 +1,36 @@
+package com.vistatec.ocelot.tm;
+
+import java.util.List;
+
+/**
+ * JMX view of the {@link TmMetrics}.
+ */
+public interface TmMetricsMXBean {
+
+    /**
+     * Return the statistics of each TM searched so far.
+     */
+    public List<TmStatistics> getTmStatistics();
+
+    /**
+     * Return the upper bounds, in milliseconds, of the latency histogram
+     * buckets. The last bucket of a histogram counts the slower searches.
+     */
+    public long[] getLatencyBucketBounds();
+
+    public long getSeekersOpened();
+
+    public long getSeekersClosed();
+
+    public long getSlowQueryThresholdMillis();
+
+    /**
+     * Set the latency above which a search is logged as slow.
+     */
+    public void setSlowQueryThresholdMillis(long thresholdMillis);
+
+    /**
+     * Clear the search statistics.
+     */
+    public void reset();
+}
@@ -11,5 +11,47 @@ import com.vistatec.ocelot.segment.model.SegmentAtom;
 public interface TmService {
     public List<TmMatch> getFuzzyTermMatches(List<SegmentAtom> segment) throws IOException;
 
+    /**
+     * Search the fuzzy matches of several segments like
+     * {@link #getFuzzyTermMatches(List)}, but without caching them, so that
+     * bulk searches do not evict the matches cached for the segments being
+     * edited. The searches run on the threads of the service, at most
+     * parallelism segments at once.
+     *
+     * @param segments the segments
+     * @param parallelism the maximum number of segments searched at once
+     * @return the matches of each segment, in order; a segment whose search
+     * failed has no matches
+     * @throws InterruptedException if the searches are interrupted
+     */
+    public List<List<TmMatch>> getUncachedFuzzyTermMatches(List<List<SegmentAtom>> segments,
+            int parallelism) throws InterruptedException;
+
     public List<TmMatch> getConcordanceMatches(List<SegmentAtom> segment) throws IOException;
+
+    /**
+     * Run a concordance search, passing the matches of each TM to the
+     * listener as soon as the TM answers. At most maxResults matches, within
+     * the configured maximum, are searched per TM. Returns once all the TMs
+     * have answered, the search has timed out or the listener has cancelled
+     * it.
+     */
+    public void getConcordanceMatches(List<SegmentAtom> segment, int maxResults,
+            ConcordanceListener listener) throws IOException;
+
+    /**
+     * Receives the matches of a concordance search, TM by TM.
+     */
+    public interface ConcordanceListener {
+        /**
+         * Called with the penalized matches of a TM having found any.
+         */
+        void matchesFound(List<TmMatch> matches);
+
+        /**
+         * Return whether the search is no longer wanted, so that the TMs not
+         * searched yet are skipped.
+         */
+        boolean isCancelled();
+    }
 }
@@ -0,0 +1,73 @@
+package com.vistatec.ocelot.tm;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the search statistics of a TM.
+ */
+public class TmStatistics {
+    private final String tmName;
+    private final long queryCount;
+    private final long hitCount;
+    private final double meanLatencyMillis;
+    private final double maxLatencyMillis;
+    private final long[] latencyHistogram;
+    private final long indexSizeBytes;
+
+    @ConstructorProperties({ "tmName", "queryCount", "hitCount",
+            "meanLatencyMillis", "maxLatencyMillis", "latencyHistogram",
+            "indexSizeBytes" })
+    public TmStatistics(String tmName, long queryCount, long hitCount,
+            double meanLatencyMillis, double maxLatencyMillis,
+            long[] latencyHistogram, long indexSizeBytes) {
+        this.tmName = tmName;
+        this.queryCount = queryCount;
+        this.hitCount = hitCount;
+        this.meanLatencyMillis = meanLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.latencyHistogram = latencyHistogram;
+        this.indexSizeBytes = indexSizeBytes;
+    }
+
+    public String getTmName() {
+        return tmName;
+    }
+
+    /**
+     * Return the number of searches run on the TM.
+     */
+    public long getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Return the number of searches having found at least one match.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public double getMeanLatencyMillis() {
+        return meanLatencyMillis;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    /**
+     * Return the number of searches by latency, in the buckets of
+     * {@link TmMetricsMXBean#getLatencyBucketBounds()}.
+     */
+    public long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+
+    /**
+     * Return the size of the TM index when its seeker was last opened, or -1
+     * if unknown.
+     */
+    public long getIndexSizeBytes() {
+        return indexSizeBytes;
+    }
+}
@@ -7,6 +7,7 @@ import com.google.common.eventbus.Subscribe;
 import com.vistatec.ocelot.config.ConfigService;
 import com.vistatec.ocelot.events.ConcordanceSearchEvent;
 import com.vistatec.ocelot.events.ConfigTmRequestEvent;
+import com.vistatec.ocelot.events.LeverageAnalysisRequestEvent;
 import com.vistatec.ocelot.events.RefreshSegmentView;
 import com.vistatec.ocelot.events.SegmentSelectionEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -14,6 +15,7 @@ import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
 import com.vistatec.ocelot.tm.TmManager;
 import com.vistatec.ocelot.tm.TmService;
 import com.vistatec.ocelot.tm.gui.configuration.TmGuiConfigController;
+import com.vistatec.ocelot.tm.gui.leverage.LeverageAnalysisController;
 import com.vistatec.ocelot.tm.gui.match.TmGuiMatchController;
 
 /**
@@ -30,6 +32,9 @@ public class TmGuiManager implements OcelotEventQueueListener {
 	 * functionalities.
 	 */
 	private TmGuiMatchController matchController;
+
+	/** Object managing the leverage analysis of the open document. */
+	private LeverageAnalysisController leverageController;
 	
 	
 
@@ -50,6 +55,8 @@ public class TmGuiManager implements OcelotEventQueueListener {
 
 		configController = new TmGuiConfigController(tmManager, cfgService);
 		matchController = new TmGuiMatchController(tmService, eventQueue);
+		leverageController = new LeverageAnalysisController(tmService,
+		        eventQueue);
 	}
 
 	/**
@@ -92,6 +99,18 @@ public class TmGuiManager implements OcelotEventQueueListener {
 		configController.openTmConfigDialog(e.getCurrentWindow());
 	}
 
+	/**
+	 * Handles the event the user requests a leverage analysis of the open
+	 * document.
+	 * 
+	 * @param e
+	 *            the event to handle
+	 */
+	@Subscribe
+	public void handleLeverageAnalysisRequest(LeverageAnalysisRequestEvent e) {
+		leverageController.runAnalysis(e.getCurrentWindow());
+	}
+
 	/**
 	 * Handles the event the user requests to perform a concordance search.
 	 * 
@@ -121,6 +140,6 @@ public class TmGuiManager implements OcelotEventQueueListener {
 	
 	@Subscribe
     public void updateSegmentView(RefreshSegmentView event){
-		matchController.update(event.getSegmentNumber());
+		matchController.update(event.getSegmentNumbers());
 	}
 }
@@ -96,6 +96,9 @@ public class TmConfigDialog extends JDialog implements Runnable, ActionListener
 	/** Settings button. */
 	private JButton btnSettings;
 
+	/** Diagnostics button. */
+	private JButton btnDiagnostics;
+
 	/** Save button. */
 	private JButton btnSave;
 
@@ -158,6 +161,10 @@ public class TmConfigDialog extends JDialog implements Runnable, ActionListener
 		icon = new ImageIcon(kit.createImage(Ocelot.class
                 .getResource(TmIconsConst.SETTINGS_ICO)));
 		configButton(btnSettings, btnDim, icon);
+
+		// create DIAGNOSTICS button.
+		btnDiagnostics = new JButton("Diagnostics");
+		configButton(btnDiagnostics, btnDim, null);
 		
 		// create CHANGE DIR button.
 		btnChangeDir = new JButton("Change Dir");
@@ -186,6 +193,7 @@ public class TmConfigDialog extends JDialog implements Runnable, ActionListener
         separator.setPreferredSize(new Dimension(2, 20));
         topButtonPanel.add(separator);
         topButtonPanel.add(btnSettings);
+        topButtonPanel.add(btnDiagnostics);
 		separator = new JSeparator(JSeparator.VERTICAL);
 		separator.setPreferredSize(new Dimension(2, 20));
 		topButtonPanel.add(separator);
@@ -446,6 +454,8 @@ public class TmConfigDialog extends JDialog implements Runnable, ActionListener
 			cancel();
 		} else if (btnSettings.equals(sourceBtn)){
             controller.openSettingsDialog();
+        } else if (btnDiagnostics.equals(sourceBtn)) {
+            controller.openDiagnosticsDialog();
         } else {
 			// remaining button actions need a selected row. If no row is
 			// selected, do nothing.
@@ -0,0 +1,216 @@
+package com.vistatec.ocelot.tm.gui.configuration;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+import com.google.common.primitives.Longs;
+import com.vistatec.ocelot.tm.TmMetrics;
+import com.vistatec.ocelot.tm.TmStatistics;
+
+/**
+ * Modal dialog displaying the performance counters of the TM searches: the
+ * latency and hit count of each TM, and the opened and closed seekers.
+ */
+public class TmDiagnosticsDialog extends JDialog implements Runnable,
+        ActionListener {
+
+    /** serial version UID. */
+    private static final long serialVersionUID = 4631720512784503811L;
+
+    /** Dialog width. */
+    private static final int WIDTH = 760;
+
+    /** Dialog height. */
+    private static final int HEIGHT = 300;
+
+    /** The table column names. */
+    private static final String[] COLUMNS = { "TM", "Searches", "Hits",
+            "Mean (ms)", "Max (ms)", "Latency Histogram", "Index Size (KB)" };
+
+    /** The controller. */
+    private TmGuiConfigController controller;
+
+    /** The metrics displayed. */
+    private TmMetrics metrics;
+
+    /** The statistics table model. */
+    private DefaultTableModel tableModel;
+
+    /** The label displaying the seeker counts. */
+    private JLabel lblSeekers;
+
+    /** The Refresh button. */
+    private JButton btnRefresh;
+
+    /** The Reset button. */
+    private JButton btnReset;
+
+    /** The Close button. */
+    private JButton btnClose;
+
+    /**
+     * Constructor.
+     * @param owner the owner dialog.
+     * @param controller the controller.
+     * @param metrics the metrics to display.
+     */
+    public TmDiagnosticsDialog(final JDialog owner,
+            final TmGuiConfigController controller, final TmMetrics metrics) {
+
+        super(owner, true);
+        this.controller = controller;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds the main panel, displaying the statistics table.
+     * @return the main panel.
+     */
+    private Component getMainPanel() {
+
+        tableModel = new DefaultTableModel(COLUMNS, 0) {
+
+            private static final long serialVersionUID = -3015632431357104785L;
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(tableModel);
+        table.getColumnModel().getColumn(5).setPreferredWidth(220);
+        lblSeekers = new JLabel();
+
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(lblSeekers, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    /**
+     * Builds the bottom panel displaying Refresh, Reset and Close buttons.
+     * @return the bottom panel.
+     */
+    private Component getBottomPanel() {
+
+        JPanel buttonPanel = new JPanel(
+                new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        btnRefresh = new JButton("Refresh");
+        btnRefresh.addActionListener(this);
+        btnReset = new JButton("Reset");
+        btnReset.addActionListener(this);
+        btnClose = new JButton("Close");
+        btnClose.addActionListener(this);
+        buttonPanel.add(btnRefresh);
+        buttonPanel.add(btnReset);
+        buttonPanel.add(btnClose);
+        return buttonPanel;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+
+        setTitle("TM Diagnostics");
+        setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        add(getMainPanel(), BorderLayout.CENTER);
+        add(getBottomPanel(), BorderLayout.SOUTH);
+        load();
+        pack();
+        setLocationRelativeTo(getOwner());
+        setVisible(true);
+    }
+
+    /**
+     * Loads the current metrics into the table.
+     */
+    private void load() {
+
+        tableModel.setRowCount(0);
+        for (TmStatistics stats : metrics.getTmStatistics()) {
+            tableModel.addRow(new Object[] {
+                    stats.getTmName(),
+                    stats.getQueryCount(),
+                    stats.getHitCount(),
+                    String.format("%.2f", stats.getMeanLatencyMillis()),
+                    String.format("%.2f", stats.getMaxLatencyMillis()),
+                    formatHistogram(stats.getLatencyHistogram()),
+                    stats.getIndexSizeBytes() < 0 ? "" : stats
+                            .getIndexSizeBytes() / 1024 });
+        }
+        lblSeekers.setText("Seekers opened: " + metrics.getSeekersOpened()
+                + "    Seekers closed: " + metrics.getSeekersClosed()
+                + "    Slow search threshold: "
+                + metrics.getSlowQueryThresholdMillis() + " ms");
+    }
+
+    /**
+     * Formats a latency histogram as the search count of each bucket.
+     * @param histogram the histogram.
+     * @return the formatted histogram.
+     */
+    private String formatHistogram(long[] histogram) {
+
+        List<Long> bounds = Longs.asList(metrics.getLatencyBucketBounds());
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) {
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(i < bounds.size() ? "<" + bounds.get(i) : ">="
+                    + bounds.get(bounds.size() - 1));
+            text.append("ms: ").append(histogram[i]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Closes the dialog.
+     */
+    private void close() {
+
+        controller.closeDialog();
+        setVisible(false);
+        dispose();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+
+        if (e.getSource().equals(btnRefresh)) {
+            load();
+        } else if (e.getSource().equals(btnReset)) {
+            metrics.reset();
+            load();
+        } else {
+            close();
+        }
+    }
+
+}
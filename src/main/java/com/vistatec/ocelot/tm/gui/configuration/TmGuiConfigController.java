@@ -54,6 +54,9 @@ public class TmGuiConfigController {
 	/** The TM Settings dialog. */
 	private TmSettingsDialog settingDialog;
 
+	/** The TM Diagnostics dialog. */
+	private TmDiagnosticsDialog diagnosticsDialog;
+
 	/** Current opened dialog. */
 	private JDialog currDialog;
 
@@ -307,6 +310,9 @@ public class TmGuiConfigController {
 		} else if (currDialog.equals(settingDialog)) {
 			currDialog = configDialog;
 			settingDialog = null;
+		} else if (currDialog.equals(diagnosticsDialog)) {
+			currDialog = configDialog;
+			diagnosticsDialog = null;
 		}
 	}
 
@@ -464,4 +470,15 @@ public class TmGuiConfigController {
 		currDialog = settingDialog;
 		SwingUtilities.invokeLater(settingDialog);
 	}
+
+	/**
+	 * Opens the TM Diagnostics dialog.
+	 */
+	public void openDiagnosticsDialog() {
+
+		diagnosticsDialog = new TmDiagnosticsDialog(configDialog, this,
+		        tmManager.getMetrics());
+		currDialog = diagnosticsDialog;
+		SwingUtilities.invokeLater(diagnosticsDialog);
+	}
 }
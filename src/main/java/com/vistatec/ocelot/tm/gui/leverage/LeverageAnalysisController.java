@@ -0,0 +1,235 @@
+package com.vistatec.ocelot.tm.gui.leverage;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.Subscribe;
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUpdateEvent;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.tm.TmService;
+import com.vistatec.ocelot.tm.leverage.LeverageAnalysis;
+import com.vistatec.ocelot.tm.leverage.LeverageAnalyzer;
+import com.vistatec.ocelot.tm.leverage.MatchBand;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * This class manages the leverage analysis of the open document: it runs the
+ * analysis in background, displays the segment and word counts for each match
+ * band and lets the user pre-fill the empty targets with the best TM matches.
+ */
+public class LeverageAnalysisController implements OcelotEventQueueListener {
+
+	/** The logger for this class. */
+	private static final Logger LOG = LoggerFactory
+	        .getLogger(LeverageAnalysisController.class);
+
+	/** Default minimum score for pre-filling the empty targets. */
+	private static final int DEF_PREFILL_SCORE = 95;
+
+	/** The dialog option pre-filling the empty targets. */
+	private static final String PREFILL_OPTION = "Pre-fill Empty Targets";
+
+	/** The dialog option closing the dialog. */
+	private static final String CLOSE_OPTION = "Close";
+
+	/** The analyzer. */
+	private LeverageAnalyzer analyzer;
+
+	/** The Ocelot event queue. */
+	private OcelotEventQueue eventQueue;
+
+	/** Current XLIFF document. */
+	private XLIFFDocument xliff;
+
+	/** The worker running the analysis; <code>null</code> if none. */
+	private SwingWorker<LeverageAnalysis, Void> analysisWorker;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tmService
+	 *            the TM service
+	 * @param eventQueue
+	 *            the Ocelot event queue.
+	 */
+	public LeverageAnalysisController(final TmService tmService,
+	        final OcelotEventQueue eventQueue) {
+
+		this.analyzer = new LeverageAnalyzer(tmService);
+		this.eventQueue = eventQueue;
+		eventQueue.registerListener(this);
+	}
+
+	@Subscribe
+	public void openFile(OpenFileEvent e) {
+		this.xliff = e.getDocument();
+	}
+
+	/**
+	 * Runs the leverage analysis of the open document in background and
+	 * displays the results once done.
+	 *
+	 * @param currentWindow
+	 *            the current window.
+	 */
+	public void runAnalysis(final Window currentWindow) {
+
+		if (xliff == null) {
+			JOptionPane.showMessageDialog(currentWindow,
+			        "Open a file to run the leverage analysis.",
+			        "Leverage Analysis", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		if (analysisWorker != null && !analysisWorker.isDone()) {
+			return;
+		}
+		final XLIFFDocument document = xliff;
+		analysisWorker = new SwingWorker<LeverageAnalysis, Void>() {
+
+			@Override
+			protected LeverageAnalysis doInBackground() throws Exception {
+				return analyzer.analyze(new ArrayList<OcelotSegment>(document
+				        .getSegments()));
+			}
+
+			@Override
+			protected void done() {
+				try {
+					displayAnalysis(currentWindow, document, get());
+				} catch (InterruptedException | ExecutionException e) {
+					LOG.error("Error while running the leverage analysis.", e);
+					JOptionPane.showMessageDialog(currentWindow,
+					        "An error occurred while running the leverage analysis.",
+					        "Leverage Analysis", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		};
+		analysisWorker.execute();
+	}
+
+	/**
+	 * Displays the analysis results and, if requested by the user, pre-fills
+	 * the empty targets.
+	 *
+	 * @param currentWindow
+	 *            the current window
+	 * @param document
+	 *            the analyzed document
+	 * @param analysis
+	 *            the analysis results
+	 */
+	private void displayAnalysis(Window currentWindow,
+	        XLIFFDocument document, LeverageAnalysis analysis) {
+
+		JTable table = new JTable(new LeverageTableModel(analysis));
+		table.setEnabled(false);
+		JScrollPane scrollPane = new JScrollPane(table);
+		scrollPane.setPreferredSize(new Dimension(350, 150));
+
+		JSpinner scoreSpinner = new JSpinner(new SpinnerNumberModel(
+		        DEF_PREFILL_SCORE, 0, 100, 1));
+		JPanel scorePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		scorePanel.add(new JLabel("Minimum score for pre-filling (%):"));
+		scorePanel.add(scoreSpinner);
+
+		JPanel panel = new JPanel(new BorderLayout());
+		panel.add(scrollPane, BorderLayout.CENTER);
+		panel.add(scorePanel, BorderLayout.SOUTH);
+
+		String[] options = { PREFILL_OPTION, CLOSE_OPTION };
+		int option = JOptionPane.showOptionDialog(currentWindow, panel,
+		        "Leverage Analysis", JOptionPane.DEFAULT_OPTION,
+		        JOptionPane.PLAIN_MESSAGE, null, options, CLOSE_OPTION);
+		if (option == 0) {
+			int minScore = (Integer) scoreSpinner.getValue();
+			Map<OcelotSegment, SegmentVariant> preTranslations = LeverageAnalyzer
+			        .getPreTranslations(analysis, minScore);
+			if (!preTranslations.isEmpty()) {
+				eventQueue.post(new SegmentTargetBatchUpdateEvent(document,
+				        preTranslations));
+			}
+			JOptionPane.showMessageDialog(currentWindow,
+			        preTranslations.size() + " empty target(s) pre-filled.",
+			        "Leverage Analysis", JOptionPane.INFORMATION_MESSAGE);
+		}
+	}
+
+	/**
+	 * Table model displaying segment and word counts for each match band.
+	 */
+	private static class LeverageTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final String[] COLUMN_NAMES = { "Match", "Segments",
+		        "Words" };
+
+		private final LeverageAnalysis analysis;
+
+		private final MatchBand[] bands = MatchBand.values();
+
+		public LeverageTableModel(LeverageAnalysis analysis) {
+			this.analysis = analysis;
+		}
+
+		@Override
+		public int getRowCount() {
+			return bands.length + 1;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMN_NAMES.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMN_NAMES[column];
+		}
+
+		@Override
+		public Object getValueAt(int rowIndex, int columnIndex) {
+			if (rowIndex == bands.length) {
+				switch (columnIndex) {
+				case 0:
+					return "Total";
+				case 1:
+					return analysis.getTotalSegmentCount();
+				default:
+					return analysis.getTotalWordCount();
+				}
+			}
+			MatchBand band = bands[rowIndex];
+			switch (columnIndex) {
+			case 0:
+				return band.getLabel();
+			case 1:
+				return analysis.getSegmentCount(band);
+			default:
+				return analysis.getWordCount(band);
+			}
+		}
+	}
+}
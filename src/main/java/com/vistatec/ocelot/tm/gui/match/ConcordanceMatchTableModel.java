@@ -1,5 +1,7 @@
 package com.vistatec.ocelot.tm.gui.match;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.vistatec.ocelot.segment.model.SegmentVariant;
@@ -7,6 +9,10 @@ import com.vistatec.ocelot.tm.TmMatch;
 
 /**
  * Data model assigned to the table displayed in the Concordance Search panel.
+ * The matches are displayed a page at a time: further pages are displayed
+ * when the user scrolls to the end of the table. Only the displayed rows and
+ * one more page are kept; the matches beyond them are dropped, and fetched
+ * again from the TMs when the user scrolls that far.
  */
 public class ConcordanceMatchTableModel extends TmMatchTableModel {
 
@@ -25,6 +31,30 @@ public class ConcordanceMatchTableModel extends TmMatchTableModel {
 	/** The TM name column index. */
 	private static final int TM_NAME_COL = 3;
 
+	/** The number of rows displayed at a time. */
+	static final int PAGE_SIZE = 50;
+
+	/** The number of matches kept before any page is scrolled. */
+	static final int INITIAL_CAPACITY = 2 * PAGE_SIZE;
+
+	/** Sorts the matches by decreasing score. */
+	private static final TmMatchComparator COMPARATOR = new TmMatchComparator();
+
+	/** The number of rows currently displayed. */
+	private int displayedRows = PAGE_SIZE;
+
+	/**
+	 * States if more matches than those kept may exist, because some were
+	 * dropped or a TM may have more.
+	 */
+	private boolean truncated;
+
+	/** The matches being fetched again, if any. */
+	private List<TmMatch> fetchedMatches;
+
+	/** States if more matches than those fetched may exist. */
+	private boolean fetchTruncated;
+
 	/**
 	 * Constructor.
 	 * 
@@ -36,6 +66,153 @@ public class ConcordanceMatchTableModel extends TmMatchTableModel {
 		super(model, new String[] { "", "", "", "" });
 	}
 
+	/**
+	 * Sets the TM list, displaying its first page only.
+	 * 
+	 * @param model
+	 *            the TM list.
+	 * @see com.vistatec.ocelot.tm.gui.match.TmMatchTableModel#setModel(java.util.List)
+	 */
+	@Override
+	public void setModel(List<TmMatch> model) {
+		displayedRows = PAGE_SIZE;
+		truncated = false;
+		fetchedMatches = null;
+		super.setModel(model);
+	}
+
+	/**
+	 * Gets the number of matches kept: the displayed rows and one more page.
+	 * 
+	 * @return the number of matches.
+	 */
+	public int getCapacity() {
+		return displayedRows + PAGE_SIZE;
+	}
+
+	/**
+	 * Adds the matches of a TM to the model, kept sorted by decreasing score.
+	 * The matches are sorted, then merged with the model, and the matches
+	 * exceeding the capacity are dropped. While the matches are fetched
+	 * again, they are added to the fetched matches instead.
+	 * 
+	 * @param matches
+	 *            the matches to add.
+	 * @param complete
+	 *            <code>false</code> if the TM may have more matches than
+	 *            those added.
+	 */
+	public void addMatches(List<TmMatch> matches, boolean complete) {
+		if (fetchedMatches != null) {
+			int size = fetchedMatches.size() + matches.size();
+			fetchedMatches = merge(fetchedMatches, matches);
+			fetchTruncated |= !complete || fetchedMatches.size() < size;
+			return;
+		}
+		if (model == null) {
+			model = new ArrayList<TmMatch>();
+		}
+		int size = model.size() + matches.size();
+		model = merge(model, matches);
+		truncated |= !complete || model.size() < size;
+		fireTableDataChanged();
+	}
+
+	/**
+	 * Merges a batch of matches with sorted matches, keeping at most the
+	 * capacity. Matches having the same score keep the order in which they
+	 * were added.
+	 * 
+	 * @param sortedMatches
+	 *            the sorted matches
+	 * @param matches
+	 *            the batch of matches
+	 * @return the merged matches.
+	 */
+	private List<TmMatch> merge(List<TmMatch> sortedMatches,
+	        List<TmMatch> matches) {
+		List<TmMatch> batch = new ArrayList<TmMatch>(matches);
+		Collections.sort(batch, COMPARATOR);
+		int capacity = getCapacity();
+		List<TmMatch> merged = new ArrayList<TmMatch>(Math.min(capacity,
+		        sortedMatches.size() + batch.size()));
+		int i = 0;
+		int j = 0;
+		while (merged.size() < capacity
+		        && (i < sortedMatches.size() || j < batch.size())) {
+			if (j == batch.size()
+			        || (i < sortedMatches.size() && COMPARATOR.compare(
+			                sortedMatches.get(i), batch.get(j)) <= 0)) {
+				merged.add(sortedMatches.get(i++));
+			} else {
+				merged.add(batch.get(j++));
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Checks whether some matches are not displayed yet.
+	 * 
+	 * @return <code>true</code> if some matches are not displayed yet.
+	 */
+	public boolean hasMoreRows() {
+		return truncated || (model != null && model.size() > displayedRows);
+	}
+
+	/**
+	 * Displays the next page of the kept matches.
+	 */
+	public void loadNextPage() {
+		if (model != null && model.size() > displayedRows) {
+			int firstRow = displayedRows;
+			displayedRows += PAGE_SIZE;
+			fireTableRowsInserted(firstRow, getRowCount() - 1);
+		}
+	}
+
+	/**
+	 * Checks whether the matches must be fetched again: the kept matches do
+	 * not fill the capacity, while more matches may exist.
+	 * 
+	 * @return <code>true</code> if the matches must be fetched again.
+	 */
+	public boolean isFetchNeeded() {
+		return truncated && fetchedMatches == null
+		        && (model == null || model.size() < getCapacity());
+	}
+
+	/**
+	 * Starts fetching the matches again. The matches added until the fetch is
+	 * ended replace the current ones then.
+	 */
+	public void startFetch() {
+		fetchedMatches = new ArrayList<TmMatch>();
+		fetchTruncated = false;
+	}
+
+	/**
+	 * Ends fetching the matches again, displaying the fetched matches.
+	 */
+	public void endFetch() {
+		if (fetchedMatches != null) {
+			model = fetchedMatches;
+			truncated = fetchTruncated;
+			fetchedMatches = null;
+			fireTableDataChanged();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.vistatec.ocelot.tm.gui.match.TmMatchTableModel#getRowCount()
+	 */
+	@Override
+	public int getRowCount() {
+		return Math.min(super.getRowCount(), displayedRows);
+	}
+
 	/**
 	 * Gets the class of the objects displayed in the queried column.
 	 * 
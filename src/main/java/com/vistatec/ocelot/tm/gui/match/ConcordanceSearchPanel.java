@@ -10,7 +10,11 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.awt.event.KeyEvent;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,6 +31,10 @@ import javax.swing.JTextField;
 import javax.swing.JTextPane;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableColumn;
 import javax.swing.text.BadLocationException;
@@ -36,6 +44,7 @@ import com.vistatec.ocelot.Ocelot;
 import com.vistatec.ocelot.segment.model.SegmentAtom;
 import com.vistatec.ocelot.segment.model.TextAtom;
 import com.vistatec.ocelot.tm.TmMatch;
+import com.vistatec.ocelot.tm.TmService;
 import com.vistatec.ocelot.tm.gui.AbstractDetachableTmPanel;
 import com.vistatec.ocelot.tm.gui.constants.TmIconsConst;
 
@@ -43,6 +52,10 @@ import com.vistatec.ocelot.tm.gui.constants.TmIconsConst;
  * This panel implements the Concordance Search functionality. It is detachable,
  * i.e. by pressing the appropriate button the panel is detached from the Ocelot
  * main frame and it is displayed inside its own window.
+ * <p>
+ * The search runs in background and is started as the user types, once the
+ * typing pauses. The matches of each TM are displayed as soon as the TM
+ * answers.
  */
 public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 
@@ -55,6 +68,18 @@ public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 	/** Search button size. */
 	private static final int SEARCH_BTN_SIZE = 25;
 
+	/** Typing pause, in milliseconds, after which the search is started. */
+	private static final int TYPE_AHEAD_DELAY = 400;
+
+	/** Minimum length of the typed text for the search to start. */
+	private static final int TYPE_AHEAD_MIN_LENGTH = 3;
+
+	/**
+	 * Number of rows from the end of the table at which the next page is
+	 * loaded.
+	 */
+	private static final int NEXT_PAGE_THRESHOLD = 10;
+
 	/** The search text field. */
 	private JTextField txtSearch;
 
@@ -85,6 +110,15 @@ public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 	/** The table cell renderer assigned to the source column. */
 	private ConcordanceCellRenderer sourceColRenderer;
 
+	/** Timer starting the search when the typing pauses. */
+	private Timer typeAheadTimer;
+
+	/** The worker running the current search. */
+	private ConcordanceWorker concordanceWorker;
+
+	/** The text of the current search. */
+	private String searchedText;
+
 	/**
 	 * Constructor.
 	 * 
@@ -109,6 +143,33 @@ public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 		txtSearch.setMinimumSize(txtDim);
 		txtSearch.setMaximumSize(txtDim);
 		txtSearch.addActionListener(this);
+		typeAheadTimer = new Timer(TYPE_AHEAD_DELAY, new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (txtSearch.getText().trim().length() >= TYPE_AHEAD_MIN_LENGTH) {
+					performConcordanceSearch();
+				}
+			}
+		});
+		typeAheadTimer.setRepeats(false);
+		txtSearch.getDocument().addDocumentListener(new DocumentListener() {
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				typeAheadTimer.restart();
+			}
+
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				typeAheadTimer.restart();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				// attribute changes do not change the text
+			}
+		});
 		// Build and configure the search button.
 		Toolkit kit = Toolkit.getDefaultToolkit();
 		ImageIcon icon = new ImageIcon(kit.createImage(Ocelot.class
@@ -181,6 +242,14 @@ public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 		gridBag.fill = GridBagConstraints.BOTH;
 		gridBag.anchor = GridBagConstraints.NORTH;
 		scrollPanel = new JScrollPane();
+		scrollPanel.getVerticalScrollBar().addAdjustmentListener(
+		        new AdjustmentListener() {
+
+			        @Override
+			        public void adjustmentValueChanged(AdjustmentEvent e) {
+				        loadNextPageIfScrolledToEnd();
+			        }
+		        });
 		concordancePanel.add(scrollPanel, gridBag);
 
 	}
@@ -223,60 +292,68 @@ public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 	}
 
 	/**
-	 * Performs the concordance search.
+	 * Performs the concordance search in background. A search still running
+	 * for a previous text is cancelled, and its results are never displayed.
 	 */
 	private void performConcordanceSearch() {
 
+		typeAheadTimer.stop();
+		if (concordanceWorker != null) {
+			concordanceWorker.cancel(false);
+			concordanceWorker = null;
+		}
+		targetEditor.stopCellEditing();
 		if (txtSearch.getText() != null && !txtSearch.getText().isEmpty()) {
 			setLoading();
-			sourceColRenderer.setSearchedString(txtSearch.getText());
-
-			SegmentAtom text = new TextAtom(txtSearch.getText());
-			final List<TmMatch> results = controller
-			        .getConcordanceMatches(Arrays
-			                .asList(new SegmentAtom[] { text }));
-
-			if (results != null && !results.isEmpty()) {
-				targetEditor.stopCellEditing();
-				SwingUtilities.invokeLater(new Runnable() {
+			searchedText = txtSearch.getText();
+			sourceColRenderer.setSearchedString(searchedText);
+			concordanceWorker = new ConcordanceWorker(searchedText,
+			        ConcordanceMatchTableModel.INITIAL_CAPACITY, false);
+			concordanceWorker.execute();
+		} else {
+			displayNoResults();
+		}
+	}
 
-					@Override
-					public void run() {
-						tableModel.setModel(results);
-						scrollPanel.setViewportView(matchesTable);
-						scrollPanel.repaint();
-						matchesTable.getSelectionModel().setSelectionInterval(
-						        0, 0);
+	/**
+	 * Displays the info panel with the "No results" label.
+	 */
+	private void displayNoResults() {
+		SwingUtilities.invokeLater(new Runnable() {
 
-					}
-				});
-			} else {
-				SwingUtilities.invokeLater(new Runnable() {
-
-					@Override
-					public void run() {
-						infoPanel.removeAll();
-						infoPanel.add(lblNoResults);
-						infoPanel.repaint();
-						scrollPanel.setViewportView(infoPanel);
-						scrollPanel.repaint();
-					}
-				});
+			@Override
+			public void run() {
+				infoPanel.removeAll();
+				infoPanel.add(lblNoResults);
+				infoPanel.repaint();
+				scrollPanel.setViewportView(infoPanel);
+				scrollPanel.repaint();
 			}
+		});
+	}
 
-		} else {
-			targetEditor.stopCellEditing();
-			SwingUtilities.invokeLater(new Runnable() {
-
-				@Override
-				public void run() {
-					infoPanel.removeAll();
-					infoPanel.add(lblNoResults);
-					infoPanel.repaint();
-					scrollPanel.setViewportView(infoPanel);
-					scrollPanel.repaint();
-				}
-			});
+	/**
+	 * Loads the next page of matches when the table is scrolled close to its
+	 * end. The matches are fetched again from the TMs once the kept matches
+	 * do not fill the next page.
+	 */
+	private void loadNextPageIfScrolledToEnd() {
+		if (scrollPanel.getViewport().getView() != matchesTable
+		        || !tableModel.hasMoreRows()) {
+			return;
+		}
+		int scrollEnd = scrollPanel.getVerticalScrollBar().getValue()
+		        + scrollPanel.getVerticalScrollBar().getVisibleAmount();
+		int threshold = scrollPanel.getVerticalScrollBar().getMaximum()
+		        - NEXT_PAGE_THRESHOLD * matchesTable.getRowHeight();
+		if (scrollEnd >= threshold) {
+			tableModel.loadNextPage();
+			if (concordanceWorker == null && tableModel.isFetchNeeded()) {
+				tableModel.startFetch();
+				concordanceWorker = new ConcordanceWorker(searchedText,
+				        tableModel.getCapacity(), true);
+				concordanceWorker.execute();
+			}
 		}
 	}
 
@@ -356,6 +433,98 @@ public class ConcordanceSearchPanel extends AbstractDetachableTmPanel {
 
 	}
 
+	/**
+	 * Worker running a concordance search. The matches of each TM are added to
+	 * the table as soon as they are found, as long as the search is the latest
+	 * one. When the matches are fetched again to display more rows, the
+	 * fetched matches replace the displayed ones at once.
+	 */
+	private class ConcordanceWorker extends SwingWorker<Void, List<TmMatch>>
+	        implements TmService.ConcordanceListener {
+
+		/** The searched text. */
+		private final String searchText;
+
+		/** The maximum number of matches per TM. */
+		private final int maxResults;
+
+		/** Whether the matches are fetched again. */
+		private final boolean fetch;
+
+		/** Whether any match has been displayed. */
+		private boolean matchesDisplayed;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param searchText
+		 *            the searched text.
+		 * @param maxResults
+		 *            the maximum number of matches per TM.
+		 * @param fetch
+		 *            <code>true</code> if the matches are fetched again.
+		 */
+		public ConcordanceWorker(String searchText, int maxResults,
+		        boolean fetch) {
+			this.searchText = searchText;
+			this.maxResults = maxResults;
+			this.fetch = fetch;
+		}
+
+		@Override
+		protected Void doInBackground() throws Exception {
+			SegmentAtom text = new TextAtom(searchText);
+			controller.getConcordanceMatches(
+			        Arrays.asList(new SegmentAtom[] { text }), maxResults,
+			        this);
+			return null;
+		}
+
+		@Override
+		public void matchesFound(List<TmMatch> matches) {
+			publish(matches);
+		}
+
+		@Override
+		protected void process(List<List<TmMatch>> chunks) {
+			if (isCancelled() || concordanceWorker != this) {
+				return;
+			}
+			if (!matchesDisplayed && !fetch) {
+				matchesDisplayed = true;
+				tableModel.setModel(new ArrayList<TmMatch>());
+				scrollPanel.setViewportView(matchesTable);
+			}
+			for (List<TmMatch> matches : chunks) {
+				// a TM returning the maximum may have more matches
+				tableModel.addMatches(matches, matches.size() < maxResults);
+			}
+			if (!fetch) {
+				matchesTable.getSelectionModel().setSelectionInterval(0, 0);
+			}
+			scrollPanel.repaint();
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled() || concordanceWorker != this) {
+				return;
+			}
+			concordanceWorker = null;
+			if (fetch) {
+				int selRow = matchesTable.getSelectedRow();
+				tableModel.endFetch();
+				if (selRow != -1 && selRow < tableModel.getRowCount()) {
+					matchesTable.getSelectionModel().setSelectionInterval(
+					        selRow, selRow);
+				}
+				scrollPanel.repaint();
+			} else if (!matchesDisplayed) {
+				displayNoResults();
+			}
+		}
+	}
+
 	/**
 	 * Makes the window that will contain the detached component.
 	 */
@@ -9,9 +9,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JOptionPane;
 import javax.swing.JTabbedPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import net.sf.okapi.common.LocaleId;
 import net.sf.okapi.common.resource.TextContainer;
@@ -24,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.vistatec.ocelot.events.OpenFileEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateFromMatchEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -47,6 +54,9 @@ import com.vistatec.ocelot.xliff.XLIFFDocument;
 public class TmGuiMatchController implements OcelotEventQueueListener {
     private static final Logger LOG = LoggerFactory.getLogger(TmGuiMatchController.class);
 
+	/** The number of segments following the selected one to be prefetched. */
+	private static final int PREFETCH_SEGMENTS_COUNT = 5;
+
 	/**
 	 * The TM service providing methods for translations match and concordance
 	 * search.
@@ -74,6 +84,20 @@ public class TmGuiMatchController implements OcelotEventQueueListener {
 	/** Current XLIFF document. **/
 	private XLIFFDocument xliff;
 
+	/** The worker searching the translations for the selected segment. */
+	private TranslationsWorker translationsWorker;
+
+	/** The executor prefetching the matches for the following segments. */
+	private final ExecutorService prefetchExecutor = Executors
+	        .newSingleThreadExecutor(new ThreadFactoryBuilder()
+	                .setDaemon(true).setNameFormat("tm-prefetch-%d").build());
+
+	/**
+	 * Incremented at every selection and opened file, so that prefetching for
+	 * a previous selection stops.
+	 */
+	private final AtomicInteger prefetchGeneration = new AtomicInteger();
+
 	/**
 	 * Constructor.
 	 * 
@@ -92,7 +116,9 @@ public class TmGuiMatchController implements OcelotEventQueueListener {
 
 	@Subscribe
 	public void openFile(OpenFileEvent e) {
-	    this.xliff = e.getDocument();
+		this.xliff = e.getDocument();
+		// the segments of the previous file are not prefetched anymore
+		prefetchGeneration.incrementAndGet();
 	}
 
 	/**
@@ -117,28 +143,38 @@ public class TmGuiMatchController implements OcelotEventQueueListener {
 	}
 
 	/**
-	 * Gets the results of the Concordance Search.
+	 * Gets the results of the Concordance Search, TM by TM. It is invoked on a
+	 * worker thread, and returns once all the TMs have answered.
 	 * 
 	 * @param currentSelection
 	 *            list of segment atoms containg the searched string.
-	 * @return the segments matching the concordance string.
+	 * @param maxResults
+	 *            the maximum number of matches per TM.
+	 * @param listener
+	 *            the listener receiving the segments matching the concordance
+	 *            string.
 	 */
-	public List<TmMatch> getConcordanceMatches(
-	        List<SegmentAtom> currentSelection) {
+	public void getConcordanceMatches(List<SegmentAtom> currentSelection,
+	        int maxResults, TmService.ConcordanceListener listener) {
 
-		List<TmMatch> matches = null;
 		try {
-			matches = tmService.getConcordanceMatches(currentSelection);
+			tmService.getConcordanceMatches(currentSelection, maxResults,
+			        listener);
 		} catch (IOException e) {
 			LOG.trace("Error while retrieving concordance search matches.", e);
-			JOptionPane
-			        .showMessageDialog(
-			                concordancePanel.getAttachedComponent(),
-			                "An error has occured while finding concordance search matches.",
-			                "Concordance Search Error",
-			                JOptionPane.ERROR_MESSAGE);
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					JOptionPane
+					        .showMessageDialog(
+					                concordancePanel.getAttachedComponent(),
+					                "An error has occured while finding concordance search matches.",
+					                "Concordance Search Error",
+					                JOptionPane.ERROR_MESSAGE);
+				}
+			});
 		}
-		return matches;
 	}
 
 	/**
@@ -193,61 +229,122 @@ public class TmGuiMatchController implements OcelotEventQueueListener {
 		if (!selectedSegment.equals(currSelectedSegment)) {
 			this.currSelectedSegment = selectedSegment;
 			update();
+			prefetchFollowingSegments(selectedSegment);
+		}
+	}
+
+	/**
+	 * Searches in background the matches for the segments following the
+	 * selected one, so that the TM service caches them before the user moves
+	 * to the next segment.
+	 * 
+	 * @param selectedSegment
+	 *            the selected segment.
+	 */
+	private void prefetchFollowingSegments(OcelotSegment selectedSegment) {
+		if (xliff == null || translationsPanel == null) {
+			return;
+		}
+		final int generation = prefetchGeneration.incrementAndGet();
+		List<OcelotSegment> segments = xliff.getSegments();
+		int selectedIdx = segments.indexOf(selectedSegment);
+		if (selectedIdx < 0) {
+			return;
 		}
+		final List<OcelotSegment> followingSegments = new ArrayList<OcelotSegment>(
+		        segments.subList(selectedIdx + 1, Math.min(segments.size(),
+		                selectedIdx + 1 + PREFETCH_SEGMENTS_COUNT)));
+		prefetchExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				for (OcelotSegment segment : followingSegments) {
+					if (prefetchGeneration.get() != generation) {
+						return;
+					}
+					try {
+						tmService.getFuzzyTermMatches(segment.getSource()
+						        .getAtoms());
+					} catch (IOException e) {
+						LOG.trace("Error while prefetching fuzzy matches.", e);
+					}
+				}
+			}
+		});
 	}
 
 	/**
-	 * Updates the translation for a specific segment number.
+	 * Updates the translation if the selected segment is one of the specified
+	 * segments.
 	 * 
-	 * @param segmentNumber
-	 *            the segment number
+	 * @param segmentNumbers
+	 *            the segment numbers
 	 */
-	public void update(int segmentNumber) {
+	public void update(List<Integer> segmentNumbers) {
 
 		if (currSelectedSegment != null
-				&& currSelectedSegment.getSegmentNumber() == segmentNumber) {
+				&& segmentNumbers.contains(currSelectedSegment
+						.getSegmentNumber())) {
 			update();
 		}
 	}
 	
 	/**
-	 * Updates the translations in the panel.
+	 * Updates the translations in the panel. The matches are searched on a
+	 * worker thread; a search still running for a previously selected segment
+	 * is cancelled, and its results are never displayed.
 	 */
 	private void update() {
-		if (translationsPanel != null ) {
-				selectTranslationsTab();
-				translationsPanel.setLoading();
-				List<TmMatch> translations = getFuzzyMatches(currSelectedSegment
-				        .getSource().getAtoms());
-			if (currSelectedSegment.getSource() instanceof BaseSegmentVariant) {
-				TranslationEnrichment transEnrich = ((BaseSegmentVariant) currSelectedSegment
-						.getSource()).getTranslationEnrichment();
-				if (transEnrich != null) {
-					TmHit hit = new TmHit();
-					TranslationUnit tu = new TranslationUnit();
-					TextFragment fragment = new TextFragment(
-							transEnrich.getTranslation());
-					TranslationUnitVariant tuVariant = new TranslationUnitVariant(
-							new LocaleId(transEnrich.getLanguage()), fragment);
-					tu.setTarget(tuVariant);
-					tuVariant = new TranslationUnitVariant(null,
-							new TextFragment(currSelectedSegment.getSource()
-									.getDisplayText()));
-					tu.setSource(tuVariant);
-					hit.setTu(tu);
-					hit.setScore(100f);
-					TmMatch fremeMatch = new PensieveTmMatch(
-							"FREME e-Translation", hit);
-
-					if (translations == null) {
-						translations = new ArrayList<TmMatch>();
+		if (translationsPanel != null) {
+			selectTranslationsTab();
+			translationsPanel.setLoading();
+			if (translationsWorker != null) {
+				// the TM searches are not interrupted, as interrupting a
+				// thread reading a Lucene index closes the index files
+				translationsWorker.cancel(false);
 			}
-					translations.add(0, fremeMatch);
+			translationsWorker = new TranslationsWorker(currSelectedSegment);
+			translationsWorker.execute();
 		}
-
 	}
-			translationsPanel.setTranslationSearchResults(translations);
+
+	/**
+	 * Gets the translations for a segment: the TM matches and, if any, the
+	 * FREME e-Translation of its source.
+	 * 
+	 * @param segment
+	 *            the segment
+	 * @return the list of translations.
+	 */
+	private List<TmMatch> getTranslations(OcelotSegment segment) {
+		List<TmMatch> translations = getFuzzyMatches(segment.getSource()
+		        .getAtoms());
+		if (segment.getSource() instanceof BaseSegmentVariant) {
+			TranslationEnrichment transEnrich = ((BaseSegmentVariant) segment
+			        .getSource()).getTranslationEnrichment();
+			if (transEnrich != null) {
+				TmHit hit = new TmHit();
+				TranslationUnit tu = new TranslationUnit();
+				TextFragment fragment = new TextFragment(
+				        transEnrich.getTranslation());
+				TranslationUnitVariant tuVariant = new TranslationUnitVariant(
+				        new LocaleId(transEnrich.getLanguage()), fragment);
+				tu.setTarget(tuVariant);
+				tuVariant = new TranslationUnitVariant(null, new TextFragment(
+				        segment.getSource().getDisplayText()));
+				tu.setSource(tuVariant);
+				hit.setTu(tu);
+				hit.setScore(100f);
+				TmMatch fremeMatch = new PensieveTmMatch("FREME e-Translation",
+				        hit);
+
+				if (translations == null) {
+					translations = new ArrayList<TmMatch>();
+				}
+				translations.add(0, fremeMatch);
+			}
 		}
+		return translations;
 	}
 
 	/**
@@ -341,6 +438,50 @@ public class TmGuiMatchController implements OcelotEventQueueListener {
 		}
 	}
 
+	/**
+	 * Worker searching the translations for a selected segment. Results are
+	 * displayed only if the segment is still the latest selected one.
+	 */
+	private class TranslationsWorker extends SwingWorker<List<TmMatch>, Void> {
+
+		/** The segment whose translations are searched. */
+		private final OcelotSegment segment;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param segment
+		 *            the segment.
+		 */
+		public TranslationsWorker(OcelotSegment segment) {
+			this.segment = segment;
+		}
+
+		@Override
+		protected List<TmMatch> doInBackground() throws Exception {
+			if (isCancelled()) {
+				return null;
+			}
+			return getTranslations(segment);
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled() || translationsWorker != this) {
+				return;
+			}
+			translationsWorker = null;
+			try {
+				translationsPanel.setTranslationSearchResults(get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				LOG.error("Error while retrieving the translations.",
+				        e.getCause());
+				translationsPanel.setTranslationSearchResults(null);
+			}
+		}
+	}
 }
 
 /**
@@ -0,0 +1,75 @@
+package com.vistatec.ocelot.tm.leverage;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.tm.TmMatch;
+
+/**
+ * Result of a leverage analysis: the number of segments and source words in
+ * each match band, and the best match found for each segment.
+ */
+public class LeverageAnalysis {
+    private final Map<MatchBand, Integer> segmentCounts = new EnumMap<>(MatchBand.class);
+    private final Map<MatchBand, Integer> wordCounts = new EnumMap<>(MatchBand.class);
+    private final Map<OcelotSegment, TmMatch> bestMatches = new LinkedHashMap<>();
+
+    public LeverageAnalysis() {
+        for (MatchBand band : MatchBand.values()) {
+            segmentCounts.put(band, 0);
+            wordCounts.put(band, 0);
+        }
+    }
+
+    /**
+     * Add the result for a segment.
+     *
+     * @param segment the analyzed segment
+     * @param wordCount the number of words in the segment source
+     * @param bestMatch the best match for the segment, or null if there is none
+     */
+    void addSegment(OcelotSegment segment, int wordCount, TmMatch bestMatch) {
+        MatchBand band = bestMatch == null ? MatchBand.NO_MATCH
+                : MatchBand.fromScore(bestMatch.getMatchScore());
+        segmentCounts.put(band, segmentCounts.get(band) + 1);
+        wordCounts.put(band, wordCounts.get(band) + wordCount);
+        if (bestMatch != null) {
+            bestMatches.put(segment, bestMatch);
+        }
+    }
+
+    public int getSegmentCount(MatchBand band) {
+        return segmentCounts.get(band);
+    }
+
+    public int getWordCount(MatchBand band) {
+        return wordCounts.get(band);
+    }
+
+    public int getTotalSegmentCount() {
+        int total = 0;
+        for (int count : segmentCounts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public int getTotalWordCount() {
+        int total = 0;
+        for (int count : wordCounts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Get the best match of each segment having at least one match, in
+     * document order.
+     */
+    public Map<OcelotSegment, TmMatch> getBestMatches() {
+        return Collections.unmodifiableMap(bestMatches);
+    }
+}
@@ -0,0 +1,96 @@
+package com.vistatec.ocelot.tm.leverage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentAtom;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.segment.model.WordCounter;
+import com.vistatec.ocelot.tm.TmMatch;
+import com.vistatec.ocelot.tm.TmService;
+
+/**
+ * Runs a leverage analysis of a whole document against the configured TMs,
+ * searching the fuzzy matches of several segments in parallel on the threads
+ * of the {@link TmService}. Match scores are the ones returned by the service,
+ * i.e. after penalties, and words are counted like the quality plugin sample.
+ */
+public class LeverageAnalyzer {
+    /** The maximum number of segments searched at once. */
+    private static final int MAX_PARALLEL_SEARCHES = 4;
+
+    private final TmService tmService;
+
+    public LeverageAnalyzer(TmService tmService) {
+        this.tmService = tmService;
+    }
+
+    /**
+     * Analyze the segments of a document.
+     *
+     * @param segments the segments
+     * @return the leverage analysis
+     * @throws InterruptedException if the analysis is interrupted
+     */
+    public LeverageAnalysis analyze(List<OcelotSegment> segments) throws InterruptedException {
+        List<List<SegmentAtom>> sources = new ArrayList<>();
+        for (OcelotSegment segment : segments) {
+            sources.add(segment.getSource().getAtoms());
+        }
+        List<List<TmMatch>> matches = tmService.getUncachedFuzzyTermMatches(sources,
+                MAX_PARALLEL_SEARCHES);
+
+        LeverageAnalysis analysis = new LeverageAnalysis();
+        for (int i = 0; i < segments.size(); i++) {
+            OcelotSegment segment = segments.get(i);
+            analysis.addSegment(segment,
+                    WordCounter.countWords(segment.getSource().getDisplayText()),
+                    getBestMatch(matches.get(i)));
+        }
+        return analysis;
+    }
+
+    private static TmMatch getBestMatch(List<TmMatch> matches) {
+        TmMatch bestMatch = null;
+        for (TmMatch match : matches) {
+            if (bestMatch == null || match.getMatchScore() > bestMatch.getMatchScore()) {
+                bestMatch = match;
+            }
+        }
+        return bestMatch;
+    }
+
+    /**
+     * Get the targets pre-filling the empty targets of the editable segments
+     * whose best match reaches a minimum score. The new targets have the
+     * same variant type as the segment source.
+     *
+     * @param analysis the leverage analysis
+     * @param minScore the minimum match score
+     * @return the new targets, by segment
+     */
+    public static Map<OcelotSegment, SegmentVariant> getPreTranslations(
+            LeverageAnalysis analysis, float minScore) {
+        Map<OcelotSegment, SegmentVariant> preTranslations = new LinkedHashMap<>();
+        for (Map.Entry<OcelotSegment, TmMatch> entry : analysis.getBestMatches().entrySet()) {
+            OcelotSegment segment = entry.getKey();
+            TmMatch match = entry.getValue();
+            if (segment.isEditable() && hasEmptyTarget(segment)
+                    && match.getMatchScore() >= minScore
+                    && match.getTarget() != null) {
+                SegmentVariant target = segment.getSource().createEmptyTarget();
+                target.modifyChars(0, 0, match.getTarget().getDisplayText());
+                preTranslations.put(segment, target);
+            }
+        }
+        return preTranslations;
+    }
+
+    private static boolean hasEmptyTarget(OcelotSegment segment) {
+        return segment.getTarget() == null
+                || segment.getTarget().getDisplayText().trim().isEmpty();
+    }
+}
@@ -0,0 +1,46 @@
+package com.vistatec.ocelot.tm.leverage;
+
+/**
+ * Ranges of match scores used to report the TM leverage of a document.
+ */
+public enum MatchBand {
+    EXACT("100%", 100),
+    HIGH_FUZZY("95% - 99%", 95),
+    MEDIUM_FUZZY("85% - 94%", 85),
+    LOW_FUZZY("75% - 84%", 75),
+    POOR_FUZZY("50% - 74%", 50),
+    MINIMAL_FUZZY("0% - 49%", 0),
+    /** The band of the segments without any match, never reached by a score. */
+    NO_MATCH("No Match");
+
+    private final String label;
+    private final int minScore;
+
+    private MatchBand(String label, int minScore) {
+        this.label = label;
+        this.minScore = minScore;
+    }
+
+    private MatchBand(String label) {
+        this(label, Integer.MAX_VALUE);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the band of a match score. Scores are truncated, so that a 99.5%
+     * match is not reported as an exact match. Penalties may take a score
+     * below 0%, which is still a match of the lowest band.
+     */
+    public static MatchBand fromScore(float score) {
+        int truncatedScore = (int) score;
+        for (MatchBand band : values()) {
+            if (truncatedScore >= band.minScore) {
+                return band;
+            }
+        }
+        return MINIMAL_FUZZY;
+    }
+}
@@ -0,0 +1,108 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import net.sf.okapi.tm.pensieve.common.TranslationUnitField;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Hashes of the normalized exact sources of a Pensieve index, telling in a
+ * binary search whether a text may have exact matches. Only then is the index
+ * queried, on its exact source field, instead of running a fuzzy search.
+ * The hashes are read from the terms of the index, without loading any
+ * stored document, and take 8 bytes per distinct source. A source only
+ * differing from the text in whitespace is not an exact match.
+ */
+class ExactMatchIndex {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final String EXACT_FIELD = TranslationUnitField.SOURCE_EXACT.name();
+
+    /** Sorted hashes of the normalized sources. */
+    private final long[] hashes;
+    /**
+     * Sources differing from their normalized form, by hash. Only a text
+     * equal to one of them can match them exactly.
+     */
+    private final Map<Long, List<String>> unnormalizedSources;
+
+    private ExactMatchIndex(long[] hashes, Map<Long, List<String>> unnormalizedSources) {
+        this.hashes = hashes;
+        this.unnormalizedSources = unnormalizedSources;
+    }
+
+    static ExactMatchIndex build(IndexReader reader) throws IOException {
+        long[] hashes = new long[1024];
+        int count = 0;
+        Map<Long, List<String>> unnormalizedSources = new HashMap<>();
+        TermEnum terms = reader.terms(new Term(EXACT_FIELD, ""));
+        try {
+            do {
+                Term term = terms.term();
+                if (term == null || !EXACT_FIELD.equals(term.field())) {
+                    break;
+                }
+                String normalized = normalize(term.text());
+                long hash = hash(normalized);
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                }
+                hashes[count++] = hash;
+                if (!normalized.equals(term.text())) {
+                    List<String> sources = unnormalizedSources.get(hash);
+                    if (sources == null) {
+                        sources = new ArrayList<>(1);
+                        unnormalizedSources.put(hash, sources);
+                    }
+                    sources.add(term.text());
+                }
+            } while (terms.next());
+        } finally {
+            terms.close();
+        }
+        hashes = Arrays.copyOf(hashes, count);
+        Arrays.sort(hashes);
+        return new ExactMatchIndex(hashes, unnormalizedSources);
+    }
+
+    /**
+     * Tell whether a text may be indexed as it is: <code>false</code> when
+     * the text has no exact match.
+     */
+    boolean mayContain(String text) {
+        String normalizedText = normalize(text);
+        long hash = hash(normalizedText);
+        if (Arrays.binarySearch(hashes, hash) < 0) {
+            return false;
+        }
+        if (normalizedText.equals(text)) {
+            return true;
+        }
+        List<String> unnormalized = unnormalizedSources.get(hash);
+        return unnormalized != null && unnormalized.contains(text);
+    }
+
+    /**
+     * Trim a text and collapse its whitespace.
+     */
+    static String normalize(String text) {
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ");
+    }
+
+    private static long hash(String normalizedText) {
+        return HASH.hashString(normalizedText, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -1,30 +1,43 @@
 package com.vistatec.ocelot.tm.okapi;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import net.sf.okapi.common.resource.TextFragment;
+import net.sf.okapi.tm.pensieve.common.MetadataType;
+import net.sf.okapi.tm.pensieve.common.TmHit;
 import net.sf.okapi.tm.pensieve.seeker.PensieveSeeker;
 import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.vistatec.ocelot.config.ConfigService;
 import com.vistatec.ocelot.config.ConfigTransferService;
 import com.vistatec.ocelot.config.ConfigTransferService.TransferException;
 import com.vistatec.ocelot.config.xml.TmManagement;
 import com.vistatec.ocelot.config.xml.TmManagement.TmConfig;
 import com.vistatec.ocelot.tm.TmManager;
+import com.vistatec.ocelot.tm.TmMetrics;
 import com.vistatec.ocelot.tm.TmTmxWriter;
 
 /**
@@ -36,6 +49,16 @@ public class OkapiTmManager implements TmManager {
 	private final File tmRootDir;
 	private final ConfigService cfgService;
 	private final TmTmxWriter tmxWriter;
+	/**
+	 * Seekers kept open between searches, by TM name. A seeker is replaced
+	 * only when the index of its TM changes.
+	 */
+	private final Map<String, SharedSeeker> seekers = new HashMap<>();
+	/** Incremented every time the index of a TM changes. */
+	private int indexVersion;
+	/** TM of the open document, searched before the configured TMs. */
+	private ProjectTm projectTm;
+	private final TmMetrics metrics = new TmMetrics();
 
 	public OkapiTmManager(File tmDir, ConfigService cfgService,
 	        TmTmxWriter tmxWriter) throws IOException,
@@ -144,9 +167,7 @@ public class OkapiTmManager implements TmManager {
 			if (tmxFiles != null && tmxFiles.length > 0) {
 				cfgService.createNewTmConfig(tmName, true,
 				        tmDataDir.getAbsolutePath());
-				for (File tmx : tmxFiles) {
-					indexTmx(tmName, tmx);
-				}
+				indexTmx(tmName, Arrays.asList(tmxFiles));
 			} else {
 				LOG.error("No files in given directory '{}'",
 				        tmDataDir.getAbsolutePath());
@@ -184,9 +205,7 @@ public class OkapiTmManager implements TmManager {
 				}
 				cfgService.createNewTmConfig(tmName, true,
 				        tmDataDir.getAbsolutePath(), configTmxFiles);
-				for (File tmx : tmxFiles) {
-					indexTmx(tmName, tmx);
-				}
+				indexTmx(tmName, Arrays.asList(tmxFiles));
 			} else {
 				LOG.error("Data directory '{}' does not exist",
 				        tmDataDir.getAbsolutePath());
@@ -222,6 +241,7 @@ public class OkapiTmManager implements TmManager {
 		deletePensieveIndex(tmName);
 		deleteFileDirectory(new File(tmRootDir, tmName));
 		removeTmConfig(config);
+		refreshSeeker(tmName);
 	}
 
 	@Override
@@ -247,6 +267,8 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	private void deletePensieveIndex(String tmName) throws IOException {
+		refreshSeeker(tmName);
+		getFingerprintsFile(tmName).delete();
 		File pensieveIndex = getDefaultPensieveDir(tmName);
 		try {
 			deleteFileDirectory(pensieveIndex);
@@ -283,12 +305,42 @@ public class OkapiTmManager implements TmManager {
 
 	@Override
 	public void regenerateTm(String tmName) throws IOException {
-		deletePensieveIndex(tmName);
 		TmManagement.TmConfig config = cfgService.getTmConfig(tmName);
-		File tmDataDir = new File(config.getTmDataDir());
+		syncIndex(tmName, new File(config.getTmDataDir()));
+	}
+
+	/**
+	 * Bring the index of a TM in line with the TMX files of a data directory.
+	 * Only the files added, changed or removed since they were indexed are
+	 * processed; an index without recorded fingerprints is rebuilt.
+	 */
+	private void syncIndex(String tmName, File tmDataDir) throws IOException {
+		TmxFingerprints fingerprints = TmxFingerprints
+		        .load(getFingerprintsFile(tmName));
+		if (!getDefaultPensieveDir(tmName).exists()
+		        || !fingerprints.isRecorded()) {
+			deletePensieveIndex(tmName);
+			indexTmx(tmName, Arrays.asList(tmDataDir.listFiles()));
+			return;
+		}
+
+		List<File> changedFiles = new ArrayList<>();
+		Set<String> removedFiles = new HashSet<>(fingerprints.getPaths());
 		for (File tmx : tmDataDir.listFiles()) {
-			indexTmx(tmName, tmx);
+			removedFiles.remove(TmxFingerprints.path(tmx));
+			if (fingerprints.hasChanged(tmx)) {
+				changedFiles.add(tmx);
+			}
 		}
+		if (changedFiles.isEmpty() && removedFiles.isEmpty()) {
+			LOG.debug("TM '{}' index is up to date", tmName);
+			fingerprints.save();
+			refreshSeeker(tmName);
+			return;
+		}
+		LOG.debug("TM '{}': re-indexing {}, removing {}", tmName,
+		        changedFiles, removedFiles);
+		updateIndex(tmName, changedFiles, removedFiles);
 	}
 
 	private String constructDefaultTmDataDir(String tmName) {
@@ -306,6 +358,14 @@ public class OkapiTmManager implements TmManager {
 		return new File(fileTm, "pensieve");
 	}
 
+	/**
+	 * The file recording the fingerprints of the TMX files in the Pensieve
+	 * index of a TM.
+	 */
+	private File getFingerprintsFile(String tmName) {
+		return new File(new File(tmRootDir, tmName), "pensieve.fingerprints");
+	}
+
 	@Override
 	public void changeTmDataDir(String tmName, File tmDataDir)
 	        throws IOException, ConfigTransferService.TransferException {
@@ -318,9 +378,7 @@ public class OkapiTmManager implements TmManager {
 			LOG.debug("Set TM data directory from '{}' to '{}'",
 			        tmConfig.getTmDataDir(), tmDataDir.getAbsolutePath());
 
-			for (File tmxFile : tmDataDir.listFiles()) {
-				indexTmx(tmName, tmxFile);
-			}
+			syncIndex(tmName, tmDataDir);
 			cfgService.saveTmDataDir(tmConfig, tmDataDir.getAbsolutePath());
 		}
 		LOG.debug(
@@ -353,8 +411,10 @@ public class OkapiTmManager implements TmManager {
 			tmDataDir.mkdirs();
 		}
 
-		ByteSource tmxSource = Files.asByteSource(tmx);
-		tmxSource.copyTo(new FileOutputStream(new File(tmDataDir, tmName)));
+		// the copy is the file indexed and fingerprinted, so that syncing the
+		// data directory later finds it unchanged
+		File tmxCopy = new File(tmDataDir, tmx.getName());
+		Files.copy(tmx, tmxCopy);
 
 		if (config == null) {
 			try {
@@ -368,25 +428,105 @@ public class OkapiTmManager implements TmManager {
 				throw new IOException(errorMsg, e);
 			}
 		}
-		indexTmx(tmName, tmx);
+		indexTmx(tmName, Collections.singletonList(tmxCopy));
 	}
 
-	private void indexTmx(String tmName, File tmx) throws IOException {
+	/**
+	 * Index TMX files into the Pensieve index of a TM, replacing the units
+	 * previously indexed from files with the same names.
+	 */
+	private void indexTmx(String tmName, List<File> tmxFiles) throws IOException {
+		updateIndex(tmName, tmxFiles, Collections.<String> emptySet());
+	}
+
+	/**
+	 * Update the Pensieve index of a TM: remove the units of the removed
+	 * files, given by their recorded paths, and of the changed files, then
+	 * index the changed files, parsing them in parallel and writing all of
+	 * them with a single index writer.
+	 */
+	private void updateIndex(final String tmName, List<File> tmxFiles,
+	        Collection<String> removedFiles) throws IOException {
 		DirectoryWrapper luceneIndex;
 		try {
 			luceneIndex = loadTm(tmName);
 		} catch (ConfigTransferService.TransferException e) {
 			LOG.error(
 			        "Failed to save new TM configuration for '{}' when importing '{}'",
-			        tmName, tmx.getAbsolutePath());
+			        tmName, tmxFiles);
 			throw new IOException(e);
 		}
 
+		TmxFingerprints fingerprints = TmxFingerprints
+		        .load(getFingerprintsFile(tmName));
+		// units of an index without fingerprints cannot be told apart by
+		// file, so fingerprints are only recorded from a new index on
+		boolean recordFingerprints = !luceneIndex.hasPensieveIndex
+		        || fingerprints.isRecorded();
 		PensieveWriter writer = new PensieveWriter(luceneIndex.luceneDir,
 		        !luceneIndex.hasPensieveIndex);
-		OkapiTmTmxImporter parser = new OkapiTmTmxImporter();
-		parser.parse(tmx, writer);
-		writer.close();
+		boolean updated = false;
+		try {
+			if (luceneIndex.hasPensieveIndex) {
+				for (String removed : removedFiles) {
+					deleteFileUnits(writer, new File(removed).getName());
+					fingerprints.remove(removed);
+				}
+				for (File tmx : tmxFiles) {
+					deleteFileUnits(writer, tmx.getName());
+				}
+			}
+			long start = System.currentTimeMillis();
+			long tus = new TmxImportPipeline(
+			        new TmxImportPipeline.ProgressListener() {
+				        @Override
+				        public void fileParsed(File tmx, int parsedFiles,
+				                int totalFiles) {
+					        LOG.debug("TM '{}': parsed '{}' ({}/{})", tmName,
+					                tmx.getName(), parsedFiles, totalFiles);
+				        }
+
+				        @Override
+				        public void unitsIndexed(long indexedUnits) {
+					        LOG.trace("TM '{}': {} TUs indexed", tmName,
+					                indexedUnits);
+				        }
+			        }).importTmx(tmxFiles, writer, !luceneIndex.hasPensieveIndex);
+			LOG.debug("TM '{}': indexed {} TUs in {} ms", tmName, tus,
+			        System.currentTimeMillis() - start);
+			writer.commit();
+			if (recordFingerprints) {
+				for (File tmx : tmxFiles) {
+					fingerprints.put(tmx);
+				}
+				fingerprints.save();
+			}
+			updated = true;
+		} finally {
+			// closing the writer commits: a failed update is rolled back
+			// instead, so that the index keeps its previous units
+			if (updated) {
+				writer.close();
+			} else {
+				rollback(tmName, writer);
+			}
+			refreshSeeker(tmName);
+		}
+	}
+
+	private void rollback(String tmName, PensieveWriter writer) {
+		try {
+			writer.getIndexWriter().rollback();
+		} catch (IOException e) {
+			LOG.error("Failed to roll back the index update of TM '" + tmName
+			        + "'", e);
+		}
+	}
+
+	private void deleteFileUnits(PensieveWriter writer, String tmxFileName)
+	        throws IOException {
+		writer.getIndexWriter().deleteDocuments(
+		        new Term(MetadataType.FILE_NAME.fieldName(), tmxFileName));
 	}
 
 	/**
@@ -404,21 +544,108 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	/**
-	 * Return searchable TMs, in the TmConfig list order.
+	 * Set the project TM to be searched along with the configured TMs.
+	 */
+	public synchronized void setProjectTm(ProjectTm projectTm) {
+		this.projectTm = projectTm;
+	}
+
+	/**
+	 * Return searchable TMs: the project TM, if any, followed by the
+	 * configured TMs in the TmConfig list order. The seekers are
+	 * shared with other searches: each returned {@link TmPair} must be
+	 * released once the search is done.
 	 */
 	Iterator<TmPair> getSeekers() throws IOException {
-		List<TmPair> seekers = new ArrayList<>();
-		for (TmManagement.TmConfig tm : this.cfgService.getTms()) {
-			try {
-				DirectoryWrapper luceneIndex = loadTm(tm.getTmName());
-				seekers.add(new TmPair(tm.getTmName(), new PensieveSeeker(
-				        luceneIndex.luceneDir)));
-			} catch (ConfigTransferService.TransferException e) {
-				LOG.error("Failed to create TM config for '" + tm.getTmName()
-				        + "'", e);
+		List<TmPair> tmPairs = new ArrayList<>();
+		ProjectTm currentProjectTm = getProjectTm();
+		if (currentProjectTm != null) {
+			TmPair projectTmPair = currentProjectTm.acquireSeeker();
+			if (projectTmPair != null) {
+				tmPairs.add(projectTmPair);
 			}
 		}
-		return seekers.iterator();
+		try {
+			for (TmManagement.TmConfig tm : this.cfgService.getTms()) {
+				try {
+					tmPairs.add(new TmPair(tm.getTmName(),
+					        acquireSeeker(tm.getTmName())));
+				} catch (ConfigTransferService.TransferException e) {
+					LOG.error("Failed to create TM config for '"
+					        + tm.getTmName() + "'", e);
+				}
+			}
+		} catch (IOException e) {
+			for (TmPair tmPair : tmPairs) {
+				tmPair.release();
+			}
+			throw e;
+		}
+		return tmPairs.iterator();
+	}
+
+	/**
+	 * Get the cached seeker for a TM, opening it on first use.
+	 */
+	private synchronized SharedSeeker acquireSeeker(String tmName)
+	        throws IOException, ConfigTransferService.TransferException {
+		SharedSeeker seeker = seekers.get(tmName);
+		if (seeker == null) {
+			Directory luceneDir = loadTm(tmName).luceneDir;
+			seeker = new SharedSeeker(luceneDir, true, metrics);
+			metrics.recordSeekerOpened(tmName, getIndexSize(luceneDir));
+			seekers.put(tmName, seeker);
+		}
+		seeker.acquire();
+		return seeker;
+	}
+
+	/**
+	 * Return the size of the files of an index, or -1 if it cannot be read.
+	 */
+	private long getIndexSize(Directory luceneDir) {
+		try {
+			long size = 0;
+			for (String file : luceneDir.listAll()) {
+				size += luceneDir.fileLength(file);
+			}
+			return size;
+		} catch (IOException e) {
+			LOG.debug("Failed to measure TM index", e);
+			return -1;
+		}
+	}
+
+	@Override
+	public TmMetrics getMetrics() {
+		return metrics;
+	}
+
+	private synchronized ProjectTm getProjectTm() {
+		return projectTm;
+	}
+
+	/**
+	 * Return the version of the TM indexes, which changes whenever any TM is
+	 * indexed, regenerated or deleted, or units are written to the project
+	 * TM.
+	 */
+	synchronized int getIndexVersion() {
+		return projectTm == null ? indexVersion : indexVersion
+		        + projectTm.getVersion();
+	}
+
+	/**
+	 * Drop the cached seeker for a TM whose index has changed, so that the
+	 * next search opens the updated index. Searches still using the old
+	 * seeker complete before it is closed.
+	 */
+	private synchronized void refreshSeeker(String tmName) {
+		indexVersion++;
+		SharedSeeker seeker = seekers.remove(tmName);
+		if (seeker != null) {
+			seeker.retire();
+		}
 	}
 
 	@Override
@@ -443,23 +670,202 @@ public class OkapiTmManager implements TmManager {
 	 */
 	static class TmPair {
 		private final String tmOrigin;
-		private final PensieveSeeker seeker;
+		private final SharedSeeker seeker;
+		private final boolean projectTm;
+
+		public TmPair(String tmOrigin, SharedSeeker seeker) {
+			this(tmOrigin, seeker, false);
+		}
 
-		public TmPair(String tmOrigin, PensieveSeeker seeker) {
+		public TmPair(String tmOrigin, SharedSeeker seeker, boolean projectTm) {
 			this.tmOrigin = tmOrigin;
 			this.seeker = seeker;
+			this.projectTm = projectTm;
 		}
 
 		public String getTmOrigin() {
 			return tmOrigin;
 		}
 
+		/**
+		 * Return whether the seeker searches the project TM, which has no
+		 * TM configuration.
+		 */
+		public boolean isProjectTm() {
+			return projectTm;
+		}
+
 		public PensieveSeeker getSeeker() {
-			return seeker;
+			return seeker.seeker;
+		}
+
+		/**
+		 * Search the exact matches of a text, found through the exact match
+		 * index of the TM.
+		 */
+		public List<TmHit> searchExact(String text) {
+			return seeker.searchExact(text);
+		}
+
+		/**
+		 * Release the seeker once the search is done.
+		 */
+		public void release() {
+			seeker.release();
 		}
 
 	}
 
+	/**
+	 * PensieveSeeker shared by concurrent searches. Lucene searchers are
+	 * thread safe, but Pensieve opens them lazily, so the opening is
+	 * synchronized. The seeker, and its directory if owned, are closed once
+	 * the seeker has been retired and no search is using it anymore.
+	 * <p>
+	 * The {@link ExactMatchIndex} of the TM is built in background on the
+	 * first exact search; until it is ready, exact searches find nothing and
+	 * the fuzzy search answers alone.
+	 */
+	static class SharedSeeker {
+		private static final ExecutorService EXACT_INDEX_EXECUTOR = Executors
+		        .newSingleThreadExecutor(new ThreadFactoryBuilder()
+		                .setDaemon(true).setNameFormat("tm-exact-index-%d")
+		                .build());
+
+		private final Directory luceneDir;
+		private final boolean ownsDirectory;
+		private final TmMetrics metrics;
+		private final ReaderSeeker seeker;
+		private int users;
+		private boolean retired;
+		private volatile ExactMatchIndex exactIndex;
+		private boolean exactIndexRequested;
+
+		public SharedSeeker(Directory luceneDir) {
+			this(luceneDir, true);
+		}
+
+		public SharedSeeker(Directory luceneDir, boolean ownsDirectory) {
+			this(luceneDir, ownsDirectory, null);
+		}
+
+		/**
+		 * @param metrics
+		 *            the metrics counting the closed seekers, or
+		 *            <code>null</code>
+		 */
+		public SharedSeeker(Directory luceneDir, boolean ownsDirectory,
+		        TmMetrics metrics) {
+			this.luceneDir = luceneDir;
+			this.ownsDirectory = ownsDirectory;
+			this.metrics = metrics;
+			this.seeker = new ReaderSeeker(luceneDir);
+		}
+
+		/**
+		 * Search the units whose source is exactly the given text, whitespace
+		 * included, scored 100. Texts missing from the exact match index are
+		 * answered without querying Lucene.
+		 */
+		List<TmHit> searchExact(String text) {
+			ExactMatchIndex index = exactIndex;
+			if (index == null) {
+				requestExactIndex();
+				return Collections.emptyList();
+			}
+			if (!index.mayContain(text)) {
+				return Collections.emptyList();
+			}
+			return seeker.searchExact(new TextFragment(text), null);
+		}
+
+		private synchronized void requestExactIndex() {
+			if (exactIndexRequested || retired) {
+				return;
+			}
+			exactIndexRequested = true;
+			// keeps the seeker open while the index is built
+			acquire();
+			EXACT_INDEX_EXECUTOR.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						buildExactIndex();
+					} catch (IOException e) {
+						LOG.warn("Failed to build the exact match index", e);
+					} finally {
+						release();
+					}
+				}
+			});
+		}
+
+		/**
+		 * Build the exact match index right away.
+		 */
+		void buildExactIndex() throws IOException {
+			exactIndex = ExactMatchIndex.build(seeker.getIndexReader());
+		}
+
+		synchronized void acquire() {
+			users++;
+		}
+
+		synchronized void release() {
+			users--;
+			closeIfUnused();
+		}
+
+		synchronized void retire() {
+			retired = true;
+			closeIfUnused();
+		}
+
+		private void closeIfUnused() {
+			if (retired && users == 0) {
+				seeker.close();
+				if (metrics != null) {
+					metrics.recordSeekerClosed();
+				}
+				if (!ownsDirectory) {
+					return;
+				}
+				try {
+					luceneDir.close();
+				} catch (IOException e) {
+					LOG.warn("Failed to close TM index directory", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * PensieveSeeker opening its searcher under a lock and exposing the
+	 * index reader.
+	 */
+	private static class ReaderSeeker extends PensieveSeeker {
+
+		public ReaderSeeker(Directory luceneDir) {
+			super(luceneDir);
+		}
+
+		@Override
+		protected synchronized IndexSearcher getIndexSearcher()
+		        throws IOException {
+			return super.getIndexSearcher();
+		}
+
+		@Override
+		protected synchronized IndexReader openIndexReader()
+		        throws IOException {
+			return super.openIndexReader();
+		}
+
+		IndexReader getIndexReader() throws IOException {
+			return getIndexSearcher().getIndexReader();
+		}
+	}
+
 	/**
 	 * Wrapper around a Lucene Directory that indicates whether Pensieve needs
 	 * to create a new TM index.
@@ -2,12 +2,31 @@ package com.vistatec.ocelot.tm.okapi;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.sf.okapi.common.resource.TextFragment;
 import net.sf.okapi.tm.pensieve.common.TmHit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.vistatec.ocelot.config.ConfigService;
 import com.vistatec.ocelot.config.xml.TmManagement;
@@ -20,6 +39,20 @@ import com.vistatec.ocelot.tm.TmService;
  * Use Okapi Pensieve to search the Lucene index.
  */
 public class OkapiTmService implements TmService {
+    private static final Logger LOG = LoggerFactory.getLogger(OkapiTmService.class);
+    private static final int MAX_THREAD_NUM = 8;
+    private static final long TM_SEARCH_TIMEOUT_SECONDS = 5;
+    private static final int MATCH_CACHE_SIZE = 500;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            MAX_THREAD_NUM, new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("tm-search-%d").build());
+    /**
+     * Fuzzy matches of the most recently searched texts, least recently used
+     * evicted first.
+     */
+    private final Cache<String, List<TmMatch>> matchCache = CacheBuilder.newBuilder()
+            .maximumSize(MATCH_CACHE_SIZE).build();
     private final OkapiTmManager manager;
     private final TmPenalizer penalizer;
     private final ConfigService cfgService;
@@ -33,42 +66,282 @@ public class OkapiTmService implements TmService {
 
     @Override
     public List<TmMatch> getFuzzyTermMatches(List<SegmentAtom> segment) throws IOException {
-        Iterator<OkapiTmManager.TmPair> tmPairs = manager.getSeekers();
-        int pensieveThreshold = new Double(cfgService.getFuzzyThreshold()).intValue();
-
-        List<TmMatch> matches = new ArrayList<>();
-        while (tmPairs.hasNext()) {
-            OkapiTmManager.TmPair tmPair = tmPairs.next();
-            if (checkTmEnabled(tmPair)) {
-                List<TmHit> results = tmPair.getSeeker().searchFuzzy(
-                        new TextFragment(getSearchText(segment)),
-                        pensieveThreshold, cfgService.getMaxResults(), null);
+        return searchFuzzy(segment, true);
+    }
 
-                matches.addAll(convertOkapiTmHit(tmPair.getTmOrigin(), results));
+    @Override
+    public List<List<TmMatch>> getUncachedFuzzyTermMatches(List<List<SegmentAtom>> segments,
+            int parallelism) throws InterruptedException {
+        // each segment search waits on the TM searches it submits to the same
+        // executor, so at least one thread is always left to them
+        int maxSearches = Math.max(1, Math.min(parallelism, MAX_THREAD_NUM - 1));
+        List<List<TmMatch>> matches = new ArrayList<>(
+                Collections.<List<TmMatch>>nCopies(segments.size(), null));
+        CompletionService<List<TmMatch>> completionService =
+                new ExecutorCompletionService<>(executor);
+        Map<Future<List<TmMatch>>, Integer> indexes = new HashMap<>();
+        try {
+            int next = 0;
+            while (next < segments.size() || !indexes.isEmpty()) {
+                while (indexes.size() < maxSearches && next < segments.size()) {
+                    final List<SegmentAtom> segment = segments.get(next);
+                    indexes.put(completionService.submit(new Callable<List<TmMatch>>() {
+                        @Override
+                        public List<TmMatch> call() throws IOException {
+                            return searchFuzzy(segment, false);
+                        }
+                    }), next++);
+                }
+                Future<List<TmMatch>> future = completionService.take();
+                int index = indexes.remove(future);
+                try {
+                    matches.set(index, future.get());
+                } catch (ExecutionException e) {
+                    LOG.warn("Failed to search the TM matches of segment " + index,
+                            e.getCause());
+                    matches.set(index, new ArrayList<TmMatch>());
+                }
+            }
+            return matches;
+        } finally {
+            // as for the TM searches, the running segment searches are not
+            // interrupted, only those not started yet are dropped
+            for (Future<List<TmMatch>> future : indexes.keySet()) {
+                future.cancel(false);
             }
-            tmPair.getSeeker().close();
         }
-        return penalizer.applyPenalties(matches);
+    }
+
+    /**
+     * Search the fuzzy matches of a segment. Cached matches are always
+     * reused; new matches are only cached if requested.
+     */
+    private List<TmMatch> searchFuzzy(List<SegmentAtom> segment, boolean cacheMatches)
+            throws IOException {
+        final String sourceText = getSearchText(segment);
+        final String searchText = normalizeSearchText(sourceText);
+        final int pensieveThreshold = new Double(cfgService.getFuzzyThreshold()).intValue();
+        final int maxResults = cfgService.getMaxResults();
+
+        // exact matches depend on the whitespace of the source
+        String cacheKey = pensieveThreshold + ":" + maxResults + ":" + sourceText;
+        return searchTms(new PensieveSearch("fuzzy", searchText) {
+            @Override
+            List<TmHit> search(OkapiTmManager.TmPair tmPair) {
+                // the fuzzy search only runs when the TM has no exact match
+                List<TmHit> exactHits = tmPair.searchExact(sourceText);
+                if (!exactHits.isEmpty()) {
+                    return exactHits.size() > maxResults
+                            ? exactHits.subList(0, maxResults) : exactHits;
+                }
+                return tmPair.getSeeker().searchFuzzy(new TextFragment(searchText),
+                        pensieveThreshold, maxResults, null);
+            }
+        }, cacheKey, cacheMatches);
     }
 
     @Override
     public List<TmMatch> getConcordanceMatches(List<SegmentAtom> segment) throws IOException {
-        Iterator<OkapiTmManager.TmPair> tmPairs = manager.getSeekers();
-        int pensieveThreshold = new Double(cfgService.getFuzzyThreshold()).intValue();
+        return searchTms(concordanceSearch(segment, cfgService.getMaxResults()),
+                null, false);
+    }
 
+    /**
+     * Run the concordance search on all the enabled TMs in parallel, and pass
+     * the matches of each TM to the listener as soon as it answers. Each TM
+     * returns at most maxResults matches, within the configured maximum. TMs
+     * not answering within the search deadline, shared by all the TMs as in
+     * {@link #searchTms(PensieveSearch, String, boolean)}, are skipped. Unlike
+     * {@link #getConcordanceMatches(List)}, the matches are neither merged
+     * nor cached.
+     */
+    @Override
+    public void getConcordanceMatches(List<SegmentAtom> segment, int maxResults,
+            ConcordanceListener listener) throws IOException {
+        List<TmSearchTask> tasks = createSearchTasks(concordanceSearch(segment,
+                Math.min(maxResults, cfgService.getMaxResults())),
+                new StringBuilder());
+        CompletionService<List<TmMatch>> completionService =
+                new ExecutorCompletionService<>(executor);
+        try {
+            for (TmSearchTask task : tasks) {
+                completionService.submit(task);
+            }
+            long deadline = System.nanoTime()
+                    + TimeUnit.SECONDS.toNanos(TM_SEARCH_TIMEOUT_SECONDS);
+            for (int i = 0; i < tasks.size() && !listener.isCancelled(); i++) {
+                Future<List<TmMatch>> result = completionService.poll(
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    LOG.warn("Concordance search timed out on {} TMs", tasks.size() - i);
+                    break;
+                }
+                try {
+                    List<TmMatch> matches = result.get();
+                    if (!matches.isEmpty()) {
+                        listener.matchesFound(penalizer.applyPenalties(matches));
+                    }
+                } catch (ExecutionException e) {
+                    LOG.error("Concordance search on a TM failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the tasks not started yet do not search anymore
+            for (TmSearchTask task : tasks) {
+                task.releaseIfNotStarted();
+            }
+        }
+    }
+
+    private PensieveSearch concordanceSearch(List<SegmentAtom> segment,
+            final int maxResults) {
+        final String searchText = getSearchText(segment);
+        final int pensieveThreshold = new Double(cfgService.getFuzzyThreshold()).intValue();
+
+        return new PensieveSearch("concordance", searchText) {
+            @Override
+            List<TmHit> search(OkapiTmManager.TmPair tmPair) {
+                return tmPair.getSeeker().searchSimpleConcordance(searchText, pensieveThreshold, maxResults, null);
+            }
+        };
+    }
+
+    /**
+     * Run a search on all the enabled TMs in parallel. TMs not answering
+     * within the timeout are skipped: all the TMs are searched at once, so a
+     * single deadline for the whole search bounds the time the user waits for
+     * the matches, whatever the number of TMs, rather than each TM getting its
+     * own timeout. A TM still queued for a free thread at the deadline is
+     * skipped as well. The matches are penalized and merged by score, ties
+     * keeping the TM order, and the configured maximum number of results
+     * applies to the merged list.
+     * <p>
+     * When a cache key is given, cached results are returned, and new results
+     * are cached if requested, together with the version of the TM indexes
+     * and the enabled TMs with their penalties, so that any change to the TMs
+     * makes the cached results stale.
+     */
+    private List<TmMatch> searchTms(PensieveSearch search, String cacheKey,
+            boolean cacheMatches) throws IOException {
+        StringBuilder tmsVersion = new StringBuilder();
+        List<TmSearchTask> tasks = createSearchTasks(search, tmsVersion);
+
+        String fullCacheKey = cacheKey == null ? null : tmsVersion + "|" + cacheKey;
+        if (fullCacheKey != null) {
+            List<TmMatch> cachedMatches = matchCache.getIfPresent(fullCacheKey);
+            if (cachedMatches != null) {
+                for (TmSearchTask task : tasks) {
+                    task.releaseIfNotStarted();
+                }
+                return new ArrayList<>(cachedMatches);
+            }
+        }
+
+        // the matches by task, so that they are merged in the TM order
+        List<List<TmMatch>> tmMatches = new ArrayList<>(
+                Collections.<List<TmMatch>>nCopies(tasks.size(), null));
+        List<Future<List<TmMatch>>> futures = new ArrayList<>();
+        CompletionService<List<TmMatch>> completionService =
+                new ExecutorCompletionService<>(executor);
+        boolean complete = true;
+        try {
+            for (TmSearchTask task : tasks) {
+                futures.add(completionService.submit(task));
+            }
+            long deadline = System.nanoTime()
+                    + TimeUnit.SECONDS.toNanos(TM_SEARCH_TIMEOUT_SECONDS);
+            for (int i = 0; i < tasks.size(); i++) {
+                Future<List<TmMatch>> result = completionService.poll(
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    complete = false;
+                    LOG.warn("Search timed out on {} TMs", tasks.size() - i);
+                    break;
+                }
+                int index = futures.indexOf(result);
+                try {
+                    tmMatches.set(index, result.get());
+                } catch (ExecutionException e) {
+                    complete = false;
+                    LOG.error("Search on TM '" + tasks.get(index).tmPair.getTmOrigin()
+                            + "' failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            complete = false;
+            Thread.currentThread().interrupt();
+        } finally {
+            // late searches are left to complete and their results dropped:
+            // interrupting a search would close the channel of the shared index
+            for (Future<List<TmMatch>> future : futures) {
+                future.cancel(false);
+            }
+            for (TmSearchTask task : tasks) {
+                task.releaseIfNotStarted();
+            }
+        }
         List<TmMatch> matches = new ArrayList<>();
-        while(tmPairs.hasNext()) {
-            OkapiTmManager.TmPair tmPair = tmPairs.next();
-            if (checkTmEnabled(tmPair)) {
-                List<TmHit> results = tmPair.getSeeker().searchSimpleConcordance(
-                        getSearchText(segment), pensieveThreshold,
-                        cfgService.getMaxResults(), null);
+        for (List<TmMatch> taskMatches : tmMatches) {
+            if (taskMatches != null) {
+                matches.addAll(taskMatches);
+            }
+        }
+        List<TmMatch> merged = mergeMatches(matches);
+        // partial results are not cached, so that the search is run again
+        if (fullCacheKey != null && cacheMatches && complete) {
+            matchCache.put(fullCacheKey, Collections.unmodifiableList(new ArrayList<>(merged)));
+        }
+        return merged;
+    }
+
+    /**
+     * Create the tasks searching the enabled TMs, and append the version of
+     * the TM indexes and the enabled TMs with their penalties to the given
+     * builder. The seekers of the disabled TMs are released right away.
+     */
+    private List<TmSearchTask> createSearchTasks(PensieveSearch search,
+            StringBuilder tmsVersion) throws IOException {
+        Iterator<OkapiTmManager.TmPair> tmPairs = manager.getSeekers();
+        List<TmSearchTask> tasks = new ArrayList<>();
+        tmsVersion.append(manager.getIndexVersion());
+        try {
+            while (tmPairs.hasNext()) {
+                OkapiTmManager.TmPair tmPair = tmPairs.next();
+                if (tmPair.isProjectTm()) {
+                    tasks.add(new TmSearchTask(tmPair, search));
+                    continue;
+                }
+                TmManagement.TmConfig config = this.manager.fetchTm(tmPair.getTmOrigin());
+                if (config != null && config.isEnabled()) {
+                    tasks.add(new TmSearchTask(tmPair, search));
+                    tmsVersion.append('|').append(tmPair.getTmOrigin())
+                            .append(':').append(config.getPenalty());
+                } else {
+                    tmPair.release();
+                }
+            }
+        } finally {
+            releaseAll(tmPairs);
+        }
+        return tasks;
+    }
 
-                matches.addAll(convertOkapiTmHit(tmPair.getTmOrigin(), results));
+    private List<TmMatch> mergeMatches(List<TmMatch> matches) {
+        List<TmMatch> merged = new ArrayList<>(penalizer.applyPenalties(matches));
+        // the sort is stable, so matches with the same score keep the TM order
+        Collections.sort(merged, new Comparator<TmMatch>() {
+            @Override
+            public int compare(TmMatch m1, TmMatch m2) {
+                return Float.compare(m2.getMatchScore(), m1.getMatchScore());
             }
-            tmPair.getSeeker().close();
+        });
+        int maxResults = cfgService.getMaxResults();
+        if (merged.size() > maxResults) {
+            merged = new ArrayList<>(merged.subList(0, maxResults));
         }
-        return penalizer.applyPenalties(matches);
+        return merged;
     }
 
     public List<TmMatch> convertOkapiTmHit(String tmOrigin, List<TmHit> leverageResults) {
@@ -79,6 +352,14 @@ public class OkapiTmService implements TmService {
         return matches;
     }
 
+    /**
+     * Trim the search text and collapse its whitespace, so that sources only
+     * differing in whitespace get the same fuzzy matches.
+     */
+    private String normalizeSearchText(String searchText) {
+        return ExactMatchIndex.normalize(searchText);
+    }
+
     private String getSearchText(List<SegmentAtom> segment) {
         StringBuilder searchText = new StringBuilder();
         for (SegmentAtom atom : segment) {
@@ -87,8 +368,70 @@ public class OkapiTmService implements TmService {
         return searchText.toString();
     }
 
-    private boolean checkTmEnabled(OkapiTmManager.TmPair tmPair) {
-        TmManagement.TmConfig config = this.manager.fetchTm(tmPair.getTmOrigin());
-        return config != null && config.isEnabled();
+    /**
+     * Release the seekers left unused when the search setup fails.
+     */
+    private void releaseAll(Iterator<OkapiTmManager.TmPair> tmPairs) {
+        while (tmPairs.hasNext()) {
+            tmPairs.next().release();
+        }
+    }
+
+
+    /**
+     * Search run on a single TM.
+     */
+    private abstract static class PensieveSearch {
+        /** Kind of search, for logging. */
+        private final String kind;
+        private final String searchText;
+
+        PensieveSearch(String kind, String searchText) {
+            this.kind = kind;
+            this.searchText = searchText;
+        }
+
+        abstract List<TmHit> search(OkapiTmManager.TmPair tmPair);
+    }
+
+    /**
+     * Task searching a TM on the executor. The seeker is released either by
+     * the task, or by the caller if the task timed out before starting.
+     */
+    private class TmSearchTask implements Callable<List<TmMatch>> {
+        private final OkapiTmManager.TmPair tmPair;
+        private final PensieveSearch search;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        public TmSearchTask(OkapiTmManager.TmPair tmPair, PensieveSearch search) {
+            this.tmPair = tmPair;
+            this.search = search;
+        }
+
+        @Override
+        public List<TmMatch> call() {
+            if (!started.compareAndSet(false, true)) {
+                return Collections.emptyList();
+            }
+            try {
+                long start = System.nanoTime();
+                List<TmHit> hits = search.search(tmPair);
+                long latency = System.nanoTime() - start;
+                if (manager.getMetrics().recordQuery(tmPair.getTmOrigin(), latency, hits.size())) {
+                    LOG.warn("Slow {} search on TM '{}': {} ms for a search text of {} characters",
+                            search.kind, tmPair.getTmOrigin(),
+                            TimeUnit.NANOSECONDS.toMillis(latency), search.searchText.length());
+                }
+                return convertOkapiTmHit(tmPair.getTmOrigin(), hits);
+            } finally {
+                tmPair.release();
+            }
+        }
+
+        public void releaseIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                tmPair.release();
+            }
+        }
     }
 }
@@ -12,18 +12,35 @@ import net.sf.okapi.common.resource.ITextUnit;
 import net.sf.okapi.common.resource.RawDocument;
 import net.sf.okapi.common.resource.TextContainer;
 import net.sf.okapi.filters.tmx.TmxFilter;
+import net.sf.okapi.tm.pensieve.common.MetadataType;
 import net.sf.okapi.tm.pensieve.common.TranslationUnit;
 import net.sf.okapi.tm.pensieve.common.TranslationUnitVariant;
 import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
 
 /**
  * Parse TMs in the TMX 1.4 file format and index the segments for use in
- * Pensieve.
+ * Pensieve. Each translation unit records the name of its TMX file, so that
+ * the units of a file can be removed from the index.
  */
 public class OkapiTmTmxImporter {
     private LocaleId sourceLocale, targetLocale;
+    private String fileName;
 
-    public void parse(File tmx, PensieveWriter writer) throws IOException {
+    public void parse(File tmx, final PensieveWriter writer) throws IOException {
+        parse(tmx, new TranslationUnitHandler() {
+            @Override
+            public void handle(TranslationUnit tu) {
+                writer.indexTranslationUnit(tu);
+            }
+        });
+    }
+
+    /**
+     * Parse a TMX file, passing each translation unit to a handler instead of
+     * indexing it right away.
+     */
+    public void parse(File tmx, TranslationUnitHandler handler) throws IOException {
+        fileName = tmx.getName();
         List<String> locales = FileUtil.guessLanguages(tmx.getAbsolutePath());
         sourceLocale = (locales.size() >= 1) ?
                 LocaleId.fromString(locales.get(0)) : LocaleId.EMPTY;
@@ -35,25 +52,37 @@ public class OkapiTmTmxImporter {
 
         TmxFilter filter = new TmxFilter();
         filter.open(rawDoc);
-        while (filter.hasNext()) {
-            Event event = filter.next();
+        try {
+            while (filter.hasNext()) {
+                Event event = filter.next();
 
-            if (event.isTextUnit()) {
-                ITextUnit tu = event.getTextUnit();
-                indexTranslationUnit(tu, writer);
-            }
+                if (event.isTextUnit()) {
+                    ITextUnit tu = event.getTextUnit();
+                    handler.handle(createTranslationUnit(tu));
+                }
 
+            }
+        } finally {
+            filter.close();
+            rawDoc.close();
         }
     }
 
-    private void indexTranslationUnit(ITextUnit tu, PensieveWriter writer) {
+    private TranslationUnit createTranslationUnit(ITextUnit tu) {
         TextContainer srcTu = tu.getSource();
         TextContainer tgtTu = tu.getTarget(targetLocale);
 
         TranslationUnit pensieveTu = new TranslationUnit(
                 new TranslationUnitVariant(sourceLocale, srcTu.getUnSegmentedContentCopy()),
                 new TranslationUnitVariant(targetLocale, tgtTu.getUnSegmentedContentCopy()));
+        pensieveTu.setMetadataValue(MetadataType.FILE_NAME, fileName);
+        return pensieveTu;
+    }
 
-        writer.indexTranslationUnit(pensieveTu);
+    /**
+     * Receives the translation units parsed from a TMX file.
+     */
+    public interface TranslationUnitHandler {
+        void handle(TranslationUnit tu) throws IOException;
     }
 }
@@ -0,0 +1,260 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.okapi.common.LocaleId;
+import net.sf.okapi.common.resource.Code;
+import net.sf.okapi.common.resource.TextFragment;
+import net.sf.okapi.tm.pensieve.common.TranslationUnit;
+import net.sf.okapi.tm.pensieve.common.TranslationUnitVariant;
+import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
+import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
+import com.vistatec.ocelot.segment.model.CodeAtom;
+import com.vistatec.ocelot.segment.model.SegmentAtom;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+
+/**
+ * TM of the open document, fed with the translations confirmed by the user,
+ * that is the targets committed from the editor or from a TM match. The
+ * confirmed source/target pairs are batched and written in background to a
+ * Pensieve index kept on disk for each document, whose seeker is replaced
+ * after every commit. The {@link OkapiTmManager} searches it along with the
+ * configured TMs, so that segments repeated later in the document, or in a
+ * later session, get matches right away.
+ */
+public class ProjectTm implements OcelotEventQueueListener {
+    private static final Logger LOG = LoggerFactory.getLogger(ProjectTm.class);
+    public static final String TM_NAME = "Project TM";
+    /** Delay letting successive edits be written in the same batch. */
+    private static final long FLUSH_DELAY_MILLIS = 500;
+
+    /** Directory holding the index of each document. */
+    private final File tmDir;
+    private final ScheduledExecutorService writerExecutor = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("project-tm-%d").build());
+    /** Units waiting to be written. */
+    private List<TranslationUnit> pendingUnits = new ArrayList<>();
+    private boolean flushScheduled;
+    /** Last target written, by segment number, to skip unchanged edits. */
+    private final Map<Integer, String> writtenTargets = new HashMap<>();
+    private LocaleId sourceLocale, targetLocale;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    // accessed by the writer thread only
+    private Directory luceneDir;
+    private PensieveWriter writer;
+
+    private OkapiTmManager.SharedSeeker seeker;
+    private int version;
+
+    /**
+     * @param tmDir
+     *            the directory holding the index of each document, created
+     *            if needed
+     */
+    public ProjectTm(File tmDir) {
+        this.tmDir = tmDir;
+    }
+
+    @Subscribe
+    public synchronized void openFile(OpenFileEvent e) {
+        sourceLocale = e.getDocument().getSrcLocale();
+        targetLocale = e.getDocument().getTgtLocale();
+        pendingUnits = new ArrayList<>();
+        writtenTargets.clear();
+        final File indexDir = getIndexDir(e.getDocument().getFile());
+        writerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                reset();
+                open(indexDir);
+            }
+        });
+    }
+
+    /**
+     * Return the index directory of a document, named after the hash of its
+     * path.
+     */
+    private File getIndexDir(File document) {
+        String path;
+        try {
+            path = document.getCanonicalPath();
+        } catch (IOException e) {
+            path = document.getAbsolutePath();
+        }
+        return new File(tmDir, Hashing.sha1()
+                .hashString(path, StandardCharsets.UTF_8).toString());
+    }
+
+    /**
+     * Queue the translation confirmed by the user for writing.
+     */
+    @Subscribe
+    public void targetUpdated(SegmentTargetUpdateEvent e) {
+        addSegment(e.getSegment().getSegmentNumber(), e.getSegment().getSource(),
+                e.getUpdatedTarget());
+    }
+
+    /**
+     * Queue the translation of a segment for writing, unless its target is
+     * empty or has already been written.
+     */
+    private synchronized void addSegment(int segmentNumber, SegmentVariant source,
+            SegmentVariant target) {
+        if (sourceLocale == null || source == null || target == null
+                || source.getDisplayText().trim().isEmpty()
+                || target.getDisplayText().trim().isEmpty()) {
+            return;
+        }
+        String targetText = target.getDisplayText();
+        if (targetText.equals(writtenTargets.put(segmentNumber, targetText))) {
+            return;
+        }
+        pendingUnits.add(new TranslationUnit(
+                new TranslationUnitVariant(sourceLocale, toTextFragment(source)),
+                new TranslationUnitVariant(targetLocale, toTextFragment(target))));
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writerExecutor.schedule(flushTask, FLUSH_DELAY_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private TextFragment toTextFragment(SegmentVariant variant) {
+        TextFragment fragment = new TextFragment();
+        for (SegmentAtom atom : variant.getAtoms()) {
+            if (atom instanceof CodeAtom) {
+                CodeAtom codeAtom = (CodeAtom) atom;
+                fragment.append(new Code(TextFragment.TagType.PLACEHOLDER,
+                        codeAtom.getData(), codeAtom.getVerboseData()));
+            } else {
+                fragment.append(atom.getData());
+            }
+        }
+        return fragment;
+    }
+
+    /**
+     * Write the pending units right away and wait until they are searchable.
+     */
+    void flushNow() throws InterruptedException, ExecutionException {
+        writerExecutor.submit(flushTask).get();
+    }
+
+    /**
+     * Write the pending units and make them searchable. Runs on the writer
+     * thread.
+     */
+    private void flush() {
+        List<TranslationUnit> units;
+        synchronized (this) {
+            units = pendingUnits;
+            pendingUnits = new ArrayList<>();
+            flushScheduled = false;
+        }
+        if (units.isEmpty()) {
+            return;
+        }
+        if (luceneDir == null) {
+            LOG.warn("No project TM open, {} units not written", units.size());
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = new PensieveWriter(luceneDir, !IndexReader.indexExists(luceneDir));
+            }
+            for (TranslationUnit tu : units) {
+                // replaces the unit previously written for the same source
+                writer.indexTranslationUnit(tu, true);
+            }
+            writer.commit();
+            replaceSeeker(new OkapiTmManager.SharedSeeker(luceneDir, false));
+            LOG.debug("Wrote {} units to the project TM", units.size());
+        } catch (Exception e) {
+            LOG.error("Failed to write to the project TM", e);
+        }
+    }
+
+    private void reset() {
+        replaceSeeker(null);
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        // the directory is left open for the searches still using it
+        luceneDir = null;
+    }
+
+    /**
+     * Open the index of a document, making the translations confirmed in
+     * the previous sessions searchable. Runs on the writer thread.
+     */
+    private void open(File indexDir) {
+        try {
+            indexDir.mkdirs();
+            luceneDir = FSDirectory.open(indexDir);
+            if (IndexReader.indexExists(luceneDir)) {
+                replaceSeeker(new OkapiTmManager.SharedSeeker(luceneDir, false));
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to open the project TM " + indexDir, e);
+        }
+    }
+
+    private synchronized void replaceSeeker(OkapiTmManager.SharedSeeker newSeeker) {
+        if (seeker != null) {
+            seeker.retire();
+        }
+        seeker = newSeeker;
+        version++;
+    }
+
+    /**
+     * Get the seeker of the project TM, to be released once the search is
+     * done; <code>null</code> if nothing has been written yet.
+     */
+    synchronized OkapiTmManager.TmPair acquireSeeker() {
+        if (seeker == null) {
+            return null;
+        }
+        seeker.acquire();
+        return new OkapiTmManager.TmPair(TM_NAME, seeker, true);
+    }
+
+    /**
+     * Return the version of the project TM, which changes whenever units are
+     * written.
+     */
+    synchronized int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,152 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Fingerprints (size, last modified date and SHA-1 hash) of the TMX files
+ * indexed in a Pensieve index, by canonical file path, so that a file of
+ * another directory with the same name is never taken for the indexed one.
+ * They are stored in a properties file next to the index, so that a
+ * re-index only processes the files that were added, changed or removed
+ * since the last indexing.
+ */
+class TmxFingerprints {
+    private final File file;
+    private final boolean recorded;
+    private final Map<String, Fingerprint> fingerprints = new TreeMap<>();
+
+    private TmxFingerprints(File file, boolean recorded) {
+        this.file = file;
+        this.recorded = recorded;
+    }
+
+    /**
+     * Load the fingerprints stored in a file. If the file does not exist,
+     * no fingerprint has been recorded.
+     */
+    public static TmxFingerprints load(File file) throws IOException {
+        TmxFingerprints tmxFingerprints = new TmxFingerprints(file, file.exists());
+        if (tmxFingerprints.recorded) {
+            Properties props = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            }
+            for (String path : props.stringPropertyNames()) {
+                Fingerprint fingerprint = Fingerprint.parse(props.getProperty(path));
+                if (fingerprint != null) {
+                    tmxFingerprints.fingerprints.put(path, fingerprint);
+                }
+            }
+        }
+        return tmxFingerprints;
+    }
+
+    /**
+     * Return whether fingerprints were recorded for this index. Indexes
+     * created before fingerprints were introduced have none.
+     */
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Return the paths of the TMX files, as returned by {@link #path(File)}.
+     */
+    public Set<String> getPaths() {
+        return fingerprints.keySet();
+    }
+
+    /**
+     * Return the path a TMX file is recorded by.
+     */
+    public static String path(File tmx) throws IOException {
+        return tmx.getCanonicalPath();
+    }
+
+    /**
+     * Check whether a TMX file differs from the one that was indexed. The
+     * file is hashed only when its size or date changed; if its content
+     * turns out to be the same, the recorded size and date are updated.
+     */
+    public boolean hasChanged(File tmx) throws IOException {
+        Fingerprint recordedFingerprint = fingerprints.get(path(tmx));
+        if (recordedFingerprint == null) {
+            return true;
+        }
+        if (recordedFingerprint.size == tmx.length()
+                && recordedFingerprint.lastModified == tmx.lastModified()) {
+            return false;
+        }
+        Fingerprint current = Fingerprint.of(tmx);
+        if (current.hash.equals(recordedFingerprint.hash)) {
+            fingerprints.put(path(tmx), current);
+            return false;
+        }
+        return true;
+    }
+
+    public void put(File tmx) throws IOException {
+        fingerprints.put(path(tmx), Fingerprint.of(tmx));
+    }
+
+    public void remove(String path) {
+        fingerprints.remove(path);
+    }
+
+    public void save() throws IOException {
+        Properties props = new Properties();
+        for (Map.Entry<String, Fingerprint> entry : fingerprints.entrySet()) {
+            props.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, "Fingerprints of the indexed TMX files");
+        }
+    }
+
+    static class Fingerprint {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        Fingerprint(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        static Fingerprint of(File tmx) throws IOException {
+            return new Fingerprint(tmx.length(), tmx.lastModified(),
+                    Files.hash(tmx, Hashing.sha1()).toString());
+        }
+
+        static Fingerprint parse(String value) {
+            String[] parts = value.split(":");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new Fingerprint(Long.parseLong(parts[0]),
+                        Long.parseLong(parts[1]), parts[2]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return size + ":" + lastModified + ":" + hash;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.okapi.tm.pensieve.common.TranslationUnit;
+import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
+
+import org.apache.lucene.index.IndexWriter;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Imports TMX files into a Pensieve index as a producer/consumer pipeline:
+ * the files are parsed in parallel, the parsed translation units are handed
+ * over in batches through a bounded queue and written by a few indexing
+ * threads to a single index writer with a large RAM buffer. Once everything
+ * is indexed, the index segments can be merged.
+ */
+class TmxImportPipeline {
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final double DEFAULT_RAM_BUFFER_MB = 64;
+    private static final int MAX_PARSER_THREADS = 4;
+    private static final int INDEXER_THREADS = 2;
+    /** Maximum number of batches waiting to be indexed. */
+    private static final int QUEUE_CAPACITY = 16;
+    private static final long POLL_MILLIS = 100;
+
+    private final int batchSize;
+    private final double ramBufferMb;
+    private final ProgressListener listener;
+
+    public TmxImportPipeline(ProgressListener listener) {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_RAM_BUFFER_MB, listener);
+    }
+
+    public TmxImportPipeline(int batchSize, double ramBufferMb,
+            ProgressListener listener) {
+        this.batchSize = batchSize;
+        this.ramBufferMb = ramBufferMb;
+        this.listener = listener;
+    }
+
+    /**
+     * Parse and index TMX files. The writer is left open so that the caller
+     * can close it.
+     *
+     * @param merge whether to merge the index segments at the end; worth it
+     *            after a bulk import, not after adding a few files to a
+     *            large index
+     * @return the number of translation units indexed
+     */
+    public long importTmx(List<File> tmxFiles, PensieveWriter writer,
+            boolean merge) throws IOException {
+        if (tmxFiles.isEmpty()) {
+            return 0;
+        }
+        IndexWriter indexWriter = writer.getIndexWriter();
+        indexWriter.setRAMBufferSizeMB(ramBufferMb);
+
+        Pipeline pipeline = new Pipeline(tmxFiles.size());
+        ExecutorService parsers = Executors.newFixedThreadPool(
+                Math.min(MAX_PARSER_THREADS, tmxFiles.size()),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("tmx-parser-%d").build());
+        ExecutorService indexers = Executors.newFixedThreadPool(INDEXER_THREADS,
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("tmx-indexer-%d").build());
+        try {
+            List<Future<?>> indexerResults = new ArrayList<>();
+            for (int i = 0; i < INDEXER_THREADS; i++) {
+                indexerResults.add(indexers.submit(pipeline.new IndexTask(writer)));
+            }
+            List<Future<?>> parserResults = new ArrayList<>();
+            for (File tmx : tmxFiles) {
+                parserResults.add(parsers.submit(pipeline.new ParseTask(tmx)));
+            }
+            waitFor(parserResults, pipeline);
+            pipeline.parsingDone.set(true);
+            waitFor(indexerResults, pipeline);
+            if (pipeline.getFailure() != null) {
+                throw pipeline.getFailure();
+            }
+
+            if (merge) {
+                indexWriter.optimize();
+            }
+            return pipeline.indexedUnits.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("TMX import interrupted");
+        } finally {
+            pipeline.aborted.set(true);
+            parsers.shutdownNow();
+            indexers.shutdownNow();
+        }
+    }
+
+    private void waitFor(List<Future<?>> results, Pipeline pipeline)
+            throws InterruptedException {
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                pipeline.fail(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * State shared by the parsing and indexing tasks of one import.
+     */
+    private class Pipeline {
+        private final int totalFiles;
+        private final BlockingQueue<List<TranslationUnit>> batches =
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicInteger parsedFiles = new AtomicInteger();
+        private final AtomicLong indexedUnits = new AtomicLong();
+        private final AtomicBoolean parsingDone = new AtomicBoolean();
+        /** Set when a task fails, so that the others stop. */
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private IOException failure;
+
+        public Pipeline(int totalFiles) {
+            this.totalFiles = totalFiles;
+        }
+
+        /**
+         * Record the first failure and stop the other tasks. Failures caused
+         * by the abort itself are therefore ignored.
+         */
+        private synchronized void fail(Throwable cause) {
+            aborted.set(true);
+            batches.clear();
+            if (failure == null) {
+                failure = cause instanceof IOException ? (IOException) cause
+                        : new IOException("Failed to import TMX", cause);
+            }
+        }
+
+        private synchronized IOException getFailure() {
+            return failure;
+        }
+
+        private void put(List<TranslationUnit> batch) throws IOException {
+            try {
+                while (!batches.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (aborted.get()) {
+                        throw new IOException("TMX import aborted");
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("TMX import interrupted");
+            }
+        }
+
+        /**
+         * Parse a TMX file, queueing its translation units in batches.
+         */
+        private class ParseTask implements Callable<Void> {
+            private final File tmx;
+
+            public ParseTask(File tmx) {
+                this.tmx = tmx;
+            }
+
+            @Override
+            public Void call() throws IOException {
+                try {
+                    parse();
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                    throw e;
+                }
+                listener.fileParsed(tmx, parsedFiles.incrementAndGet(), totalFiles);
+                return null;
+            }
+
+            private void parse() throws IOException {
+                final List<List<TranslationUnit>> current = new ArrayList<>(1);
+                current.add(new ArrayList<TranslationUnit>(batchSize));
+                new OkapiTmTmxImporter().parse(tmx,
+                        new OkapiTmTmxImporter.TranslationUnitHandler() {
+                    @Override
+                    public void handle(TranslationUnit tu) throws IOException {
+                        if (aborted.get()) {
+                            throw new IOException("TMX import aborted");
+                        }
+                        List<TranslationUnit> batch = current.get(0);
+                        batch.add(tu);
+                        if (batch.size() >= batchSize) {
+                            put(batch);
+                            current.set(0, new ArrayList<TranslationUnit>(batchSize));
+                        }
+                    }
+                });
+                if (!current.get(0).isEmpty()) {
+                    put(current.get(0));
+                }
+            }
+        }
+
+        /**
+         * Write the queued batches to the index until parsing is done and the
+         * queue is empty.
+         */
+        private class IndexTask implements Callable<Void> {
+            private final PensieveWriter writer;
+
+            public IndexTask(PensieveWriter writer) {
+                this.writer = writer;
+            }
+
+            @Override
+            public Void call() throws InterruptedException {
+                while (!aborted.get()) {
+                    // read the flag before polling, so that no batch is left
+                    // behind once parsing is done
+                    boolean lastPoll = parsingDone.get();
+                    List<TranslationUnit> batch = batches.poll(POLL_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                    if (batch == null) {
+                        if (lastPoll) {
+                            break;
+                        }
+                        continue;
+                    }
+                    try {
+                        for (TranslationUnit tu : batch) {
+                            writer.indexTranslationUnit(tu);
+                        }
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        throw e;
+                    }
+                    listener.unitsIndexed(indexedUnits.addAndGet(batch.size()));
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Notified of the progress of an import. The methods are called from the
+     * pipeline threads.
+     */
+    interface ProgressListener {
+        void fileParsed(File tmx, int parsedFiles, int totalFiles);
+
+        void unitsIndexed(long indexedUnits);
+    }
+}
@@ -5,9 +5,16 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.List;
 
 public interface XLIFFWriter {
     public void updateSegment(OcelotSegment seg);
+
+    /**
+     * Updates several segments at once, sharing the work common to all of
+     * them.
+     */
+    public void updateSegments(List<OcelotSegment> segs);
     
     public void updateNotes(OcelotSegment seg);
 
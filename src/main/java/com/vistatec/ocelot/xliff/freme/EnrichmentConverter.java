@@ -1,26 +1,26 @@
 package com.vistatec.ocelot.xliff.freme;
 
-import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.slf4j.Logger;
 
-import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
-import com.hp.hpl.jena.rdf.model.RDFNode;
-import com.hp.hpl.jena.rdf.model.ResIterator;
-import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Statement;
-import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.vistatec.ocelot.its.model.EnrichmentMetaData;
 import com.vistatec.ocelot.its.model.TerminologyMetaData;
 import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
 import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.enrichment.DeferredEnrichments;
 import com.vistatec.ocelot.segment.model.enrichment.ELinkEnrichmentsConstants;
 import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EnrichmentMetadataConverter;
 import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
 import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
 import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
@@ -31,7 +31,8 @@ import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
  * converting enrichments to ITS meta data to be displayed in tables in Ocelot
  * left panel.
  */
-public abstract class EnrichmentConverter {
+public abstract class EnrichmentConverter implements
+        EnrichmentMetadataConverter {
 
 	/** The logger. */
 	protected final Logger logger;
@@ -59,9 +60,48 @@ public abstract class EnrichmentConverter {
 		this.logger = logger;
 	}
 
+	/**
+	 * Defers the retrieval of the triple enrichments of a variant. Only the
+	 * JSON-LD strings are kept until the enrichments are needed: the triples
+	 * are then parsed and the enrichments built.
+	 * 
+	 * @param enrichments
+	 *            the enrichments retrieved from the variant markers
+	 * @param jsonStrings
+	 *            the triples formatted as JSON-LD strings
+	 * @param language
+	 *            the variant language
+	 * @return the deferred enrichments.
+	 */
+	public DeferredEnrichments deferTriplesEnrichments(
+	        final List<Enrichment> enrichments, final List<String> jsonStrings,
+	        final String language) {
+
+		return new DeferredEnrichments() {
+
+			@Override
+			public List<Enrichment> hydrate() {
+				List<Enrichment> allEnrichments = new ArrayList<Enrichment>(
+				        enrichments);
+				for (String jsonString : jsonStrings) {
+					try {
+						allEnrichments.addAll(retrieveTriplesEnrichments(
+						        jsonString, allEnrichments, language));
+					} catch (RuntimeException e) {
+						logger.error("Error while reading the triples "
+						        + jsonString, e);
+					}
+				}
+				return allEnrichments;
+			}
+		};
+	}
+
 	/**
 	 * Retrieves the triple enrichments (link and terminology) from a triples
-	 * formatted as a JSON-LD string.
+	 * formatted as a JSON-LD string. The triples are streamed into a
+	 * {@link TriplesIndex}, and the enrichments they refer to are looked up by
+	 * URI.
 	 * 
 	 * @param jsonString
 	 *            the triples formatted as JSON-LD string
@@ -72,75 +112,64 @@ public abstract class EnrichmentConverter {
 	protected List<Enrichment> retrieveTriplesEnrichments(String jsonString,
 	        List<Enrichment> enrichments, String language) {
 		List<Enrichment> triplesEnrichments = new ArrayList<Enrichment>();
-		Model tripleModel = ModelFactory.createDefaultModel();
-		tripleModel.read(new StringReader(jsonString), null,
-		        EnrichmentAnnotationsConstants.JSON_LD_FORMAT);
-		ResIterator resourcesIt = tripleModel.listSubjects();
-		if (resourcesIt != null) {
-			Resource currRes = null;
-			while (resourcesIt.hasNext()) {
-				currRes = resourcesIt.next();
-				// check if an enrichment (entity of terminology exists for the
-				// current resource
-				Enrichment enrichment = findEnrichmentForURI(enrichments,
-				        currRes.getURI());
-				if (enrichment != null) {
-					// The resource is related to an entity enrichment --> then
-					// the triples represent a Link enrichment
-					if (enrichment.getType().equals(Enrichment.ENTITY_TYPE)) {
-						LinkEnrichment link = new LinkEnrichment(
-						        enrichment.getOffsetStartIdx(),
-						        enrichment.getOffsetEndIdx(), language);
-						ELinkEnrichmentsConstants.fillLinkEnrichment(link,
-						        tripleModel, currRes.getURI());
-						triplesEnrichments.add(link);
-						// The resource is related to a terminology enrichment
-						// --> then the triples represent sources, targets and
-						// senses for this terminology enrichment.
-					} else if (enrichment.getType().equals(
-					        Enrichment.TERMINOLOGY_TYPE)) {
-						triplesEnrichments.addAll(buildTerminologyEnrichments(
-						        tripleModel, currRes.getURI(),
-						        enrichment.getOffsetStartIdx(),
-						        enrichment.getOffsetEndIdx()));
-						enrichments.remove(enrichment);
-					}
+		TriplesIndex triples = TriplesIndex.parse(jsonString);
+		Map<String, Enrichment> enrichmentsByURI = mapEnrichmentsByURI(enrichments);
+		for (Node subject : triples.getSubjects()) {
+			if (!subject.isURI()) {
+				continue;
+			}
+			// check if an enrichment (entity of terminology exists for the
+			// current resource
+			Enrichment enrichment = enrichmentsByURI.get(subject.getURI());
+			if (enrichment != null) {
+				// The resource is related to an entity enrichment --> then
+				// the triples represent a Link enrichment
+				if (enrichment.getType().equals(Enrichment.ENTITY_TYPE)) {
+					LinkEnrichment link = new LinkEnrichment(
+					        enrichment.getOffsetStartIdx(),
+					        enrichment.getOffsetEndIdx(), language);
+					ELinkEnrichmentsConstants.fillLinkEnrichment(link,
+					        triples.getProperties(subject), subject.getURI());
+					triplesEnrichments.add(link);
+					// The resource is related to a terminology enrichment
+					// --> then the triples represent sources, targets and
+					// senses for this terminology enrichment.
+				} else if (enrichment.getType().equals(
+				        Enrichment.TERMINOLOGY_TYPE)) {
+					triplesEnrichments.addAll(buildTerminologyEnrichments(
+					        triples, subject, enrichment.getOffsetStartIdx(),
+					        enrichment.getOffsetEndIdx()));
+					enrichments.remove(enrichment);
 				}
-
 			}
 		}
 		return triplesEnrichments;
 	}
 
 	/**
-	 * Builds all the terminology enrichments represented by the triples model.
+	 * Builds all the terminology enrichments represented by the triples.
 	 * 
-	 * @param tripleModel
-	 *            the triples model.
-	 * @param termResURI
-	 *            the terminology resource URI
+	 * @param triples
+	 *            the triples.
+	 * @param termRes
+	 *            the terminology resource
 	 * @param offsetStartIdx
 	 *            the terminology enrichment offset start index
 	 * @param offsetEndIdx
 	 *            the terminology enrichment offset end index
 	 * @return the list of terminology enrichments.
 	 */
-	private List<Enrichment> buildTerminologyEnrichments(Model tripleModel,
-	        String termResURI, int offsetStartIdx, int offsetEndIdx) {
+	private List<Enrichment> buildTerminologyEnrichments(TriplesIndex triples,
+	        Node termRes, int offsetStartIdx, int offsetEndIdx) {
 
 		List<Enrichment> termEnrichments = new ArrayList<Enrichment>();
-
-		Resource mainRes = tripleModel.createResource(termResURI);
-		StmtIterator mainStmtIt = tripleModel.listStatements(mainRes, null,
-		        (RDFNode) null);
 		List<Statement> tripleStmts = null;
 		TerminologyEnrichment termEnrich = null;
-		while (mainStmtIt.hasNext()) {
-			Statement mainStmt = mainStmtIt.next();
+		for (Triple mainTriple : triples.getTriples(termRes)) {
 			tripleStmts = new ArrayList<Statement>();
-			tripleStmts.add(mainStmt);
-			String sense = findSense(tripleModel, mainStmt, tripleStmts);
-			String[] sourceTarget = findSourceAndTarget(tripleModel, mainStmt,
+			tripleStmts.add(TriplesIndex.toStatement(mainTriple));
+			String sense = findSense(triples, mainTriple, tripleStmts);
+			String[] sourceTarget = findSourceAndTarget(triples, mainTriple,
 			        tripleStmts);
 			if (sourceTarget[0] != null) {
 				termEnrich = new TerminologyEnrichment();
@@ -150,7 +179,7 @@ public abstract class EnrichmentConverter {
 				termEnrich.setTermTriples(tripleStmts);
 				termEnrich.setOffsetStartIdx(offsetStartIdx);
 				termEnrich.setOffsetEndIdx(offsetEndIdx);
-				termEnrich.setTermInfoRef(termResURI);
+				termEnrich.setTermInfoRef(termRes.getURI());
 				termEnrichments.add(termEnrich);
 			}
 		}
@@ -158,67 +187,60 @@ public abstract class EnrichmentConverter {
 	}
 
 	/**
-	 * Finds the enrichment related to the URI passed as parameter. It could be
-	 * either an entity or a terminology enrichment.
+	 * Maps the enrichments by URI: the entity URL of entity enrichments and
+	 * the term info reference of terminology enrichments. The first
+	 * enrichment of a URI is kept.
 	 * 
 	 * @param enrichments
 	 *            the list of enrichments.
-	 * @param uri
-	 *            the URI
-	 * @return the enrichment related to the URI
+	 * @return the enrichments by URI
 	 */
-	private Enrichment findEnrichmentForURI(List<Enrichment> enrichments,
-	        String uri) {
+	private Map<String, Enrichment> mapEnrichmentsByURI(
+	        List<Enrichment> enrichments) {
 
-		Enrichment enrichment = null;
+		Map<String, Enrichment> enrichmentsByURI = new HashMap<String, Enrichment>();
 		if (enrichments != null) {
 			for (Enrichment currEnrich : enrichments) {
+				String uri = null;
 				if (currEnrich.getType().equals(Enrichment.ENTITY_TYPE)) {
-					if (uri.equals(((EntityEnrichment) currEnrich)
-					        .getEntityURL())) {
-						enrichment = currEnrich;
-						break;
-					}
+					uri = ((EntityEnrichment) currEnrich).getEntityURL();
 				} else if (currEnrich.getType().equals(
 				        Enrichment.TERMINOLOGY_TYPE)) {
-					if (uri.equals(((TerminologyEnrichment) currEnrich)
-					        .getTermInfoRef())) {
-						enrichment = currEnrich;
-						break;
-					}
+					uri = ((TerminologyEnrichment) currEnrich)
+					        .getTermInfoRef();
+				}
+				if (uri != null && !enrichmentsByURI.containsKey(uri)) {
+					enrichmentsByURI.put(uri, currEnrich);
 				}
 			}
 		}
-
-		return enrichment;
-
+		return enrichmentsByURI;
 	}
 
 	/**
 	 * Finds the sense for the current terminology triple.
 	 * 
-	 * @param tripleModel
-	 *            the triples model
-	 * @param mainTermStmt
+	 * @param triples
+	 *            the triples
+	 * @param mainTermTriple
 	 *            the terminology triple
 	 * @param tripleStmts
 	 *            the list of triples statements related to this terminology
 	 *            enrichment
 	 * @return the sense if it exists; <code>null</code> otherwise
 	 */
-	private String findSense(Model tripleModel, Statement mainTermStmt,
+	private String findSense(TriplesIndex triples, Triple mainTermTriple,
 	        List<Statement> tripleStmts) {
 
 		String sense = null;
-		StmtIterator senseStmtIt = tripleModel.listStatements(mainTermStmt
-		        .getObject().asResource(), tripleModel.createProperty(
-		        "http://www.w3.org/2000/01/rdf-schema#", "comment"),
-		        (RDFNode) null);
-		Statement senseStmt = null;
-		if (senseStmtIt != null && senseStmtIt.hasNext()) {
-			senseStmt = senseStmtIt.next();
-			sense = senseStmt.getObject().asLiteral().getString();
-			tripleStmts.add(senseStmt);
+		List<Triple> senseTriples = triples.getTriples(
+		        mainTermTriple.getObject(),
+		        "http://www.w3.org/2000/01/rdf-schema#comment");
+		if (!senseTriples.isEmpty()
+		        && senseTriples.get(0).getObject().isLiteral()) {
+			Triple senseTriple = senseTriples.get(0);
+			sense = senseTriple.getObject().getLiteralLexicalForm();
+			tripleStmts.add(TriplesIndex.toStatement(senseTriple));
 		}
 		return sense;
 
@@ -227,17 +249,17 @@ public abstract class EnrichmentConverter {
 	/**
 	 * Finds source and target for the current terminology triple.
 	 * 
-	 * @param tripleModel
-	 *            the triples model.
-	 * @param mainTermStmt
-	 *            the terminology main statement.
+	 * @param triples
+	 *            the triples.
+	 * @param mainTermTriple
+	 *            the terminology main triple.
 	 * @param tripleStmts
 	 *            the list of triples realted to this terminology enrichment.
 	 * @return an array of strings containing the source at the first index and
 	 *         the target at the second index.
 	 */
-	protected String[] findSourceAndTarget(Model tripleModel,
-	        Statement mainTermStmt, List<Statement> tripleStmts) {
+	private String[] findSourceAndTarget(TriplesIndex triples,
+	        Triple mainTermTriple, List<Statement> tripleStmts) {
 
 		String[] sourceTarget = new String[2];
 		String sourceLanguage = sourceLang;
@@ -248,33 +270,27 @@ public abstract class EnrichmentConverter {
 		if (targetLang.contains("-")) {
 			targetLanguage = targetLang.substring(0, targetLang.indexOf("-"));
 		}
-		StmtIterator referenceStmtIt = tripleModel.listStatements(null,
-		        tripleModel.createProperty(
-		                "http://www.w3.org/ns/lemon/ontolex#", "reference"),
-		        mainTermStmt.getObject());
-		if (referenceStmtIt != null) {
-			Statement referenceStmt = null;
-			while (referenceStmtIt.hasNext()) {
-				referenceStmt = referenceStmtIt.next();
-				tripleStmts.add(referenceStmt);
-				String sourceURI = referenceStmt.getSubject().getURI()
-				        .replace("#Sense", "#CanonicalForm");
-				StmtIterator termIt = tripleModel.listStatements(tripleModel
-				        .createResource(sourceURI), tripleModel.createProperty(
-				        "http://www.w3.org/ns/lemon/ontolex#", "writtenRep"),
-				        (RDFNode) null);
-				if (termIt != null && termIt.hasNext()) {
-					Statement sourcTgtStmt = termIt.next();
-					tripleStmts.add(sourcTgtStmt);
-					if (sourceLanguage.equals(sourcTgtStmt.getObject()
-					        .asLiteral().getLanguage())) {
-						sourceTarget[0] = sourcTgtStmt.getObject().asLiteral()
-						        .getString();
-					} else if (targetLanguage.equals(sourcTgtStmt.getObject()
-					        .asLiteral().getLanguage())) {
-						sourceTarget[1] = sourcTgtStmt.getObject().asLiteral()
-						        .getString();
-					}
+		for (Triple referenceTriple : triples.getTriplesWithObject(
+		        "http://www.w3.org/ns/lemon/ontolex#reference",
+		        mainTermTriple.getObject())) {
+			tripleStmts.add(TriplesIndex.toStatement(referenceTriple));
+			if (!referenceTriple.getSubject().isURI()) {
+				continue;
+			}
+			String sourceURI = referenceTriple.getSubject().getURI()
+			        .replace("#Sense", "#CanonicalForm");
+			List<Triple> termTriples = triples.getTriples(
+			        NodeFactory.createURI(sourceURI),
+			        "http://www.w3.org/ns/lemon/ontolex#writtenRep");
+			if (!termTriples.isEmpty()
+			        && termTriples.get(0).getObject().isLiteral()) {
+				Triple sourceTgtTriple = termTriples.get(0);
+				tripleStmts.add(TriplesIndex.toStatement(sourceTgtTriple));
+				Node term = sourceTgtTriple.getObject();
+				if (sourceLanguage.equals(term.getLiteralLanguage())) {
+					sourceTarget[0] = term.getLiteralLexicalForm();
+				} else if (targetLanguage.equals(term.getLiteralLanguage())) {
+					sourceTarget[1] = term.getLiteralLexicalForm();
 				}
 			}
 		}
@@ -288,6 +304,7 @@ public abstract class EnrichmentConverter {
 	 * @param segment
 	 *            the Ocelot segment.
 	 */
+	@Override
 	public void convertEnrichments2ITSMetadata(OcelotSegment segment) {
 
 		if (segment.getSource() instanceof BaseSegmentVariant) {
@@ -318,28 +335,94 @@ public abstract class EnrichmentConverter {
 	public static void convertEnrichment2ITSMetaData(OcelotSegment segment,
 	        BaseSegmentVariant variant, String segmentPart) {
 
-		Set<Enrichment> variantEnrichments = variant.getEnirchments();
-		if (variantEnrichments != null) {
-			String sourceText = variant.getDisplayText();
+		addEnrichmentMetaData(variant.getEnirchments(),
+		        variant.getDisplayText(), segmentPart,
+		        segment.getTextAnalysis(), segment.getTerms(), false);
+	}
+
+	/**
+	 * Reads the ITS meta data of the enrichments assigned to a segment. The
+	 * deferred enrichments of its variants are read from their raw form and
+	 * are not kept.
+	 * 
+	 * @param segment
+	 *            the Ocelot segment
+	 * @param textAnalysis
+	 *            the Text-Analysis meta data already assigned to the segment:
+	 *            those merged with the enrichments are replaced by copies
+	 * @param terms
+	 *            the Terminology meta data already assigned to the segment
+	 */
+	@Override
+	public void readEnrichmentMetadata(OcelotSegment segment,
+	        List<TextAnalysisMetaData> textAnalysis,
+	        List<TerminologyMetaData> terms) {
+
+		if (segment.getSource() instanceof BaseSegmentVariant) {
+			BaseSegmentVariant source = (BaseSegmentVariant) segment
+			        .getSource();
+			addEnrichmentMetaData(source.readEnrichments(),
+			        source.getDisplayText(), EnrichmentMetaData.SOURCE,
+			        textAnalysis, terms, true);
+		}
+		if (segment.getTarget() instanceof BaseSegmentVariant) {
+			BaseSegmentVariant target = (BaseSegmentVariant) segment
+			        .getTarget();
+			addEnrichmentMetaData(target.readEnrichments(),
+			        target.getDisplayText(), EnrichmentMetaData.TARGET,
+			        textAnalysis, terms, true);
+		}
+	}
+
+	/**
+	 * Adds the ITS meta data of some enrichments to the meta data lists of a
+	 * segment.
+	 * 
+	 * @param enrichments
+	 *            the enrichments of a variant
+	 * @param variantText
+	 *            the variant text
+	 * @param segmentPart
+	 *            a string stating the part of the segment involved.
+	 * @param taList
+	 *            the Text-Analysis meta data list
+	 * @param termList
+	 *            the Terminology meta data list
+	 * @param copyMerged
+	 *            <code>true</code> if the Text-Analysis meta data merged with
+	 *            an enrichment must be replaced by a copy instead of being
+	 *            changed
+	 */
+	private static void addEnrichmentMetaData(
+	        Collection<Enrichment> enrichments, String variantText,
+	        String segmentPart, List<TextAnalysisMetaData> taList,
+	        List<TerminologyMetaData> termList, boolean copyMerged) {
+
+		if (enrichments != null) {
 			TextAnalysisMetaData taAnnot = null;
 			TerminologyMetaData termAnnot = null;
-			for (Enrichment enrich : variantEnrichments) {
+			for (Enrichment enrich : enrichments) {
 				if (enrich.getType().equals(Enrichment.ENTITY_TYPE)) {
 					taAnnot = createTaMetaData((EntityEnrichment) enrich,
-					        sourceText, segmentPart);
+					        variantText, segmentPart);
 					TextAnalysisMetaData existingMetaData = findTaMetaData(
-					        taAnnot.getEntity(), segment.getTextAnalysis(), segmentPart);
+					        taAnnot.getEntity(), taList, segmentPart);
 					if (existingMetaData == null) {
-						segment.addTextAnalysis(taAnnot);
+						taList.add(taAnnot);
+					} else if (copyMerged) {
+						TextAnalysisMetaData mergedMetaData = copyTaMetaData(existingMetaData);
+						mergedMetaData.merge(taAnnot);
+						taList.set(taList.indexOf(existingMetaData),
+						        mergedMetaData);
 					} else {
 						existingMetaData.merge(taAnnot);
 					}
 				} else if (enrich.getType().equals(Enrichment.TERMINOLOGY_TYPE)) {
 					termAnnot = createTermMetaData(
-					        (TerminologyEnrichment) enrich, sourceText,
+					        (TerminologyEnrichment) enrich, variantText,
 					        segmentPart);
-					if(!segment.getTerms().contains(termAnnot)){
-						segment.addTerm(termAnnot);
+					if(!termList.contains(termAnnot)){
+						termList.add(termAnnot);
 					}
 				}
 			}
@@ -419,6 +502,22 @@ public abstract class EnrichmentConverter {
 
 	}
 
+	/**
+	 * Copies a Text-Analysis meta data.
+	 * 
+	 * @param metaData
+	 *            the meta data
+	 * @return the copy
+	 */
+	private static TextAnalysisMetaData copyTaMetaData(
+	        TextAnalysisMetaData metaData) {
+		TextAnalysisMetaData copy = new TextAnalysisMetaData();
+		copy.setEntity(metaData.getEntity());
+		copy.setSegPart(metaData.getSegPart());
+		copy.merge(metaData);
+		return copy;
+	}
+
 	/**
 	 * Creates a text-analysis meta data starting from an entity enrichment.
 	 * 
@@ -1,6 +1,7 @@
 package com.vistatec.ocelot.xliff.freme;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -44,18 +45,16 @@ public class EnrichmentConverterXLIFF12 extends EnrichmentConverter {
 	}
 
 	/**
-	 * Retrieves enrichments from a specific XLIFF 1.2 text unit. Codes embedded
-	 * into the text unit and the skeleton are inspected. The codes representing
-	 * enrichments are then deleted.
+	 * Retrieves enrichments from a specific XLIFF 1.2 text container. Codes
+	 * embedded into the text container are inspected. The codes representing
+	 * enrichments are then deleted. The triple enrichments are not included:
+	 * see {@link #retrieveTriplesJson(ITextUnit)}.
 	 * 
 	 * @param textContainer
 	 *            the text container
-	 * @param textUnit
-	 *            the text unit.
 	 * @return the list of retrieved enrichments
 	 */
-	public List<Enrichment> retrieveEnrichments(TextContainer textContainer,
-	        ITextUnit textUnit , String language) {
+	public List<Enrichment> retrieveEnrichments(TextContainer textContainer) {
 
 		List<Enrichment> enrichments = new ArrayList<Enrichment>();
 		if (textContainer != null) {
@@ -112,9 +111,6 @@ public class EnrichmentConverterXLIFF12 extends EnrichmentConverter {
 				}
 			}
 		}
-		// retrieve all triple enrichments.
-		enrichments.addAll(retrieveTriplesEnrichments(textUnit.getSkeleton(),
-		        enrichments, language));
 		return enrichments;
 	}
 
@@ -420,20 +416,19 @@ public class EnrichmentConverterXLIFF12 extends EnrichmentConverter {
 	}
 
 	/**
-	 * Retrieves triple enrichments from the skeleton. The skeleton in XLIFF 1.2
-	 * file includes a <code>&lt;ex:json-ld&gt;</code> tag containing the
-	 * JSON-LD triples. Triple enrichments are those enrichments having info
-	 * stored in the JSON triples (Link and Terminology enrichments).
+	 * Retrieves the JSON-LD triples from the skeleton of a text unit. The
+	 * skeleton in XLIFF 1.2 file includes a <code>&lt;ex:json-ld&gt;</code>
+	 * tag containing the JSON-LD triples. Triple enrichments are those
+	 * enrichments having info stored in the JSON triples (Link and
+	 * Terminology enrichments).
 	 * 
-	 * @param skeleton
-	 *            the skeleton
-	 * @param enrichments
-	 *            all the enrichments found so far.
-	 * @return the complete list of enrichments.
+	 * @param textUnit
+	 *            the text unit
+	 * @return the JSON-LD strings, empty if the text unit has no triples.
 	 */
-	private List<Enrichment> retrieveTriplesEnrichments(ISkeleton skeleton,
-	        List<Enrichment> enrichments, String language) {
-		List<Enrichment> triplesEnrichments = new ArrayList<Enrichment>();
+	public List<String> retrieveTriplesJson(ITextUnit textUnit) {
+
+		ISkeleton skeleton = textUnit.getSkeleton();
 		if (skeleton != null) {
 			String skelString = skeleton.toString();
 			int jsonStartIdx = skelString
@@ -443,14 +438,11 @@ public class EnrichmentConverterXLIFF12 extends EnrichmentConverter {
 				String stringJson = skelString.substring(jsonStartIdx);
 				int endJsonIdx = stringJson.indexOf("</"
 				        + LinkEnrichment.MARKER_TAG);
-				stringJson = stringJson.substring(0, endJsonIdx);
-				triplesEnrichments.addAll(retrieveTriplesEnrichments(
-				        stringJson, enrichments, language));
+				return Collections.singletonList(stringJson.substring(0,
+				        endJsonIdx));
 			}
 		}
-
-		return triplesEnrichments;
-
+		return Collections.emptyList();
 	}
 
 }
@@ -40,7 +40,8 @@ public class EnrichmentConverterXLIFF20 extends EnrichmentConverter {
 	}
 
 	/**
-	 * Retrieves the enrichments from a XLIFF 2.0 unit.
+	 * Retrieves the enrichments from a XLIFF 2.0 unit. The triple enrichments
+	 * are not included: see {@link #retrieveTriplesJson(Unit)}.
 	 * 
 	 * @param unit
 	 *            the unit
@@ -48,7 +49,7 @@ public class EnrichmentConverterXLIFF20 extends EnrichmentConverter {
 	 *            the current involved fragment
 	 * @return the list of enrichments for this unit.
 	 */
-	public List<Enrichment> retrieveEnrichments(Unit unit, Fragment fragment, String language) {
+	public List<Enrichment> retrieveEnrichments(Unit unit, Fragment fragment) {
 
 		List<Enrichment> enrichments = new ArrayList<Enrichment>();
 		if (fragment != null) {
@@ -115,8 +116,6 @@ public class EnrichmentConverterXLIFF20 extends EnrichmentConverter {
 			}
 			newCodedText.append(codedText.substring(lastIndex));
 			fragment.setCodedText(newCodedText.toString());
-			enrichments.addAll(retrieveTriplesEnrichments(
-			        unit.getExtElements(), enrichments, language));
 		}
 		return enrichments;
 	}
@@ -214,20 +213,18 @@ public class EnrichmentConverterXLIFF20 extends EnrichmentConverter {
 	}
 
 	/**
-	 * Retrieves the triple enrichments for a XLIFF file 2.0. The triple
+	 * Retrieves the JSON-LD triples of a XLIFF 2.0 unit. The triple
 	 * enrichments are those enrichments expressed in triples (link and
 	 * terminology).
 	 * 
-	 * @param elements
-	 *            the extra elements in the current XLIFF 2.0 unit
-	 * @param enrichments
-	 *            the list of enrichments found so far.
-	 * @return the complete list of enrichments.
+	 * @param unit
+	 *            the unit
+	 * @return the JSON-LD strings of the extra elements of the unit.
 	 */
-	private List<Enrichment> retrieveTriplesEnrichments(
-	        final ExtElements elements, final List<Enrichment> enrichments, String language) {
+	public List<String> retrieveTriplesJson(Unit unit) {
 
-		List<Enrichment> triplesEnrichments = new ArrayList<Enrichment>();
+		List<String> jsonStrings = new ArrayList<String>();
+		ExtElements elements = unit.getExtElements();
 		if (elements != null) {
 			Iterator<ExtElement> elemsIt = elements.iterator();
 			ExtElement elem = null;
@@ -237,17 +234,15 @@ public class EnrichmentConverterXLIFF20 extends EnrichmentConverter {
 				        && elem.getQName().getLocalPart().equals("json-ld")
 				        && !elem.getChildren().isEmpty()) {
 					if (elem.getChildren().get(0) instanceof ExtContent) {
-						String jsonString = ((ExtContent) elem.getChildren()
-						        .get(0)).getText();
-						triplesEnrichments.addAll(retrieveTriplesEnrichments(
-						        jsonString, enrichments, language));
+						jsonStrings.add(((ExtContent) elem.getChildren()
+						        .get(0)).getText());
 					}
 
 				}
 			}
 		}
 
-		return triplesEnrichments;
+		return jsonStrings;
 	}
 }
 
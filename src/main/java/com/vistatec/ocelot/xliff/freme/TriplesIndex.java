@@ -0,0 +1,164 @@
+package com.vistatec.ocelot.xliff.freme;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+/**
+ * Triples of a JSON-LD string, streamed from the parser into maps by subject
+ * and by object. Unlike reading a Jena model, no graph is built and indexed
+ * for each annotated fragment: the enrichments are built by looking up the
+ * maps.
+ */
+class TriplesIndex extends StreamRDFBase {
+
+	/**
+	 * Empty model shared by all the indexes, only wrapping triples into
+	 * statements. No triple is ever added to it.
+	 */
+	private static final Model STATEMENT_FACTORY = ModelFactory
+	        .createDefaultModel();
+
+	/** The triples by subject, in parsing order. */
+	private final Map<Node, List<Triple>> triplesBySubject = new LinkedHashMap<Node, List<Triple>>();
+
+	/** The triples by object. */
+	private final ListMultimap<Node, Triple> triplesByObject = ArrayListMultimap
+	        .create();
+
+	/**
+	 * Parses triples formatted as a JSON-LD string.
+	 *
+	 * @param jsonString
+	 *            the JSON-LD string
+	 * @return the index of the triples.
+	 */
+	static TriplesIndex parse(String jsonString) {
+
+		TriplesIndex index = new TriplesIndex();
+		RDFDataMgr.parse(index, new StringReader(jsonString), null,
+		        Lang.JSONLD);
+		return index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.jena.riot.system.StreamRDFBase#triple(com.hp.hpl.jena.graph.Triple)
+	 */
+	@Override
+	public void triple(Triple triple) {
+
+		List<Triple> triples = triplesBySubject.get(triple.getSubject());
+		if (triples == null) {
+			triples = new ArrayList<Triple>();
+			triplesBySubject.put(triple.getSubject(), triples);
+		}
+		triples.add(triple);
+		triplesByObject.put(triple.getObject(), triple);
+	}
+
+	/**
+	 * Gets the distinct subjects, in parsing order.
+	 *
+	 * @return the subjects.
+	 */
+	Set<Node> getSubjects() {
+		return triplesBySubject.keySet();
+	}
+
+	/**
+	 * Gets the triples of a subject.
+	 *
+	 * @param subject
+	 *            the subject
+	 * @return the triples.
+	 */
+	List<Triple> getTriples(Node subject) {
+
+		List<Triple> triples = triplesBySubject.get(subject);
+		return triples != null ? triples : Collections.<Triple> emptyList();
+	}
+
+	/**
+	 * Gets the triples of a subject having a property.
+	 *
+	 * @param subject
+	 *            the subject
+	 * @param propertyURI
+	 *            the property URI
+	 * @return the triples.
+	 */
+	List<Triple> getTriples(Node subject, String propertyURI) {
+
+		List<Triple> triples = new ArrayList<Triple>();
+		for (Triple triple : getTriples(subject)) {
+			if (propertyURI.equals(triple.getPredicate().getURI())) {
+				triples.add(triple);
+			}
+		}
+		return triples;
+	}
+
+	/**
+	 * Gets the triples having a property and an object.
+	 *
+	 * @param propertyURI
+	 *            the property URI
+	 * @param object
+	 *            the object
+	 * @return the triples.
+	 */
+	List<Triple> getTriplesWithObject(String propertyURI, Node object) {
+
+		List<Triple> triples = new ArrayList<Triple>();
+		for (Triple triple : triplesByObject.get(object)) {
+			if (propertyURI.equals(triple.getPredicate().getURI())) {
+				triples.add(triple);
+			}
+		}
+		return triples;
+	}
+
+	/**
+	 * Gets the values of the properties of a subject.
+	 *
+	 * @param subject
+	 *            the subject
+	 * @return the values by property URI.
+	 */
+	ListMultimap<String, Node> getProperties(Node subject) {
+
+		ListMultimap<String, Node> properties = ArrayListMultimap.create();
+		for (Triple triple : getTriples(subject)) {
+			properties.put(triple.getPredicate().getURI(), triple.getObject());
+		}
+		return properties;
+	}
+
+	/**
+	 * Wraps a triple into a statement.
+	 *
+	 * @param triple
+	 *            the triple
+	 * @return the statement.
+	 */
+	static Statement toStatement(Triple triple) {
+		return STATEMENT_FACTORY.asStatement(triple);
+	}
+}
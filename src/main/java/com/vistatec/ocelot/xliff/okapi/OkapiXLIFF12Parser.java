@@ -213,11 +213,15 @@ public class OkapiXLIFF12Parser implements XLIFFParser {
 		TextContainer oriTgtTu = retrieveOriginalTarget(tgtTu);
 
 		List<Enrichment> sourceEnrichments = enrichmentConverter
-		        .retrieveEnrichments(srcTu, tu, LocaleId.fromString(getSourceLang()).getLanguage());
+		        .retrieveEnrichments(srcTu);
 		List<Enrichment> targetEnrichments = enrichmentConverter
-		        .retrieveEnrichments(tgtTu, tu, LocaleId.fromString(getTargetLang()).getLanguage());
+		        .retrieveEnrichments(tgtTu);
 		List<Enrichment> originalTargetEnrichments = enrichmentConverter
-		        .retrieveEnrichments(oriTgtTu, tu, LocaleId.fromString(getTargetLang()).getLanguage());
+		        .retrieveEnrichments(oriTgtTu);
+		// the triple enrichments are built once the segment is displayed
+		List<String> triplesJson = enrichmentConverter.retrieveTriplesJson(tu);
+		String sourceLanguage = LocaleId.fromString(getSourceLang()).getLanguage();
+		String targetLanguage = LocaleId.fromString(getTargetLang()).getLanguage();
 
 		OkapiSegment.Builder segBuilder = new OkapiSegment.Builder()
 		        .segmentNumber(documentSegmentNum++)
@@ -248,18 +252,24 @@ public class OkapiXLIFF12Parser implements XLIFFParser {
 		if (segment.getSource() instanceof BaseSegmentVariant
 		        && !sourceEnrichments.isEmpty()) {
 			((BaseSegmentVariant) segment.getSource())
-			        .addEnrichmentList(sourceEnrichments);
+			        .setDeferredEnrichments(enrichmentConverter
+			                .deferTriplesEnrichments(sourceEnrichments,
+			                        triplesJson, sourceLanguage));
 			((BaseSegmentVariant) segment.getSource()).setEnriched(true);
 		}
 		if (segment.getTarget() instanceof BaseSegmentVariant
 		        && !targetEnrichments.isEmpty()) {
 			((BaseSegmentVariant) segment.getTarget())
-			        .addEnrichmentList(targetEnrichments);
+			        .setDeferredEnrichments(enrichmentConverter
+			                .deferTriplesEnrichments(targetEnrichments,
+			                        triplesJson, targetLanguage));
 		}
 		if (segment.getOriginalTarget() instanceof BaseSegmentVariant
 		        && !originalTargetEnrichments.isEmpty()) {
 			((BaseSegmentVariant) segment.getOriginalTarget())
-			        .addEnrichmentList(originalTargetEnrichments);
+			        .setDeferredEnrichments(enrichmentConverter
+			                .deferTriplesEnrichments(originalTargetEnrichments,
+			                        triplesJson, targetLanguage));
 		}
 		List<Enrichment> totEnrichments = new ArrayList<Enrichment>(
 		        sourceEnrichments);
@@ -305,7 +315,9 @@ public class OkapiXLIFF12Parser implements XLIFFParser {
 		List<OtherITSMetadata> otherList = new ArrayList<OtherITSMetadata>();
 		// otherList.addAll(EnrichmentConverter.convertEnrichments2ITSMetadata(enrichments,
 		// seg));
-		enrichmentConverter.convertEnrichments2ITSMetadata(seg);
+		if (!enrichments.isEmpty()) {
+			seg.setDeferredEnrichmentMetadata(enrichmentConverter);
+		}
 //		seg.addAllTextAnalysis(retrieveITSTAAnnotations(tu, srcTu, tgtTu));
 		if (tgtTu != null) {
 			for (GenericAnnotation mtAnn : retrieveITSMTConfidenceAnnotations(tgtTu)) {
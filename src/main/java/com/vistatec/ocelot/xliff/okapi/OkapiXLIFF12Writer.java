@@ -103,6 +103,18 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
 
     @Override
     public void updateSegment(OcelotSegment seg) {
+        updateSegment(seg, LocaleId.fromString(parser.getTargetLang()));
+    }
+
+    @Override
+    public void updateSegments(List<OcelotSegment> segs) {
+        LocaleId targetLocale = LocaleId.fromString(parser.getTargetLang());
+        for (OcelotSegment seg : segs) {
+            updateSegment(seg, targetLocale);
+        }
+    }
+
+    private void updateSegment(OcelotSegment seg, LocaleId targetLocale) {
         OkapiSegment okapiSeg = (OkapiSegment) seg;
         Event event = getParser().getSegmentEvent(okapiSeg.eventNum);
         if (event == null) {
@@ -123,7 +135,7 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
 
             if (okapiSeg.hasOriginalTarget()) {
                 // Make sure the Okapi Event is aware that the target has changed.
-                textUnit.setTarget(LocaleId.fromString(parser.getTargetLang()), unwrap(okapiSeg.getTarget()));
+                textUnit.setTarget(targetLocale, unwrap(okapiSeg.getTarget()));
                 updateOriginalTarget(okapiSeg);
             }
         } else {
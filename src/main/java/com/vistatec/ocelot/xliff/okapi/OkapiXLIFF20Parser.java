@@ -37,7 +37,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -139,18 +138,20 @@ public class OkapiXLIFF20Parser implements XLIFFParser {
 
 			} else if (event.isUnit()) {
 				Unit unit = event.getUnit();
+				List<String> triplesJson = enrichmentConverter
+				        .retrieveTriplesJson(unit);
 				for (Part unitPart : unit) {
 					if (unitPart.isSegment()) {
 						List<Enrichment> sourceEnrichments = enrichmentConverter
 						        .retrieveEnrichments(unit,
-						                unitPart.getSource(), sourceLang);
+						                unitPart.getSource());
 						List<Enrichment> targetEnrichments = enrichmentConverter
 						        .retrieveEnrichments(unit,
-						                unitPart.getTarget(), targetLang);
+						                unitPart.getTarget());
 						net.sf.okapi.lib.xliff2.core.Segment okapiSegment =
                                 (net.sf.okapi.lib.xliff2.core.Segment) unitPart;
 						OcelotSegment ocelotSegment = convertPartToSegment(
-						        okapiSegment, segmentUnitPartIndex++, sourceEnrichments, targetEnrichments, unit.getId());
+						        okapiSegment, segmentUnitPartIndex++, sourceEnrichments, targetEnrichments, triplesJson, unit.getId());
 						if (ocelotSegment.getTarget() != null) {
 							setTargetRevisions(unit, okapiSegment,
 							        ocelotSegment);
@@ -313,7 +314,7 @@ public class OkapiXLIFF20Parser implements XLIFFParser {
 	 * @return Segment - Ocelot Segment
 	 * @throws MalformedURLException
 	 */
-    private OcelotSegment convertPartToSegment(net.sf.okapi.lib.xliff2.core.Segment unitPart, int segmentUnitPartIndex, List<Enrichment> sourceEnrichments, List<Enrichment> targetEnrichments, String unitId) throws MalformedURLException {
+    private OcelotSegment convertPartToSegment(net.sf.okapi.lib.xliff2.core.Segment unitPart, int segmentUnitPartIndex, List<Enrichment> sourceEnrichments, List<Enrichment> targetEnrichments, List<String> triplesJson, String unitId) throws MalformedURLException {
         segmentEventMapping.put(this.documentSegmentNum, this.events.size()-1);
         //TODO: load original target from file
 		OkapiSegment seg = new OkapiSegment.Builder()
@@ -326,14 +327,15 @@ public class OkapiXLIFF20Parser implements XLIFFParser {
 		seg.addAllLQI(parseLqiData(unitPart));
 		seg.addAllProvenance(parseProvData(unitPart));
         if(sourceEnrichments != null && !sourceEnrichments.isEmpty() && seg.getSource() != null && seg.getSource() instanceof BaseSegmentVariant){
-        	((BaseSegmentVariant)seg.getSource()).setEnrichments(new HashSet<Enrichment>(sourceEnrichments));
+        	((BaseSegmentVariant)seg.getSource()).setDeferredEnrichments(enrichmentConverter.deferTriplesEnrichments(sourceEnrichments, triplesJson, sourceLang));
         	((BaseSegmentVariant)seg.getSource()).setEnriched(true);
+        	seg.setDeferredEnrichmentMetadata(enrichmentConverter);
         }
         if(targetEnrichments != null && !targetEnrichments.isEmpty() && seg.getTarget() != null && seg.getTarget() instanceof BaseSegmentVariant){
-        	((BaseSegmentVariant)seg.getTarget()).setEnrichments(new HashSet<Enrichment>(targetEnrichments));
+        	((BaseSegmentVariant)seg.getTarget()).setDeferredEnrichments(enrichmentConverter.deferTriplesEnrichments(targetEnrichments, triplesJson, targetLang));
         	((BaseSegmentVariant)seg.getTarget()).setEnriched(true);
+        	seg.setDeferredEnrichmentMetadata(enrichmentConverter);
         }
-        enrichmentConverter.convertEnrichments2ITSMetadata(seg);
 		return seg;
 	}
 
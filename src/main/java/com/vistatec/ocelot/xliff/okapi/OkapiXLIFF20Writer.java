@@ -94,6 +94,21 @@ public class OkapiXLIFF20Writer implements XLIFFWriter {
 
     @Override
     public void updateSegment(OcelotSegment seg) {
+        updateSegment(seg, parser.getRevisionDateFormatter().format(new Date()));
+    }
+
+    /**
+     * Updates the segments with a single revision date, the one of the batch.
+     */
+    @Override
+    public void updateSegments(List<OcelotSegment> segs) {
+        String revisionDate = parser.getRevisionDateFormatter().format(new Date());
+        for (OcelotSegment seg : segs) {
+            updateSegment(seg, revisionDate);
+        }
+    }
+
+    private void updateSegment(OcelotSegment seg, String revisionDate) {
         OkapiSegment okapiSeg = (OkapiSegment) seg;
         Segment unitPart = this.parser.getSegmentUnitPart(okapiSeg.eventNum);
         if (unitPart == null) {
@@ -104,7 +119,7 @@ public class OkapiXLIFF20Writer implements XLIFFWriter {
                 FragmentVariant targetFrag = (FragmentVariant) okapiSeg.getTarget();
                 Fragment updatedOkapiFragment = targetFrag.getUpdatedOkapiFragment(unitPart.getTarget());
                 unitPart.setTarget(updatedOkapiFragment);
-                manageRevision(this.parser.getSegmentEvent(okapiSeg.getSegmentNumber()), unitPart, parser.getTargetVersion(okapiSeg.eventNum));
+                manageRevision(this.parser.getSegmentEvent(okapiSeg.getSegmentNumber()), unitPart, parser.getTargetVersion(okapiSeg.eventNum), revisionDate);
             }
             
             updateITSLQIAnnotations(unitPart, okapiSeg);
@@ -171,18 +186,17 @@ public class OkapiXLIFF20Writer implements XLIFFWriter {
     	return note;
     }
     
-	private void manageRevision(Event event, Segment unitPart, TargetVersion nextVersion) {
+	private void manageRevision(Event event, Segment unitPart, TargetVersion nextVersion, String revisionDate) {
 
     	if(event.isUnit()){
     		Unit unit =  event.getUnit();
     		Item item = null;
-    		Date now = new Date();
     		if(!unit.hasChangeTrack()){
     			ChangeTrack changeTrack = new ChangeTrack();
     			unit.setChangeTrack(changeTrack);
     			Revisions revisions = createTargetRevisions(nextVersion.getVersion());
     			changeTrack.add(revisions);
-    			Revision revision = createCurrentRevision(nextVersion.getVersion(), parser.getRevisionDateFormatter().format(now));
+    			Revision revision = createCurrentRevision(nextVersion.getVersion(), revisionDate);
     			revisions.add(revision);
     			item = new Item();
     			item.setProperty(Item.PROPERTY_CONTENT_VALUE);
@@ -210,7 +224,7 @@ public class OkapiXLIFF20Writer implements XLIFFWriter {
     				}
     			}
     			if(currentRevision == null){
-    				currentRevision = createCurrentRevision(nextVersion.getVersion(), parser.getRevisionDateFormatter().format(now));
+    				currentRevision = createCurrentRevision(nextVersion.getVersion(), revisionDate);
     				targetRevisions.add(currentRevision);
     				targetRevisions.setCurrentVersion(nextVersion.getVersion());
     			}
@@ -464,6 +464,149 @@ public class FindTest {
 
 	}
 
+	@Test
+	public void testRegexSourceEnglish() throws URISyntaxException,
+			IOException, XMLStreamException {
+
+		File file = new File(getClass().getResource(FOLDER_PATH + "Tiny.xlf")
+				.toURI());
+		XLIFFDocument xliffDoc = xliffService.parse(file);
+		frManager.setScope(WordFinder.SCOPE_SOURCE, Locale.ENGLISH);
+		frManager.enableOption(WordFinder.REGEX_OPTION, true);
+		String word = "(\\d+) words";
+		List<FindResult> results = findResults(xliffDoc.getSegments(),
+				word);
+		List<FindResult> expResults = new ArrayList<FindResult>();
+		expResults.add(new FindResult(0, 0, 17, 25,
+				false));
+		assertResults(expResults, results);
+		Assert.assertEquals("22", results.get(0).getGroups()[1]);
+		Assert.assertEquals("22 terms ($)",
+				frManager.getReplacement(results.get(0), "$1 terms (\\$)"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegexInvalidGroupReference() throws URISyntaxException,
+			IOException, XMLStreamException {
+
+		File file = new File(getClass().getResource(FOLDER_PATH + "Tiny.xlf")
+				.toURI());
+		XLIFFDocument xliffDoc = xliffService.parse(file);
+		frManager.setScope(WordFinder.SCOPE_SOURCE, Locale.ENGLISH);
+		frManager.enableOption(WordFinder.REGEX_OPTION, true);
+		List<FindResult> results = findResults(xliffDoc.getSegments(),
+				"(\\d+) words");
+		frManager.getReplacement(results.get(0), "$2");
+	}
+
+	@Test
+	public void testMultiTermWholeWordSourceEnglish()
+			throws URISyntaxException, IOException, XMLStreamException {
+
+		File file = new File(getClass().getResource(FOLDER_PATH + "Tiny.xlf")
+				.toURI());
+		XLIFFDocument xliffDoc = xliffService.parse(file);
+		frManager.setScope(WordFinder.SCOPE_SOURCE, Locale.ENGLISH);
+		frManager.enableOption(WordFinder.MULTI_TERM_OPTION, true);
+		frManager.enableOption(WordFinder.WHOLE_WORD_OPTION, true);
+		String word = "metrics|segment | to";
+		List<FindResult> results = findResults(xliffDoc.getSegments(),
+				word);
+		List<FindResult> expResults = new ArrayList<FindResult>();
+		expResults.add(new FindResult(0, 0, 5, 12,
+				false));
+		expResults.add(new FindResult(0, 0, 46, 48,
+				false));
+		expResults.add(new FindResult(0, 0, 74, 76,
+				false));
+		expResults.add(new FindResult(0, 0, 92, 99,
+				false));
+		expResults.add(new FindResult(1, 0, 5, 12,
+				false));
+		expResults.add(new FindResult(1, 0, 50, 52,
+				false));
+		expResults.add(new FindResult(1, 0, 53, 60,
+				false));
+		expResults.add(new FindResult(1, 0, 83, 85,
+				false));
+		expResults.add(new FindResult(1, 0, 125, 132,
+				false));
+		assertResults(expResults, results);
+	}
+
+	@Test
+	public void testMultiTermOverlappingTerms() {
+
+		List<String> terms = new ArrayList<String>();
+		terms.add("he");
+		terms.add("she");
+		terms.add("hers");
+		MultiTermMatcher matcher = new MultiTermMatcher(terms, false);
+		List<int[]> matches = matcher.findAll("uSHErs and he");
+		Assert.assertEquals(2, matches.size());
+		Assert.assertArrayEquals(new int[] { 1, 4 }, matches.get(0));
+		Assert.assertArrayEquals(new int[] { 11, 13 }, matches.get(1));
+	}
+
+	@Test
+	public void testFindWithListenerStopsWhenCancelled()
+			throws URISyntaxException, IOException, XMLStreamException {
+
+		File file = new File(getClass().getResource(FOLDER_PATH + "jp_MT.xlf")
+				.toURI());
+		XLIFFDocument xliffDoc = xliffService.parse(file);
+		frManager.setScope(WordFinder.SCOPE_TARGET, Locale.JAPANESE);
+		final List<FindResult> streamed = new ArrayList<FindResult>();
+		FindResultListener listener = new FindResultListener() {
+
+			@Override
+			public void resultFound(FindResult result) {
+				streamed.add(result);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return streamed.size() >= 3;
+			}
+		};
+		List<FindResult> results = frManager.findWord("ノー",
+				xliffDoc.getSegments(), listener);
+		List<FindResult> expResults = new ArrayList<FindResult>();
+		expResults.add(new FindResult(0, 0, 0, 2,
+				true));
+		expResults.add(new FindResult(1, 0, 0, 2,
+				true));
+		expResults.add(new FindResult(1, 0, 21, 23,
+				true));
+		assertResults(expResults, results);
+		assertResults(expResults, streamed);
+	}
+
+	@Test
+	public void testFindWithTextIndexMatchesFullScan()
+			throws URISyntaxException, IOException, XMLStreamException {
+
+		File file = new File(getClass().getResource(FOLDER_PATH + "Tiny.xlf")
+				.toURI());
+		XLIFFDocument xliffDoc = xliffService.parse(file);
+		SegmentTextIndex textIndex = new SegmentTextIndex();
+		textIndex.index(xliffDoc.getSegments());
+		frManager.setScope(WordFinder.SCOPE_SOURCE, Locale.ENGLISH);
+		String[] texts = { "to", "TO", "o t", "the ", " a", "xyz" };
+		try {
+			for (String text : texts) {
+				frManager.setTextIndex(null);
+				List<FindResult> expResults = findResults(
+						xliffDoc.getSegments(), text);
+				frManager.setTextIndex(textIndex);
+				assertResults(expResults,
+						findResults(xliffDoc.getSegments(), text));
+			}
+		} finally {
+			frManager.setTextIndex(null);
+		}
+	}
+
 	private List<FindResult> findResults(List<OcelotSegment> segments,
 			String text) {
 		return frManager.findWord(text, segments);
@@ -0,0 +1,177 @@
+package com.vistatec.ocelot.findrep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import net.sf.okapi.common.LocaleId;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Test;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.ReplaceEvent;
+import com.vistatec.ocelot.events.api.EventBusWrapper;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+public class TestFindAndReplaceController {
+
+	private final Mockery mockery = new Mockery() {
+		{
+			// the document is read on the event thread
+			setThreadingPolicy(new Synchroniser());
+		}
+	};
+
+	@Test
+	public void testReplaceWhileFindAllRuns() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<OcelotSegment> segments = Arrays.<OcelotSegment> asList(
+				segment(1, "red car, red bus"),
+				new SimpleSegment(2, new SimpleSegmentVariant("src"),
+						new SimpleSegmentVariant("red bike"), null, null) {
+					@Override
+					public SegmentVariant getTarget() {
+						// keeps the search running after the first segment
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return super.getTarget();
+					}
+				});
+		final XLIFFDocument xliff = mockery.mock(XLIFFDocument.class);
+		mockery.checking(new Expectations() {
+			{
+				allowing(xliff).getSegments();
+				will(returnValue(segments));
+				allowing(xliff).getSrcLocale();
+				will(returnValue(LocaleId.fromString("en-US")));
+				allowing(xliff).getTgtLocale();
+				will(returnValue(LocaleId.fromString("fr-FR")));
+			}
+		});
+
+		OcelotEventQueue eventQueue = new EventBusWrapper(new EventBus());
+		final List<ReplaceEvent> replaceEvents = Collections
+				.synchronizedList(new ArrayList<ReplaceEvent>());
+		eventQueue.registerListener(new OcelotEventQueueListener() {
+			@Subscribe
+			public void replaced(ReplaceEvent e) {
+				replaceEvents.add(e);
+			}
+		});
+		final StubView view = new StubView();
+		final FindAndReplaceController controller = new FindAndReplaceController(
+				eventQueue, null);
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				controller.fileOpened(new OpenFileEvent("test.xlf", xliff));
+				controller.setView(view);
+				controller.setTargetScope();
+				controller.findNext("red");
+			}
+		});
+		assertTrue(view.firstResults.await(5, TimeUnit.SECONDS));
+
+		// the first result is current, but the search is still running
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				controller.replace("blue");
+			}
+		});
+		assertTrue(replaceEvents.isEmpty());
+
+		release.countDown();
+		assertTrue(view.searchDone.await(5, TimeUnit.SECONDS));
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				assertEquals(3, view.occurrences);
+				controller.replace("blue");
+			}
+		});
+		assertEquals(1, replaceEvents.size());
+		assertEquals(0, replaceEvents.get(0).getSegmentIndex());
+		assertEquals("blue", replaceEvents.get(0).getNewString());
+	}
+
+	private static OcelotSegment segment(int segNum, String target) {
+
+		return new SimpleSegment.Builder().segmentNumber(segNum).source("src")
+				.target(target).build();
+	}
+
+	private static void onEventThread(Runnable runnable) throws Exception {
+
+		SwingUtilities.invokeAndWait(runnable);
+	}
+
+	/**
+	 * View recording the occurrences found and the end of the search.
+	 */
+	private static class StubView implements FindReplaceView {
+
+		private final CountDownLatch firstResults = new CountDownLatch(1);
+		private final CountDownLatch searchDone = new CountDownLatch(1);
+		private boolean searching;
+		private int occurrences;
+
+		@Override
+		public void setResult(int result) {
+		}
+
+		@Override
+		public void displayOccurrenceNum(int occurNum) {
+			occurrences = occurNum;
+			if (searching) {
+				firstResults.countDown();
+			}
+		}
+
+		@Override
+		public void hideOccNumber() {
+		}
+
+		@Override
+		public void setSearching(boolean searching) {
+			if (this.searching && !searching) {
+				searchDone.countDown();
+			}
+			this.searching = searching;
+		}
+
+		@Override
+		public int getSelectedScope() {
+			return WordFinder.SCOPE_TARGET;
+		}
+
+		@Override
+		public Component getComponent() {
+			return null;
+		}
+	}
+}
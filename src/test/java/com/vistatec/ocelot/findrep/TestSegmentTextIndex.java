@@ -0,0 +1,97 @@
+package com.vistatec.ocelot.findrep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
+import com.vistatec.ocelot.events.SegmentEditEvent;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
+
+public class TestSegmentTextIndex {
+
+    private List<OcelotSegment> segments;
+    private SegmentTextIndex index;
+
+    @Before
+    public void before() {
+        segments = new ArrayList<>();
+        segments.add(segment(1, "The quick brown fox", "Le renard brun"));
+        segments.add(segment(2, "jumps over the lazy dog", "saute le chien"));
+        segments.add(segment(3, "Foxes are quick", "Les renards"));
+        index = new SegmentTextIndex();
+        index.index(segments);
+    }
+
+    private static OcelotSegment segment(int segNum, String source, String target) {
+        return new SimpleSegment.Builder()
+                .segmentNumber(segNum)
+                .source(source)
+                .target(target)
+                .build();
+    }
+
+    private static Set<Integer> set(Integer... values) {
+        return new TreeSet<>(Arrays.asList(values));
+    }
+
+    @Test
+    public void testLookups() {
+        assertTrue(index.isReady());
+        assertEquals(set(0, 1), index.getSegmentsContaining("THE", false));
+        assertEquals(set(0, 2), index.getSegmentsWithPrefix("fox", false));
+        assertEquals(set(0, 2), index.getSegmentsWithPrefix("ren", true));
+        assertEquals(Collections.<Integer> emptySet(),
+                index.getSegmentsContaining("fox", true));
+
+        Map<String, Integer> frequencies = index.getWordFrequencies(false);
+        assertEquals(Integer.valueOf(2), frequencies.get("the"));
+        assertEquals(Integer.valueOf(2), frequencies.get("quick"));
+    }
+
+    @Test
+    public void testCandidateSegments() {
+        assertEquals(set(0, 2), index.findCandidateSegments(segments, "ox", false));
+        assertEquals(set(0, 2), index.findCandidateSegments(segments, "quick", false));
+        assertEquals(set(0), index.findCandidateSegments(segments, "k brown f", false));
+        assertEquals(set(1), index.findCandidateSegments(segments, "e lazy", false));
+        assertEquals(set(), index.findCandidateSegments(segments, "lazy fox", false));
+        // punctuation only text cannot be looked up
+        assertNull(index.findCandidateSegments(segments, " - ", false));
+        // the index refers to a different list of segments
+        assertNull(index.findCandidateSegments(
+                new ArrayList<>(segments), "fox", false));
+    }
+
+    @Test
+    public void testTargetEdits() {
+        OcelotSegment seg = segments.get(1);
+        seg.updateTarget(new SimpleSegmentVariant("le chat dort"));
+        index.segmentEdited(new SegmentEditEvent(null, seg));
+        assertEquals(set(1), index.getSegmentsContaining("chat", true));
+        assertFalse(index.getWordFrequencies(true).containsKey("chien"));
+        assertEquals(Integer.valueOf(2), index.getWordFrequencies(true).get("le"));
+
+        segments.get(0).updateTarget(new SimpleSegmentVariant("Le chat roux"));
+        segments.get(2).updateTarget(new SimpleSegmentVariant("Les chats"));
+        index.segmentsEdited(new SegmentBatchEditEvent(null,
+                Arrays.asList(segments.get(0), segments.get(2))));
+        assertEquals(set(0, 1), index.getSegmentsContaining("chat", true));
+        assertEquals(set(0, 1, 2), index.getSegmentsWithPrefix("chat", true));
+        assertEquals(set(), index.getSegmentsWithPrefix("ren", true));
+    }
+}
@@ -0,0 +1,187 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.vistatec.ocelot.segment.model.enrichment.ELinkEnrichmentsConstants;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkInfoData;
+import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.TranslationEnrichment;
+
+public class TestFremeEnrichmentCache {
+    private File dir;
+
+    @Before
+    public void before() {
+        dir = Files.createTempDir();
+    }
+
+    @After
+    public void after() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testKeys() {
+        List<Integer> services = Arrays.asList(FremePlugin.EENTITY_SERVICE, FremePlugin.ELINK_SERVICE);
+        String key = FremeEnrichmentCache.key("Berlin", "en", false, services);
+
+        assertEquals(key, FremeEnrichmentCache.key("Berlin", "en", false,
+                Arrays.asList(FremePlugin.ELINK_SERVICE, FremePlugin.EENTITY_SERVICE)));
+        assertFalse(key.equals(FremeEnrichmentCache.key("Berlin", "de", false, services)));
+        assertFalse(key.equals(FremeEnrichmentCache.key("Berlin", "en", true, services)));
+        assertFalse(key.equals(FremeEnrichmentCache.key("Berlin", "en", false,
+                Collections.singletonList(FremePlugin.EENTITY_SERVICE))));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        EntityEnrichment entity = new EntityEnrichment("char=0,6", "http://dbpedia.org/resource/Berlin");
+        TranslationEnrichment translation = new TranslationEnrichment("char=0,6", "Berlino", "it");
+
+        Model model = ModelFactory.createDefaultModel();
+        Resource term = model.createResource("http://example.com/term/1");
+        model.add(term, model.createProperty("http://www.w3.org/2000/01/rdf-schema#label"), "Berlin", "en");
+        TerminologyEnrichment terminology = new TerminologyEnrichment("char=0,6", "Berlin", "Berlino",
+                "city", null, model.listStatements().toList(), "http://example.com/term/1");
+        terminology.setAnnotator("http://example.com/tbx");
+
+        LinkEnrichment link = new LinkEnrichment(0, 6, "en");
+        link.setReferenceEntity("http://dbpedia.org/resource/Berlin");
+        link.setEntityName("Berlin", ELinkEnrichmentsConstants.ENTITY_NAME_PROP);
+        link.setWikiPage("http://en.wikipedia.org/wiki/Berlin", ELinkEnrichmentsConstants.WIKI_LINK_PROP);
+        LinkInfoData population = new LinkInfoData(ELinkEnrichmentsConstants.POPULATION_TOTAL,
+                "Population Total", Integer.class);
+        population.setValue("3500000");
+        link.setInfoList(Collections.singletonList(population));
+
+        FremeEnrichmentCache cache = new FremeEnrichmentCache(dir, 1024 * 1024);
+        String key = FremeEnrichmentCache.key("Berlin", "en", false, Arrays.asList(0, 1, 2, 3));
+        assertNull(cache.get(key));
+        cache.put(key, Arrays.<Enrichment> asList(entity, translation, terminology, link));
+
+        // a new instance reads the cache directory
+        List<Enrichment> cached = new FremeEnrichmentCache(dir, 1024 * 1024).get(key);
+        assertNotNull(cached);
+        assertEquals(4, cached.size());
+
+        EntityEnrichment cachedEntity = (EntityEnrichment) cached.get(0);
+        assertEquals(entity, cachedEntity);
+        assertEquals(entity.getAnnotatorRef(), cachedEntity.getAnnotatorRef());
+
+        TranslationEnrichment cachedTranslation = (TranslationEnrichment) cached.get(1);
+        assertEquals("Berlino", cachedTranslation.getTranslation());
+        assertEquals("it", cachedTranslation.getLanguage());
+        assertEquals(6, cachedTranslation.getOffsetEndIdx());
+
+        TerminologyEnrichment cachedTerm = (TerminologyEnrichment) cached.get(2);
+        assertEquals(terminology, cachedTerm);
+        assertEquals("http://example.com/term/1", cachedTerm.getTermInfoRef());
+        assertEquals("terminology|http://example.com/tbx", cachedTerm.getAnnotatorsRefValue());
+        assertEquals(terminology.getTermTriples(), cachedTerm.getTermTriples());
+
+        LinkEnrichment cachedLink = (LinkEnrichment) cached.get(3);
+        assertEquals(link, cachedLink);
+        assertEquals("Berlin", cachedLink.getEntityName().getValue());
+        assertEquals(link.getLinks(), cachedLink.getLinks());
+        assertEquals("Population Total: 3500000", cachedLink.getInfoList().get(0).getDisplayString());
+        assertNull(cachedLink.getShortDescription());
+    }
+
+    @Test
+    public void testEviction() {
+        FremeEnrichmentCache cache = new FremeEnrichmentCache(dir, 300);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String key = FremeEnrichmentCache.key("text " + i, "en", false, Arrays.asList(0));
+            cache.put(key, Collections.<Enrichment> singletonList(
+                    new EntityEnrichment("char=0,4", "http://dbpedia.org/resource/Entity_" + i)));
+            keys.add(key);
+            // keeps the first key recently used
+            assertNotNull(cache.get(keys.get(0)));
+        }
+        assertTrue(cache.getTotalBytes() <= 300);
+        assertNotNull(cache.get(keys.get(0)));
+        assertNull(cache.get(keys.get(1)));
+        assertNotNull(cache.get(keys.get(4)));
+        assertEquals(cache.getTotalBytes(), new FremeEnrichmentCache(dir, 300).getTotalBytes());
+
+        cache.clear();
+        assertNull(cache.get(keys.get(0)));
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void testConcurrentLoads() throws Exception {
+        final FremeEnrichmentCache cache = new FremeEnrichmentCache(dir, 10000);
+        final String key = FremeEnrichmentCache.key("Berlin", "en", false, Arrays.asList(0));
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final FremeEnrichmentCache.Loader loader = new FremeEnrichmentCache.Loader() {
+            @Override
+            public List<Enrichment> load() {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.<Enrichment> singletonList(
+                        new EntityEnrichment("char=0,6", "http://dbpedia.org/resource/Berlin"));
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<List<Enrichment>> get = new Callable<List<Enrichment>>() {
+                @Override
+                public List<Enrichment> call() throws Exception {
+                    return cache.get(key, loader);
+                }
+            };
+            Future<List<Enrichment>> first = executor.submit(get);
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<List<Enrichment>> second = executor.submit(get);
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS).size());
+            assertEquals(1, second.get(5, TimeUnit.SECONDS).size());
+            assertEquals(1, loads.get());
+            assertNotNull(cache.get(key));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
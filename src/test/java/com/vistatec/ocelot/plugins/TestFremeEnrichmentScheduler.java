@@ -0,0 +1,132 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.RateLimiter;
+import com.vistatec.ocelot.events.RefreshSegmentView;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.services.SegmentService;
+
+public class TestFremeEnrichmentScheduler {
+    private final Mockery mockery = new Mockery() {{
+        setThreadingPolicy(new Synchroniser());
+    }};
+
+    @Test
+    public void testBatches() {
+        FremeEnrichmentScheduler scheduler = new FremeEnrichmentScheduler(1, 4, 1000, 3, 10);
+        List<VariantWrapper> fragments = new ArrayList<>();
+        for (String text : new String[] { "a", "bb", "a very long fragment", "c", "dd", "e", "f" }) {
+            fragments.add(fragment(text));
+        }
+        List<FremeEnrichmentScheduler.Batch> batches = scheduler.makeBatches(fragments,
+                new FremeEnrichmentScheduler.EnrichmentJob(fragments.size()), null);
+
+        // the long fragment alone first, then the short ones by length and count
+        assertEquals(3, batches.size());
+        assertEquals(1, batches.get(0).fragments.size());
+        assertEquals("a very long fragment", batches.get(0).fragments.get(0).getText());
+        assertEquals(3, batches.get(1).fragments.size());
+        assertEquals("bb", batches.get(1).fragments.get(0).getText());
+        assertEquals(3, batches.get(2).fragments.size());
+    }
+
+    @Test
+    public void testBoundedConcurrency() throws Exception {
+        FremeEnrichmentScheduler scheduler = new FremeEnrichmentScheduler(3, 2, 1000, 2, 100);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<String> enriched = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger refreshes = new AtomicInteger();
+        FremeEnricher enricher = new FremeEnricher(null, null, null, null, null, null, null, null) {
+            @Override
+            public EnrichmentResult enrich(VariantWrapper frag, RateLimiter rateLimiter) {
+                int current = running.incrementAndGet();
+                while (current > maxRunning.get()) {
+                    maxRunning.compareAndSet(maxRunning.get(), current);
+                }
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                enriched.add(frag.getText());
+                running.decrementAndGet();
+                return new EnrichmentResult(frag, Collections.<Enrichment> emptyList());
+            }
+
+            @Override
+            public ListenableFuture<Void> apply(List<EnrichmentResult> results) {
+                refreshes.incrementAndGet();
+                return Futures.immediateFuture(null);
+            }
+        };
+        List<VariantWrapper> fragments = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            fragments.add(fragment("fragment " + i));
+        }
+
+        scheduler.submit(fragments, enricher).get(10, TimeUnit.SECONDS);
+        assertEquals(40, enriched.size());
+        assertTrue(maxRunning.get() <= 3);
+        // one refresh per batch of two fragments
+        assertEquals(20, refreshes.get());
+
+        // nothing to enrich completes right away
+        assertTrue(scheduler.submit(new ArrayList<VariantWrapper>(), enricher).isDone());
+    }
+
+    @Test
+    public void testApplyOnModelThread() throws Exception {
+        final SimpleSegment segment = new SimpleSegment.Builder()
+                .segmentNumber(1).source("Berlin").target("").build();
+        final SegmentService segmentService = mockery.mock(SegmentService.class);
+        final OcelotEventQueue eventQueue = mockery.mock(OcelotEventQueue.class);
+        mockery.checking(new Expectations() {{
+            allowing(segmentService).getSegmentByNumber(1);
+            will(returnValue(segment));
+            oneOf(eventQueue).post(with(any(RefreshSegmentView.class)));
+        }});
+        ExecutorService modelThread = Executors.newSingleThreadExecutor();
+        FremeEnricher enricher = new FremeEnricher(null, eventQueue, segmentService, null,
+                "en", "it", null, modelThread);
+
+        BaseSegmentVariant source = (BaseSegmentVariant) segment.getSource();
+        VariantWrapper fragment = new VariantWrapper(source, "Berlin", 1, false);
+        EnrichmentResult result = new EnrichmentResult(fragment, Collections.<Enrichment> singletonList(
+                new EntityEnrichment("char=0,6", "http://dbpedia.org/resource/Berlin")));
+        enricher.apply(Collections.singletonList(result)).get(10, TimeUnit.SECONDS);
+        modelThread.shutdown();
+
+        assertTrue(source.isEnriched());
+        assertTrue(source.isSentToFreme());
+        assertEquals(1, source.getEnirchments().size());
+        assertEquals(1, segment.getTextAnalysis().size());
+        assertEquals("Berlin", segment.getTextAnalysis().get(0).getEntity());
+        mockery.assertIsSatisfied();
+    }
+
+    private static VariantWrapper fragment(String text) {
+        return new VariantWrapper(null, text, 1, false);
+    }
+}
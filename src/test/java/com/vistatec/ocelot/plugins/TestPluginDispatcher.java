@@ -0,0 +1,196 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestPluginDispatcher {
+    private PluginDispatcher dispatcher;
+
+    @After
+    public void after() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testSlowPluginDoesNotBlock() throws Exception {
+        dispatcher = new PluginDispatcher(10000, 10, PluginDispatcher.DropPolicy.DROP_NEWEST);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fastDone = new CountDownLatch(1);
+        dispatcher.dispatch(plugin("slow"), "call", new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() throws Exception {
+                release.await();
+            }
+        });
+        dispatcher.dispatch(plugin("fast"), "call", new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() {
+                fastDone.countDown();
+            }
+        });
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        dispatcher = new PluginDispatcher(50, 10, PluginDispatcher.DropPolicy.DROP_NEWEST);
+        final CountDownLatch next = new CountDownLatch(1);
+        final boolean[] interruptedAfterTimeout = new boolean[1];
+        Plugin plugin = plugin("hanging");
+        dispatcher.dispatch(plugin, "hang", new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() throws Exception {
+                Thread.sleep(10000);
+            }
+        });
+        dispatcher.dispatch(plugin, "next", new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() {
+                interruptedAfterTimeout[0] = Thread.currentThread().isInterrupted();
+                next.countDown();
+            }
+        });
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+        assertEquals(false, interruptedAfterTimeout[0]);
+
+        PluginStatistics stats = waitForCalls(2);
+        assertEquals("hanging", stats.getPluginName());
+        assertEquals(1, stats.getTimeouts());
+        assertEquals(1, stats.getFailures());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        dispatcher = new PluginDispatcher(10000, 1, PluginDispatcher.DropPolicy.DROP_NEWEST);
+        assertEquals(Collections.singletonList("second"), runWithFullQueue());
+        assertEquals(1, waitForCalls(2).getDropped());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        dispatcher = new PluginDispatcher(10000, 1, PluginDispatcher.DropPolicy.DROP_OLDEST);
+        assertEquals(Collections.singletonList("third"), runWithFullQueue());
+        assertEquals(1, waitForCalls(2).getDropped());
+    }
+
+    @Test
+    public void testStatefulCallsNeitherDroppedNorTimedOut() throws Exception {
+        dispatcher = new PluginDispatcher(50, 1, PluginDispatcher.DropPolicy.DROP_NEWEST);
+        Plugin plugin = plugin("stateful");
+        final List<Integer> run = Collections.synchronizedList(new ArrayList<Integer>());
+        final boolean[] interrupted = new boolean[1];
+        dispatcher.dispatchStateful(plugin, "slow", new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                }
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            final int call = i;
+            dispatcher.dispatchStateful(plugin, "call", new PluginDispatcher.PluginCall() {
+                @Override
+                public void call() {
+                    run.add(call);
+                }
+            });
+        }
+        PluginStatistics stats = waitForCalls(6);
+        assertEquals(false, interrupted[0]);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), run);
+        assertEquals(0, stats.getTimeouts());
+        assertEquals(0, stats.getDropped());
+    }
+
+    @Test
+    public void testStopPlugins() throws Exception {
+        dispatcher = new PluginDispatcher(10000, 10, PluginDispatcher.DropPolicy.DROP_NEWEST);
+        final CountDownLatch done = new CountDownLatch(2);
+        PluginDispatcher.PluginCall call = new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() {
+                done.countDown();
+            }
+        };
+        dispatcher.dispatch(plugin("first"), "call", call);
+        waitForCalls(1);
+        dispatcher.stopPlugins();
+        assertTrue(dispatcher.getStatistics().isEmpty());
+        // the dispatcher is still usable
+        dispatcher.dispatch(plugin("second"), "call", call);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Blocks the plugin, then dispatches two calls to it while the queue holds
+     * a single one.
+     *
+     * @return the names of the calls run after the blocking one.
+     */
+    private List<String> runWithFullQueue() throws Exception {
+        Plugin plugin = plugin("blocked");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<String> run = Collections.synchronizedList(new ArrayList<String>());
+        dispatcher.dispatch(plugin, "first", new PluginDispatcher.PluginCall() {
+            @Override
+            public void call() throws Exception {
+                started.countDown();
+                release.await();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (final String name : new String[] { "second", "third" }) {
+            dispatcher.dispatch(plugin, name, new PluginDispatcher.PluginCall() {
+                @Override
+                public void call() {
+                    run.add(name);
+                    done.countDown();
+                }
+            });
+        }
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return run;
+    }
+
+    private PluginStatistics waitForCalls(long calls) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            PluginStatistics stats = dispatcher.getStatistics().get(0);
+            if (stats.getCalls() >= calls) {
+                return stats;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("The plugin calls did not complete");
+    }
+
+    private static Plugin plugin(final String name) {
+        return new Plugin() {
+            @Override
+            public String getPluginName() {
+                return name;
+            }
+
+            @Override
+            public String getPluginVersion() {
+                return "1.0";
+            }
+        };
+    }
+}
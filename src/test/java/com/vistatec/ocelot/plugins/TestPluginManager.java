@@ -30,8 +30,13 @@ package com.vistatec.ocelot.plugins;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
+import org.jmock.Expectations;
+import org.jmock.Mockery;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -43,6 +48,11 @@ import com.vistatec.ocelot.config.xml.OcelotRootConfig;
 import com.vistatec.ocelot.config.xml.RootConfig;
 import com.vistatec.ocelot.events.api.EventBusWrapper;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.its.model.LanguageQualityIssue;
+import com.vistatec.ocelot.its.model.Provenance;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.services.SegmentService;
 
 public class TestPluginManager {
 
@@ -72,6 +82,126 @@ public class TestPluginManager {
         assertEquals("1.0", segPlugin.getPluginVersion());
     }
 
+    @Test
+    public void testExportDataInBatches() throws Exception {
+        final List<OcelotSegment> segments = new ArrayList<OcelotSegment>();
+        for (int i = 1; i <= 5; i++) {
+            segments.add(new SimpleSegment.Builder().segmentNumber(i)
+                    .source("source " + i).target("target " + i).build());
+        }
+        Mockery mockery = new Mockery();
+        final SegmentService segmentService = mockery.mock(SegmentService.class);
+        mockery.checking(new Expectations() {{
+            allowing(segmentService).getNumSegments();
+            will(returnValue(segments.size()));
+            for (int row = 0; row < segments.size(); row++) {
+                allowing(segmentService).getSegment(row);
+                will(returnValue(segments.get(row)));
+            }
+        }});
+
+        PluginManager pluginManager = new PluginManager(
+                new OcelotConfigService(new TestConfigTransferService() {
+                    @Override
+                    public void save(RootConfig cfg) {
+                    }
+                }), new File("plugins"), new EventBusWrapper(new EventBus()));
+        RecordingBatchPlugin batchPlugin = new RecordingBatchPlugin();
+        RecordingPlugin plugin = new RecordingPlugin();
+        pluginManager.setEnabled(batchPlugin, true);
+        pluginManager.setEnabled(plugin, true);
+
+        final List<Integer> progress = new ArrayList<Integer>();
+        System.setProperty("ocelot.plugins.exportBatchSize", "2");
+        try {
+            pluginManager.exportData("en-US", "fr-FR", segmentService,
+                    new PluginManager.ExportProgress() {
+                        @Override
+                        public void exported(int exported, int total) {
+                            assertEquals(5, total);
+                            progress.add(exported);
+                        }
+
+                        @Override
+                        public boolean isCanceled() {
+                            return false;
+                        }
+                    });
+        } finally {
+            System.clearProperty("ocelot.plugins.exportBatchSize");
+        }
+        assertEquals(Arrays.asList(2, 4, 5), progress);
+        assertEquals(Arrays.asList(2, 2, 1), batchPlugin.batchSizes);
+        assertEquals(segments, plugin.lqiSegments);
+        assertEquals(segments, plugin.provSegments);
+        mockery.assertIsSatisfied();
+    }
+
+    @Test
+    public void testAdapterSkipsFailingSegment() throws Exception {
+        final List<OcelotSegment> segments = new ArrayList<OcelotSegment>();
+        for (int i = 1; i <= 3; i++) {
+            segments.add(new SimpleSegment.Builder().segmentNumber(i)
+                    .source("source " + i).target("target " + i).build());
+        }
+        RecordingPlugin plugin = new RecordingPlugin() {
+            @Override
+            public void sendLQIData(String sourceLang, String targetLang,
+                    OcelotSegment seg, List<LanguageQualityIssue> lqi) {
+                if (seg.getSegmentNumber() == 2) {
+                    throw new IllegalStateException("Failing segment");
+                }
+                super.sendLQIData(sourceLang, targetLang, seg, lqi);
+            }
+        };
+        ITSPluginBatchAdapter.of(plugin).sendITSData("en-US", "fr-FR", segments);
+        assertEquals(Arrays.asList(segments.get(0), segments.get(2)), plugin.lqiSegments);
+        assertEquals(Arrays.asList(segments.get(0), segments.get(2)), plugin.provSegments);
+    }
+
+    private static class RecordingPlugin implements ITSPlugin {
+        private final List<OcelotSegment> lqiSegments = new ArrayList<OcelotSegment>();
+        private final List<OcelotSegment> provSegments = new ArrayList<OcelotSegment>();
+
+        @Override
+        public String getPluginName() {
+            return "Recording ITS Plugin";
+        }
+
+        @Override
+        public String getPluginVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public void sendLQIData(String sourceLang, String targetLang,
+                OcelotSegment seg, List<LanguageQualityIssue> lqi) {
+            lqiSegments.add(seg);
+        }
+
+        @Override
+        public void sendProvData(String sourceLang, String targetLang,
+                OcelotSegment seg, List<Provenance> prov) {
+            provSegments.add(seg);
+        }
+    }
+
+    private static class RecordingBatchPlugin extends RecordingPlugin
+            implements BatchITSPlugin {
+        private final List<Integer> batchSizes = new ArrayList<Integer>();
+
+        @Override
+        public String getPluginName() {
+            return "Recording Batch ITS Plugin";
+        }
+
+        @Override
+        public void sendITSData(String sourceLang, String targetLang,
+                List<OcelotSegment> segments) {
+            batchSizes.add(segments.size());
+        }
+    }
+
     public class TestConfigTransferService implements ConfigTransferService {
 
         @Override
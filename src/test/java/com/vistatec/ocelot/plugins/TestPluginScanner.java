@@ -0,0 +1,69 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.io.Files;
+
+public class TestPluginScanner {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testScanCachedByHash() throws Exception {
+        File jar = folder.newFile("ITSPlugin.jar");
+        Files.copy(new File(getClass().getResource("/ITSPlugin-1.0-SNAPSHOT.jar").toURI()), jar);
+        File cacheFile = new File(folder.getRoot(), "plugin-cache.properties");
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() },
+                getClass().getClassLoader());
+        List<ListMultimap<Class<? extends Plugin>, String>> plugins = new PluginScanner(cacheFile)
+                .scan(new File[] { jar }, classLoader);
+        assertEquals(1, plugins.size());
+        assertEquals(1, plugins.get(0).size());
+        String className = plugins.get(0).get(ITSPlugin.class).get(0);
+        assertTrue(cacheFile.isFile());
+
+        // The classes can no longer be loaded: the plugins come from the cache
+        URLClassLoader emptyLoader = new URLClassLoader(new URL[0], null);
+        plugins = new PluginScanner(cacheFile).scan(new File[] { jar }, emptyLoader);
+        assertEquals(Collections.singletonList(className), plugins.get(0).get(ITSPlugin.class));
+    }
+
+    @Test
+    public void testScanServices() throws Exception {
+        File jar = folder.newFile("services.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry(PluginScanner.SERVICES_DIR
+                    + SegmentPlugin.class.getName()));
+            out.write("# Segment plugins\ncom.example.FirstPlugin\n\n com.example.SecondPlugin # second\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        File cacheFile = new File(folder.getRoot(), "plugin-cache.properties");
+
+        // The listed classes are not loaded
+        List<ListMultimap<Class<? extends Plugin>, String>> plugins = new PluginScanner(cacheFile)
+                .scan(new File[] { jar }, new URLClassLoader(new URL[0], null));
+        assertEquals(2, plugins.get(0).size());
+        assertEquals(Arrays.asList("com.example.FirstPlugin", "com.example.SecondPlugin"),
+                plugins.get(0).get(SegmentPlugin.class));
+    }
+}
@@ -0,0 +1,126 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vistatec.ocelot.its.model.LanguageQualityIssue;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+public class TestQualityPluginManager {
+    private final PluginDispatcher dispatcher = new PluginDispatcher(50, 1,
+            PluginDispatcher.DropPolicy.DROP_NEWEST);
+
+    @After
+    public void after() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testScoreEvaluatedAfterQueuedIssues() throws Exception {
+        RecordingPlugin plugin = new RecordingPlugin();
+        QualityPluginManager manager = new QualityPluginManager(dispatcher);
+        manager.getPlugins().put(plugin, true);
+
+        for (int i = 0; i < 3; i++) {
+            manager.addQualityIssue(new LanguageQualityIssue());
+        }
+        manager.actionPerformed(new ActionEvent(new QualityMenuItem("Evaluate Score",
+                QualityMenuItem.EVALUATE_SCORE), ActionEvent.ACTION_PERFORMED, null));
+
+        assertTrue(plugin.evaluated.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("created", "created", "created", "evaluated"), plugin.calls);
+        assertTrue(plugin.evaluatedOnEventThread);
+    }
+
+    /**
+     * Records its calls; the issue notifications are slow, so that the
+     * evaluation is requested while they are queued.
+     */
+    private static class RecordingPlugin implements QualityPlugin {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch evaluated = new CountDownLatch(1);
+        private volatile boolean evaluatedOnEventThread;
+
+        @Override
+        public String getPluginName() {
+            return "quality";
+        }
+
+        @Override
+        public String getPluginVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public void lqiCreated(LanguageQualityIssue lqi) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            calls.add("created");
+        }
+
+        @Override
+        public boolean evaluateQualityScore(Window owner) {
+            evaluatedOnEventThread = SwingUtilities.isEventDispatchThread();
+            calls.add("evaluated");
+            evaluated.countDown();
+            return true;
+        }
+
+        @Override
+        public void loadAuditProfile(File file) {
+        }
+
+        @Override
+        public File createNewAuditProfile(Window ownerWindow) {
+            return null;
+        }
+
+        @Override
+        public File createAuditProfileFromExistingOne(File file, Window ownerWindow) {
+            return null;
+        }
+
+        @Override
+        public void viewAuditProfileProps(Window ownerWindow) {
+        }
+
+        @Override
+        public void documentOpened(int sampleSize, List<LanguageQualityIssue> lqiList,
+                List<OcelotSegment> segments) {
+        }
+
+        @Override
+        public void enableEvaluationOnTheFly(boolean enable) {
+        }
+
+        @Override
+        public void lqiEdited(LanguageQualityIssue oldLqi, LanguageQualityIssue newLqi) {
+        }
+
+        @Override
+        public void lqiRemoved(LanguageQualityIssue lqi) {
+        }
+
+        @Override
+        public void displayOnTheFlyResult(Window owner) {
+        }
+    }
+}
@@ -1,15 +1,55 @@
 package com.vistatec.ocelot.segment.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.List;
+
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
+import com.vistatec.ocelot.its.model.TerminologyMetaData;
+import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
+import com.vistatec.ocelot.segment.model.enrichment.EnrichmentMetadataConverter;
 
 public class TestBaseSegment {
 
+    @Test
+    public void testDeferredEnrichmentMetadata() {
+        final int[] conversions = new int[1];
+        SimpleSegment seg = newSegment();
+        seg.setDeferredEnrichmentMetadata(new EnrichmentMetadataConverter() {
+            @Override
+            public void convertEnrichments2ITSMetadata(OcelotSegment segment) {
+                conversions[0]++;
+                TextAnalysisMetaData ta = new TextAnalysisMetaData();
+                ta.setEntity("source");
+                // nested accesses do not convert again
+                if (segment.getTextAnalysis().isEmpty()) {
+                    segment.addTextAnalysis(ta);
+                }
+            }
+
+            @Override
+            public void readEnrichmentMetadata(OcelotSegment segment,
+                    List<TextAnalysisMetaData> textAnalysis,
+                    List<TerminologyMetaData> terms) {
+            }
+        });
+        assertTrue(seg.hasDeferredEnrichmentMetadata());
+        assertEquals(0, conversions[0]);
+
+        seg.addTerm(new TerminologyMetaData());
+        assertFalse(seg.hasDeferredEnrichmentMetadata());
+        assertEquals(1, conversions[0]);
+        assertEquals(1, seg.getTextAnalysis().size());
+        assertEquals(1, seg.getTerms().size());
+        assertEquals(2, seg.getITSMetadata().size());
+        assertEquals(1, conversions[0]);
+    }
+
     @Test
     public void testMultipleSegmentUpdates() throws Exception {
         OcelotSegment seg = newSegment();
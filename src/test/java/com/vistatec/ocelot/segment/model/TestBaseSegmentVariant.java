@@ -1,6 +1,7 @@
 package com.vistatec.ocelot.segment.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Before;
@@ -9,6 +10,10 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import com.google.common.collect.Lists;
+import com.vistatec.ocelot.segment.model.enrichment.DeferredEnrichments;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.TranslationEnrichment;
 
 public class TestBaseSegmentVariant {
     SimpleSegmentVariant simpleSv, complexSv;
@@ -99,4 +104,42 @@ public class TestBaseSegmentVariant {
         assertEquals(9, simpleSv.findSelectionEnd(7));
         assertEquals(9, simpleSv.findSelectionEnd(8));
     }
+
+    @Test
+    public void testDeferredEnrichments() {
+        final int[] hydrations = new int[1];
+        final EntityEnrichment entity = new EntityEnrichment("char=0,1", "http://dbpedia.org/resource/A");
+        final TranslationEnrichment translation = new TranslationEnrichment("char=0,1", "A", "it");
+        simpleSv.setDeferredEnrichments(new DeferredEnrichments() {
+            @Override
+            public List<Enrichment> hydrate() {
+                hydrations[0]++;
+                return Lists.<Enrichment>newArrayList(entity, translation);
+            }
+        });
+        assertTrue(simpleSv.hasDeferredEnrichments());
+        assertEquals(0, hydrations[0]);
+
+        // read enrichments are not kept
+        assertEquals(Collections.<Enrichment>singletonList(entity), simpleSv.readEnrichments());
+        assertTrue(simpleSv.hasDeferredEnrichments());
+        assertEquals(1, hydrations[0]);
+
+        assertEquals(translation, simpleSv.getTranslationEnrichment());
+        assertEquals(Collections.<Enrichment>singleton(entity), simpleSv.getEnirchments());
+        assertFalse(simpleSv.hasDeferredEnrichments());
+        assertEquals(2, hydrations[0]);
+
+        // cleared enrichments are never built
+        complexSv.setDeferredEnrichments(new DeferredEnrichments() {
+            @Override
+            public List<Enrichment> hydrate() {
+                hydrations[0]++;
+                return Lists.<Enrichment>newArrayList(entity);
+            }
+        });
+        complexSv.clearEnrichments();
+        assertNull(complexSv.getEnirchments());
+        assertEquals(2, hydrations[0]);
+    }
 }
@@ -45,6 +45,8 @@ import com.vistatec.ocelot.events.LQIAdditionEvent;
 import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIRemoveEvent;
 import com.vistatec.ocelot.events.SegmentNoteUpdatedEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUndoEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.services.SegmentService;
@@ -111,6 +113,11 @@ public class TestSegmentTableModel {
             return 0;
         }
 
+        @Override
+        public OcelotSegment getSegmentByNumber(int segmentNumber) {
+            return null;
+        }
+
         @Override
         public void setSegments(XLIFFDocument xliff) {
             throw new UnsupportedOperationException("Not supported yet.");
@@ -151,5 +158,15 @@ public class TestSegmentTableModel {
             throw new UnsupportedOperationException("Not supported yet.");
         }
 
+        @Override
+        public void updateSegmentTargets(SegmentTargetBatchUpdateEvent e) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
+        @Override
+        public void undoSegmentTargetBatch(SegmentTargetBatchUndoEvent e) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
     }
 }
@@ -1,6 +1,7 @@
 package com.vistatec.ocelot.services;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -14,15 +15,22 @@ import org.junit.Test;
 import com.vistatec.ocelot.config.UserProvenance;
 import com.vistatec.ocelot.events.ItsDocStatsAddedProvEvent;
 import com.vistatec.ocelot.events.ItsDocStatsChangedEvent;
+import com.vistatec.ocelot.events.ItsDocStatsRecalculateEvent;
 import com.vistatec.ocelot.events.ItsDocStatsUpdateLqiEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.its.model.Provenance;
+import com.vistatec.ocelot.its.model.TerminologyMetaData;
+import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
 import com.vistatec.ocelot.its.stats.model.ITSDocStats;
 import com.vistatec.ocelot.its.stats.model.ITSStats;
 import com.vistatec.ocelot.its.stats.model.LanguageQualityIssueStats;
 import com.vistatec.ocelot.its.stats.model.ProvenanceStats;
+import com.vistatec.ocelot.its.stats.model.TerminologyStats;
 import com.vistatec.ocelot.rules.RulesTestHelpers;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.enrichment.EnrichmentMetadataConverter;
 
 public class TestItsDocStatsService {
     private final Mockery mockery = new Mockery();
@@ -62,4 +70,36 @@ public class TestItsDocStatsService {
         expectedStats.add(new ProvenanceStats(ProvenanceStats.Type.revOrg, "b"));
         assertEquals(expectedStats, docStats.getStats());
     }
+
+    @Test
+    public void testRecalculateDeferredEnrichments() {
+        mockery.checking(new Expectations() {{
+            oneOf(mockEventQueue).post(with(any(ItsDocStatsChangedEvent.class)));
+        }});
+
+        SimpleSegment seg = new SimpleSegment.Builder()
+                .segmentNumber(1).source("source").target("target").build();
+        seg.setDeferredEnrichmentMetadata(new EnrichmentMetadataConverter() {
+            @Override
+            public void convertEnrichments2ITSMetadata(OcelotSegment segment) {
+                throw new AssertionError("the enrichments are converted");
+            }
+
+            @Override
+            public void readEnrichmentMetadata(OcelotSegment segment,
+                    List<TextAnalysisMetaData> textAnalysis,
+                    List<TerminologyMetaData> terms) {
+                TerminologyMetaData term = new TerminologyMetaData();
+                term.setTerm("source");
+                terms.add(term);
+            }
+        });
+        List<OcelotSegment> segments = Collections.<OcelotSegment> singletonList(seg);
+        docStatsService.recalculateStats(new ItsDocStatsRecalculateEvent(segments));
+        assertTrue(seg.hasDeferredEnrichmentMetadata());
+        assertEquals(1, docStats.getStats().size());
+        TerminologyStats termStats = (TerminologyStats) docStats.getStats().get(0);
+        assertEquals(TerminologyStats.Type.term.toString(), termStats.getType());
+        assertEquals("source", termStats.getValue());
+    }
 }
@@ -2,10 +2,14 @@ package com.vistatec.ocelot.services;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -16,13 +20,18 @@ import com.vistatec.ocelot.events.ItsDocStatsUpdateLqiEvent;
 import com.vistatec.ocelot.events.ItsDocStatsRecalculateEvent;
 import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIModificationEvent;
+import com.vistatec.ocelot.events.SegmentBatchEditEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUndoEvent;
+import com.vistatec.ocelot.events.SegmentTargetBatchUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.rules.RulesTestHelpers;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
 import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
 import com.vistatec.ocelot.xliff.XLIFFDocument;
 
 public class TestSegmentService {
@@ -77,6 +86,8 @@ public class TestSegmentService {
         assertEquals(0, segmentService.getNumSegments());
         segmentService.setSegments(xliff);
         assertEquals(1, segmentService.getNumSegments());
+        assertSame(segments.get(0), segmentService.getSegmentByNumber(1));
+        assertNull(segmentService.getSegmentByNumber(2));
         mockery.assertIsSatisfied();
     }
 
@@ -108,4 +119,38 @@ public class TestSegmentService {
         assertTrue(seg.getLQI().get(0).getType().equals("grammar"));
         assertTrue(seg.getLQI().get(0).getSeverity() == 75);
     }
+
+    @Test
+    public void testBatchUpdateAndUndo() {
+        final OcelotSegment seg1 = new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source("source")
+                .target("first target")
+                .build();
+        final OcelotSegment seg2 = new SimpleSegment.Builder()
+                .segmentNumber(2)
+                .source("source")
+                .target("second target")
+                .build();
+        mockery.checking(new Expectations() {{
+            exactly(2).of(mockEventQueue).post(with(any(SegmentBatchEditEvent.class)));
+            never(mockEventQueue).post(with(any(SegmentEditEvent.class)));
+        }});
+
+        Map<OcelotSegment, SegmentVariant> updatedTargets = new LinkedHashMap<>();
+        updatedTargets.put(seg1, new SimpleSegmentVariant("first replaced"));
+        updatedTargets.put(seg2, new SimpleSegmentVariant("second replaced"));
+        segmentService.updateSegmentTargets(new SegmentTargetBatchUpdateEvent(null, updatedTargets));
+        assertEquals("first replaced", seg1.getTarget().getDisplayText());
+        assertEquals("second replaced", seg2.getTarget().getDisplayText());
+
+        segmentService.undoSegmentTargetBatch(new SegmentTargetBatchUndoEvent());
+        assertEquals("first target", seg1.getTarget().getDisplayText());
+        assertEquals("second target", seg2.getTarget().getDisplayText());
+
+        // only the last batch can be undone
+        segmentService.undoSegmentTargetBatch(new SegmentTargetBatchUndoEvent());
+        assertEquals("first target", seg1.getTarget().getDisplayText());
+        mockery.assertIsSatisfied();
+    }
 }
@@ -0,0 +1,63 @@
+package com.vistatec.ocelot.tm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+
+public class TestTmMetrics {
+
+    @Test
+    public void testRecordQueries() {
+        TmMetrics metrics = new TmMetrics(100);
+        assertFalse(metrics.recordQuery("tm", TimeUnit.MICROSECONDS.toNanos(500), 3));
+        assertFalse(metrics.recordQuery("tm", TimeUnit.MILLISECONDS.toNanos(20), 0));
+        assertTrue(metrics.recordQuery("tm", TimeUnit.MILLISECONDS.toNanos(2000), 1));
+        metrics.recordSeekerOpened("tm", 4096);
+        metrics.recordSeekerClosed();
+
+        List<TmStatistics> statistics = metrics.getTmStatistics();
+        assertEquals(1, statistics.size());
+        TmStatistics stats = statistics.get(0);
+        assertEquals("tm", stats.getTmName());
+        assertEquals(3, stats.getQueryCount());
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2000, stats.getMaxLatencyMillis(), 0.001);
+        assertEquals(2020.5 / 3, stats.getMeanLatencyMillis(), 0.001);
+        assertArrayEquals(new long[] { 1, 0, 0, 1, 0, 0, 0, 1 }, stats.getLatencyHistogram());
+        assertEquals(4096, stats.getIndexSizeBytes());
+        assertEquals(1, metrics.getSeekersOpened());
+        assertEquals(1, metrics.getSeekersClosed());
+
+        metrics.reset();
+        assertTrue(metrics.getTmStatistics().isEmpty());
+    }
+
+    @Test
+    public void testJmxAttributes() throws Exception {
+        TmMetrics metrics = new TmMetrics(100);
+        metrics.recordQuery("tm", TimeUnit.MILLISECONDS.toNanos(7), 1);
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = new ObjectName(TmMetrics.OBJECT_NAME);
+        server.registerMBean(metrics, name);
+
+        CompositeData[] statistics = (CompositeData[]) server.getAttribute(name, "TmStatistics");
+        assertEquals(1, statistics.length);
+        assertEquals("tm", statistics[0].get("tmName"));
+        assertEquals(1L, statistics[0].get("queryCount"));
+
+        server.setAttribute(name, new Attribute("SlowQueryThresholdMillis", 5L));
+        assertEquals(5, metrics.getSlowQueryThresholdMillis());
+    }
+}
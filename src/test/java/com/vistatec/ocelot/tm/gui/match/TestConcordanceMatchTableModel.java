@@ -0,0 +1,118 @@
+package com.vistatec.ocelot.tm.gui.match;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.tm.TmMatch;
+
+public class TestConcordanceMatchTableModel {
+
+    private static final int PAGE_SIZE = ConcordanceMatchTableModel.PAGE_SIZE;
+
+    @Test
+    public void testMergeKeepsOrderAndCapacity() {
+        ConcordanceMatchTableModel model = new ConcordanceMatchTableModel(null);
+        model.setModel(new ArrayList<TmMatch>());
+        model.addMatches(matches("tm1", 90, 70, 50), true);
+        // unsorted batch, with a score tied with the first one
+        model.addMatches(matches("tm2", 60, 90, 80), true);
+
+        assertEquals(6, model.getRowCount());
+        assertEquals("tm1 90", origin(model, 0));
+        assertEquals("tm2 90", origin(model, 1));
+        assertEquals("tm2 80", origin(model, 2));
+        assertEquals("tm1 70", origin(model, 3));
+        assertEquals("tm2 60", origin(model, 4));
+        assertEquals("tm1 50", origin(model, 5));
+        assertFalse(model.hasMoreRows());
+
+        // only the displayed page and the next one are kept
+        model.addMatches(scores("tm3", 3 * PAGE_SIZE, 40), true);
+        assertEquals(PAGE_SIZE, model.getRowCount());
+        assertTrue(model.hasMoreRows());
+        model.loadNextPage();
+        assertEquals(2 * PAGE_SIZE, model.getRowCount());
+        assertTrue(model.isFetchNeeded());
+    }
+
+    @Test
+    public void testFetchReplacesMatches() {
+        ConcordanceMatchTableModel model = new ConcordanceMatchTableModel(null);
+        model.setModel(new ArrayList<TmMatch>());
+        // the TM returned as many matches as requested
+        model.addMatches(scores("tm1", ConcordanceMatchTableModel.INITIAL_CAPACITY, 90), false);
+        model.loadNextPage();
+        assertTrue(model.isFetchNeeded());
+        assertEquals(3 * PAGE_SIZE, model.getCapacity());
+
+        model.startFetch();
+        assertFalse(model.isFetchNeeded());
+        model.addMatches(scores("tm1", 2 * PAGE_SIZE + 10, 90), true);
+        // the fetched matches are displayed at once
+        assertEquals(2 * PAGE_SIZE, model.getRowCount());
+        model.endFetch();
+        assertEquals(2 * PAGE_SIZE, model.getRowCount());
+        model.loadNextPage();
+        assertEquals(2 * PAGE_SIZE + 10, model.getRowCount());
+        assertFalse(model.hasMoreRows());
+        assertFalse(model.isFetchNeeded());
+    }
+
+    private static String origin(ConcordanceMatchTableModel model, int row) {
+        TmMatch match = model.getElementAtRow(row);
+        return match.getTmOrigin() + " " + (int) match.getMatchScore();
+    }
+
+    private static List<TmMatch> matches(String tm, int... scores) {
+        List<TmMatch> matches = new ArrayList<>();
+        for (int score : scores) {
+            matches.add(new TestTmMatch(tm, score));
+        }
+        return matches;
+    }
+
+    private static List<TmMatch> scores(String tm, int count, int score) {
+        List<TmMatch> matches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            matches.add(new TestTmMatch(tm, score));
+        }
+        return matches;
+    }
+
+    private static class TestTmMatch implements TmMatch {
+        private final String tmOrigin;
+        private final float score;
+
+        public TestTmMatch(String tmOrigin, float score) {
+            this.tmOrigin = tmOrigin;
+            this.score = score;
+        }
+
+        @Override
+        public String getTmOrigin() {
+            return tmOrigin;
+        }
+
+        @Override
+        public float getMatchScore() {
+            return score;
+        }
+
+        @Override
+        public SegmentVariant getSource() {
+            return null;
+        }
+
+        @Override
+        public SegmentVariant getTarget() {
+            return null;
+        }
+    }
+}
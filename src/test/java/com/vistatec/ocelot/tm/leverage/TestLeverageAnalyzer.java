@@ -0,0 +1,189 @@
+package com.vistatec.ocelot.tm.leverage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.okapi.common.resource.TextContainer;
+
+import org.junit.Test;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentAtom;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
+import com.vistatec.ocelot.segment.model.WordCounter;
+import com.vistatec.ocelot.segment.model.okapi.TextContainerVariant;
+import com.vistatec.ocelot.tm.TmMatch;
+import com.vistatec.ocelot.tm.TmService;
+
+public class TestLeverageAnalyzer {
+
+    @Test
+    public void testMatchBands() {
+        assertEquals(MatchBand.EXACT, MatchBand.fromScore(100f));
+        assertEquals(MatchBand.HIGH_FUZZY, MatchBand.fromScore(99.9f));
+        assertEquals(MatchBand.HIGH_FUZZY, MatchBand.fromScore(95f));
+        assertEquals(MatchBand.MEDIUM_FUZZY, MatchBand.fromScore(94f));
+        assertEquals(MatchBand.LOW_FUZZY, MatchBand.fromScore(75f));
+        assertEquals(MatchBand.POOR_FUZZY, MatchBand.fromScore(50f));
+        assertEquals(MatchBand.MINIMAL_FUZZY, MatchBand.fromScore(49f));
+        assertEquals(MatchBand.MINIMAL_FUZZY, MatchBand.fromScore(-5f));
+    }
+
+    @Test
+    public void testCountWords() {
+        // the analysis counts the words like the quality plugin sample
+        assertEquals(0, WordCounter.countWords(""));
+        assertEquals(4, WordCounter.countWords("Click the \"OK\" button."));
+        assertEquals(2, WordCounter.countWords("Version 2 - final"));
+    }
+
+    @Test
+    public void testAnalyzeDocument() throws InterruptedException {
+        StubTmService tmService = new StubTmService();
+        tmService.addMatch("The red car", "La voiture rouge", 100f);
+        tmService.addMatch("The blue car", "La voiture rouge", 90f);
+        tmService.addMatch("The blue car", "La voiture bleue", 96f);
+        tmService.addMatch("A green bike", "Un vélo rouge", 60f);
+        tmService.addMatch("A red bike", "Une voiture rouge", 30f);
+
+        List<OcelotSegment> segments = new ArrayList<>();
+        segments.add(segment(1, "The red car"));
+        segments.add(segment(2, "The blue car"));
+        segments.add(segment(3, "A green bike"));
+        segments.add(segment(4, "Nothing"));
+        segments.add(segment(5, "A red bike"));
+
+        LeverageAnalysis analysis = new LeverageAnalyzer(tmService).analyze(segments);
+
+        assertEquals(5, analysis.getTotalSegmentCount());
+        assertEquals(13, analysis.getTotalWordCount());
+        assertEquals(1, analysis.getSegmentCount(MatchBand.EXACT));
+        assertEquals(1, analysis.getSegmentCount(MatchBand.HIGH_FUZZY));
+        assertEquals(0, analysis.getSegmentCount(MatchBand.MEDIUM_FUZZY));
+        assertEquals(1, analysis.getSegmentCount(MatchBand.POOR_FUZZY));
+        assertEquals(1, analysis.getSegmentCount(MatchBand.MINIMAL_FUZZY));
+        assertEquals(1, analysis.getSegmentCount(MatchBand.NO_MATCH));
+        assertEquals(3, analysis.getWordCount(MatchBand.POOR_FUZZY));
+        assertEquals(1, analysis.getWordCount(MatchBand.NO_MATCH));
+
+        Map<OcelotSegment, TmMatch> bestMatches = analysis.getBestMatches();
+        assertEquals("La voiture bleue", bestMatches.get(segments.get(1))
+                .getTarget().getDisplayText());
+        assertNull(bestMatches.get(segments.get(3)));
+    }
+
+    @Test
+    public void testPreTranslations() throws InterruptedException {
+        StubTmService tmService = new StubTmService();
+        tmService.addMatch("The red car", "La voiture rouge", 100f);
+        tmService.addMatch("The blue car", "La voiture bleue", 80f);
+        tmService.addMatch("The old car", "La vieille voiture", 100f);
+
+        List<OcelotSegment> segments = new ArrayList<>();
+        segments.add(editableSegment(1, "The red car", ""));
+        segments.add(editableSegment(2, "The blue car", ""));
+        segments.add(editableSegment(3, "The old car", "Déjà traduit"));
+
+        LeverageAnalysis analysis = new LeverageAnalyzer(tmService).analyze(segments);
+        Map<OcelotSegment, SegmentVariant> preTranslations =
+                LeverageAnalyzer.getPreTranslations(analysis, 95f);
+
+        assertEquals(1, preTranslations.size());
+        SegmentVariant target = preTranslations.get(segments.get(0));
+        assertEquals("La voiture rouge", target.getDisplayText());
+        assertTrue(target instanceof TextContainerVariant);
+
+        assertEquals(2, LeverageAnalyzer.getPreTranslations(analysis, 80f).size());
+    }
+
+    private static OcelotSegment segment(int segNum, String source) {
+        return new SimpleSegment.Builder().segmentNumber(segNum).source(source).build();
+    }
+
+    private static OcelotSegment editableSegment(int segNum, String source, String target) {
+        return new SimpleSegment(segNum, new TextContainerVariant(new TextContainer(source)),
+                new TextContainerVariant(new TextContainer(target)), null, null) {
+            @Override
+            public boolean isEditable() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * TM service returning fixed matches by source text, searching the
+     * segments one after the other.
+     */
+    private static class StubTmService implements TmService {
+        private final Map<String, List<TmMatch>> matches = new HashMap<>();
+
+        void addMatch(final String source, final String target, final float score) {
+            List<TmMatch> sourceMatches = matches.get(source);
+            if (sourceMatches == null) {
+                sourceMatches = new ArrayList<>();
+                matches.put(source, sourceMatches);
+            }
+            sourceMatches.add(new TmMatch() {
+                @Override
+                public String getTmOrigin() {
+                    return "test";
+                }
+
+                @Override
+                public float getMatchScore() {
+                    return score;
+                }
+
+                @Override
+                public SegmentVariant getSource() {
+                    return new SimpleSegmentVariant(source);
+                }
+
+                @Override
+                public SegmentVariant getTarget() {
+                    return new SimpleSegmentVariant(target);
+                }
+            });
+        }
+
+        @Override
+        public List<TmMatch> getFuzzyTermMatches(List<SegmentAtom> segment) throws IOException {
+            throw new AssertionError("The analysis must not fill the match cache");
+        }
+
+        @Override
+        public List<List<TmMatch>> getUncachedFuzzyTermMatches(
+                List<List<SegmentAtom>> segments, int parallelism) {
+            List<List<TmMatch>> segmentMatches = new ArrayList<>();
+            for (List<SegmentAtom> segment : segments) {
+                StringBuilder text = new StringBuilder();
+                for (SegmentAtom atom : segment) {
+                    text.append(atom.getData());
+                }
+                List<TmMatch> sourceMatches = matches.get(text.toString());
+                segmentMatches.add(sourceMatches == null
+                        ? new ArrayList<TmMatch>() : sourceMatches);
+            }
+            return segmentMatches;
+        }
+
+        @Override
+        public List<TmMatch> getConcordanceMatches(List<SegmentAtom> segment) throws IOException {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void getConcordanceMatches(List<SegmentAtom> segment, int maxResults,
+                ConcordanceListener listener) throws IOException {
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.vistatec.ocelot.tm.okapi;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 
 import org.jmock.api.Invocation;
 import org.jmock.lib.action.CustomAction;
@@ -26,6 +31,28 @@ public class OkapiTmTestHelpers {
         }
     }
 
+    /**
+     * Write a TMX file with generated en-US/es-ES translation units, whose
+     * sources are "&lt;prefix&gt; segment &lt;n&gt; ...".
+     */
+    static void writeTmx(File tmx, String prefix, int tuCount) throws IOException {
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(tmx), StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<tmx version=\"1.4\">\n"
+                    + "<header creationtool=\"Ocelot\" creationtoolversion=\"3\" "
+                    + "segtype=\"sentence\" o-tmf=\"various\" adminlang=\"en-US\" "
+                    + "srclang=\"en-US\" datatype=\"PlainText\" />\n<body>\n");
+            for (int i = 0; i < tuCount; i++) {
+                writer.write("<tu><tuv xml:lang=\"en-US\"><seg>" + prefix + " segment " + i
+                        + " of the generated translation memory</seg></tuv>"
+                        + "<tuv xml:lang=\"es-ES\"><seg>" + prefix + " segmento " + i
+                        + " de la memoria de traducción generada</seg></tuv></tu>\n");
+            }
+            writer.write("</body>\n</tmx>\n");
+        }
+    }
+
     /**
      * JMock custom action for a mock method that just returns the first
      * argument passed to the method.
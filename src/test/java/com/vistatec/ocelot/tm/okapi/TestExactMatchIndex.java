@@ -0,0 +1,78 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.sf.okapi.common.LocaleId;
+import net.sf.okapi.common.resource.TextFragment;
+import net.sf.okapi.tm.pensieve.common.TmHit;
+import net.sf.okapi.tm.pensieve.common.TranslationUnit;
+import net.sf.okapi.tm.pensieve.common.TranslationUnitVariant;
+import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestExactMatchIndex {
+    private RAMDirectory dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = new RAMDirectory();
+        PensieveWriter writer = new PensieveWriter(dir, true);
+        writer.indexTranslationUnit(tu("Click the button", "Cliquez sur le bouton"));
+        writer.indexTranslationUnit(tu("Close  the window ", "Fermez la fenêtre"));
+        writer.indexTranslationUnit(tu("Open the file", "Ouvrez le fichier"));
+        writer.commit();
+        writer.close();
+    }
+
+    @Test
+    public void testCandidateSources() throws IOException {
+        IndexReader reader = IndexReader.open(dir, true);
+        ExactMatchIndex index = ExactMatchIndex.build(reader);
+        reader.close();
+
+        assertTrue(index.mayContain("Click the button"));
+        assertTrue(index.mayContain("Close  the window "));
+        assertFalse(index.mayContain("Close\tthe window"));
+        assertFalse(index.mayContain("Click  the button"));
+        assertFalse(index.mayContain("Click the red button"));
+        assertFalse(index.mayContain("click the button"));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("Close the window", ExactMatchIndex.normalize(" Close \t the\nwindow  "));
+    }
+
+    @Test
+    public void testSharedSeekerSearchExact() throws IOException {
+        OkapiTmManager.SharedSeeker seeker = new OkapiTmManager.SharedSeeker(dir, false);
+        seeker.acquire();
+        seeker.buildExactIndex();
+
+        List<TmHit> hits = seeker.searchExact("Close  the window ");
+        assertEquals(1, hits.size());
+        assertEquals(100, hits.get(0).getScore(), 0);
+        assertEquals("Fermez la fenêtre", hits.get(0).getTu().getTarget().getContent().getText());
+        // only differing in whitespace: left to the fuzzy search
+        assertTrue(seeker.searchExact("Close the window").isEmpty());
+        assertTrue(seeker.searchExact("Close the door").isEmpty());
+
+        seeker.retire();
+        seeker.release();
+    }
+
+    private static TranslationUnit tu(String source, String target) {
+        return new TranslationUnit(
+                new TranslationUnitVariant(LocaleId.fromString("en-US"), new TextFragment(source)),
+                new TranslationUnitVariant(LocaleId.fromString("fr-FR"), new TextFragment(target)));
+    }
+}
@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.jmock.Expectations;
@@ -179,6 +180,46 @@ public class TestOkapiTmManager {
         manager.changeTmDataDir("non-existent", newDataDir);
     }
 
+    @Test
+    public void testImportTmxFingerprintsCopy() throws IOException, ConfigTransferService.TransferException, URISyntaxException {
+        tmxWriter = mockery.mock(TmTmxWriter.class);
+        cfgService = mockery.mock(ConfigService.class);
+
+        final String IMPORTED_TM_NAME = "imported";
+        final File tmRootDir = OkapiTmTestHelpers.getTestOkapiTmDir();
+        final File tmDataDir = new File(new File(tmRootDir, IMPORTED_TM_NAME), "tmx");
+        final TmManagement.TmConfig importedConfig = new TmManagement.TmConfig();
+        importedConfig.setTmName(IMPORTED_TM_NAME);
+        importedConfig.setTmDataDir(tmDataDir.getAbsolutePath());
+        importedConfig.setEnabled(true);
+
+        mockery.checking(new Expectations() {
+                {
+                    allowing(cfgService).getTms();
+                        will(returnValue(new ArrayList()));
+                    allowing(cfgService).getTmConfig(with(IMPORTED_TM_NAME));
+                        will(onConsecutiveCalls(
+                                returnValue(null),
+                                returnValue(importedConfig),
+                                returnValue(importedConfig)));
+                    oneOf(cfgService).createNewTmConfig(with(IMPORTED_TM_NAME),
+                            with(true), with(tmDataDir.getAbsolutePath()));
+                }
+        });
+        manager = new OkapiTmManager(tmRootDir, cfgService, tmxWriter);
+
+        File tmx = new File(TestOkapiTmManager.class.getResource("simple_tm.tmx").toURI());
+        manager.importTmx(IMPORTED_TM_NAME, tmx);
+
+        // the file indexed is the copy in the data directory
+        File tmxCopy = new File(tmDataDir, tmx.getName());
+        assertTrue(tmxCopy.exists());
+        TmxFingerprints fingerprints = TmxFingerprints.load(
+                new File(new File(tmRootDir, IMPORTED_TM_NAME), "pensieve.fingerprints"));
+        assertEquals(Collections.singleton(tmxCopy.getCanonicalPath()),
+                fingerprints.getPaths());
+    }
+
     static OcelotRootConfig setupOldForeignDataDir() throws IOException, URISyntaxException {
         File packageDir = new File(TestOkapiTmManager.class.getResource("").toURI());
 
@@ -1,32 +1,56 @@
 package com.vistatec.ocelot.tm.okapi;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.okapi.common.LocaleId;
+import net.sf.okapi.common.resource.TextFragment;
+import net.sf.okapi.tm.pensieve.seeker.PensieveSeeker;
+
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.lib.concurrent.Synchroniser;
 import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.vistatec.ocelot.config.OcelotConfigService;
 import com.vistatec.ocelot.config.ConfigTransferService;
 import com.vistatec.ocelot.config.xml.OcelotRootConfig;
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.segment.model.SegmentAtom;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
 import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
 import com.vistatec.ocelot.tm.TmMatch;
 import com.vistatec.ocelot.tm.TmPenalizer;
+import com.vistatec.ocelot.tm.TmService;
 import com.vistatec.ocelot.tm.TmTmxWriter;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
 
 public class TestOkapiTmService {
-    private final Mockery mockery = new Mockery();
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final Mockery mockery = new Mockery() {
+        {
+            // the segments are searched on several threads
+            setThreadingPolicy(new Synchroniser());
+        }
+    };
     private final ConfigTransferService cfgXService = mockery.mock(ConfigTransferService.class);
 
     private OkapiTmService tmService;
+    private OkapiTmManager tmManager;
     private File testTm;
 
     @Before
@@ -71,6 +95,32 @@ public class TestOkapiTmService {
         assertEquals("simple_tm", watermelonResults.get(0).getTmOrigin());
     }
 
+    @Test
+    public void testUncachedFuzzySegments() throws ConfigTransferService.TransferException,
+            URISyntaxException, IOException, InterruptedException {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+
+        List<List<SegmentAtom>> segments = new ArrayList<>();
+        for (String text : new String[] { "apple orange", "watermelon", "kiwi",
+                "orange apple", "watermelon" }) {
+            segments.add(new SimpleSegmentVariant(text).getAtoms());
+        }
+        // more segments than the parallel searches, in the segment order
+        List<List<TmMatch>> results = tmService.getUncachedFuzzyTermMatches(segments, 2);
+        assertEquals(5, results.size());
+        assertEquals("apple orange pear", results.get(0).get(0).getSource().getDisplayText());
+        assertEquals("watermelon pineapple", results.get(1).get(0).getSource().getDisplayText());
+        assertTrue(results.get(2).isEmpty());
+        assertEquals("orange apple pear", results.get(3).get(0).getSource().getDisplayText());
+        assertEquals(1, results.get(4).size());
+    }
+
     @Test
     public void testConcordance() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
         final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
@@ -86,6 +136,65 @@ public class TestOkapiTmService {
         assertEquals(4, results.size());
     }
 
+    @Test
+    public void testIncrementalConcordance() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+
+        List<SegmentAtom> apple = new SimpleSegmentVariant("apple").getAtoms();
+        final List<List<TmMatch>> found = new ArrayList<>();
+        tmService.getConcordanceMatches(apple, 10, new TmService.ConcordanceListener() {
+            @Override
+            public void matchesFound(List<TmMatch> matches) {
+                found.add(matches);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        });
+        assertEquals(1, found.size());
+        assertEquals(4, found.get(0).size());
+        assertEquals("simple_tm", found.get(0).get(0).getTmOrigin());
+
+        // fewer matches per TM than the configured maximum
+        found.clear();
+        tmService.getConcordanceMatches(apple, 2, new TmService.ConcordanceListener() {
+            @Override
+            public void matchesFound(List<TmMatch> matches) {
+                found.add(matches);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        });
+        assertEquals(1, found.size());
+        assertEquals(2, found.get(0).size());
+
+        // a cancelled search reports nothing
+        found.clear();
+        tmService.getConcordanceMatches(apple, 10, new TmService.ConcordanceListener() {
+            @Override
+            public void matchesFound(List<TmMatch> matches) {
+                found.add(matches);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        });
+        assertTrue(found.isEmpty());
+    }
+
     @Test
     public void testSearchOnlyEnabled() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
         final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
@@ -105,6 +214,176 @@ public class TestOkapiTmService {
         assertEquals(0, results.size());
     }
 
+    @Test
+    public void testSeekersReusedUntilIndexChanges() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+
+        List<SegmentAtom> appleOrange = new SimpleSegmentVariant("apple orange").getAtoms();
+        assertEquals(2, tmService.getFuzzyTermMatches(appleOrange).size());
+
+        OkapiTmManager.TmPair first = tmManager.getSeekers().next();
+        first.release();
+        OkapiTmManager.TmPair second = tmManager.getSeekers().next();
+        assertSame(first.getSeeker(), second.getSeeker());
+
+        // the seeker in use keeps working until it is released
+        tmManager.regenerateTm("simple_tm");
+        PensieveSeeker oldSeeker = second.getSeeker();
+        assertEquals(2, oldSeeker.searchFuzzy(new TextFragment("apple orange"), 1, 5, null).size());
+        second.release();
+
+        OkapiTmManager.TmPair third = tmManager.getSeekers().next();
+        assertNotSame(oldSeeker, third.getSeeker());
+        third.release();
+        assertEquals(2, tmService.getFuzzyTermMatches(appleOrange).size());
+    }
+
+    @Test
+    public void testFuzzyMatchesCached() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+
+        List<SegmentAtom> appleOrange = new SimpleSegmentVariant("apple orange").getAtoms();
+        List<TmMatch> results = tmService.getFuzzyTermMatches(appleOrange);
+        assertEquals(2, results.size());
+        // callers may modify the returned list without affecting the cache
+        results.clear();
+
+        List<SegmentAtom> spacedAppleOrange = new SimpleSegmentVariant(" apple  orange ").getAtoms();
+        List<TmMatch> cachedResults = tmService.getFuzzyTermMatches(spacedAppleOrange);
+        assertEquals(2, cachedResults.size());
+        assertEquals("apple orange pear", cachedResults.get(0).getSource().getDisplayText());
+
+        // disabling the TM makes the cached matches stale
+        config.getTmManagement().getTms().get(0).setEnabled(false);
+        assertEquals(0, tmService.getFuzzyTermMatches(appleOrange).size());
+        config.getTmManagement().getTms().get(0).setEnabled(true);
+        assertEquals(2, tmService.getFuzzyTermMatches(appleOrange).size());
+    }
+
+    @Test
+    public void testMergeAcrossTms() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        OcelotRootConfig otherConfig = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("other_tm")
+                    .testTmFileResource(testTm)
+                    .build();
+        config.getTmManagement().getTms().addAll(otherConfig.getTmManagement().getTms());
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+
+        // equal scores keep the TM order
+        List<SegmentAtom> appleOrange = new SimpleSegmentVariant("apple orange").getAtoms();
+        List<TmMatch> results = tmService.getFuzzyTermMatches(appleOrange);
+        assertEquals(4, results.size());
+        assertEquals("apple orange pear", results.get(0).getSource().getDisplayText());
+        assertEquals("simple_tm", results.get(0).getTmOrigin());
+        assertEquals("apple orange pear", results.get(1).getSource().getDisplayText());
+        assertEquals("other_tm", results.get(1).getTmOrigin());
+        assertEquals("orange apple pear", results.get(2).getSource().getDisplayText());
+        assertEquals("simple_tm", results.get(2).getTmOrigin());
+
+        // the maximum number of results applies to the merged matches
+        List<SegmentAtom> apple = new SimpleSegmentVariant("apple").getAtoms();
+        results = tmService.getConcordanceMatches(apple);
+        assertEquals(5, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getMatchScore() >= results.get(i).getMatchScore());
+        }
+    }
+
+    @Test
+    public void testRegenerateOnlyChangedFiles() throws ConfigTransferService.TransferException, URISyntaxException, IOException {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        File dataDir = new File(config.getTmManagement().getTms().get(0).getTmDataDir());
+        File kiwi = new File(dataDir, "kiwi.tmx");
+        OkapiTmTestHelpers.writeTmx(kiwi, "kiwi", 3);
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+
+        List<SegmentAtom> apple = new SimpleSegmentVariant("apple").getAtoms();
+        List<SegmentAtom> kiwiText = new SimpleSegmentVariant("kiwi").getAtoms();
+        List<SegmentAtom> lemonText = new SimpleSegmentVariant("lemon").getAtoms();
+        assertEquals(4, tmService.getConcordanceMatches(apple).size());
+        assertEquals(3, tmService.getConcordanceMatches(kiwiText).size());
+
+        // a touched but unchanged file keeps its units, without duplicates
+        File testTmx = new File(dataDir, "test.tmx");
+        testTmx.setLastModified(testTmx.lastModified() - 10000);
+        kiwi.delete();
+        OkapiTmTestHelpers.writeTmx(new File(dataDir, "lemon.tmx"), "lemon", 2);
+        tmManager.regenerateTm("simple_tm");
+        assertEquals(4, tmService.getConcordanceMatches(apple).size());
+        assertEquals(0, tmService.getConcordanceMatches(kiwiText).size());
+        assertEquals(2, tmService.getConcordanceMatches(lemonText).size());
+
+        // a changed file has its units replaced
+        OkapiTmTestHelpers.writeTmx(testTmx, "apple", 1);
+        tmManager.regenerateTm("simple_tm");
+        assertEquals(1, tmService.getConcordanceMatches(apple).size());
+        assertEquals(2, tmService.getConcordanceMatches(lemonText).size());
+    }
+
+    @Test
+    public void testProjectTmSearched() throws Exception {
+        final OcelotRootConfig config = new TmConfigBuilder(OkapiTmTestHelpers.getTestOkapiTmDir())
+                    .tmName("simple_tm")
+                    .testTmFileResource(testTm)
+                    .fuzzyThreshold(1)
+                    .maxResults(5)
+                    .build();
+        this.tmService = new OkapiTmServiceBuilder(config).build();
+        final XLIFFDocument xliff = mockery.mock(XLIFFDocument.class);
+        mockery.checking(new Expectations() {
+            {
+                allowing(xliff).getSrcLocale();
+                    will(returnValue(LocaleId.fromString("en-US")));
+                allowing(xliff).getTgtLocale();
+                    will(returnValue(LocaleId.fromString("es-ES")));
+                allowing(xliff).getFile();
+                    will(returnValue(new File("test.xlf")));
+            }
+        });
+        ProjectTm projectTm = new ProjectTm(folder.getRoot());
+        projectTm.openFile(new OpenFileEvent("test.xlf", xliff));
+        tmManager.setProjectTm(projectTm);
+
+        List<SegmentAtom> bananaApple = new SimpleSegmentVariant("banana apple").getAtoms();
+        List<TmMatch> results = tmService.getFuzzyTermMatches(bananaApple);
+        assertEquals(1, results.size());
+        assertEquals("simple_tm", results.get(0).getTmOrigin());
+
+        // the edit makes the cached matches stale
+        projectTm.targetUpdated(new SegmentTargetUpdateEvent(xliff, new SimpleSegment.Builder()
+                .segmentNumber(1).source("banana apple").target("").build(),
+                new SimpleSegmentVariant("plátano y manzana")));
+        projectTm.flushNow();
+        results = tmService.getFuzzyTermMatches(bananaApple);
+        assertEquals(2, results.size());
+        assertEquals(ProjectTm.TM_NAME, results.get(0).getTmOrigin());
+        assertEquals("plátano y manzana", results.get(0).getTarget().getDisplayText());
+        assertEquals("simple_tm", results.get(1).getTmOrigin());
+    }
+
     @AfterClass
     public static void cleanup() throws URISyntaxException {
         OkapiTmTestHelpers.deleteDirectory(OkapiTmTestHelpers.getTestOkapiTmDir());
@@ -132,7 +411,7 @@ public class TestOkapiTmService {
             });
 
             OcelotConfigService cfgService = new OcelotConfigService(cfgXService);
-            OkapiTmManager tmManager = new OkapiTmManager(OkapiTmTestHelpers.getTestOkapiTmDir(), cfgService, tmxWriter);
+            tmManager = new OkapiTmManager(OkapiTmTestHelpers.getTestOkapiTmDir(), cfgService, tmxWriter);
             return new OkapiTmService(tmManager, penalizer, cfgService);
         }
     }
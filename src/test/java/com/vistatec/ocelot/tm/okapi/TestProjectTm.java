@@ -0,0 +1,122 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import net.sf.okapi.common.LocaleId;
+import net.sf.okapi.common.resource.TextFragment;
+import net.sf.okapi.tm.pensieve.common.TmHit;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+public class TestProjectTm {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final Mockery mockery = new Mockery();
+    private final XLIFFDocument xliff = document("test.xlf");
+    private ProjectTm projectTm;
+
+    @Before
+    public void before() {
+        projectTm = new ProjectTm(folder.getRoot());
+        projectTm.openFile(new OpenFileEvent("test.xlf", xliff));
+    }
+
+    @Test
+    public void testConfirmedSegmentsSearchable() throws InterruptedException, ExecutionException {
+        projectTm.flushNow();
+        assertNull(projectTm.acquireSeeker());
+        int version = projectTm.getVersion();
+
+        confirm(1, "Click the button", "Cliquez sur le bouton");
+        confirm(2, "Close the window", "Fermez la fenêtre");
+        confirm(3, "Open the file", "");
+        projectTm.flushNow();
+        assertTrue(projectTm.getVersion() > version);
+
+        assertEquals(Arrays.asList("Cliquez sur le bouton"), search("Click the button"));
+        assertEquals(Arrays.asList("Fermez la fenêtre"), search("Close the window"));
+        assertTrue(search("Open the file").isEmpty());
+
+        // a new translation of the same source replaces the previous one
+        confirm(1, "Click the button", "Cliquez le bouton");
+        projectTm.flushNow();
+        assertEquals(Arrays.asList("Cliquez le bouton"), search("Click the button"));
+    }
+
+    @Test
+    public void testOpenFileSwitchesTm() throws InterruptedException, ExecutionException {
+        confirm(1, "Click the button", "Cliquez sur le bouton");
+        projectTm.flushNow();
+        OkapiTmManager.TmPair tmPair = projectTm.acquireSeeker();
+
+        XLIFFDocument other = document("other.xlf");
+        projectTm.openFile(new OpenFileEvent("other.xlf", other));
+        projectTm.flushNow();
+        assertNull(projectTm.acquireSeeker());
+
+        // the seeker in use keeps working until it is released
+        assertEquals(1, tmPair.getSeeker().searchFuzzy(
+                new TextFragment("Click the button"), 100, 5, null).size());
+        tmPair.release();
+
+        // the translations confirmed in a previous session are kept
+        projectTm.openFile(new OpenFileEvent("test.xlf", xliff));
+        projectTm.flushNow();
+        assertEquals(Arrays.asList("Cliquez sur le bouton"), search("Click the button"));
+    }
+
+    private List<String> search(String text) {
+        OkapiTmManager.TmPair tmPair = projectTm.acquireSeeker();
+        try {
+            assertEquals(ProjectTm.TM_NAME, tmPair.getTmOrigin());
+            assertTrue(tmPair.isProjectTm());
+            List<String> targets = new ArrayList<>();
+            for (TmHit hit : tmPair.getSeeker().searchFuzzy(new TextFragment(text), 100, 5, null)) {
+                targets.add(hit.getTu().getTarget().getContent().getText());
+            }
+            return targets;
+        } finally {
+            tmPair.release();
+        }
+    }
+
+    private void confirm(int segNum, String source, String target) {
+        projectTm.targetUpdated(new SegmentTargetUpdateEvent(xliff,
+                new SimpleSegment.Builder().segmentNumber(segNum).source(source)
+                        .target("").build(), new SimpleSegmentVariant(target)));
+    }
+
+    private XLIFFDocument document(final String name) {
+        final XLIFFDocument document = mockery.mock(XLIFFDocument.class, name);
+        mockery.checking(new Expectations() {
+            {
+                allowing(document).getSrcLocale();
+                    will(returnValue(LocaleId.fromString("en-US")));
+                allowing(document).getTgtLocale();
+                    will(returnValue(LocaleId.fromString("fr-FR")));
+                allowing(document).getFile();
+                    will(returnValue(new File(name)));
+            }
+        });
+        return document;
+    }
+}
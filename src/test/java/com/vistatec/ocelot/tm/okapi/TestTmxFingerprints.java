@@ -0,0 +1,46 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+
+public class TestTmxFingerprints {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameNameInAnotherDirectory() throws IOException {
+        File indexed = tmx("old", "<tmx>first</tmx>");
+        File other = tmx("new", "<tmx>other</tmx>");
+        // same name, size and date as the indexed file
+        other.setLastModified(indexed.lastModified());
+
+        File fingerprintsFile = new File(folder.getRoot(), "fingerprints.properties");
+        TmxFingerprints fingerprints = TmxFingerprints.load(fingerprintsFile);
+        fingerprints.put(indexed);
+        fingerprints.save();
+
+        fingerprints = TmxFingerprints.load(fingerprintsFile);
+        assertEquals(Collections.singleton(indexed.getCanonicalPath()), fingerprints.getPaths());
+        assertFalse(fingerprints.hasChanged(indexed));
+        assertTrue(fingerprints.hasChanged(other));
+    }
+
+    private File tmx(String dir, String content) throws IOException {
+        File tmx = new File(folder.newFolder(dir), "tm.tmx");
+        Files.write(content, tmx, StandardCharsets.UTF_8);
+        return tmx;
+    }
+}
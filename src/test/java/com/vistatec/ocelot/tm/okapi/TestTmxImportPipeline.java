@@ -0,0 +1,110 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.okapi.common.resource.TextFragment;
+import net.sf.okapi.tm.pensieve.common.TmHit;
+import net.sf.okapi.tm.pensieve.seeker.PensieveSeeker;
+import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
+
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTmxImportPipeline {
+    private File tmxDir;
+
+    @Before
+    public void before() throws URISyntaxException {
+        tmxDir = new File(OkapiTmTestHelpers.getTestOkapiTmDir(), "tmx");
+        OkapiTmTestHelpers.deleteDirectory(tmxDir);
+        tmxDir.mkdirs();
+    }
+
+    @AfterClass
+    public static void cleanup() throws URISyntaxException {
+        OkapiTmTestHelpers.deleteDirectory(OkapiTmTestHelpers.getTestOkapiTmDir());
+    }
+
+    @Test
+    public void testImportSeveralFiles() throws IOException {
+        List<File> tmxFiles = new ArrayList<>();
+        for (String prefix : Arrays.asList("alpha", "beta", "gamma")) {
+            File tmx = new File(tmxDir, prefix + ".tmx");
+            OkapiTmTestHelpers.writeTmx(tmx, prefix, 25);
+            tmxFiles.add(tmx);
+        }
+
+        final List<File> parsedFiles = Collections.synchronizedList(new ArrayList<File>());
+        final long[] lastIndexed = new long[1];
+        TmxImportPipeline pipeline = new TmxImportPipeline(7, 16,
+                new TmxImportPipeline.ProgressListener() {
+                    @Override
+                    public void fileParsed(File tmx, int parsed, int total) {
+                        assertEquals(3, total);
+                        parsedFiles.add(tmx);
+                    }
+
+                    @Override
+                    public synchronized void unitsIndexed(long indexedUnits) {
+                        lastIndexed[0] = Math.max(lastIndexed[0], indexedUnits);
+                    }
+                });
+
+        RAMDirectory dir = new RAMDirectory();
+        PensieveWriter writer = new PensieveWriter(dir, true);
+        assertEquals(75, pipeline.importTmx(tmxFiles, writer, true));
+        assertEquals(75, writer.getIndexWriter().numDocs());
+        writer.close();
+
+        assertEquals(3, parsedFiles.size());
+        assertTrue(parsedFiles.containsAll(tmxFiles));
+        assertEquals(75, lastIndexed[0]);
+
+        PensieveSeeker seeker = new PensieveSeeker(dir);
+        List<TmHit> hits = seeker.searchFuzzy(new TextFragment(
+                "gamma segment 12 of the generated translation memory"), 100, 5, null);
+        assertEquals(1, hits.size());
+        assertEquals("gamma segmento 12 de la memoria de traducción generada",
+                hits.get(0).getTu().getTarget().getContent().getText());
+        seeker.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFileFailsImport() throws IOException {
+        File valid = new File(tmxDir, "valid.tmx");
+        OkapiTmTestHelpers.writeTmx(valid, "valid", 5000);
+        File broken = new File(tmxDir, "broken.tmx");
+        try (FileOutputStream out = new FileOutputStream(broken)) {
+            out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tmx version=\"1.4\">"
+                    + "<header srclang=\"en-US\"/><body><tu><tuv xml:lang=\"en-US\"><seg>")
+                    .getBytes("UTF-8"));
+        }
+
+        PensieveWriter writer = new PensieveWriter(new RAMDirectory(), true);
+        try {
+            new TmxImportPipeline(10, 16, new TmxImportPipeline.ProgressListener() {
+                @Override
+                public void fileParsed(File tmx, int parsed, int total) {
+                }
+
+                @Override
+                public void unitsIndexed(long indexedUnits) {
+                }
+            }).importTmx(Arrays.asList(valid, broken), writer, true);
+        } finally {
+            writer.close();
+        }
+    }
+}
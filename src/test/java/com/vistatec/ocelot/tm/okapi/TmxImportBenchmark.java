@@ -0,0 +1,89 @@
+package com.vistatec.ocelot.tm.okapi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
+
+import org.apache.lucene.store.FSDirectory;
+
+import com.google.common.io.Files;
+
+/**
+ * Compares the TUs/sec of the sequential TMX import, one file and one writer
+ * at a time, with the {@link TmxImportPipeline}. Not run by the test suite:
+ *
+ * <pre>
+ * TmxImportBenchmark [files] [TUs per file]
+ * </pre>
+ */
+public class TmxImportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int tusPerFile = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        File workDir = Files.createTempDir();
+        try {
+            File tmxDir = new File(workDir, "tmx");
+            tmxDir.mkdirs();
+            List<File> tmxFiles = new ArrayList<>();
+            for (int i = 0; i < fileCount; i++) {
+                File tmx = new File(tmxDir, "tm" + i + ".tmx");
+                OkapiTmTestHelpers.writeTmx(tmx, "file" + i, tusPerFile);
+                tmxFiles.add(tmx);
+            }
+            long totalTus = (long) fileCount * tusPerFile;
+            System.out.println("Importing " + totalTus + " TUs from " + fileCount
+                    + " TMX files");
+
+            long start = System.nanoTime();
+            File sequentialIndex = new File(workDir, "sequential");
+            boolean create = true;
+            for (File tmx : tmxFiles) {
+                PensieveWriter writer = new PensieveWriter(
+                        FSDirectory.open(sequentialIndex), create);
+                new OkapiTmTmxImporter().parse(tmx, writer);
+                writer.close();
+                create = false;
+            }
+            report("sequential", totalTus, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            PensieveWriter writer = new PensieveWriter(
+                    FSDirectory.open(new File(workDir, "pipeline")), true);
+            long indexed = new TmxImportPipeline(
+                    new TmxImportPipeline.ProgressListener() {
+                        @Override
+                        public void fileParsed(File tmx, int parsedFiles, int totalFiles) {
+                        }
+
+                        @Override
+                        public void unitsIndexed(long indexedUnits) {
+                        }
+                    }).importTmx(tmxFiles, writer, true);
+            writer.close();
+            report("pipeline", indexed, System.nanoTime() - start);
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    private static void report(String name, long tus, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%-10s %10d TUs %8.2f s %10.0f TUs/sec",
+                name, tus, seconds, tus / seconds));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
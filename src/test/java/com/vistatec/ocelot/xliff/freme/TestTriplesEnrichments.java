@@ -0,0 +1,127 @@
+package com.vistatec.ocelot.xliff.freme;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.vistatec.ocelot.segment.model.enrichment.ELinkEnrichmentsConstants;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
+
+public class TestTriplesEnrichments {
+    private static final String BERLIN = "http://dbpedia.org/resource/Berlin";
+    private static final String TERM = "http://example.com/term/1";
+    private static final String ONTOLEX = "http://www.w3.org/ns/lemon/ontolex#";
+    private static final String RDFS_COMMENT = "http://www.w3.org/2000/01/rdf-schema#comment";
+
+    private final EnrichmentConverter converter = new EnrichmentConverter("en-US", "it-IT",
+            LoggerFactory.getLogger(TestTriplesEnrichments.class)) {
+    };
+
+    @Test
+    public void testRetrieveTriplesEnrichments() {
+        Model model = createModel();
+        List<Enrichment> enrichments = new ArrayList<>();
+        EntityEnrichment entity = new EntityEnrichment("char=0,6", BERLIN);
+        TerminologyEnrichment term = new TerminologyEnrichment("char=0,6");
+        term.setTermInfoRef(TERM);
+        enrichments.add(entity);
+        enrichments.add(term);
+
+        List<Enrichment> triplesEnrichments = converter.retrieveTriplesEnrichments(
+                toJsonLd(model), enrichments, "en");
+
+        assertEquals(2, triplesEnrichments.size());
+        LinkEnrichment link = null;
+        TerminologyEnrichment termEnrichment = null;
+        for (Enrichment enrichment : triplesEnrichments) {
+            if (enrichment instanceof LinkEnrichment) {
+                link = (LinkEnrichment) enrichment;
+            } else {
+                termEnrichment = (TerminologyEnrichment) enrichment;
+            }
+        }
+        assertEquals(BERLIN, link.getReferenceEntity());
+        assertEquals(6, link.getOffsetEndIdx());
+        assertEquals("Berlin", link.getEntityName().getValue());
+        assertEquals("Capital of Germany", link.getShortDescription().getValue());
+        assertNull(link.getLongDescription());
+        assertEquals("http://en.wikipedia.org/wiki/Berlin", link.getWikiPage().getValue());
+        assertEquals(1, link.getInfoList().size());
+        assertEquals("3500000", link.getInfoList().get(0).getValue());
+
+        assertEquals("Berlin", termEnrichment.getSourceTerm());
+        assertEquals("Berlino", termEnrichment.getTargetTerm());
+        assertEquals("city", termEnrichment.getSense());
+        assertEquals(TERM, termEnrichment.getTermInfoRef());
+        assertEquals(6, termEnrichment.getTermTriples().size());
+        // the terminology enrichment is replaced by the ones built from the triples
+        assertEquals(1, enrichments.size());
+        assertTrue(enrichments.contains(entity));
+    }
+
+    @Test
+    public void testFillLinkEnrichmentFromModel() {
+        Model model = createModel();
+        LinkEnrichment fromModel = new LinkEnrichment(0, 6, "it");
+        ELinkEnrichmentsConstants.fillLinkEnrichment(fromModel, model, BERLIN);
+        LinkEnrichment fromIndex = new LinkEnrichment(0, 6, "it");
+        TriplesIndex triples = TriplesIndex.parse(toJsonLd(model));
+        ELinkEnrichmentsConstants.fillLinkEnrichment(fromIndex,
+                triples.getProperties(model.createResource(BERLIN).asNode()), BERLIN);
+
+        assertEquals("Berlino", fromModel.getEntityName().getValue());
+        assertEquals(fromModel.getEntityName().getValue(), fromIndex.getEntityName().getValue());
+        assertNull(fromModel.getShortDescription());
+        assertNull(fromIndex.getShortDescription());
+        assertEquals(fromModel.getLinks(), fromIndex.getLinks());
+        assertEquals(fromModel.getInfoList().size(), fromIndex.getInfoList().size());
+    }
+
+    static Model createModel() {
+        Model model = ModelFactory.createDefaultModel();
+        Resource berlin = model.createResource(BERLIN);
+        Property label = model.createProperty(ELinkEnrichmentsConstants.ENTITY_NAME_PROP);
+        model.add(berlin, label, "Berlin", "en");
+        model.add(berlin, label, "Berlino", "it");
+        model.add(berlin, model.createProperty(ELinkEnrichmentsConstants.SHORT_DESCR_PROP),
+                "Capital of Germany", "en");
+        model.add(berlin, model.createProperty(ELinkEnrichmentsConstants.WIKI_LINK_PROP),
+                model.createResource("http://en.wikipedia.org/wiki/Berlin"));
+        model.add(berlin, model.createProperty(ELinkEnrichmentsConstants.POPULATION_TOTAL),
+                "3500000");
+
+        Resource concept = model.createResource("http://example.com/concept/1");
+        model.add(model.createResource(TERM),
+                model.createProperty("http://www.w3.org/2005/11/its/rdf#termInfoRef"), concept);
+        model.add(concept, model.createProperty(RDFS_COMMENT), "city");
+        Property reference = model.createProperty(ONTOLEX, "reference");
+        Property writtenRep = model.createProperty(ONTOLEX, "writtenRep");
+        model.add(model.createResource("http://example.com/en#Sense"), reference, concept);
+        model.add(model.createResource("http://example.com/en#CanonicalForm"), writtenRep,
+                "Berlin", "en");
+        model.add(model.createResource("http://example.com/it#Sense"), reference, concept);
+        model.add(model.createResource("http://example.com/it#CanonicalForm"), writtenRep,
+                "Berlino", "it");
+        return model;
+    }
+
+    static String toJsonLd(Model model) {
+        StringWriter writer = new StringWriter();
+        model.write(writer, EnrichmentAnnotationsConstants.JSON_LD_FORMAT);
+        return writer.toString();
+    }
+}
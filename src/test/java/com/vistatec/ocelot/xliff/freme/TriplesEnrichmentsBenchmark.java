@@ -0,0 +1,102 @@
+package com.vistatec.ocelot.xliff.freme;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.ResIterator;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.vistatec.ocelot.segment.model.enrichment.ELinkEnrichmentsConstants;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
+
+/**
+ * Compares the fragments/sec of building the link enrichments of annotated
+ * fragments by reading a Jena model, as the converter used to, with the
+ * streamed {@link TriplesIndex}. Not run by the test suite:
+ *
+ * <pre>
+ * TriplesEnrichmentsBenchmark [fragments] [entities per fragment]
+ * </pre>
+ */
+public class TriplesEnrichmentsBenchmark {
+
+    public static void main(String[] args) {
+        int fragmentCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int entityCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<String> jsonStrings = new ArrayList<>();
+        List<Enrichment> entities = new ArrayList<>();
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < entityCount; i++) {
+            String uri = "http://dbpedia.org/resource/Entity_" + i;
+            entities.add(new EntityEnrichment("char=0,6", uri));
+            Resource entity = model.createResource(uri);
+            model.add(entity, model.createProperty(ELinkEnrichmentsConstants.ENTITY_NAME_PROP),
+                    "Entity " + i, "en");
+            model.add(entity, model.createProperty(ELinkEnrichmentsConstants.LONG_DESCR_PROP),
+                    "A long description of the entity number " + i, "en");
+            model.add(entity, model.createProperty(ELinkEnrichmentsConstants.WIKI_LINK_PROP),
+                    model.createResource("http://en.wikipedia.org/wiki/Entity_" + i));
+        }
+        String jsonString = TestTriplesEnrichments.toJsonLd(model);
+        for (int i = 0; i < fragmentCount; i++) {
+            jsonStrings.add(jsonString);
+        }
+        EnrichmentConverter converter = new EnrichmentConverter("en", "it",
+                LoggerFactory.getLogger(TriplesEnrichmentsBenchmark.class)) {
+        };
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int links = 0;
+            for (String json : jsonStrings) {
+                links += readModel(json, entities).size();
+            }
+            report("model", fragmentCount, links, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            links = 0;
+            for (String json : jsonStrings) {
+                links += converter.retrieveTriplesEnrichments(json,
+                        new ArrayList<>(entities), "en").size();
+            }
+            report("streamed", fragmentCount, links, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The former conversion: a model per fragment, and a scan of the
+     * enrichments for each subject.
+     */
+    private static List<Enrichment> readModel(String json, List<Enrichment> entities) {
+        List<Enrichment> links = new ArrayList<>();
+        Model model = ModelFactory.createDefaultModel();
+        model.read(new StringReader(json), null, EnrichmentAnnotationsConstants.JSON_LD_FORMAT);
+        ResIterator subjects = model.listSubjects();
+        while (subjects.hasNext()) {
+            String uri = subjects.next().getURI();
+            for (Enrichment entity : entities) {
+                if (uri.equals(((EntityEnrichment) entity).getEntityURL())) {
+                    LinkEnrichment link = new LinkEnrichment(entity.getOffsetStartIdx(),
+                            entity.getOffsetEndIdx(), "en");
+                    ELinkEnrichmentsConstants.fillLinkEnrichment(link, model, uri);
+                    links.add(link);
+                    break;
+                }
+            }
+        }
+        return links;
+    }
+
+    private static void report(String name, int fragments, int links, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%-10s %8d fragments %8d links %8.2f s %10.0f fragments/sec",
+                name, fragments, links, seconds, fragments / seconds));
+    }
+}